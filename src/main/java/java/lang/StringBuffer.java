@@ -26,6 +26,7 @@
 package java.lang;
 
 import java.util.Arrays;
+import java.util.ContentionProfiler;
 
 /**
  * A thread-safe, mutable sequence of characters.
@@ -177,27 +178,43 @@ import java.util.Arrays;
     }
 
     @Override
-    public synchronized int length() {
-        return count;//返回字符个数
+    public int length() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return count;//返回字符个数
+        }
     }
 
     @Override
-    public synchronized int capacity() {
-        return value.length;//返回容量大小也就是数组大小
+    public int capacity() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return value.length;//返回容量大小也就是数组大小
+        }
     }
 
 
     @Override
-    public synchronized void ensureCapacity(int minimumCapacity) {
-        super.ensureCapacity(minimumCapacity);//确保value数组的大小不小于minimumCapacity
+    public void ensureCapacity(int minimumCapacity) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            super.ensureCapacity(minimumCapacity);//确保value数组的大小不小于minimumCapacity
+        }
     }
 
     /**
      * @since      1.5
      */
     @Override
-    public synchronized void trimToSize() {
-        super.trimToSize();//新分配一个数组仅保留与字符个数相等的大小，将字符复制过去
+    public void trimToSize() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            super.trimToSize();//新分配一个数组仅保留与字符个数相等的大小，将字符复制过去
+        }
     }
 
     /**
@@ -205,9 +222,13 @@ import java.util.Arrays;
      * @see        #length()
      */
     @Override
-    public synchronized void setLength(int newLength) {
-        toStringCache = null;//清空上一次toString的缓存
-        super.setLength(newLength);
+    public void setLength(int newLength) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;//清空上一次toString的缓存
+            super.setLength(newLength);
+        }
     }
 
     /**
@@ -215,52 +236,76 @@ import java.util.Arrays;
      * @see        #length()
      */
     @Override
-    public synchronized char charAt(int index) {
-        if ((index < 0) || (index >= count))
-            throw new StringIndexOutOfBoundsException(index);
-        return value[index];//返回指定位置的字符
+    public char charAt(int index) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            if ((index < 0) || (index >= count))
+                throw new StringIndexOutOfBoundsException(index);
+            return value[index];//返回指定位置的字符
+        }
     }
 
     /**
      * @since      1.5
      */
     @Override
-    public synchronized int codePointAt(int index) {
-        return super.codePointAt(index);//返回指定位置的代码点
+    public int codePointAt(int index) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.codePointAt(index);//返回指定位置的代码点
+        }
     }
 
     /**
      * @since     1.5
      */
     @Override
-    public synchronized int codePointBefore(int index) {
-        return super.codePointBefore(index);//返回指定位置前一位的代码点
+    public int codePointBefore(int index) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.codePointBefore(index);//返回指定位置前一位的代码点
+        }
     }
 
     /**
      * @since     1.5
      */
     @Override
-    public synchronized int codePointCount(int beginIndex, int endIndex) {
-        return super.codePointCount(beginIndex, endIndex);//统计从beginIndex到endIndex之间的代码点数量
+    public int codePointCount(int beginIndex, int endIndex) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.codePointCount(beginIndex, endIndex);//统计从beginIndex到endIndex之间的代码点数量
+        }
     }
 
     /**
      * @since     1.5
      */
     @Override
-    public synchronized int offsetByCodePoints(int index, int codePointOffset) {
-        return super.offsetByCodePoints(index, codePointOffset);
+    public int offsetByCodePoints(int index, int codePointOffset) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.offsetByCodePoints(index, codePointOffset);
+        }
     }
 
     /**
      * @throws IndexOutOfBoundsException {@inheritDoc}
      */
     @Override
-    public synchronized void getChars(int srcBegin, int srcEnd, char[] dst,
+    public void getChars(int srcBegin, int srcEnd, char[] dst,
                                       int dstBegin)
     {
-        super.getChars(srcBegin, srcEnd, dst, dstBegin);//复制value从srcBegin到srcEnd的内容到dst从dstBegin开始的位置
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            super.getChars(srcBegin, srcEnd, dst, dstBegin);//复制value从srcBegin到srcEnd的内容到dst从dstBegin开始的位置
+        }
     }
 
     /**
@@ -268,25 +313,37 @@ import java.util.Arrays;
      * @see        #length()
      */
     @Override
-    public synchronized void setCharAt(int index, char ch) {
-        if ((index < 0) || (index >= count))
-            throw new StringIndexOutOfBoundsException(index);
-        toStringCache = null;//清空toString缓存
-        value[index] = ch;//修改对应位置的字符
+    public void setCharAt(int index, char ch) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            if ((index < 0) || (index >= count))
+                throw new StringIndexOutOfBoundsException(index);
+            toStringCache = null;//清空toString缓存
+            value[index] = ch;//修改对应位置的字符
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(Object obj) {
-        toStringCache = null;
-        super.append(String.valueOf(obj));
-        return this;
+    public StringBuffer append(Object obj) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(String.valueOf(obj));
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(String str) {
-        toStringCache = null;
-        super.append(str);
-        return this;
+    public StringBuffer append(String str) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(str);
+            return this;
+        }
     }
 
     /**
@@ -313,20 +370,28 @@ import java.util.Arrays;
      * @return  a reference to this object.
      * @since 1.4
      */
-    public synchronized StringBuffer append(StringBuffer sb) {
-        toStringCache = null;
-        super.append(sb);
-        return this;
+    public StringBuffer append(StringBuffer sb) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(sb);
+            return this;
+        }
     }
 
     /**
      * @since 1.8
      */
     @Override
-    synchronized StringBuffer append(AbstractStringBuilder asb) {
-        toStringCache = null;
-        super.append(asb);
-        return this;
+    StringBuffer append(AbstractStringBuilder asb) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(asb);
+            return this;
+        }
     }
 
     /**
@@ -351,10 +416,14 @@ import java.util.Arrays;
      * @since 1.5
      */
     @Override
-    public synchronized StringBuffer append(CharSequence s) {
-        toStringCache = null;
-        super.append(s);
-        return this;
+    public StringBuffer append(CharSequence s) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(s);
+            return this;
+        }
     }
 
     /**
@@ -362,80 +431,120 @@ import java.util.Arrays;
      * @since      1.5
      */
     @Override
-    public synchronized StringBuffer append(CharSequence s, int start, int end)
+    public StringBuffer append(CharSequence s, int start, int end)
     {
-        toStringCache = null;
-        super.append(s, start, end);
-        return this;
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(s, start, end);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(char[] str) {
-        toStringCache = null;
-        super.append(str);
-        return this;
+    public StringBuffer append(char[] str) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(str);
+            return this;
+        }
     }
 
     /**
      * @throws IndexOutOfBoundsException {@inheritDoc}
      */
     @Override
-    public synchronized StringBuffer append(char[] str, int offset, int len) {
-        toStringCache = null;
-        super.append(str, offset, len);
-        return this;
+    public StringBuffer append(char[] str, int offset, int len) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(str, offset, len);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(boolean b) {
-        toStringCache = null;
-        super.append(b);
-        return this;
+    public StringBuffer append(boolean b) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(b);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(char c) {
-        toStringCache = null;
-        super.append(c);
-        return this;
+    public StringBuffer append(char c) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(c);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(int i) {
-        toStringCache = null;
-        super.append(i);
-        return this;
+    public StringBuffer append(int i) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(i);
+            return this;
+        }
     }
 
     /**
      * @since 1.5
      */
     @Override
-    public synchronized StringBuffer appendCodePoint(int codePoint) {
-        toStringCache = null;
-        super.appendCodePoint(codePoint);
-        return this;
+    public StringBuffer appendCodePoint(int codePoint) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.appendCodePoint(codePoint);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(long lng) {
-        toStringCache = null;
-        super.append(lng);
-        return this;
+    public StringBuffer append(long lng) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(lng);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(float f) {
-        toStringCache = null;
-        super.append(f);
-        return this;
+    public StringBuffer append(float f) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(f);
+            return this;
+        }
     }
 
     @Override
-    public synchronized StringBuffer append(double d) {
-        toStringCache = null;
-        super.append(d);
-        return this;
+    public StringBuffer append(double d) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.append(d);
+            return this;
+        }
     }
 
     /**
@@ -443,10 +552,14 @@ import java.util.Arrays;
      * @since      1.2
      */
     @Override
-    public synchronized StringBuffer delete(int start, int end) {
-        toStringCache = null;//清除toString缓存
-        super.delete(start, end);//删除从start到end-1位置的元素
-        return this;
+    public StringBuffer delete(int start, int end) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;//清除toString缓存
+            super.delete(start, end);//删除从start到end-1位置的元素
+            return this;
+        }
     }
 
     /**
@@ -454,10 +567,14 @@ import java.util.Arrays;
      * @since      1.2
      */
     @Override
-    public synchronized StringBuffer deleteCharAt(int index) {
-        toStringCache = null;
-        super.deleteCharAt(index);//将index后一位开始的内容复制到index的位置
-        return this;
+    public StringBuffer deleteCharAt(int index) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.deleteCharAt(index);//将index后一位开始的内容复制到index的位置
+            return this;
+        }
     }
 
     /**
@@ -465,10 +582,14 @@ import java.util.Arrays;
      * @since      1.2
      */
     @Override
-    public synchronized StringBuffer replace(int start, int end, String str) {
-        toStringCache = null;
-        super.replace(start, end, str);//移除start到end-1的内容，将str插入到start开始的位置
-        return this;
+    public StringBuffer replace(int start, int end, String str) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.replace(start, end, str);//移除start到end-1的内容，将str插入到start开始的位置
+            return this;
+        }
     }
 
     /**
@@ -476,8 +597,12 @@ import java.util.Arrays;
      * @since      1.2
      */
     @Override
-    public synchronized String substring(int start) {
-        return substring(start, count);
+    public String substring(int start) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return substring(start, count);
+        }
     }
 
     /**
@@ -485,8 +610,12 @@ import java.util.Arrays;
      * @since      1.4
      */
     @Override
-    public synchronized CharSequence subSequence(int start, int end) {
-        return super.substring(start, end);
+    public CharSequence subSequence(int start, int end) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.substring(start, end);
+        }
     }
 
     /**
@@ -494,8 +623,12 @@ import java.util.Arrays;
      * @since      1.2
      */
     @Override
-    public synchronized String substring(int start, int end) {
-        return super.substring(start, end);
+    public String substring(int start, int end) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.substring(start, end);
+        }
     }
 
     /**
@@ -503,42 +636,58 @@ import java.util.Arrays;
      * @since      1.2
      */
     @Override
-    public synchronized StringBuffer insert(int index, char[] str, int offset,
+    public StringBuffer insert(int index, char[] str, int offset,
                                             int len)
     {
-        toStringCache = null;
-        super.insert(index, str, offset, len);
-        return this;
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.insert(index, str, offset, len);
+            return this;
+        }
     }
 
     /**
      * @throws StringIndexOutOfBoundsException {@inheritDoc}
      */
     @Override
-    public synchronized StringBuffer insert(int offset, Object obj) {
-        toStringCache = null;
-        super.insert(offset, String.valueOf(obj));
-        return this;
+    public StringBuffer insert(int offset, Object obj) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.insert(offset, String.valueOf(obj));
+            return this;
+        }
     }
 
     /**
      * @throws StringIndexOutOfBoundsException {@inheritDoc}
      */
     @Override
-    public synchronized StringBuffer insert(int offset, String str) {
-        toStringCache = null;
-        super.insert(offset, str);
-        return this;
+    public StringBuffer insert(int offset, String str) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.insert(offset, str);
+            return this;
+        }
     }
 
     /**
      * @throws StringIndexOutOfBoundsException {@inheritDoc}
      */
     @Override
-    public synchronized StringBuffer insert(int offset, char[] str) {
-        toStringCache = null;
-        super.insert(offset, str);
-        return this;
+    public StringBuffer insert(int offset, char[] str) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.insert(offset, str);
+            return this;
+        }
     }
 
     /**
@@ -559,12 +708,16 @@ import java.util.Arrays;
      * @since      1.5
      */
     @Override
-    public synchronized StringBuffer insert(int dstOffset, CharSequence s,
+    public StringBuffer insert(int dstOffset, CharSequence s,
             int start, int end)
     {
-        toStringCache = null;
-        super.insert(dstOffset, s, start, end);
-        return this;
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.insert(dstOffset, s, start, end);
+            return this;
+        }
     }
 
     /**
@@ -583,10 +736,14 @@ import java.util.Arrays;
      * @throws IndexOutOfBoundsException {@inheritDoc}
      */
     @Override
-    public synchronized StringBuffer insert(int offset, char c) {
-        toStringCache = null;
-        super.insert(offset, c);
-        return this;
+    public StringBuffer insert(int offset, char c) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.insert(offset, c);
+            return this;
+        }
     }
 
     /**
@@ -650,8 +807,12 @@ import java.util.Arrays;
      * @since      1.4
      */
     @Override
-    public synchronized int indexOf(String str, int fromIndex) {
-        return super.indexOf(str, fromIndex);//调用了String.indexOf
+    public int indexOf(String str, int fromIndex) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.indexOf(str, fromIndex);//调用了String.indexOf
+        }
     }
 
     /**
@@ -667,26 +828,38 @@ import java.util.Arrays;
      * @since      1.4
      */
     @Override
-    public synchronized int lastIndexOf(String str, int fromIndex) {
-        return super.lastIndexOf(str, fromIndex);//调用了String.lastIndexOf
+    public int lastIndexOf(String str, int fromIndex) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return super.lastIndexOf(str, fromIndex);//调用了String.lastIndexOf
+        }
     }
 
     /**
      * @since   JDK1.0.2
      */
     @Override
-    public synchronized StringBuffer reverse() {
-        toStringCache = null;
-        super.reverse();//以中心为轴，从中间点开始做轴对称位置的字符复制交换
-        return this;
+    public StringBuffer reverse() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            toStringCache = null;
+            super.reverse();//以中心为轴，从中间点开始做轴对称位置的字符复制交换
+            return this;
+        }
     }
 
     @Override
-    public synchronized String toString() {
-        if (toStringCache == null) {
-            toStringCache = Arrays.copyOfRange(value, 0, count);//缓存无效时，创建一个新的数组将value中的有效字符复制进去
+    public String toString() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            if (toStringCache == null) {
+                toStringCache = Arrays.copyOfRange(value, 0, count);//缓存无效时，创建一个新的数组将value中的有效字符复制进去
+            }
+            return new String(toStringCache, true);//缓存有效时直接返回，缓存中的字符串是被共享的
         }
-        return new String(toStringCache, true);//缓存有效时直接返回，缓存中的字符串是被共享的
     }
 
     /**
@@ -711,13 +884,17 @@ import java.util.Arrays;
      * readObject is called to restore the state of the StringBuffer from
      * a stream.
      */
-    private synchronized void writeObject(java.io.ObjectOutputStream s)
+    private void writeObject(java.io.ObjectOutputStream s)
         throws java.io.IOException {
-        java.io.ObjectOutputStream.PutField fields = s.putFields();
-        fields.put("value", value);
-        fields.put("count", count);
-        fields.put("shared", false);
-        s.writeFields();
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            java.io.ObjectOutputStream.PutField fields = s.putFields();
+            fields.put("value", value);
+            fields.put("count", count);
+            fields.put("shared", false);
+            s.writeFields();
+        }
     }
 
     /**
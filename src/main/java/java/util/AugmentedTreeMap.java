@@ -0,0 +1,346 @@
+package java.util;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * A {@link TreeMap} whose entries also hold an aggregate of the mappings
+ * of their subtree, kept up to date as the tree is modified and
+ * rebalanced, so that aggregates over key ranges can be computed in
+ * log(n) time rather than by iterating over a {@code subMap} view.
+ * 在TreeMap的每个结点上额外保存其子树的聚合值，在插入、删除、旋转时维护，使得区间聚合查询只需要O(log n)
+ *
+ * <p>The aggregate is defined by two functions given at creation: a
+ * <em>mapper</em> giving the aggregate of a single mapping, and an
+ * associative <em>combiner</em> merging the aggregates of two adjacent
+ * runs of mappings, the first argument holding the lower keys.  A
+ * {@code null} aggregate stands for no mappings.  For instance, with
+ * {@code Long} keys and values,
+ * <pre> {@code
+ * AugmentedTreeMap<Long,Long,Long> sums =
+ *     new AugmentedTreeMap<>((k, v) -> v, Long::sum);
+ * long total = sums.aggregate(a, true, b, true);}</pre>
+ * keeps subtree sums, and {@code Math::max} or {@code Math::min} subtree
+ * maxima or minima; the number of mappings of a range is already given
+ * in log(n) time by {@link #rank}.
+ *
+ * <p>{@link #firstMatch} and {@link #forEachMatch} find the mappings
+ * whose own aggregate passes a test, skipping the subtrees whose aggregate
+ * fails it; this requires that the test pass for the combination of two
+ * aggregates exactly when it passes for one of them.  This answers
+ * interval queries: with intervals keyed by their start and the maximum
+ * of their ends as the aggregate,
+ * <pre> {@code
+ * AugmentedTreeMap<Long,Range,Long> windows =
+ *     new AugmentedTreeMap<>((start, r) -> r.end, Math::max);
+ * windows.forEachMatch(t, true, end -> end >= t, action);}</pre>
+ * visits the intervals that contain {@code t} in O((k + 1) log(n)) time
+ * for k results, and {@code firstMatch} finds whether any does in
+ * log(n) time.
+ *
+ * <p>Each modification recomputes the aggregates of the entries on the
+ * path from the changed entry to the root, calling the mapper and
+ * combiner about log(n) times; {@code Entry.setValue} on the entries of
+ * the views does the same.  The functions must not modify the map.  The
+ * map is serializable if the functions are.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @param <A> the type of the aggregates
+ *
+ * @see TreeMap
+ */
+public class AugmentedTreeMap<K,V,A> extends TreeMap<K,V> {
+    private static final long serialVersionUID = -2570147418820263417L;
+
+    /**
+     * The aggregate of a single mapping.
+     *
+     * @serial
+     */
+    private final BiFunction<? super K, ? super V, ? extends A> mapper;
+
+    /**
+     * Merges the aggregates of two adjacent runs of mappings.
+     *
+     * @serial
+     */
+    private final BinaryOperator<A> combiner;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its keys
+     * and the given aggregate functions.
+     *
+     * @param mapper the aggregate of a single mapping
+     * @param combiner merges the aggregates of two adjacent runs of
+     *        mappings, the first holding the lower keys; must be
+     *        associative
+     * @throws NullPointerException if a function is null
+     */
+    public AugmentedTreeMap(BiFunction<? super K, ? super V, ? extends A> mapper,
+                            BinaryOperator<A> combiner) {
+        this(null, mapper, combiner);
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator, with the given aggregate functions.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     * @param mapper the aggregate of a single mapping
+     * @param combiner merges the aggregates of two adjacent runs of
+     *        mappings, the first holding the lower keys; must be
+     *        associative
+     * @throws NullPointerException if a function is null
+     */
+    public AugmentedTreeMap(Comparator<? super K> comparator,
+                            BiFunction<? super K, ? super V, ? extends A> mapper,
+                            BinaryOperator<A> combiner) {
+        super(comparator);
+        this.mapper = Objects.requireNonNull(mapper);
+        this.combiner = Objects.requireNonNull(combiner);
+    }
+
+    /**
+     * A TreeMap entry holding the aggregate of its subtree.
+     */
+    static final class Node<K,V,A> extends TreeMap.Entry<K,V> {
+        final AugmentedTreeMap<K,V,A> map;
+        A aggregate;
+
+        Node(AugmentedTreeMap<K,V,A> map, K key, V value, TreeMap.Entry<K,V> parent) {
+            super(key, value, parent);
+            this.map = map;
+        }
+
+        /**
+         * Replaces the value, and recomputes the aggregates up to the root.
+         */
+        public V setValue(V value) {
+            V oldValue = super.setValue(value);
+            for (TreeMap.Entry<K,V> e = this; e != null; e = e.parent)
+                map.afterSubtreeChange(e);
+            return oldValue;
+        }
+    }
+
+    TreeMap.Entry<K,V> newEntry(K key, V value, TreeMap.Entry<K,V> parent) {
+        Node<K,V,A> p = new Node<>(this, key, value, parent);
+        if (mapper != null)
+            p.aggregate = mapper.apply(key, value);
+        return p;
+    }
+
+    void afterSubtreeChange(TreeMap.Entry<K,V> e) {
+        if (combiner == null)
+            return; // 反序列化时函数还未读入，由readObject统一计算
+        @SuppressWarnings("unchecked")
+            Node<K,V,A> p = (Node<K,V,A>)e;
+        p.aggregate = combine(combine(aggregateOf(p.left),
+                                      mapper.apply(p.key, p.value)),
+                              aggregateOf(p.right));
+    }
+
+    /**
+     * Returns the aggregate of the subtree of e, null if there is none or
+     * e is a phantom being deleted.
+     */
+    @SuppressWarnings("unchecked")
+    final A aggregateOf(TreeMap.Entry<K,V> e) {
+        return (e == null || e.count == 0) ? null : ((Node<K,V,A>)e).aggregate;
+    }
+
+    final A combine(A a, A b) {
+        return (a == null) ? b : (b == null) ? a : combiner.apply(a, b);
+    }
+
+    /**
+     * Recomputes the aggregates of the subtree of e, children first.
+     */
+    private void recompute(TreeMap.Entry<K,V> e) {
+        if (e != null) {
+            recompute(e.left);
+            recompute(e.right);
+            afterSubtreeChange(e);
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        try {
+            super.replaceAll(function);
+        } finally {
+            recompute(root);//逐个修改值后一次性重新计算所有聚合值
+        }
+    }
+
+    /* ---------------- Aggregate queries -------------- */
+
+    /**
+     * Returns the aggregate of all the mappings of this map, in constant
+     * time.
+     *
+     * @return the aggregate of this map, or {@code null} if it is empty
+     */
+    public A aggregate() {
+        return aggregateOf(root);
+    }
+
+    /**
+     * Returns the aggregate of the mappings whose keys range from
+     * {@code fromKey} to {@code toKey}, in log(n) time.  The aggregates
+     * are combined in key order.
+     *
+     * @param fromKey low endpoint of the keys
+     * @param fromInclusive {@code true} if the low endpoint is included
+     * @param toKey high endpoint of the keys
+     * @param toInclusive {@code true} if the high endpoint is included
+     * @return the aggregate of the range, or {@code null} if it holds no
+     *         mappings
+     * @throws ClassCastException if {@code fromKey} and {@code toKey}
+     *         cannot be compared to one another using this map's comparator
+     * @throws NullPointerException if {@code fromKey} or {@code toKey}
+     *         is null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     */
+    public A aggregate(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (compare(fromKey, toKey) > 0)
+            throw new IllegalArgumentException("fromKey > toKey");
+        TreeMap.Entry<K,V> t = root;
+        while (t != null) {//找到键在范围内的最高结点，左右两条边界路径从它分开
+            if (tooLow(t.key, fromKey, fromInclusive))
+                t = t.right;
+            else if (tooHigh(t.key, toKey, toInclusive))
+                t = t.left;
+            else
+                break;
+        }
+        if (t == null)
+            return null;
+        A low = null, high = null;
+        for (TreeMap.Entry<K,V> x = t.left; x != null; ) {//左边界：自右向左累积
+            if (tooLow(x.key, fromKey, fromInclusive))
+                x = x.right;
+            else {
+                low = combine(combine(mapper.apply(x.key, x.value),
+                                      aggregateOf(x.right)), low);
+                x = x.left;
+            }
+        }
+        for (TreeMap.Entry<K,V> x = t.right; x != null; ) {//右边界：自左向右累积
+            if (tooHigh(x.key, toKey, toInclusive))
+                x = x.left;
+            else {
+                high = combine(high, combine(aggregateOf(x.left),
+                                             mapper.apply(x.key, x.value)));
+                x = x.right;
+            }
+        }
+        return combine(combine(low, mapper.apply(t.key, t.value)), high);
+    }
+
+    /**
+     * Returns the entry with the least key, not above {@code toKey}, whose
+     * aggregate passes the test, in log(n) time.  The test must pass for
+     * the combination of two aggregates exactly when it passes for one of
+     * them.
+     *
+     * @param toKey high endpoint of the keys
+     * @param inclusive {@code true} if the high endpoint is included
+     * @param test the test of the aggregates
+     * @return the first matching entry, or {@code null} if there is none
+     * @throws ClassCastException if {@code toKey} cannot be compared with
+     *         the keys currently in the map
+     * @throws NullPointerException if {@code toKey} is null and this map
+     *         uses natural ordering, or its comparator does not permit null
+     *         keys, or if the test is null
+     */
+    public Map.Entry<K,V> firstMatch(K toKey, boolean inclusive, Predicate<? super A> test) {
+        Objects.requireNonNull(test);
+        TreeMap.Entry<K,V> t = root;
+        while (t != null) {
+            if (tooHigh(t.key, toKey, inclusive))
+                t = t.left;
+            else if (t.left != null && test.test(aggregateOf(t.left)))
+                t = t.left;//左子树的键都在范围内，聚合值通过说明其中必有匹配
+            else if (test.test(mapper.apply(t.key, t.value)))
+                return exportEntry(t);
+            else
+                t = t.right;
+        }
+        return null;
+    }
+
+    /**
+     * Performs the given action, in key order, for each mapping with a key
+     * not above {@code toKey} whose aggregate passes the test, skipping the
+     * subtrees whose aggregate fails it.  The test must pass for the
+     * combination of two aggregates exactly when it passes for one of them.
+     * This takes O((k + 1) log(n)) time for k matching mappings.
+     *
+     * @param toKey high endpoint of the keys
+     * @param inclusive {@code true} if the high endpoint is included
+     * @param test the test of the aggregates
+     * @param action the action to be performed for each matching mapping
+     * @throws ClassCastException if {@code toKey} cannot be compared with
+     *         the keys currently in the map
+     * @throws NullPointerException if {@code toKey} is null and this map
+     *         uses natural ordering, or its comparator does not permit null
+     *         keys, or if the test or action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         map structurally
+     */
+    public void forEachMatch(K toKey, boolean inclusive, Predicate<? super A> test,
+                             BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(test);
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        forEachMatch(root, toKey, inclusive, test, action);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    private void forEachMatch(TreeMap.Entry<K,V> t, K toKey, boolean inclusive,
+                              Predicate<? super A> test,
+                              BiConsumer<? super K, ? super V> action) {
+        while (t != null && test.test(aggregateOf(t))) {//聚合值不通过的子树中没有匹配
+            if (tooHigh(t.key, toKey, inclusive)) {
+                t = t.left;
+                continue;
+            }
+            forEachMatch(t.left, toKey, inclusive, test, action);
+            if (test.test(mapper.apply(t.key, t.value)))
+                action.accept(t.key, t.value);
+            t = t.right;
+        }
+    }
+
+    private boolean tooLow(K key, K fromKey, boolean inclusive) {
+        int c = compare(key, fromKey);
+        return c < 0 || (c == 0 && !inclusive);
+    }
+
+    private boolean tooHigh(K key, K toKey, boolean inclusive) {
+        int c = compare(key, toKey);
+        return c > 0 || (c == 0 && !inclusive);
+    }
+
+    /**
+     * Reconstitute the map from a stream.  TreeMap.readObject builds the
+     * tree before the functions are read, so the aggregates are computed
+     * here.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (mapper == null || combiner == null)
+            throw new java.io.InvalidObjectException("null aggregate function");
+        recompute(root);
+    }
+}
@@ -0,0 +1,1956 @@
+package java.util;
+
+/**
+ * A B+-tree based {@link NavigableMap} implementation.  The map is sorted
+ * according to the {@linkplain Comparable natural ordering} of its keys, or
+ * by a {@link Comparator} provided at map creation time, depending on which
+ * constructor is used.
+ *
+ * <p>{@link TreeMap} allocates one node of six fields per mapping, so a
+ * lookup in a map of ten million keys follows about 24 pointers, each
+ * likely a cache miss.  This map stores up to {@value #NODE_CAPACITY} keys
+ * per node in arrays: a lookup binary-searches each node it visits and
+ * follows about five pointers at that size.  All mappings are held in the
+ * leaves, which are linked to each other in key order, so that iterating
+ * over a range reads the keys of each leaf sequentially.
+ * 同样是有序Map，TreeMap每个键值对一个结点，而B+树每个结点保存一组键，查找时访问的结点少得多，叶子结点连成双向链表用于范围遍历
+ *
+ * <p>This implementation provides guaranteed log(n) time cost for the
+ * {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations, and supports all of the operations of {@code TreeMap},
+ * including the views returned by {@code subMap}, {@code headMap},
+ * {@code tailMap} and {@code descendingMap}.  Removing through an iterator
+ * takes log(n) time, rather than amortized constant time as in
+ * {@code TreeMap}, because the iterator has to find its position again
+ * after nodes were merged.
+ *
+ * <p>As with {@code TreeMap}, the ordering maintained by this map must be
+ * <em>consistent with equals</em> if it is to correctly implement the
+ * {@code Map} interface, and null keys are not permitted unless the
+ * comparator accepts them.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally.
+ *
+ * <p>The iterators returned by the {@code iterator} method of the
+ * collections returned by all of this class's "collection view methods"
+ * are <em>fail-fast</em>, as those of {@code TreeMap}.  The entries they
+ * return support {@code setValue} until the map is structurally modified.
+ * All {@code Map.Entry} pairs returned by methods in this class and its
+ * views represent snapshots of mappings at the time they were produced,
+ * and do <strong>not</strong> support the {@code Entry.setValue} method.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ */
+public class BTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -4120358743682169210L;
+
+    /**
+     * The maximum number of keys in a leaf and of children of an inner
+     * node.  Nodes other than the root hold at least half as many, except
+     * those on the right edge of the tree after keys were appended in
+     * ascending order, which are split without moving any keys.
+     */
+    static final int NODE_CAPACITY = 64;
+
+    /**
+     * The number of keys or children below which a node is merged with,
+     * or takes one from, a sibling after a removal.
+     */
+    static final int MIN_FILL = NODE_CAPACITY / 2;
+
+    /**
+     * The comparator used to maintain order in this map, or null if it
+     * uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * The root node, null if the map is empty.
+     */
+    private transient Node root;
+
+    /**
+     * The number of levels of inner nodes above the leaves.
+     */
+    private transient int height;
+
+    /**
+     * The first and last leaves.
+     */
+    private transient Leaf<K,V> first, last;
+
+    /**
+     * The number of entries in the tree
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its keys.
+     * All keys inserted into the map must implement the {@link Comparable}
+     * interface and be mutually comparable.
+     */
+    public BTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * ordered according to the <em>natural ordering</em> of its keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the same
+     * ordering as the specified sorted map.  This method runs in linear
+     * time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        try {
+            buildFromSorted(m.size(), m.entrySet().iterator(), null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A node of the tree.  In a leaf, keys[0..n) are the keys.  In an
+     * inner node, n is the number of children and keys[0..n-1) are the
+     * separators: every key of children[i] is less than keys[i], and every
+     * key of children[i+1] is greater than or equal to it.
+     * 叶子结点中n是键的个数，内部结点中n是子结点的个数，分隔键比子结点数少一个
+     */
+    abstract static class Node {
+        final Object[] keys;
+        int n;
+
+        Node(int keyCapacity) {
+            keys = new Object[keyCapacity];
+        }
+    }
+
+    static final class Inner extends Node {
+        final Node[] children = new Node[NODE_CAPACITY];
+
+        Inner() {
+            super(NODE_CAPACITY - 1);
+        }
+    }
+
+    static final class Leaf<K,V> extends Node {
+        final Object[] vals = new Object[NODE_CAPACITY];
+        Leaf<K,V> prev, next;
+
+        Leaf() {
+            super(NODE_CAPACITY);
+        }
+    }
+
+    /**
+     * A mapping at a position of a leaf.  The position is valid until the
+     * map is structurally modified.
+     */
+    static final class Entry<K,V> implements Map.Entry<K,V> {
+        final Leaf<K,V> leaf;
+        final int index;
+        final K key;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(Leaf<K,V> leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+            this.key = (K)leaf.keys[index];
+            this.value = (V)leaf.vals[index];
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            if (index >= leaf.n || leaf.keys[index] != key)
+                throw new ConcurrentModificationException();//结构改变后位置已失效
+            V oldValue = this.value;
+            leaf.vals[index] = this.value = value;
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return valEquals(key,e.getKey()) && valEquals(value,e.getValue());
+        }
+
+        public int hashCode() {
+            int keyHash = (key==null ? 0 : key.hashCode());
+            int valueHash = (value==null ? 0 : value.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Binary search of key in keys[0..n), with the result of
+     * {@link Arrays#binarySearch(Object[], Object)}.
+     */
+    @SuppressWarnings("unchecked")
+    final int search(Object[] keys, int n, Object key) {
+        int low = 0, high = n - 1;
+        if (comparator == null) {
+            if (key == null)
+                throw new NullPointerException();
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int c = k.compareTo((K)keys[mid]);
+                if (c > 0)
+                    low = mid + 1;
+                else if (c < 0)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        else {
+            Comparator<? super K> cpr = comparator;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int c = cpr.compare((K)key, (K)keys[mid]);
+                if (c > 0)
+                    low = mid + 1;
+                else if (c < 0)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the index of the child of an inner node that may contain
+     * key, the number of separators less than or equal to it.
+     */
+    final int childIndex(Inner x, Object key) {
+        int i = search(x.keys, x.n - 1, key);
+        return (i >= 0) ? i + 1 : -(i + 1);
+    }
+
+    /**
+     * Returns the leaf that contains key if it is present, or null if the
+     * map is empty.
+     */
+    @SuppressWarnings("unchecked")
+    final Leaf<K,V> leafFor(Object key) {
+        Node x = root;
+        if (x == null)
+            return null;
+        for (int h = height; h > 0; --h) {
+            Inner p = (Inner)x;
+            x = p.children[childIndex(p, key)];
+        }
+        return (Leaf<K,V>)x;
+    }
+
+    /**
+     * Returns the entry for the given key, or null if there is none.
+     */
+    final Entry<K,V> getEntry(Object key) {
+        Leaf<K,V> l = leafFor(key);
+        int i;
+        if (l == null || (i = search(l.keys, l.n, key)) < 0)
+            return null;
+        return new Entry<>(l, i);
+    }
+
+    /**
+     * Returns the entry for the least key greater than, or equal to if
+     * inclusive, the given key, or null if there is none.
+     */
+    final Entry<K,V> getCeilingEntry(Object key, boolean inclusive) {
+        Leaf<K,V> l = leafFor(key);
+        if (l == null)
+            return null;
+        int i = search(l.keys, l.n, key);
+        i = (i >= 0) ? (inclusive ? i : i + 1) : -(i + 1);
+        if (i == l.n) {//本叶子中的键都更小，后继是下一个叶子的第一个键
+            if ((l = l.next) == null)
+                return null;
+            i = 0;
+        }
+        return new Entry<>(l, i);
+    }
+
+    /**
+     * Returns the entry for the greatest key less than, or equal to if
+     * inclusive, the given key, or null if there is none.
+     */
+    final Entry<K,V> getFloorEntry(Object key, boolean inclusive) {
+        Leaf<K,V> l = leafFor(key);
+        if (l == null)
+            return null;
+        int i = search(l.keys, l.n, key);
+        i = (i >= 0) ? (inclusive ? i : i - 1) : -(i + 1) - 1;
+        if (i < 0) {//本叶子中的键都更大，前驱是上一个叶子的最后一个键
+            if ((l = l.prev) == null)
+                return null;
+            i = l.n - 1;
+        }
+        return new Entry<>(l, i);
+    }
+
+    final Entry<K,V> getFirstEntry() {
+        Leaf<K,V> l = first;
+        return (l == null) ? null : new Entry<>(l, 0);
+    }
+
+    final Entry<K,V> getLastEntry() {
+        Leaf<K,V> l = last;
+        return (l == null) ? null : new Entry<>(l, l.n - 1);
+    }
+
+    /* ---------------- Query operations -------------- */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(Object key) {
+        Leaf<K,V> l = leafFor(key);
+        return l != null && search(l.keys, l.n, key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        for (Leaf<K,V> l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                if (valEquals(value, l.vals[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf<K,V> l = leafFor(key);
+        int i;
+        if (l == null || (i = search(l.keys, l.n, key)) < 0)
+            return null;
+        return (V)l.vals[i];
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(getFirstEntry());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(getLastEntry());
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * <p>A leaf that is full is split in two halves, except the last leaf
+     * when the key is appended at its end: it then keeps all its keys, so
+     * that inserting keys in ascending order fills the leaves completely.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (root == null) {
+            compare(key, key); // type (and possibly null) check
+            Leaf<K,V> l = new Leaf<>();
+            l.keys[0] = key;
+            l.vals[0] = value;
+            l.n = 1;
+            root = first = last = l;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        Inner[] path = new Inner[height];
+        int[] pathIndex = new int[height];
+        Node x = root;
+        for (int h = 0; h < height; ++h) {//记录从根到叶子的路径，分裂时向上插入
+            Inner p = (Inner)x;
+            int ci = childIndex(p, key);
+            path[h] = p;
+            pathIndex[h] = ci;
+            x = p.children[ci];
+        }
+        Leaf<K,V> l = (Leaf<K,V>)x;
+        int i = search(l.keys, l.n, key);
+        if (i >= 0) {
+            V oldValue = (V)l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        size++;
+        modCount++;
+        if (l.n < NODE_CAPACITY) {
+            insertAt(l, i, key, value);
+            return null;
+        }
+        boolean append = (i == NODE_CAPACITY && l.next == null);//在最右的叶子末尾追加
+        Leaf<K,V> r = new Leaf<>();
+        int keep = append ? NODE_CAPACITY : MIN_FILL;
+        int moved = NODE_CAPACITY - keep;
+        System.arraycopy(l.keys, keep, r.keys, 0, moved);
+        System.arraycopy(l.vals, keep, r.vals, 0, moved);
+        Arrays.fill(l.keys, keep, NODE_CAPACITY, null);
+        Arrays.fill(l.vals, keep, NODE_CAPACITY, null);
+        l.n = keep;
+        r.n = moved;
+        if (i <= keep && !append)
+            insertAt(l, i, key, value);
+        else
+            insertAt(r, i - keep, key, value);
+        if ((r.next = l.next) == null)
+            last = r;
+        else
+            r.next.prev = r;
+        r.prev = l;
+        l.next = r;
+        insertChild(path, pathIndex, r.keys[0], r, append);
+        return null;
+    }
+
+    private static <K,V> void insertAt(Leaf<K,V> l, int i, K key, V value) {
+        int n = l.n;
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.n = n + 1;
+    }
+
+    /**
+     * Inserts child right with separator sep after the child at
+     * pathIndex[h] of path[h], for h from the bottom of the path up,
+     * splitting full inner nodes and growing a new root if needed.
+     */
+    private void insertChild(Inner[] path, int[] pathIndex, Object sep,
+                             Node right, boolean append) {
+        for (int h = path.length - 1; h >= 0; --h) {
+            Inner p = path[h];
+            int ci = pathIndex[h] + 1;
+            append &= (ci == p.n);
+            if (p.n < NODE_CAPACITY) {
+                insertChildAt(p, ci, sep, right);
+                return;
+            }
+            // 内部结点已满，先在临时数组中插入，再分成两个结点，中间的分隔键提升到上一层
+            Node[] cs = new Node[NODE_CAPACITY + 1];
+            Object[] ks = new Object[NODE_CAPACITY];
+            System.arraycopy(p.children, 0, cs, 0, ci);
+            System.arraycopy(p.keys, 0, ks, 0, ci - 1);
+            cs[ci] = right;
+            ks[ci - 1] = sep;
+            System.arraycopy(p.children, ci, cs, ci + 1, NODE_CAPACITY - ci);
+            System.arraycopy(p.keys, ci - 1, ks, ci, NODE_CAPACITY - ci);
+            int keep = append ? NODE_CAPACITY : (NODE_CAPACITY + 1) / 2;
+            Inner q = new Inner();
+            System.arraycopy(cs, 0, p.children, 0, keep);
+            System.arraycopy(ks, 0, p.keys, 0, keep - 1);
+            Arrays.fill(p.children, keep, NODE_CAPACITY, null);
+            Arrays.fill(p.keys, keep - 1, NODE_CAPACITY - 1, null);
+            p.n = keep;
+            System.arraycopy(cs, keep, q.children, 0, NODE_CAPACITY + 1 - keep);
+            System.arraycopy(ks, keep, q.keys, 0, NODE_CAPACITY - keep);
+            q.n = NODE_CAPACITY + 1 - keep;
+            sep = ks[keep - 1];
+            right = q;
+        }
+        Inner newRoot = new Inner();//根结点分裂，树高加一
+        newRoot.children[0] = root;
+        newRoot.children[1] = right;
+        newRoot.keys[0] = sep;
+        newRoot.n = 2;
+        root = newRoot;
+        height++;
+    }
+
+    /**
+     * Inserts child at index ci >= 1 of p, with separator sep before it.
+     */
+    private static void insertChildAt(Inner p, int ci, Object sep, Node child) {
+        int n = p.n;
+        System.arraycopy(p.children, ci, p.children, ci + 1, n - ci);
+        System.arraycopy(p.keys, ci - 1, p.keys, ci, n - ci);
+        p.children[ci] = child;
+        p.keys[ci - 1] = sep;
+        p.n = n + 1;
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (root == null)
+            return null;
+        Inner[] path = new Inner[height];
+        int[] pathIndex = new int[height];
+        Node x = root;
+        for (int h = 0; h < height; ++h) {
+            Inner p = (Inner)x;
+            int ci = childIndex(p, key);
+            path[h] = p;
+            pathIndex[h] = ci;
+            x = p.children[ci];
+        }
+        Leaf<K,V> l = (Leaf<K,V>)x;
+        int i = search(l.keys, l.n, key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)l.vals[i];
+        int n = l.n - 1;
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - i);
+        l.keys[n] = l.vals[n] = null;
+        l.n = n;
+        size--;
+        modCount++;
+        if (height == 0) {
+            if (n == 0)
+                root = first = last = null;
+        }
+        else if (n < MIN_FILL)
+            rebalance(path, pathIndex, height - 1);
+        return oldValue;
+    }
+
+    /**
+     * Restores the minimum fill of the child at pathIndex[h] of path[h],
+     * which has one entry too few, by taking one from a sibling or merging
+     * with it, and continues up the path if the parent is left with too
+     * few children.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebalance(Inner[] path, int[] pathIndex, int h) {
+        for (; h >= 0; --h) {
+            Inner p = path[h];
+            int ci = pathIndex[h];
+            Node x = p.children[ci];
+            // 优先与左兄弟调整，最左的子结点与右兄弟调整
+            int li = (ci > 0) ? ci - 1 : ci;
+            Node left = p.children[li], right = p.children[li + 1];
+            Node sibling = (left == x) ? right : left;
+            if (sibling.n > MIN_FILL) {
+                if (x instanceof Leaf)
+                    borrowLeaf(p, li, (Leaf<K,V>)left, (Leaf<K,V>)right, left == x);
+                else
+                    borrowInner(p, li, (Inner)left, (Inner)right, left == x);
+                return;
+            }
+            if (x instanceof Leaf)
+                mergeLeaves((Leaf<K,V>)left, (Leaf<K,V>)right);
+            else
+                mergeInner((Inner)left, p.keys[li], (Inner)right);
+            removeChildAt(p, li + 1);
+            if (h == 0) {
+                if (p.n == 1) {//根结点只剩一个子结点，树高减一
+                    root = p.children[0];
+                    height--;
+                }
+                return;
+            }
+            if (p.n >= MIN_FILL)
+                return;
+        }
+    }
+
+    /**
+     * Moves one entry between adjacent leaves, to the one that lacks it.
+     */
+    private static <K,V> void borrowLeaf(Inner p, int li, Leaf<K,V> left,
+                                         Leaf<K,V> right, boolean toLeft) {
+        if (toLeft) {//右兄弟的第一个键值对移到左边末尾
+            left.keys[left.n] = right.keys[0];
+            left.vals[left.n] = right.vals[0];
+            left.n++;
+            int n = --right.n;
+            System.arraycopy(right.keys, 1, right.keys, 0, n);
+            System.arraycopy(right.vals, 1, right.vals, 0, n);
+            right.keys[n] = right.vals[n] = null;
+        }
+        else {//左兄弟的最后一个键值对移到右边开头
+            int n = --left.n;
+            System.arraycopy(right.keys, 0, right.keys, 1, right.n);
+            System.arraycopy(right.vals, 0, right.vals, 1, right.n);
+            right.keys[0] = left.keys[n];
+            right.vals[0] = left.vals[n];
+            right.n++;
+            left.keys[n] = left.vals[n] = null;
+        }
+        p.keys[li] = right.keys[0];
+    }
+
+    /**
+     * Moves one child between adjacent inner nodes, rotating it through
+     * the separator in the parent.
+     */
+    private static void borrowInner(Inner p, int li, Inner left, Inner right,
+                                    boolean toLeft) {
+        if (toLeft) {
+            left.children[left.n] = right.children[0];
+            left.keys[left.n - 1] = p.keys[li];
+            left.n++;
+            p.keys[li] = right.keys[0];
+            int n = --right.n;
+            System.arraycopy(right.children, 1, right.children, 0, n);
+            System.arraycopy(right.keys, 1, right.keys, 0, n - 1);
+            right.children[n] = null;
+            right.keys[n - 1] = null;
+        }
+        else {
+            int n = --left.n;
+            System.arraycopy(right.children, 0, right.children, 1, right.n);
+            System.arraycopy(right.keys, 0, right.keys, 1, right.n - 1);
+            right.children[0] = left.children[n];
+            right.keys[0] = p.keys[li];
+            right.n++;
+            p.keys[li] = left.keys[n - 1];
+            left.children[n] = null;
+            left.keys[n - 1] = null;
+        }
+    }
+
+    /**
+     * Appends the entries of right to left and unlinks right.
+     */
+    private void mergeLeaves(Leaf<K,V> left, Leaf<K,V> right) {
+        System.arraycopy(right.keys, 0, left.keys, left.n, right.n);
+        System.arraycopy(right.vals, 0, left.vals, left.n, right.n);
+        left.n += right.n;
+        if ((left.next = right.next) == null)
+            last = left;
+        else
+            left.next.prev = left;
+    }
+
+    /**
+     * Appends the separator and the children of right to left.
+     */
+    private static void mergeInner(Inner left, Object sep, Inner right) {
+        left.keys[left.n - 1] = sep;
+        System.arraycopy(right.children, 0, left.children, left.n, right.n);
+        System.arraycopy(right.keys, 0, left.keys, left.n, right.n - 1);
+        left.n += right.n;
+    }
+
+    /**
+     * Removes child ci >= 1 of p and the separator before it.
+     */
+    private static void removeChildAt(Inner p, int ci) {
+        int n = --p.n;
+        System.arraycopy(p.children, ci + 1, p.children, ci, n - ci);
+        System.arraycopy(p.keys, ci, p.keys, ci - 1, n - ci);
+        p.children[n] = null;
+        p.keys[n - 1] = null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = first = last = null;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance. (The keys
+     * and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        BTreeMap<?,?> clone;
+        try {
+            clone = (BTreeMap<?,?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        // Put clone into "virgin" state (except for comparator)
+        clone.root = null;
+        clone.first = null;
+        clone.last = null;
+        clone.size = clone.height = clone.modCount = 0;
+        clone.entrySet = null;
+        clone.navigableKeySet = null;
+        clone.descendingMap = null;
+
+        // Initialize clone with our mappings
+        try {
+            clone.buildFromSorted(size, entrySet().iterator(), null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+
+        return clone;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.  If
+     * this map is empty and the specified map is a sorted map with the
+     * same ordering, the tree is built from it in linear time.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        int mapSize = map.size();
+        if (size==0 && mapSize!=0 && map instanceof SortedMap) {
+            Comparator<?> c = ((SortedMap<?,?>)map).comparator();
+            if (c == comparator || (c != null && c.equals(comparator))) {
+                ++modCount;
+                try {
+                    buildFromSorted(mapSize, map.entrySet().iterator(), null);
+                } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+                }
+                return;
+            }
+        }
+        super.putAll(map);
+    }
+
+    /* ---------------- NavigableMap API methods -------------- */
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(getFirstEntry());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(getLastEntry());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Entry<K,V> p = getFirstEntry();
+        Map.Entry<K,V> result = exportEntry(p);
+        if (p != null)
+            remove(p.key);
+        return result;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Entry<K,V> p = getLastEntry();
+        Map.Entry<K,V> result = exportEntry(p);
+        if (p != null)
+            remove(p.key);
+        return result;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(getFloorEntry(key, false));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(getFloorEntry(key, false));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(getFloorEntry(key, true));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(getFloorEntry(key, true));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(getCeilingEntry(key, true));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(getCeilingEntry(key, true));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(getCeilingEntry(key, false));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(getCeilingEntry(key, false));
+    }
+
+    // Views
+
+    /**
+     * Fields initialized to contain an instance of the entry set view
+     * the first time this view is requested.  Views are stateless, so
+     * there's no reason to create more than one.
+     */
+    private transient EntrySet entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * ascending order.
+     */
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in the ascending order of the corresponding keys.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map, in
+     * ascending key order.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        NavigableMap<K, V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new DescendingSubMap<>(this,
+                                                    true, null, true,
+                                                    true, null, true));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new AscendingSubMap<>(this,
+                                     false, fromKey, fromInclusive,
+                                     false, toKey,   toInclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new AscendingSubMap<>(this,
+                                     true,  null,  true,
+                                     false, toKey, inclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new AscendingSubMap<>(this,
+                                     false, fromKey, inclusive,
+                                     true,  null,    true);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    // View class support
+
+    class Values extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new ValueIterator<>(BTreeMap.this, getFirstEntry(), null, false);
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public boolean contains(Object o) {
+            return BTreeMap.this.containsValue(o);
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+    }
+
+    class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<>(BTreeMap.this, getFirstEntry(), null, false);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object value = entry.getValue();
+            Entry<K,V> p = getEntry(entry.getKey());
+            return p != null && valEquals(p.getValue(), value);
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object value = entry.getValue();
+            Entry<K,V> p = getEntry(entry.getKey());
+            if (p != null && valEquals(p.getValue(), value)) {
+                BTreeMap.this.remove(p.key);
+                return true;
+            }
+            return false;
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+    }
+
+    /*
+     * As in TreeMap, the KeySet class is static, delegating to a
+     * NavigableMap to allow use by SubMaps.
+     */
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator<>(this, getFirstEntry(), null, false);
+    }
+
+    Iterator<K> descendingKeyIterator() {
+        return new KeyIterator<>(this, getLastEntry(), null, true);
+    }
+
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).keyIterator();
+            else
+                return ((BTreeMap.NavigableSubMap<E,?>)m).keyIterator();
+        }
+
+        public Iterator<E> descendingIterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).descendingKeyIterator();
+            else
+                return ((BTreeMap.NavigableSubMap<E,?>)m).descendingKeyIterator();
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            int oldSize = size();
+            m.remove(o);
+            return size() != oldSize;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    /**
+     * Base class for BTreeMap iterators.  Walks the linked leaves from a
+     * first position up to, and excluding, a fence position, in either
+     * direction.
+     */
+    abstract static class PrivateEntryIterator<K,V,T> implements Iterator<T> {
+        final BTreeMap<K,V> m;
+        final boolean descending;
+        Leaf<K,V> leaf;//下一个键值对所在的叶子和下标
+        int index;
+        Leaf<K,V> fenceLeaf;//遍历到此位置结束，null表示遍历到链表末端
+        int fenceIndex;
+        Leaf<K,V> lastLeaf;
+        int lastIndex;
+        int expectedModCount;
+
+        PrivateEntryIterator(BTreeMap<K,V> m, Entry<K,V> first,
+                             Entry<K,V> fence, boolean descending) {
+            this.m = m;
+            this.descending = descending;
+            expectedModCount = m.modCount;
+            setNext(first);
+            setFence(fence);
+        }
+
+        private void setNext(Entry<K,V> e) {
+            if (e == null)
+                leaf = null;
+            else {
+                leaf = e.leaf;
+                index = e.index;
+            }
+        }
+
+        private void setFence(Entry<K,V> e) {
+            if (e == null)
+                fenceLeaf = null;
+            else {
+                fenceLeaf = e.leaf;
+                fenceIndex = e.index;
+            }
+        }
+
+        public final boolean hasNext() {
+            return leaf != null && (leaf != fenceLeaf || index != fenceIndex);
+        }
+
+        /**
+         * Advances, leaving the position of the returned entry in
+         * lastLeaf and lastIndex.
+         */
+        final void advance() {
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Leaf<K,V> l = lastLeaf = leaf;
+            int i = lastIndex = index;
+            if (!descending) {
+                if (++i == l.n) {
+                    leaf = l.next;
+                    i = 0;
+                }
+            }
+            else if (--i < 0 && (leaf = l.prev) != null)
+                i = leaf.n - 1;
+            index = i;
+        }
+
+        public void remove() {
+            if (lastLeaf == null)
+                throw new IllegalStateException();
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Object key = lastLeaf.keys[lastIndex];
+            // 删除可能合并叶子，删除后根据键重新定位下一个位置和结束位置
+            Object nextKey = hasNext() ? leaf.keys[index] : null;
+            Object fenceKey = (fenceLeaf != null) ? fenceLeaf.keys[fenceIndex] : null;
+            boolean more = hasNext(), fenced = (fenceLeaf != null);
+            m.remove(key);
+            lastLeaf = null;
+            expectedModCount = m.modCount;
+            if (more) {
+                setNext(m.getEntry(nextKey));
+                if (fenced)
+                    setFence(m.getEntry(fenceKey));
+            }
+            else
+                leaf = fenceLeaf = null;
+        }
+    }
+
+    static final class EntryIterator<K,V> extends PrivateEntryIterator<K,V,Map.Entry<K,V>> {
+        EntryIterator(BTreeMap<K,V> m, Entry<K,V> first, Entry<K,V> fence,
+                      boolean descending) {
+            super(m, first, fence, descending);
+        }
+        public Map.Entry<K,V> next() {
+            advance();
+            return new Entry<>(lastLeaf, lastIndex);
+        }
+    }
+
+    static final class ValueIterator<K,V> extends PrivateEntryIterator<K,V,V> {
+        ValueIterator(BTreeMap<K,V> m, Entry<K,V> first, Entry<K,V> fence,
+                      boolean descending) {
+            super(m, first, fence, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public V next() {
+            advance();
+            return (V)lastLeaf.vals[lastIndex];
+        }
+    }
+
+    static final class KeyIterator<K,V> extends PrivateEntryIterator<K,V,K> {
+        KeyIterator(BTreeMap<K,V> m, Entry<K,V> first, Entry<K,V> fence,
+                    boolean descending) {
+            super(m, first, fence, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public K next() {
+            advance();
+            return (K)lastLeaf.keys[lastIndex];
+        }
+    }
+
+    // Little utilities
+
+    /**
+     * Test two values for equality.  Differs from o1.equals(o2) only in
+     * that it copes with {@code null} o1 properly.
+     */
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Return SimpleImmutableEntry for entry, or null if null
+     */
+    static <K,V> Map.Entry<K,V> exportEntry(BTreeMap.Entry<K,V> e) {
+        return (e == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>(e);
+    }
+
+    /**
+     * Return key for entry, or null if null
+     */
+    static <K,V> K keyOrNull(BTreeMap.Entry<K,V> e) {
+        return (e == null) ? null : e.key;
+    }
+
+    /**
+     * Returns the key corresponding to the specified Entry.
+     * @throws NoSuchElementException if the Entry is null
+     */
+    static <K> K key(Entry<K,?> e) {
+        if (e==null)
+            throw new NoSuchElementException();
+        return e.key;
+    }
+
+    // SubMaps
+
+    /**
+     * @serial include
+     */
+    abstract static class NavigableSubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, java.io.Serializable {
+        private static final long serialVersionUID = 2370271346752135460L;
+        /**
+         * The backing map.
+         */
+        final BTreeMap<K,V> m;
+
+        /**
+         * Endpoints are represented as triples (fromStart, lo,
+         * loInclusive) and (toEnd, hi, hiInclusive), as in TreeMap.
+         */
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+
+        NavigableSubMap(BTreeMap<K,V> m,
+                        boolean fromStart, K lo, boolean loInclusive,
+                        boolean toEnd,     K hi, boolean hiInclusive) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /*
+         * Absolute versions of relation operations.
+         * Subclasses map to these using like-named "sub"
+         * versions that invert senses for descending maps
+         */
+
+        final BTreeMap.Entry<K,V> absLowest() {
+            BTreeMap.Entry<K,V> e =
+                (fromStart ?  m.getFirstEntry() :
+                 m.getCeilingEntry(lo, loInclusive));
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absHighest() {
+            BTreeMap.Entry<K,V> e =
+                (toEnd ?  m.getLastEntry() :
+                 m.getFloorEntry(hi, hiInclusive));
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absCeiling(K key, boolean inclusive) {
+            if (tooLow(key))
+                return absLowest();
+            BTreeMap.Entry<K,V> e = m.getCeilingEntry(key, inclusive);
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absFloor(K key, boolean inclusive) {
+            if (tooHigh(key))
+                return absHighest();
+            BTreeMap.Entry<K,V> e = m.getFloorEntry(key, inclusive);
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        /** Returns the absolute high fence for ascending traversal */
+        final BTreeMap.Entry<K,V> absHighFence() {
+            return (toEnd ? null : m.getCeilingEntry(hi, !hiInclusive));
+        }
+
+        /** Return the absolute low fence for descending traversal  */
+        final BTreeMap.Entry<K,V> absLowFence() {
+            return (fromStart ? null : m.getFloorEntry(lo, !loInclusive));
+        }
+
+        // Abstract methods defined in ascending vs descending classes
+        // These relay to the appropriate absolute versions
+
+        abstract BTreeMap.Entry<K,V> subLowest();
+        abstract BTreeMap.Entry<K,V> subHighest();
+        abstract BTreeMap.Entry<K,V> subCeiling(K key);
+        abstract BTreeMap.Entry<K,V> subHigher(K key);
+        abstract BTreeMap.Entry<K,V> subFloor(K key);
+        abstract BTreeMap.Entry<K,V> subLower(K key);
+
+        /** Returns ascending iterator from the perspective of this submap */
+        abstract Iterator<K> keyIterator();
+
+        /** Returns descending iterator from the perspective of this submap */
+        abstract Iterator<K> descendingKeyIterator();
+
+        // public methods
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : entrySet().isEmpty();
+        }
+
+        public int size() {
+            return (fromStart && toEnd) ? m.size() : entrySet().size();
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return exportEntry(subCeiling(key));
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(subCeiling(key));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return exportEntry(subHigher(key));
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(subHigher(key));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return exportEntry(subFloor(key));
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(subFloor(key));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return exportEntry(subLower(key));
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(subLower(key));
+        }
+
+        public final K firstKey() {
+            return key(subLowest());
+        }
+
+        public final K lastKey() {
+            return key(subHighest());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return exportEntry(subLowest());
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return exportEntry(subHighest());
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            BTreeMap.Entry<K,V> e = subLowest();
+            Map.Entry<K,V> result = exportEntry(e);
+            if (e != null)
+                m.remove(e.key);
+            return result;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            BTreeMap.Entry<K,V> e = subHighest();
+            Map.Entry<K,V> result = exportEntry(e);
+            if (e != null)
+                m.remove(e.key);
+            return result;
+        }
+
+        // Views
+        transient NavigableMap<K,V> descendingMapView;
+        transient EntrySetView entrySetView;
+        transient KeySet<K> navigableKeySetView;
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = navigableKeySetView;
+            return (nksv != null) ? nksv :
+                (navigableKeySetView = new BTreeMap.KeySet<>(this));
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        // View classes
+
+        abstract class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+            private transient int size = -1, sizeModCount;
+
+            public int size() {
+                if (fromStart && toEnd)
+                    return m.size();
+                if (size == -1 || sizeModCount != m.modCount) {
+                    sizeModCount = m.modCount;
+                    size = 0;
+                    // 逐个叶子累加，只有首尾两个叶子需要逐个比较
+                    BTreeMap.Entry<K,V> from = absLowest();
+                    if (from != null) {
+                        BTreeMap.Entry<K,V> fence = absHighFence();
+                        Leaf<K,V> l = from.leaf;
+                        int s = -from.index;
+                        while (fence == null || l != fence.leaf) {
+                            s += l.n;
+                            if ((l = l.next) == null)
+                                break;
+                        }
+                        if (fence != null)
+                            s += fence.index;
+                        size = s;
+                    }
+                }
+                return size;
+            }
+
+            public boolean isEmpty() {
+                return absLowest() == null;
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                BTreeMap.Entry<?,?> node = m.getEntry(key);
+                return node != null &&
+                    valEquals(node.getValue(), entry.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                BTreeMap.Entry<K,V> node = m.getEntry(key);
+                if (node!=null && valEquals(node.getValue(),
+                                            entry.getValue())) {
+                    m.remove(node.key);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @serial include
+     */
+    static final class AscendingSubMap<K,V> extends NavigableSubMap<K,V> {
+        private static final long serialVersionUID = -2864961734651237450L;
+
+        AscendingSubMap(BTreeMap<K,V> m,
+                        boolean fromStart, K lo, boolean loInclusive,
+                        boolean toEnd,     K hi, boolean hiInclusive) {
+            super(m, fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
+        }
+
+        public Comparator<? super K> comparator() {
+            return m.comparator();
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new AscendingSubMap<>(m,
+                                         false, fromKey, fromInclusive,
+                                         false, toKey,   toInclusive);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new AscendingSubMap<>(m,
+                                         fromStart, lo,    loInclusive,
+                                         false,     toKey, inclusive);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return new AscendingSubMap<>(m,
+                                         false, fromKey, inclusive,
+                                         toEnd, hi,      hiInclusive);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new DescendingSubMap<>(m,
+                                        fromStart, lo, loInclusive,
+                                        toEnd,     hi, hiInclusive));
+        }
+
+        Iterator<K> keyIterator() {
+            return new KeyIterator<>(m, absLowest(), absHighFence(), false);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return new KeyIterator<>(m, absHighest(), absLowFence(), true);
+        }
+
+        final class AscendingEntrySetView extends EntrySetView {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new EntryIterator<>(m, absLowest(), absHighFence(), false);
+            }
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySetView es = entrySetView;
+            return (es != null) ? es : (entrySetView = new AscendingEntrySetView());
+        }
+
+        BTreeMap.Entry<K,V> subLowest()       { return absLowest(); }
+        BTreeMap.Entry<K,V> subHighest()      { return absHighest(); }
+        BTreeMap.Entry<K,V> subCeiling(K key) { return absCeiling(key, true); }
+        BTreeMap.Entry<K,V> subHigher(K key)  { return absCeiling(key, false); }
+        BTreeMap.Entry<K,V> subFloor(K key)   { return absFloor(key, true); }
+        BTreeMap.Entry<K,V> subLower(K key)   { return absFloor(key, false); }
+    }
+
+    /**
+     * @serial include
+     */
+    static final class DescendingSubMap<K,V>  extends NavigableSubMap<K,V> {
+        private static final long serialVersionUID = 5104726319483716935L;
+        DescendingSubMap(BTreeMap<K,V> m,
+                        boolean fromStart, K lo, boolean loInclusive,
+                        boolean toEnd,     K hi, boolean hiInclusive) {
+            super(m, fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
+        }
+
+        private final Comparator<? super K> reverseComparator =
+            Collections.reverseOrder(m.comparator);
+
+        public Comparator<? super K> comparator() {
+            return reverseComparator;
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new DescendingSubMap<>(m,
+                                          false, toKey,   toInclusive,
+                                          false, fromKey, fromInclusive);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new DescendingSubMap<>(m,
+                                          false, toKey, inclusive,
+                                          toEnd, hi,    hiInclusive);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return new DescendingSubMap<>(m,
+                                          fromStart, lo, loInclusive,
+                                          false, fromKey, inclusive);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new AscendingSubMap<>(m,
+                                       fromStart, lo, loInclusive,
+                                       toEnd,     hi, hiInclusive));
+        }
+
+        Iterator<K> keyIterator() {
+            return new KeyIterator<>(m, absHighest(), absLowFence(), true);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return new KeyIterator<>(m, absLowest(), absHighFence(), false);
+        }
+
+        final class DescendingEntrySetView extends EntrySetView {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new EntryIterator<>(m, absHighest(), absLowFence(), true);
+            }
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySetView es = entrySetView;
+            return (es != null) ? es : (entrySetView = new DescendingEntrySetView());
+        }
+
+        BTreeMap.Entry<K,V> subLowest()       { return absHighest(); }
+        BTreeMap.Entry<K,V> subHighest()      { return absLowest(); }
+        BTreeMap.Entry<K,V> subCeiling(K key) { return absFloor(key, true); }
+        BTreeMap.Entry<K,V> subHigher(K key)  { return absFloor(key, false); }
+        BTreeMap.Entry<K,V> subFloor(K key)   { return absCeiling(key, true); }
+        BTreeMap.Entry<K,V> subLower(K key)   { return absCeiling(key, false); }
+    }
+
+    /* ---------------- Bulk building and serialization -------------- */
+
+    /**
+     * Save the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the BTreeMap (the number of
+     *             key-value mappings) is emitted (int), followed by the
+     *             key (Object) and value (Object) for each key-value
+     *             mapping represented by the BTreeMap. The key-value
+     *             mappings are emitted in key-order (as determined by the
+     *             BTreeMap's Comparator, or by the keys' natural ordering
+     *             if the BTreeMap has no Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out size (number of Mappings)
+        s.writeInt(size);
+
+        // Write out keys and values (alternating)
+        for (Leaf<K,V> l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code BTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+
+        buildFromSorted(size, null, s);
+    }
+
+    /**
+     * Builds the tree from sorted data in linear time, filling the leaves
+     * nearly completely.  The mappings come either from the iterator, of
+     * Map.Entries or of keys mapped to null, or from the stream, as
+     * alternating serialized keys and values.
+     *
+     * <p>The leaves are filled in order, the n entries being spread
+     * evenly over ceil(n/NODE_CAPACITY) leaves, so that every leaf holds
+     * at least MIN_FILL of them; each level of inner nodes is then built
+     * the same way from the level below.
+     * 每一层的结点数取 ceil(n/NODE_CAPACITY)，把n平均分给各结点，保证每个结点至少半满
+     *
+     * @param size the number of mappings
+     * @param it if non-null, new entries are created from entries or keys
+     *        read from this iterator
+     * @param str if non-null, new entries are created from keys and values
+     *        read from this stream in serialized form
+     */
+    @SuppressWarnings("unchecked")
+    private void buildFromSorted(int size, Iterator<?> it,
+                                 java.io.ObjectInputStream str)
+        throws java.io.IOException, ClassNotFoundException {
+        this.size = size;
+        root = first = last = null;
+        height = 0;
+        if (size == 0)
+            return;
+        int count = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        Node[] level = new Node[count];
+        Object[] lowKeys = new Object[count];//每个结点子树中的最小键，用作上一层的分隔键
+        Leaf<K,V> prev = null;
+        for (int j = 0, done = 0; j < count; ++j) {
+            Leaf<K,V> l = new Leaf<>();
+            int n = (int)((long)size * (j + 1) / count) - done;
+            for (int i = 0; i < n; ++i) {
+                Object key, value;
+                if (it != null) {
+                    Object o = it.next();
+                    if (o instanceof Map.Entry) {
+                        Map.Entry<?,?> entry = (Map.Entry<?,?>)o;
+                        key = entry.getKey();
+                        value = entry.getValue();
+                    } else {
+                        key = o;
+                        value = null;
+                    }
+                } else {
+                    key = str.readObject();
+                    value = str.readObject();
+                }
+                l.keys[i] = key;
+                l.vals[i] = value;
+            }
+            l.n = n;
+            done += n;
+            if ((l.prev = prev) == null)
+                first = l;
+            else
+                prev.next = l;
+            prev = l;
+            level[j] = l;
+            lowKeys[j] = l.keys[0];
+        }
+        last = prev;
+        while (count > 1) {//逐层向上构建内部结点
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            Node[] upper = new Node[parents];
+            Object[] upperKeys = new Object[parents];
+            for (int j = 0, done = 0; j < parents; ++j) {
+                Inner p = new Inner();
+                int n = (int)((long)count * (j + 1) / parents) - done;
+                System.arraycopy(level, done, p.children, 0, n);
+                System.arraycopy(lowKeys, done + 1, p.keys, 0, n - 1);
+                p.n = n;
+                upper[j] = p;
+                upperKeys[j] = lowKeys[done];
+                done += n;
+            }
+            level = upper;
+            lowKeys = upperKeys;
+            count = parents;
+            height++;
+        }
+        root = level[0];
+    }
+}
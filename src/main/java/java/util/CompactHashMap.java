@@ -0,0 +1,576 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * <tt>Map</tt> implementation optimized for maps that usually stay small.
+ * Up to {@link #INFLATE_THRESHOLD} mappings are kept in one flat array of
+ * alternating keys and values and found by a linear scan, so a map of a few
+ * entries costs a single array instead of a 16-bin <tt>Node[]</tt> table
+ * plus one <tt>HashMap.Node</tt> per mapping.  When a mapping is added past
+ * the threshold, the map <i>inflates</i>: its mappings are moved into an
+ * ordinary {@link HashMap}, to which all later operations are delegated.
+ * {@link #clear} returns the map to the flat representation.
+ *
+ * <p>In the flat representation the iteration order is the insertion order;
+ * once inflated it is that of <tt>HashMap</tt>.  This map permits
+ * <tt>null</tt> values and the <tt>null</tt> key.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by all of this class's "collection view methods"
+ * are <i>fail-fast</i>: structural modifications, including inflation,
+ * made other than through the iterator's own <tt>remove</tt> method cause
+ * a {@link ConcurrentModificationException}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see HashMap
+ */
+public class CompactHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 6240915287330166874L;
+
+    /**
+     * The largest number of mappings held in the flat array.  Matches
+     * HashMap.TREEIFY_THRESHOLD: a linear scan of this many keys costs
+     * about as much as walking one bin of that length.
+     */
+    public static final int INFLATE_THRESHOLD = 8;
+
+    /**
+     * Keys at even and values at odd indexes, for the first size mappings.
+     * Null once inflated, and until the first insertion.
+     */
+    transient Object[] flat;
+
+    /**
+     * Number of mappings in the flat array.
+     */
+    transient int size;
+
+    /**
+     * The map holding the mappings once inflated, else null.
+     */
+    transient HashMap<K,V> map;
+
+    /**
+     * The number of times this map has been structurally modified,
+     * counting inflation.  Modifications of the inflated map are counted
+     * here as well, so that iterators of either representation fail fast.
+     */
+    transient int modCount;
+
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Flat capacity (in mappings) to allocate on first insertion.
+     */
+    transient int initialCapacity;
+
+    /**
+     * Constructs an empty map.
+     */
+    public CompactHashMap() {
+        this.initialCapacity = 2;
+    }
+
+    /**
+     * Constructs an empty map sized for the given number of mappings.
+     * Maps expected to hold more than <tt>INFLATE_THRESHOLD</tt> mappings
+     * are created directly in the inflated representation.
+     *
+     * @param  initialCapacity the expected number of mappings
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public CompactHashMap(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > INFLATE_THRESHOLD) {
+            this.initialCapacity = INFLATE_THRESHOLD;
+            this.map = new HashMap<>(initialCapacity);
+        }
+        else
+            this.initialCapacity = Math.max(initialCapacity, 1);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public CompactHashMap(Map<? extends K, ? extends V> m) {
+        this(m.size());
+        putAll(m);
+    }
+
+    /**
+     * Returns true if the mappings have been moved into a HashMap.
+     */
+    final boolean isInflated() {
+        return map != null;
+    }
+
+    /**
+     * Returns the flat index of the key (an even number), or -1.
+     */
+    final int indexOf(Object key) {
+        Object[] a = flat;
+        int n = size << 1;
+        if (key == null) {
+            for (int i = 0; i < n; i += 2) {
+                if (a[i] == null)
+                    return i;
+            }
+        }
+        else {
+            for (int i = 0; i < n; i += 2) {
+                Object k = a[i];
+                if (k == key || key.equals(k))
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    public int size() {
+        HashMap<K,V> m;
+        return ((m = map) != null) ? m.size() : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        HashMap<K,V> m;
+        if ((m = map) != null)
+            return m.get(key);
+        int i = indexOf(key);
+        return (i < 0) ? null : (V)flat[i + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        HashMap<K,V> m;
+        if ((m = map) != null)
+            return m.getOrDefault(key, defaultValue);
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : (V)flat[i + 1];
+    }
+
+    public boolean containsKey(Object key) {
+        HashMap<K,V> m;
+        if ((m = map) != null)
+            return m.containsKey(key);
+        return indexOf(key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        HashMap<K,V> m;
+        if ((m = map) != null)
+            return m.containsValue(value);
+        Object[] a = flat;
+        for (int i = 1, n = size << 1; i < n; i += 2) {
+            if (Objects.equals(value, a[i]))
+                return true;
+        }
+        return false;
+    }
+
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        HashMap<K,V> m;
+        if ((m = map) == null) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                V oldValue = (V)flat[i + 1];
+                if (!onlyIfAbsent || oldValue == null)
+                    flat[i + 1] = value;
+                return oldValue;
+            }
+            if (size < INFLATE_THRESHOLD) {
+                Object[] a = flat;
+                int n = size << 1;
+                if (a == null)
+                    flat = a = new Object[Math.max(initialCapacity, 1) << 1];
+                else if (n == a.length)//数组已满则加倍，最多容纳INFLATE_THRESHOLD个键值对
+                    flat = a = Arrays.copyOf(a, Math.min(n << 1, INFLATE_THRESHOLD << 1));
+                a[n] = key;
+                a[n + 1] = value;
+                ++size;
+                ++modCount;
+                return null;
+            }
+            m = inflate();
+        }
+        int s = m.size();
+        V oldValue = onlyIfAbsent ? m.putIfAbsent(key, value) : m.put(key, value);
+        if (m.size() != s)
+            ++modCount;
+        return oldValue;
+    }
+
+    /**
+     * Moves the flat mappings into a new HashMap sized for twice the
+     * threshold, and drops the flat array.
+     */
+    @SuppressWarnings("unchecked")
+    final HashMap<K,V> inflate() {
+        HashMap<K,V> m = new HashMap<>(INFLATE_THRESHOLD << 2);
+        Object[] a = flat;
+        for (int i = 0, n = size << 1; i < n; i += 2)
+            m.put((K)a[i], (V)a[i + 1]);
+        map = m;
+        flat = null;
+        size = 0;
+        ++modCount;
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        HashMap<K,V> m;
+        if ((m = map) != null) {
+            int s = m.size();
+            V oldValue = m.remove(key);
+            if (m.size() != s)
+                ++modCount;
+            return oldValue;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)flat[i + 1];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the flat mapping at index i, shifting later mappings down so
+     * that insertion order is kept.
+     */
+    final void removeAt(int i) {
+        Object[] a = flat;
+        int n = size << 1;
+        System.arraycopy(a, i + 2, a, i, n - i - 2);
+        a[n - 2] = a[n - 1] = null;
+        --size;
+        ++modCount;
+    }
+
+    public void clear() {
+        if (map != null || size > 0) {
+            ++modCount;
+            map = null;
+            flat = null;
+            size = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        HashMap<K,V> m;
+        if ((m = map) != null) {
+            m.forEach(action);
+            return;
+        }
+        int mc = modCount;
+        Object[] a = flat;
+        for (int i = 0, n = size << 1; i < n && modCount == mc; i += 2)
+            action.accept((K)a[i], (V)a[i + 1]);
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        HashMap<K,V> m;
+        if ((m = map) != null) {
+            m.replaceAll(function);
+            return;
+        }
+        int mc = modCount;
+        Object[] a = flat;
+        for (int i = 0, n = size << 1; i < n; i += 2)
+            a[i + 1] = function.apply((K)a[i], (V)a[i + 1]);
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        CompactHashMap<K,V> result;
+        try {
+            result = (CompactHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        if (flat != null)
+            result.flat = flat.clone();
+        if (map != null)
+            result.map = (HashMap<K,V>)map.clone();
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    /**
+     * Iterates over the flat array, or over the inflated map.  In the
+     * latter case the HashMap iterator provides the traversal and this
+     * class's modCount the fail-fast check, which also covers inflation.
+     */
+    abstract class CompactIterator {
+        final Iterator<Map.Entry<K,V>> delegate;
+        int cursor;            // flat index of next mapping
+        int lastRet = -1;      // flat index of last returned mapping
+        int expectedModCount;  // for fast-fail
+
+        CompactIterator() {
+            expectedModCount = modCount;
+            delegate = (map != null) ? map.entrySet().iterator() : null;
+        }
+
+        public final boolean hasNext() {
+            return (delegate != null) ? delegate.hasNext() : cursor < (size << 1);
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Returns the flat index of the next mapping; only used when not
+         * inflated.
+         */
+        final int nextIndex() {
+            checkForComodification();
+            int i = cursor;
+            if (i >= (size << 1))
+                throw new NoSuchElementException();
+            cursor = i + 2;
+            return lastRet = i;
+        }
+
+        final Map.Entry<K,V> nextDelegate() {
+            checkForComodification();
+            lastRet = 0;
+            return delegate.next();
+        }
+
+        public final void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+            if (delegate != null) {
+                delegate.remove();
+                ++modCount;
+            }
+            else {
+                removeAt(lastRet);
+                cursor = lastRet;//后续元素已经前移
+            }
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends CompactIterator implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() {
+            return (delegate != null) ? nextDelegate().getKey() : (K)flat[nextIndex()];
+        }
+    }
+
+    final class ValueIterator extends CompactIterator implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() {
+            return (delegate != null) ? nextDelegate().getValue() : (V)flat[nextIndex() + 1];
+        }
+    }
+
+    final class EntryIterator extends CompactIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() {
+            return (delegate != null) ? nextDelegate() : new Entry(nextIndex());
+        }
+    }
+
+    /**
+     * Entry view of a flat mapping.  setValue writes through to the map.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final K key;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(int index) {
+            this.key = (K)flat[index];
+            this.value = (V)flat[index + 1];
+        }
+
+        public K getKey()   { return key; }
+        public V getValue() { return value; }
+
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            int i;
+            if (map == null && (i = indexOf(key)) >= 0)
+                flat[i + 1] = value;
+            else
+                put(key, value);
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Objects.equals(key, e.getKey()) &&
+                Objects.equals(value, e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // views
+
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return CompactHashMap.this.size(); }
+        public final void clear()               { CompactHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int s = CompactHashMap.this.size();
+            CompactHashMap.this.remove(key);
+            return CompactHashMap.this.size() != s;
+        }
+    }
+
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return CompactHashMap.this.size(); }
+        public final void clear()               { CompactHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return CompactHashMap.this.size(); }
+        public final void clear()               { CompactHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            return containsKey(key) && Objects.equals(get(key), e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                CompactHashMap.this.remove(((Map.Entry<?,?>)o).getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Save the state of the map to a stream.
+     *
+     * @serialData The <i>size</i> (an int, the number of key-value
+     *             mappings), followed by the key (Object) and value
+     *             (Object) for each key-value mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size());
+        for (Map.Entry<K,V> e : entrySet()) {
+            s.writeObject(e.getKey());
+            s.writeObject(e.getValue());
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        if (mappings > INFLATE_THRESHOLD)
+            map = new HashMap<>(mappings);
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            putVal(key, value, false);
+        }
+    }
+}
@@ -0,0 +1,842 @@
+package java.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative <tt>int</tt> values, with an API modelled
+ * on {@link BitSet}.  A <tt>BitSet</tt> costs one bit for every index up
+ * to the largest one set, while a <tt>HashSet&lt;Integer&gt;</tt> costs a
+ * boxed value and a node per element; this class stays compact for both
+ * sparse and dense sets of ids.
+ *
+ * <p>The layout is that of Roaring bitmaps.  A value is split into its high
+ * and low 16 bits; the high halves present are kept in a sorted
+ * <tt>char[]</tt>, each with a container holding the low halves.  A
+ * container with at most {@value #ARRAY_MAX} values is a sorted
+ * <tt>char[]</tt> (2 bytes per value); a fuller one is a 65536-bit bitmap
+ * (8 KB, under 1 bit per value).  {@link #get} is a binary search over the
+ * high halves followed by a binary search or a single bit test, and
+ * {@link #and}, {@link #or} and {@link #andNot} merge the two sets chunk by
+ * chunk, working a word at a time on bitmaps.
+ *
+ * <p>Runs of consecutive values are best added with {@link #set(int, int)},
+ * which fills whole words of the bitmaps at a time.
+ *
+ * <p>This class is not synchronized.
+ *
+ * @see BitSet
+ * @see IntHashSet
+ */
+public class CompressedBitSet implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 3305261795624167528L;
+
+    /**
+     * Largest cardinality of an array container; a container growing past
+     * it becomes a bitmap, which then takes less space.
+     */
+    static final int ARRAY_MAX = 4096;
+
+    /**
+     * Cardinality at or below which a bitmap container shrinking through
+     * {@link #clear(int)} turns back into an array.  Lower than ARRAY_MAX so
+     * that alternating set and clear at the boundary do not convert back
+     * and forth.
+     */
+    static final int BITMAP_MIN = ARRAY_MAX / 2;
+
+    /**
+     * High 16 bits of the values, ascending, in [0, size).
+     */
+    transient char[] keys;
+
+    /**
+     * Container of the low 16 bits for each key.  Never empty.
+     */
+    transient Container[] containers;
+
+    /**
+     * The number of containers.
+     */
+    transient int size;
+
+    /**
+     * Creates an empty set.
+     */
+    public CompressedBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private static void checkIndex(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /**
+     * Returns the index of the container for key, or -(insertion point + 1).
+     */
+    final int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int i, char key, Container c) {
+        if (size == keys.length) {
+            int n = Math.max(size + (size >> 1), 4);
+            keys = Arrays.copyOf(keys, n);
+            containers = Arrays.copyOf(containers, n);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = c;
+        ++size;
+    }
+
+    private void removeContainer(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given value is in this set.
+     *
+     * @throws IndexOutOfBoundsException if the value is negative
+     */
+    public boolean get(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = indexOf((char)(bitIndex >>> 16));
+        return i >= 0 && containers[i].contains((char)bitIndex);
+    }
+
+    /**
+     * Adds the given value to this set.
+     *
+     * @throws IndexOutOfBoundsException if the value is negative
+     */
+    public void set(int bitIndex) {
+        checkIndex(bitIndex);
+        char key = (char)(bitIndex >>> 16);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -(i + 1);
+            insertContainer(i, key, new ArrayContainer(new char[4], 0));
+        }
+        containers[i] = containers[i].add((char)bitIndex);
+    }
+
+    /**
+     * Adds the values from <tt>fromIndex</tt> (inclusive) to
+     * <tt>toIndex</tt> (exclusive) to this set.
+     *
+     * @throws IndexOutOfBoundsException if either index is negative, or
+     *         <tt>fromIndex</tt> is larger than <tt>toIndex</tt>
+     */
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int last = toIndex - 1;
+        for (int k = fromIndex >>> 16; k <= (last >>> 16); ++k) {
+            int lo = (k == (fromIndex >>> 16)) ? fromIndex & 0xFFFF : 0;
+            int hi = (k == (last >>> 16)) ? (last & 0xFFFF) + 1 : 0x10000;
+            char key = (char)k;
+            int i = indexOf(key);
+            if (i < 0) {
+                i = -(i + 1);
+                insertContainer(i, key, new ArrayContainer(new char[0], 0));
+            }
+            containers[i] = containers[i].addRange(lo, hi);
+        }
+    }
+
+    /**
+     * Removes the given value from this set.
+     *
+     * @throws IndexOutOfBoundsException if the value is negative
+     */
+    public void clear(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = indexOf((char)(bitIndex >>> 16));
+        if (i >= 0) {
+            Container c = containers[i].remove((char)bitIndex);
+            if (c.cardinality == 0)
+                removeContainer(i);
+            else
+                containers[i] = c;
+        }
+    }
+
+    /**
+     * Removes all of the values from this set.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of values in this set.
+     */
+    public int cardinality() {
+        int n = 0;
+        for (int i = 0; i < size; ++i)
+            n += containers[i].cardinality;
+        return n;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this set contains no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the smallest value in this set that is greater than or equal
+     * to <tt>fromIndex</tt>, or -1 if there is none.
+     *
+     * @throws IndexOutOfBoundsException if <tt>fromIndex</tt> is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        checkIndex(fromIndex);
+        char key = (char)(fromIndex >>> 16);
+        int i = indexOf(key);
+        if (i >= 0) {
+            int low = containers[i].nextSetBit(fromIndex & 0xFFFF);
+            if (low >= 0)
+                return (key << 16) | low;
+            ++i;
+        }
+        else
+            i = -(i + 1);
+        return (i < size) ? (keys[i] << 16) | containers[i].nextSetBit(0) : -1;
+    }
+
+    /**
+     * Performs the given action for each value of this set, in ascending
+     * order.
+     */
+    public void forEach(IntConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        for (int i = 0; i < size; ++i)
+            containers[i].forEach(keys[i] << 16, action);
+    }
+
+    /**
+     * Returns a new array holding the values of this set in ascending
+     * order.
+     */
+    public int[] toArray() {
+        int[] a = new int[cardinality()];
+        int k = 0;
+        for (int i = 0; i < size; ++i) {
+            int high = keys[i] << 16;
+            Container c = containers[i];
+            for (int v = c.nextSetBit(0); v >= 0; v = c.nextSetBit(v + 1))
+                a[k++] = high | v;
+        }
+        return a;
+    }
+
+    /* ---------------- Set operations -------------- */
+
+    /**
+     * Retains only the values of this set that are also in the given set
+     * (intersection).
+     */
+    public void and(CompressedBitSet set) {
+        if (set == this)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int d = keys[i] - set.keys[j];
+            if (d < 0)
+                ++i;
+            else if (d > 0)
+                ++j;
+            else {
+                Container c = and(containers[i], set.containers[j]);
+                if (c.cardinality > 0) {
+                    keys[n] = keys[i];
+                    containers[n++] = c;
+                }
+                ++i;
+                ++j;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Adds every value of the given set to this set (union).
+     */
+    public void or(CompressedBitSet set) {
+        if (set == this)
+            return;
+        char[] ks = new char[size + set.size];
+        Container[] cs = new Container[size + set.size];
+        int n = 0, i = 0, j = 0;
+        while (i < size || j < set.size) {
+            int d = (i == size) ? 1 : (j == set.size) ? -1 : keys[i] - set.keys[j];
+            if (d < 0) {
+                ks[n] = keys[i];
+                cs[n++] = containers[i++];
+            }
+            else if (d > 0) {
+                ks[n] = set.keys[j];
+                cs[n++] = set.containers[j++].copy();
+            }
+            else {
+                ks[n] = keys[i];
+                cs[n++] = or(containers[i++], set.containers[j++]);
+            }
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    /**
+     * Removes from this set every value of the given set (difference).
+     */
+    public void andNot(CompressedBitSet set) {
+        if (set == this) {
+            clear();
+            return;
+        }
+        int n = 0;
+        for (int i = 0, j = 0; i < size; ++i) {
+            while (j < set.size && set.keys[j] < keys[i])
+                ++j;
+            Container c = containers[i];
+            if (j < set.size && set.keys[j] == keys[i])
+                c = andNot(c, set.containers[j]);
+            if (c.cardinality > 0) {
+                keys[n] = keys[i];
+                containers[n++] = c;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this set and the given set have a value in
+     * common.
+     */
+    public boolean intersects(CompressedBitSet set) {
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int d = keys[i] - set.keys[j];
+            if (d < 0)
+                ++i;
+            else if (d > 0)
+                ++j;
+            else if (and(containers[i++], set.containers[j++]).cardinality > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the intersection of two containers as a new container.
+     */
+    static Container and(Container a, Container b) {
+        if (a instanceof ArrayContainer) {
+            if (b instanceof ArrayContainer) {
+                ArrayContainer x = (ArrayContainer)a, y = (ArrayContainer)b;
+                char[] r = new char[Math.min(x.cardinality, y.cardinality)];
+                int n = 0;
+                for (int i = 0, j = 0; i < x.cardinality && j < y.cardinality; ) {
+                    char u = x.values[i], v = y.values[j];
+                    if (u < v)
+                        ++i;
+                    else if (u > v)
+                        ++j;
+                    else {
+                        r[n++] = u;
+                        ++i;
+                        ++j;
+                    }
+                }
+                return new ArrayContainer(r, n);
+            }
+            return ((ArrayContainer)a).filter(b, true);
+        }
+        if (b instanceof ArrayContainer)
+            return ((ArrayContainer)b).filter(a, true);
+        long[] x = ((BitmapContainer)a).words, y = ((BitmapContainer)b).words;
+        BitmapContainer r = new BitmapContainer();
+        int n = 0;
+        for (int k = 0; k < BitmapContainer.WORDS; ++k)
+            n += Long.bitCount(r.words[k] = x[k] & y[k]);
+        r.cardinality = n;
+        return r.normalize();
+    }
+
+    /**
+     * Returns the union of two containers as a new container.
+     */
+    static Container or(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            ArrayContainer x = (ArrayContainer)a, y = (ArrayContainer)b;
+            if (x.cardinality + y.cardinality > ARRAY_MAX) {
+                BitmapContainer r = x.toBitmap();
+                for (int j = 0; j < y.cardinality; ++j)
+                    r.add(y.values[j]);
+                return r.normalize();
+            }
+            char[] r = new char[x.cardinality + y.cardinality];
+            int n = 0, i = 0, j = 0;
+            while (i < x.cardinality && j < y.cardinality) {
+                char u = x.values[i], v = y.values[j];
+                if (u <= v) {
+                    r[n++] = u;
+                    ++i;
+                    if (u == v)
+                        ++j;
+                }
+                else {
+                    r[n++] = v;
+                    ++j;
+                }
+            }
+            while (i < x.cardinality)
+                r[n++] = x.values[i++];
+            while (j < y.cardinality)
+                r[n++] = y.values[j++];
+            return new ArrayContainer(r, n);
+        }
+        if (a instanceof ArrayContainer) {
+            Container t = a; a = b; b = t;
+        }
+        BitmapContainer r = (BitmapContainer)a.copy();
+        if (b instanceof ArrayContainer) {
+            ArrayContainer y = (ArrayContainer)b;
+            for (int j = 0; j < y.cardinality; ++j)
+                r.add(y.values[j]);
+        }
+        else {
+            long[] w = r.words, y = ((BitmapContainer)b).words;
+            int n = 0;
+            for (int k = 0; k < BitmapContainer.WORDS; ++k)
+                n += Long.bitCount(w[k] |= y[k]);
+            r.cardinality = n;
+        }
+        return r;
+    }
+
+    /**
+     * Returns the values of a that are not in b as a new container.
+     */
+    static Container andNot(Container a, Container b) {
+        if (a instanceof ArrayContainer)
+            return ((ArrayContainer)a).filter(b, false);
+        BitmapContainer r = (BitmapContainer)a.copy();
+        if (b instanceof ArrayContainer) {
+            ArrayContainer y = (ArrayContainer)b;
+            for (int j = 0; j < y.cardinality; ++j)
+                r.clearBit(y.values[j]);
+        }
+        else {
+            long[] w = r.words, y = ((BitmapContainer)b).words;
+            int n = 0;
+            for (int k = 0; k < BitmapContainer.WORDS; ++k)
+                n += Long.bitCount(w[k] &= ~y[k]);
+            r.cardinality = n;
+        }
+        return r.normalize();
+    }
+
+    /* ---------------- Containers -------------- */
+
+    /**
+     * The low 16 bits of the values sharing the same high 16 bits.  The
+     * mutators return the container to use from then on, which differs
+     * from the receiver when the representation changes.
+     */
+    abstract static class Container {
+        int cardinality;
+
+        abstract boolean contains(char v);
+        abstract Container add(char v);
+        abstract Container remove(char v);
+        /** Adds the values in [lo, hi), where 0 <= lo < hi <= 65536. */
+        abstract Container addRange(int lo, int hi);
+        /** Returns the smallest value >= from, or -1. */
+        abstract int nextSetBit(int from);
+        abstract Container copy();
+        abstract void forEach(int high, IntConsumer action);
+    }
+
+    /**
+     * Sorted array of at most ARRAY_MAX values.
+     */
+    static final class ArrayContainer extends Container {
+        char[] values;
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Returns the index of the first value >= x.
+         */
+        int lowerBound(int x) {
+            if (x > Character.MAX_VALUE)
+                return cardinality;
+            int i = Arrays.binarySearch(values, 0, cardinality, (char)x);
+            return (i >= 0) ? i : -(i + 1);
+        }
+
+        boolean contains(char v) {
+            return Arrays.binarySearch(values, 0, cardinality, v) >= 0;
+        }
+
+        Container add(char v) {
+            int i = Arrays.binarySearch(values, 0, cardinality, v);
+            if (i >= 0)
+                return this;
+            if (cardinality >= ARRAY_MAX)
+                return toBitmap().add(v);//数组已满，转换为位图
+            i = -(i + 1);
+            if (cardinality == values.length)
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality << 1, 4), ARRAY_MAX));
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = v;
+            ++cardinality;
+            return this;
+        }
+
+        Container remove(char v) {
+            int i = Arrays.binarySearch(values, 0, cardinality, v);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                --cardinality;
+            }
+            return this;
+        }
+
+        Container addRange(int lo, int hi) {
+            int a = lowerBound(lo), b = lowerBound(hi);
+            int n = a + (hi - lo) + (cardinality - b);
+            if (n > ARRAY_MAX)
+                return toBitmap().addRange(lo, hi);
+            char[] r = new char[n];
+            System.arraycopy(values, 0, r, 0, a);
+            for (int v = lo, k = a; v < hi; ++v, ++k)
+                r[k] = (char)v;
+            System.arraycopy(values, b, r, a + (hi - lo), cardinality - b);
+            values = r;
+            cardinality = n;
+            return this;
+        }
+
+        int nextSetBit(int from) {
+            int i = lowerBound(from);
+            return (i < cardinality) ? values[i] : -1;
+        }
+
+        /**
+         * Returns a new container with the values that are (if keep) or
+         * are not (otherwise) contained in c.
+         */
+        ArrayContainer filter(Container c, boolean keep) {
+            char[] r = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; ++i) {
+                char v = values[i];
+                if (c.contains(v) == keep)
+                    r[n++] = v;
+            }
+            return new ArrayContainer(r, n);
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            for (int i = 0; i < cardinality; ++i) {
+                char v = values[i];
+                b.words[v >>> 6] |= 1L << v;
+            }
+            b.cardinality = cardinality;
+            return b;
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; ++i)
+                action.accept(high | values[i]);
+        }
+    }
+
+    /**
+     * Bitmap of all 65536 low halves.
+     */
+    static final class BitmapContainer extends Container {
+        static final int WORDS = 1024;
+
+        final long[] words = new long[WORDS];
+
+        boolean contains(char v) {
+            return (words[v >>> 6] & (1L << v)) != 0L;
+        }
+
+        Container add(char v) {
+            long w = words[v >>> 6], nw = w | (1L << v);
+            if (nw != w) {
+                words[v >>> 6] = nw;
+                ++cardinality;
+            }
+            return this;
+        }
+
+        void clearBit(char v) {
+            long w = words[v >>> 6], nw = w & ~(1L << v);
+            if (nw != w) {
+                words[v >>> 6] = nw;
+                --cardinality;
+            }
+        }
+
+        Container remove(char v) {
+            clearBit(v);
+            return (cardinality <= BITMAP_MIN) ? toArrayContainer() : this;
+        }
+
+        Container addRange(int lo, int hi) {
+            int first = lo >>> 6, last = (hi - 1) >>> 6;
+            long firstMask = -1L << lo, lastMask = -1L >>> -hi;//与BitSet.set(from, to)相同的掩码
+            int n = cardinality;
+            for (int k = first; k <= last; ++k) {
+                long m = -1L;
+                if (k == first)
+                    m &= firstMask;
+                if (k == last)
+                    m &= lastMask;
+                long w = words[k];
+                n += Long.bitCount(m & ~w);
+                words[k] = w | m;
+            }
+            cardinality = n;
+            return this;
+        }
+
+        int nextSetBit(int from) {
+            if (from > Character.MAX_VALUE)
+                return -1;
+            int u = from >>> 6;
+            long w = words[u] & (-1L << from);
+            while (true) {
+                if (w != 0L)
+                    return (u << 6) + Long.numberOfTrailingZeros(w);
+                if (++u == WORDS)
+                    return -1;
+                w = words[u];
+            }
+        }
+
+        /**
+         * Returns this container, or an array container with the same
+         * values if that is smaller.
+         */
+        Container normalize() {
+            return (cardinality <= ARRAY_MAX) ? toArrayContainer() : this;
+        }
+
+        ArrayContainer toArrayContainer() {
+            char[] r = new char[cardinality];
+            int n = 0;
+            for (int k = 0; k < WORDS; ++k) {
+                for (long w = words[k]; w != 0L; w &= w - 1)
+                    r[n++] = (char)((k << 6) + Long.numberOfTrailingZeros(w));
+            }
+            return new ArrayContainer(r, n);
+        }
+
+        Container copy() {
+            BitmapContainer b = new BitmapContainer();
+            System.arraycopy(words, 0, b.words, 0, WORDS);
+            b.cardinality = cardinality;
+            return b;
+        }
+
+        void forEach(int high, IntConsumer action) {
+            for (int k = 0; k < WORDS; ++k) {
+                for (long w = words[k]; w != 0L; w &= w - 1)
+                    action.accept(high | ((k << 6) + Long.numberOfTrailingZeros(w)));
+            }
+        }
+    }
+
+    /**
+     * Returns true if the containers hold the same values, whatever their
+     * representation.
+     */
+    static boolean contentEquals(Container a, Container b) {
+        if (a.cardinality != b.cardinality)
+            return false;
+        if (a instanceof BitmapContainer && b instanceof BitmapContainer)
+            return Arrays.equals(((BitmapContainer)a).words, ((BitmapContainer)b).words);
+        if (b instanceof ArrayContainer) {
+            Container t = a; a = b; b = t;
+        }
+        ArrayContainer x = (ArrayContainer)a;
+        for (int i = 0; i < x.cardinality; ++i) {
+            if (!b.contains(x.values[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Compares the given object with this set: returns <tt>true</tt> if it
+     * is a <tt>CompressedBitSet</tt> holding the same values.
+     */
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof CompressedBitSet))
+            return false;
+        CompressedBitSet set = (CompressedBitSet)obj;
+        if (set.size != size)
+            return false;
+        for (int i = 0; i < size; ++i) {
+            if (keys[i] != set.keys[i] ||
+                !contentEquals(containers[i], set.containers[i]))
+                return false;
+        }
+        return true;
+    }
+
+    public int hashCode() {
+        int[] h = {1};
+        forEach(v -> h[0] = 31 * h[0] + v);
+        return h[0];
+    }
+
+    /**
+     * Returns a copy of this set.
+     */
+    @Override
+    public CompressedBitSet clone() {
+        CompressedBitSet result;
+        try {
+            result = (CompressedBitSet)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.containers = containers.clone();
+        for (int i = 0; i < size; ++i)
+            result.containers[i] = containers[i].copy();
+        return result;
+    }
+
+    /**
+     * Returns the values of this set in ascending order, in the format of
+     * {@link BitSet#toString}.
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach(v -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Saves the state of this set to a stream.
+     *
+     * @serialData The number of containers (int), then for each container
+     *             its high 16 bits (char), whether it is a bitmap
+     *             (boolean) and its cardinality (int), followed by either
+     *             its values (chars) or its 1024 bitmap words (longs).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int i = 0; i < size; ++i) {
+            Container c = containers[i];
+            s.writeChar(keys[i]);
+            s.writeBoolean(c instanceof BitmapContainer);
+            s.writeInt(c.cardinality);
+            if (c instanceof BitmapContainer) {
+                for (long w : ((BitmapContainer)c).words)
+                    s.writeLong(w);
+            }
+            else {
+                ArrayContainer a = (ArrayContainer)c;
+                for (int j = 0; j < a.cardinality; ++j)
+                    s.writeChar(a.values[j]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this set from a stream (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0 || n > 0x8000)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        keys = new char[Math.max(n, 4)];
+        containers = new Container[Math.max(n, 4)];
+        size = 0;
+        for (int i = 0; i < n; ++i) {
+            char key = s.readChar();
+            boolean bitmap = s.readBoolean();
+            int card = s.readInt();
+            if ((i > 0 && key <= keys[i - 1]) || key >= 0x8000 ||
+                card <= 0 || card > (bitmap ? 0x10000 : ARRAY_MAX))
+                throw new java.io.InvalidObjectException("Corrupt container");
+            Container c;
+            if (bitmap) {
+                BitmapContainer b = new BitmapContainer();
+                int bits = 0;
+                for (int k = 0; k < BitmapContainer.WORDS; ++k)
+                    bits += Long.bitCount(b.words[k] = s.readLong());
+                b.cardinality = bits;
+                c = b;
+            }
+            else {
+                char[] v = new char[card];
+                for (int j = 0; j < card; ++j) {
+                    v[j] = s.readChar();
+                    if (j > 0 && v[j] <= v[j - 1])
+                        throw new java.io.InvalidObjectException("Corrupt container");
+                }
+                c = new ArrayContainer(v, card);
+            }
+            if (c.cardinality != card)
+                throw new java.io.InvalidObjectException("Corrupt container");
+            keys[i] = key;
+            containers[i] = c;
+            size = i + 1;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Monitor contention statistics for the classes that synchronize every
+ * operation on one lock: {@link Hashtable}, {@link StringBuffer}, and the
+ * synchronized maps returned by {@link #synchronizedMap}, a profiled
+ * version of {@link Collections#synchronizedMap}.
+ * 统计Hashtable、StringBuffer和同步Map的锁竞争，找出线程堆积在哪个监视器上
+ *
+ * <p>The synchronized methods of these classes call {@link #beforeLock}
+ * before acquiring the monitor and {@link #afterLock} once they hold it.
+ * While sampling is off, which is the default, {@link #beforeLock} only
+ * reads a volatile field and returns zero, and {@link #afterLock} returns
+ * at once: nothing is allocated or recorded.  After
+ * {@link #startSampling}, one acquisition in <i>interval</i>, chosen at
+ * random, is timed from before the acquisition to after it, and recorded
+ * against the monitor and against its call site, the frame that called
+ * the synchronized method.  An acquisition counts as contended when it
+ * waited at least the given number of nanoseconds, one microsecond by
+ * default, since an uncontended acquisition takes a few tens of
+ * nanoseconds; the wait time reported is that of the contended
+ * acquisitions.
+ *
+ * <p>The counts and wait times are estimates for all acquisitions: each
+ * sampled acquisition is counted <i>interval</i> times.  Finding the call
+ * site walks the stack of the sampling thread while it holds the monitor,
+ * which takes microseconds, so intervals of 100 or more are advisable
+ * under load.  The statistics of a collected monitor are dropped unless
+ * it was contended.
+ *
+ * <p>{@link #report} lists the monitors and the call sites with the most
+ * waiting time:
+ * <pre> {@code
+ * ContentionProfiler.startSampling(100);
+ * ...
+ * ContentionProfiler.stopSampling();
+ * System.out.print(ContentionProfiler.report(10));}</pre>
+ *
+ * @see Hashtable
+ * @see StringBuffer
+ */
+public final class ContentionProfiler {
+
+    private ContentionProfiler() {}
+
+    /**
+     * The default wait above which an acquisition counts as contended.
+     */
+    static final long DEFAULT_CONTENDED_NANOS = 1000L;
+
+    // 没有像HashMapStatistics那样用系统属性作开关：Hashtable在System初始化属性时就会被调用，
+    // 此时读取属性会得到错误的结果。本类的初始化也因此不能创建任何对象
+
+    /**
+     * The statistics being sampled, or null when sampling is off.
+     */
+    private static volatile Profile active;
+
+    /**
+     * The statistics of the last sampling, reported by report.
+     */
+    private static volatile Profile last;
+
+    /**
+     * The statistics of one sampling run.
+     */
+    static final class Profile {
+        final int interval;
+        final long contendedNanos;
+        final ConcurrentHashMap<Monitor, Stats> monitors = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Stats> sites = new ConcurrentHashMap<>();
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+        Profile(int interval, long contendedNanos) {
+            this.interval = interval;
+            this.contendedNanos = contendedNanos;
+        }
+
+        void record(Object monitor, long wait) {
+            for (Object r; (r = queue.poll()) != null; ) {//清除已回收且没有竞争的监视器
+                Stats s = monitors.get(r);
+                if (s != null && s.contended.sum() == 0L)
+                    monitors.remove(r);
+            }
+            Monitor key = new Monitor(monitor, null);
+            Stats s = monitors.get(key);
+            if (s == null) {
+                Stats t = new Stats(monitor.getClass().getName() + "@" +
+                                    Integer.toHexString(key.hash));
+                if ((s = monitors.putIfAbsent(new Monitor(monitor, queue), t)) == null)
+                    s = t;
+            }
+            add(s, wait);
+            String site = callSite(new Throwable().getStackTrace());
+            if ((s = sites.get(site)) == null) {
+                Stats t = new Stats(site);
+                if ((s = sites.putIfAbsent(site, t)) == null)
+                    s = t;
+            }
+            add(s, wait);
+        }
+
+        private void add(Stats s, long wait) {
+            long w = interval;//每次采样代表interval次获取
+            s.acquisitions.add(w);
+            if (wait >= contendedNanos) {
+                s.contended.add(w);
+                s.waitNanos.add(wait * w);
+            }
+        }
+    }
+
+    /**
+     * Returns the call site of the synchronized method that called
+     * afterLock, as "caller -> class.method".  Nested calls to methods of
+     * the same class, such as Hashtable.putAll calling put, are attributed
+     * to the outermost one.
+     */
+    static String callSite(StackTraceElement[] stack) {
+        String self = ContentionProfiler.class.getName();
+        String profile = Profile.class.getName();
+        int i = 0;
+        while (i < stack.length && (stack[i].getClassName().equals(self) ||
+                                    stack[i].getClassName().equals(profile)))
+            i++;
+        if (i == stack.length)
+            return "?";
+        StackTraceElement locker = stack[i];
+        while (i + 1 < stack.length &&
+               stack[i + 1].getClassName().equals(stack[i].getClassName()))
+            locker = stack[++i];
+        String caller = (i + 1 < stack.length) ? stack[i + 1].toString() : "?";
+        return caller + " -> " + locker.getClassName() + "." + locker.getMethodName();
+    }
+
+    /**
+     * A weak reference to a monitor, compared by identity, so that neither
+     * the overridden equals and hashCode of the monitor are called nor the
+     * monitor is kept from being collected.
+     */
+    static final class Monitor extends WeakReference<Object> {
+        final int hash;
+
+        Monitor(Object monitor, ReferenceQueue<Object> queue) {
+            super(monitor, queue);
+            this.hash = System.identityHashCode(monitor);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            Object m;
+            return o == this ||
+                (o instanceof Monitor && (m = get()) != null && m == ((Monitor)o).get());
+        }
+    }
+
+    /**
+     * The counters of a monitor or a call site.
+     */
+    static final class Stats {
+        final String name;
+        final LongAdder acquisitions = new LongAdder();
+        final LongAdder contended = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+
+        Stats(String name) {
+            this.name = name;
+        }
+    }
+
+    /* ---------------- Instrumentation -------------- */
+
+    /**
+     * Called before acquiring a profiled monitor.  Returns zero, without
+     * allocating, unless this acquisition is sampled, in which case it
+     * returns the time to pass to {@link #afterLock}.
+     *
+     * @return the start time of a sampled acquisition, or zero
+     */
+    public static long beforeLock() {
+        Profile p = active;
+        if (p == null ||
+            (p.interval > 1 && ThreadLocalRandom.current().nextInt(p.interval) != 0))
+            return 0L;
+        long t = System.nanoTime();
+        return (t == 0L) ? 1L : t;
+    }
+
+    /**
+     * Called just after acquiring a profiled monitor, with the value
+     * returned by {@link #beforeLock}.  Records the acquisition if it was
+     * sampled.
+     *
+     * @param monitor the monitor acquired
+     * @param stamp the value returned by {@link #beforeLock}
+     */
+    public static void afterLock(Object monitor, long stamp) {
+        if (stamp != 0L) {
+            long wait = System.nanoTime() - stamp;
+            Profile p = active;
+            if (p != null)
+                p.record(monitor, wait);
+        }
+    }
+
+    /* ---------------- Control and reports -------------- */
+
+    /**
+     * Starts sampling one acquisition in <tt>interval</tt>, counting as
+     * contended those that waited at least one microsecond.  The
+     * statistics of the previous sampling are discarded.
+     *
+     * @param interval the sampling interval, 1 to record every acquisition
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public static void startSampling(int interval) {
+        startSampling(interval, DEFAULT_CONTENDED_NANOS);
+    }
+
+    /**
+     * Starts sampling one acquisition in <tt>interval</tt>, counting as
+     * contended those that waited at least <tt>contendedNanos</tt>.  The
+     * statistics of the previous sampling are discarded.
+     *
+     * @param interval the sampling interval, 1 to record every acquisition
+     * @param contendedNanos the wait in nanoseconds from which an
+     *        acquisition counts as contended
+     * @throws IllegalArgumentException if the interval is not positive or
+     *         contendedNanos is negative
+     */
+    public static synchronized void startSampling(int interval, long contendedNanos) {
+        if (interval <= 0 || contendedNanos < 0L)
+            throw new IllegalArgumentException();
+        Profile p = new Profile(interval, contendedNanos);
+        last = p;
+        active = p;
+    }
+
+    /**
+     * Stops sampling.  The statistics gathered remain available to
+     * {@link #report} until sampling is started again or {@link #reset}.
+     */
+    public static synchronized void stopSampling() {
+        active = null;
+    }
+
+    /**
+     * Returns true if acquisitions are being sampled.
+     */
+    public static boolean isSampling() {
+        return active != null;
+    }
+
+    /**
+     * Discards the statistics gathered so far, without stopping sampling.
+     */
+    public static synchronized void reset() {
+        Profile p = last;
+        if (p != null) {
+            Profile q = new Profile(p.interval, p.contendedNanos);
+            last = q;
+            if (active != null)
+                active = q;
+        }
+    }
+
+    /**
+     * Returns a report of the <tt>n</tt> monitors and the <tt>n</tt> call
+     * sites that waited the longest, with their estimated acquisitions,
+     * contended acquisitions, and total wait in milliseconds.  Monitors
+     * are shown as their class name and identity hash code, call sites as
+     * the calling frame and the synchronized method.
+     *
+     * @param n the number of monitors and of call sites to report
+     * @return the report
+     * @throws IllegalArgumentException if n is negative
+     */
+    public static String report(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException();
+        Profile p = last;
+        StringBuilder sb = new StringBuilder();
+        if (p == null)
+            return sb.append("No contention sampled\n").toString();
+        sb.append("Sampled 1 in ").append(p.interval)
+          .append(" acquisitions, contended from ").append(p.contendedNanos)
+          .append(" ns\n");
+        appendTop(sb, "Monitors", p.monitors.values(), n);
+        appendTop(sb, "Call sites", p.sites.values(), n);
+        return sb.toString();
+    }
+
+    private static void appendTop(StringBuilder sb, String title,
+                                  Collection<Stats> stats, int n) {
+        List<Stats> top = new ArrayList<>(stats);
+        //按等待时间降序，等待时间相同时按竞争次数、获取次数
+        top.sort((a, b) -> {
+            int c = Long.compare(b.waitNanos.sum(), a.waitNanos.sum());
+            if (c == 0)
+                c = Long.compare(b.contended.sum(), a.contended.sum());
+            return (c != 0) ? c : Long.compare(b.acquisitions.sum(), a.acquisitions.sum());
+        });
+        sb.append(title).append(" by wait time:\n");
+        sb.append(String.format("%14s %12s %12s  %s%n", "acquisitions", "contended", "wait ms", "name"));
+        for (Stats s : top.subList(0, Math.min(n, top.size())))
+            sb.append(String.format("%14d %12d %12.3f  %s%n", s.acquisitions.sum(),
+                                    s.contended.sum(), s.waitNanos.sum() / 1e6, s.name));
+    }
+
+    /* ---------------- Profiled synchronized map -------------- */
+
+    /**
+     * Returns a synchronized (thread-safe) map backed by the specified
+     * map, like {@link Collections#synchronizedMap}, whose acquisitions
+     * of the monitor are profiled.  The returned map is its own monitor:
+     * the user must synchronize on it when iterating over its views.
+     * Only the methods of the map itself are profiled, not those of its
+     * views.
+     *
+     * @param <K> the class of the map keys
+     * @param <V> the class of the map values
+     * @param m the map to be "wrapped" in a synchronized map
+     * @return a profiled synchronized view of the specified map
+     * @throws NullPointerException if the map is null
+     */
+    public static <K,V> Map<K,V> synchronizedMap(Map<K,V> m) {
+        return new SynchronizedMap<>(m);
+    }
+
+    /**
+     * @serial include
+     */
+    private static class SynchronizedMap<K,V>
+        implements Map<K,V>, Serializable {
+        private static final long serialVersionUID = -5402684390457536357L;
+
+        private final Map<K,V> m;     // Backing Map
+        final Object      mutex;        // Object on which to synchronize
+
+        SynchronizedMap(Map<K,V> m) {
+            this.m = Objects.requireNonNull(m);
+            mutex = this;
+        }
+
+        public int size() {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.size();}
+        }
+        public boolean isEmpty() {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.isEmpty();}
+        }
+        public boolean containsKey(Object key) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.containsKey(key);}
+        }
+        public boolean containsValue(Object value) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.containsValue(value);}
+        }
+        public V get(Object key) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.get(key);}
+        }
+
+        public V put(K key, V value) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.put(key, value);}
+        }
+        public V remove(Object key) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.remove(key);}
+        }
+        public void putAll(Map<? extends K, ? extends V> map) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); m.putAll(map);}
+        }
+        public void clear() {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); m.clear();}
+        }
+
+        private transient Set<K> keySet;
+        private transient Set<Map.Entry<K,V>> entrySet;
+        private transient Collection<V> values;
+
+        public Set<K> keySet() {
+            synchronized (mutex) {
+                if (keySet==null)
+                    keySet = Collections.synchronizedSet(m.keySet(), mutex);
+                return keySet;
+            }
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            synchronized (mutex) {
+                if (entrySet==null)
+                    entrySet = Collections.synchronizedSet(m.entrySet(), mutex);
+                return entrySet;
+            }
+        }
+
+        public Collection<V> values() {
+            synchronized (mutex) {
+                if (values==null)
+                    values = Collections.synchronizedCollection(m.values(), mutex);
+                return values;
+            }
+        }
+
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.equals(o);}
+        }
+        public int hashCode() {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.hashCode();}
+        }
+        public String toString() {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.toString();}
+        }
+
+        // Override default methods in Map
+        @Override
+        public V getOrDefault(Object k, V defaultValue) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.getOrDefault(k, defaultValue);}
+        }
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); m.forEach(action);}
+        }
+        @Override
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); m.replaceAll(function);}
+        }
+        @Override
+        public V putIfAbsent(K key, V value) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.putIfAbsent(key, value);}
+        }
+        @Override
+        public boolean remove(Object key, Object value) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.remove(key, value);}
+        }
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.replace(key, oldValue, newValue);}
+        }
+        @Override
+        public V replace(K key, V value) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.replace(key, value);}
+        }
+        @Override
+        public V computeIfAbsent(K key,
+                Function<? super K, ? extends V> mappingFunction) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.computeIfAbsent(key, mappingFunction);}
+        }
+        @Override
+        public V computeIfPresent(K key,
+                BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.computeIfPresent(key, remappingFunction);}
+        }
+        @Override
+        public V compute(K key,
+                BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.compute(key, remappingFunction);}
+        }
+        @Override
+        public V merge(K key, V value,
+                BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            long stamp = beforeLock();
+            synchronized (mutex) {afterLock(mutex, stamp); return m.merge(key, value, remappingFunction);}
+        }
+
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            synchronized (mutex) {s.defaultWriteObject();}
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package java.util;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable, read-optimized snapshot of a map, typically obtained from
+ * {@link HashMap#freeze}.  Mappings are stored in three parallel arrays
+ * sorted by a scrambled hash, plus a small index that maps the top bits of
+ * the scrambled hash to the first array position holding them.  A lookup
+ * reads one index slot and then scans a handful of adjacent hashes, so it
+ * usually touches two or three cache lines and never follows a pointer
+ * chain.  Compared with a <tt>HashMap</tt> holding the same mappings, there
+ * is no <tt>Node</tt> per entry and no half-empty bucket array: on top of
+ * the key and value references, each mapping costs 4 bytes of hash and at
+ * most 8 bytes of index.
+ *
+ * <p>All fields are final and the arrays are never written after
+ * construction, so instances are safely published and may be read from
+ * any number of threads without synchronization.  Every mutating method
+ * throws {@link UnsupportedOperationException}.  This map permits
+ * <tt>null</tt> values and the <tt>null</tt> key; its iteration order is
+ * unspecified but stable.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see HashMap#freeze
+ */
+public final class FrozenHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Serializable {
+
+    private static final long serialVersionUID = -7729356148826453012L;
+
+    /**
+     * Multiplier scrambling HashMap.hash() values.  Odd, so scrambling is a
+     * bijection and does not add collisions; the golden-ratio constant
+     * carries low bits into the top bits that the index is built on.
+     */
+    static final int SCRAMBLE = 0x9E3779B9;
+
+    /**
+     * Scrambled hashes, ascending as unsigned ints.
+     */
+    private final int[] hashes;
+
+    /**
+     * Keys and values, in the order of hashes.
+     */
+    private final Object[] keys;
+    private final Object[] vals;
+
+    /**
+     * index[b] is the first position whose hash has b as its top bits;
+     * index[index.length - 1] is the number of mappings.
+     */
+    private final int[] index;
+
+    /**
+     * Number of top hash bits used by index.
+     */
+    private final int bits;
+
+    /**
+     * Creates a frozen copy of the given map.
+     *
+     * @param m the map whose mappings are to be copied
+     * @throws NullPointerException if the specified map is null
+     */
+    public FrozenHashMap(Map<? extends K, ? extends V> m) {
+        int n = m.size();
+        Object[] ks = new Object[n], vs = new Object[n];
+        int[] hs = new int[n];
+        int c = 0;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            if (c == n)
+                throw new ConcurrentModificationException();
+            Object k = ks[c] = e.getKey();
+            vs[c] = e.getValue();
+            hs[c++] = HashMap.hash(k);
+        }
+        if (c != n)
+            throw new ConcurrentModificationException();
+        this.bits = bitsFor(n);
+        this.hashes = new int[n];
+        this.keys = new Object[n];
+        this.vals = new Object[n];
+        this.index = new int[(1 << bits) + 1];
+        build(hs, ks, vs);
+    }
+
+    /**
+     * Creates a frozen copy of the nodes of a HashMap table, reusing their
+     * cached hashes.
+     */
+    FrozenHashMap(HashMap.Node<K,V>[] tab, int n) {
+        Object[] ks = new Object[n], vs = new Object[n];
+        int[] hs = new int[n];
+        int c = 0;
+        if (tab != null) {
+            for (HashMap.Node<K,V> e : tab) {
+                for (; e != null; e = e.next) {
+                    ks[c] = e.key;
+                    vs[c] = e.value;
+                    hs[c++] = e.hash;
+                }
+            }
+        }
+        if (c != n)
+            throw new ConcurrentModificationException();
+        this.bits = bitsFor(n);
+        this.hashes = new int[n];
+        this.keys = new Object[n];
+        this.vals = new Object[n];
+        this.index = new int[(1 << bits) + 1];
+        build(hs, ks, vs);
+    }
+
+    /**
+     * Returns the number of index bits for n mappings: about one index
+     * slot per mapping.
+     */
+    static int bitsFor(int n) {
+        return (n <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+    /**
+     * Sorts the mappings by scrambled hash into the final arrays and fills
+     * the index.
+     */
+    private void build(int[] hs, Object[] ks, Object[] vs) {
+        int n = hs.length;
+        // 高32位是扰动后的hash（无符号），低32位是原下标，排序后即得到按hash有序的排列
+        long[] order = new long[n];
+        for (int i = 0; i < n; ++i)
+            order[i] = ((long)(hs[i] * SCRAMBLE) << 32) | i;
+        Arrays.sort(order);//有符号排序，下面将其旋转为无符号顺序
+        int neg = 0;
+        while (neg < n && order[neg] < 0L)
+            ++neg;
+        for (int j = 0; j < n; ++j) {
+            long o = order[(j + neg) % n];
+            int i = (int)o;
+            hashes[j] = (int)(o >>> 32);
+            keys[j] = ks[i];
+            vals[j] = vs[i];
+        }
+        int slots = index.length - 1;
+        for (int j = 0, b = 0; b <= slots; ++b) {
+            while (j < n && bucket(hashes[j]) < b)
+                ++j;
+            index[b] = j;
+        }
+    }
+
+    private int bucket(int h) {
+        return (bits == 0) ? 0 : h >>> (32 - bits);
+    }
+
+    /**
+     * Returns the position of the key, or -1.
+     */
+    final int find(Object key) {
+        int h = HashMap.hash(key) * SCRAMBLE;
+        int b = bucket(h);
+        int[] hs = hashes;
+        Object[] ks = keys;
+        for (int i = index[b], end = index[b + 1]; i < end; ++i) {
+            int x = hs[i];
+            if (x == h) {
+                Object k = ks[i];
+                if (k == key || (key != null && key.equals(k)))
+                    return i;
+            }
+            else if (Integer.compareUnsigned(x, h) > 0)
+                break;//hash有序，已经超过目标值
+        }
+        return -1;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = find(key);
+        return (i < 0) ? null : (V)vals[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i = find(key);
+        return (i < 0) ? defaultValue : (V)vals[i];
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        for (Object v : vals) {
+            if (Objects.equals(value, v))
+                return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        Object[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i)
+            action.accept((K)ks[i], (V)vs[i]);
+    }
+
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    public V remove(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void putAll(Map<? extends K, ? extends V> m) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    /* ------------------------------------------------------------ */
+    // views
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() { return keys.length; }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Iterator<Map.Entry<K,V>>() {
+                int next;
+                public boolean hasNext() {
+                    return next < keys.length;
+                }
+                @SuppressWarnings("unchecked")
+                public Map.Entry<K,V> next() {
+                    int i = next;
+                    if (i >= keys.length)
+                        throw new NoSuchElementException();
+                    next = i + 1;
+                    return new AbstractMap.SimpleImmutableEntry<>((K)keys[i], (V)vals[i]);
+                }
+            };
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            int i = find(e.getKey());
+            return i >= 0 && Objects.equals(vals[i], e.getValue());
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // serialization
+
+    /**
+     * Hash codes need not be the same in another JVM, so the map is
+     * serialized as its keys and values and rebuilt on deserialization.
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(keys, vals);
+    }
+
+    private void readObject(ObjectInputStream s) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    private static final class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = 2416339054165912407L;
+
+        /** @serial */
+        private final Object[] keys;
+        /** @serial */
+        private final Object[] vals;
+
+        SerializationProxy(Object[] keys, Object[] vals) {
+            this.keys = keys;
+            this.vals = vals;
+        }
+
+        private Object readResolve() {
+            HashMap<Object,Object> m = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; ++i)
+                m.put(keys[i], vals[i]);
+            return new FrozenHashMap<>(m);
+        }
+    }
+}
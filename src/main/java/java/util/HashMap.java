@@ -45,6 +45,8 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -583,6 +585,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     final Node<K,V> getNode(int hash, Object key) {
         Node<K,V>[] tab; Node<K,V> first, e; int n; K k;
+        if (HashMapStatistics.enabled())
+            return getNodeCounted(hash, key);//仅开启统计时执行
         if ((tab = table) != null && (n = tab.length) > 0 &&
             (first = tab[(n - 1) & hash]) != null) {
             if (first.hash == hash && // always check first node
@@ -601,6 +605,32 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         return null;
     }
 
+    /**
+     * Version of getNode that records the number of nodes examined in
+     * HashMapStatistics.
+     */
+    private Node<K,V> getNodeCounted(int hash, Object key) {
+        Node<K,V>[] tab; Node<K,V> e; int n; K k;
+        int probes = 0;
+        if ((tab = table) != null && (n = tab.length) > 0 &&
+            (e = tab[(n - 1) & hash]) != null) {
+            if (e instanceof TreeNode) {
+                HashMapStatistics.recordTreeGet();
+                return ((TreeNode<K,V>)e).getTreeNode(hash, key);
+            }
+            do {
+                ++probes;
+                if (e.hash == hash &&
+                    ((k = e.key) == key || (key != null && key.equals(k)))) {
+                    HashMapStatistics.recordGet(probes);
+                    return e;
+                }
+            } while ((e = e.next) != null);
+        }
+        HashMapStatistics.recordGet(probes);
+        return null;
+    }
+
     /**
      * Returns <tt>true</tt> if this map contains a mapping for the
      * specified key.
@@ -692,6 +722,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * @return the table
      */
     final Node<K,V>[] resize() {
+        boolean counted = HashMapStatistics.enabled();
+        long start = counted ? System.nanoTime() : 0L;
         Node<K,V>[] oldTab = table;
         int oldCap = (oldTab == null) ? 0 : oldTab.length;//当前表中元素个数
         int oldThr = threshold;
@@ -763,6 +795,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                     }
                 }
             }
+            if (counted)
+                HashMapStatistics.recordResize(System.nanoTime() - start);
         }
         return newTab;
     }
@@ -788,6 +822,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             } while ((e = e.next) != null);
             if ((tab[index] = hd) != null)
                 hd.treeify(tab);//树放入index的位置
+            if (HashMapStatistics.enabled())
+                HashMapStatistics.recordTreeify();
         }
     }
 
@@ -1328,6 +1364,420 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Returns a snapshot of how the mappings of this map are distributed
+     * over its bins: the histogram of list bin lengths, the number of tree
+     * bins and the longest chain.  Walks the whole table, so it takes time
+     * proportional to the capacity; it does not depend on statistics being
+     * enabled.
+     *
+     * @return the bin statistics of this map
+     * @see HashMapStatistics
+     */
+    public HashMapStatistics binStatistics() {
+        Node<K,V>[] tab = table;
+        int[] hist = new int[TREEIFY_THRESHOLD + 1];
+        int treeBins = 0, treeNodes = 0, max = 0;
+        if (tab != null) {
+            for (Node<K,V> e : tab) {
+                if (e instanceof TreeNode) {
+                    ++treeBins;
+                    for (; e != null; e = e.next)
+                        ++treeNodes;
+                    continue;
+                }
+                int len = 0;
+                for (; e != null; e = e.next)
+                    ++len;
+                if (len >= hist.length)//哈希冲突严重且表太小无法树化时链表可能更长
+                    hist = Arrays.copyOf(hist, len + 1);
+                ++hist[len];
+                if (len > max)
+                    max = len;
+            }
+        }
+        return new HashMapStatistics((tab == null) ? 0 : tab.length, size,
+                                     treeBins, treeNodes, max, hist);
+    }
+
+    /**
+     * Returns an immutable copy of this map, laid out for fast concurrent
+     * reads.  The copy reuses the hashes cached in the nodes, so keys are
+     * not rehashed.  Later changes to this map are not reflected in it.
+     *
+     * @return a frozen snapshot of this map
+     * @see FrozenHashMap
+     */
+    public FrozenHashMap<K,V> freeze() {
+        return new FrozenHashMap<>(table, size);
+    }
+
+    /* ------------------------------------------------------------ */
+    // Parallel bulk operations
+
+    /*
+     * The methods below split the table into ranges of bins and process
+     * the ranges as ForkJoin tasks, in the style of ConcurrentHashMap's
+     * bulk operations.  The map is not synchronized: the caller must
+     * ensure no other thread modifies it while one of these methods runs.
+     * Tasks only ever touch the bins of their own range, so no locking is
+     * needed, and ForkJoinTask.invoke() publishes their writes to the
+     * caller on return.
+     */
+
+    /**
+     * Computes initial batch value for bulk tasks, as in
+     * ConcurrentHashMap.batchFor: approximately exp2 of the number of
+     * times to split a task by two, or 0 to run sequentially.
+     */
+    final int batchFor(long parallelismThreshold, long n, ForkJoinPool pool) {
+        if (parallelismThreshold == Long.MAX_VALUE || n <= 1L ||
+            n < parallelismThreshold)
+            return 0;
+        int sp = pool.getParallelism() << 2; // slack of 4
+        return (parallelismThreshold <= 0L || (n /= parallelismThreshold) >= sp) ?
+            sp : (int)n;
+    }
+
+    /**
+     * Performs the given action for each mapping, splitting the work over
+     * the given pool when the map holds at least
+     * <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param action the action, which may be invoked concurrently from
+     * several threads
+     * @param pool the pool running the tasks
+     * @throws NullPointerException if the action or pool is null
+     * @throws ConcurrentModificationException if the map is structurally
+     * modified while the operation runs
+     */
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K, ? super V> action,
+                        ForkJoinPool pool) {
+        if (action == null || pool == null)
+            throw new NullPointerException();
+        Node<K,V>[] tab;
+        if (size > 0 && (tab = table) != null) {
+            int mc = modCount;
+            int b = batchFor(parallelismThreshold, size, pool);
+            if (b == 0)
+                forEach(action);
+            else
+                pool.invoke(new BinRangeTask<K,V>(tab, 0, tab.length, b,
+                    e -> action.accept(e.key, e.value)));
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping, in parallel in the
+     * common pool when the map holds at least
+     * <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param action the action
+     */
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K, ? super V> action) {
+        forEach(parallelismThreshold, action, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Replaces each value with the result of the given function, splitting
+     * the work over the given pool when the map holds at least
+     * <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param function the function, which may be invoked concurrently from
+     * several threads
+     * @param pool the pool running the tasks
+     * @throws NullPointerException if the function or pool is null
+     * @throws ConcurrentModificationException if the map is structurally
+     * modified while the operation runs
+     */
+    public void replaceAll(long parallelismThreshold,
+                           BiFunction<? super K, ? super V, ? extends V> function,
+                           ForkJoinPool pool) {
+        if (function == null || pool == null)
+            throw new NullPointerException();
+        Node<K,V>[] tab;
+        if (size > 0 && (tab = table) != null) {
+            int mc = modCount;
+            int b = batchFor(parallelismThreshold, size, pool);
+            if (b == 0)
+                replaceAll(function);
+            else
+                pool.invoke(new BinRangeTask<K,V>(tab, 0, tab.length, b,
+                    e -> e.value = function.apply(e.key, e.value)));
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Replaces each value with the result of the given function, in
+     * parallel in the common pool when the map holds at least
+     * <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param function the function
+     */
+    public void replaceAll(long parallelismThreshold,
+                           BiFunction<? super K, ? super V, ? extends V> function) {
+        replaceAll(parallelismThreshold, function, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map,
+     * splitting the work over the given pool when <tt>m</tt> holds at
+     * least <tt>parallelismThreshold</tt> mappings.  The table is first
+     * grown to its final size, the keys are hashed in parallel, and each
+     * task then inserts the mappings that fall into its own range of
+     * bins.  Subclasses (such as LinkedHashMap, whose nodes share one
+     * linked list) always copy sequentially.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param m mappings to be stored in this map
+     * @param pool the pool running the tasks
+     * @throws NullPointerException if the specified map or pool is null
+     */
+    public void putAll(long parallelismThreshold,
+                       Map<? extends K, ? extends V> m, ForkJoinPool pool) {
+        if (pool == null)
+            throw new NullPointerException();
+        int s = m.size();
+        int b = batchFor(parallelismThreshold, s, pool);
+        if (b == 0 || getClass() != HashMap.class) {
+            putMapEntries(m, true);
+            return;
+        }
+        // 先扩容到最终大小，保证插入过程中不会再调用resize或者treeifyBin中的resize
+        long target = (long)size + s;
+        while (table == null || table.length < MIN_TREEIFY_CAPACITY ||
+               threshold < target) {
+            int oldCap = (table == null) ? 0 : table.length;
+            resize();
+            if (oldCap >= MAXIMUM_CAPACITY)
+                break;
+        }
+        Object[] ks = new Object[s], vs = new Object[s];
+        int c = 0;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            if (c == s)
+                throw new ConcurrentModificationException();
+            ks[c] = e.getKey();
+            vs[c++] = e.getValue();
+        }
+        if (c != s)
+            throw new ConcurrentModificationException();
+        int[] hs = new int[s];
+        pool.invoke(new HashTask(ks, hs, 0, s, b));//并行计算hash值
+        // 按照目标箱子的区间分组，每个区间交给一个任务插入
+        Node<K,V>[] tab = table;
+        int n = tab.length;
+        int ranges = Math.min(tableSizeFor(b), n);
+        int shift = Integer.numberOfTrailingZeros(n / ranges);
+        int[] start = new int[ranges + 1];
+        for (int i = 0; i < s; ++i)
+            ++start[((hs[i] & (n - 1)) >>> shift) + 1];
+        for (int r = 0; r < ranges; ++r)
+            start[r + 1] += start[r];
+        int[] order = new int[s], pos = Arrays.copyOf(start, ranges);
+        for (int i = 0; i < s; ++i)
+            order[pos[(hs[i] & (n - 1)) >>> shift]++] = i;
+        PutRangeTask<K,V> task =
+            new PutRangeTask<>(this, tab, ks, vs, hs, order, start, 0, ranges);
+        try {
+            pool.invoke(task);
+        } finally {//键的hashCode或equals抛出异常时，已经链入的结点仍然要计入size
+            if (task.added > 0) {
+                ++modCount;
+                size += task.added;
+            }
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, in
+     * parallel in the common pool when <tt>m</tt> holds at least
+     * <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param m mappings to be stored in this map
+     */
+    public void putAll(long parallelismThreshold, Map<? extends K, ? extends V> m) {
+        putAll(parallelismThreshold, m, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Inserts a mapping into its bin of a presized table, without touching
+     * size or modCount.  Used by the parallel putAll, where each bin is
+     * owned by one task and the table never needs to grow.
+     *
+     * @return true if a new node was added
+     */
+    @SuppressWarnings("unchecked")
+    final boolean putValInBin(Node<K,V>[] tab, int hash, Object key, Object value) {
+        int n = tab.length, i;
+        Node<K,V> p, e; K k;
+        if ((p = tab[i = (n - 1) & hash]) == null) {
+            tab[i] = newNode(hash, (K)key, (V)value, null);
+            return true;
+        }
+        if (p.hash == hash &&
+            ((k = p.key) == key || (key != null && key.equals(k))))
+            e = p;
+        else if (p instanceof TreeNode)
+            e = ((TreeNode<K,V>)p).putTreeVal(this, tab, hash, (K)key, (V)value);
+        else {
+            for (int binCount = 0; ; ++binCount) {
+                if ((e = p.next) == null) {
+                    p.next = newNode(hash, (K)key, (V)value, null);
+                    if (binCount >= TREEIFY_THRESHOLD - 1)
+                        treeifyBin(tab, hash);
+                    break;
+                }
+                if (e.hash == hash &&
+                    ((k = e.key) == key || (key != null && key.equals(k))))
+                    break;
+                p = e;
+            }
+        }
+        if (e != null) {
+            e.value = (V)value;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies an action to every node of the bins [lo, hi), forking the
+     * upper half of the range while the batch allows it.
+     */
+    @SuppressWarnings("serial")
+    static final class BinRangeTask<K,V> extends RecursiveAction {
+        final Node<K,V>[] tab;
+        final int lo, hi;
+        int batch;
+        final Consumer<Node<K,V>> action;
+        BinRangeTask<K,V> next; // forked subtasks, joined in reverse order
+
+        BinRangeTask(Node<K,V>[] tab, int lo, int hi, int batch,
+                     Consumer<Node<K,V>> action) {
+            this.tab = tab; this.lo = lo; this.hi = hi;
+            this.batch = batch; this.action = action;
+        }
+
+        protected void compute() {
+            int l = lo, h = hi, m;
+            BinRangeTask<K,V> forked = null;
+            while (batch > 0 && (m = (l + h) >>> 1) > l) {//二分区间，上半部分交给新任务
+                batch >>>= 1;
+                BinRangeTask<K,V> t = new BinRangeTask<>(tab, m, h, batch, action);
+                t.fork();
+                t.next = forked;
+                forked = t;
+                h = m;
+            }
+            for (int i = l; i < h; ++i) {
+                for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                    action.accept(e);
+            }
+            for (; forked != null; forked = forked.next)
+                forked.join();
+        }
+    }
+
+    /**
+     * Computes HashMap.hash for the keys [lo, hi).
+     */
+    @SuppressWarnings("serial")
+    static final class HashTask extends RecursiveAction {
+        final Object[] keys;
+        final int[] hashes;
+        final int lo, hi, batch;
+
+        HashTask(Object[] keys, int[] hashes, int lo, int hi, int batch) {
+            this.keys = keys; this.hashes = hashes;
+            this.lo = lo; this.hi = hi; this.batch = batch;
+        }
+
+        protected void compute() {
+            int m;
+            if (batch > 0 && (m = (lo + hi) >>> 1) > lo) {
+                invokeAll(new HashTask(keys, hashes, lo, m, batch >>> 1),
+                          new HashTask(keys, hashes, m, hi, batch >>> 1));
+                return;
+            }
+            for (int i = lo; i < hi; ++i)
+                hashes[i] = hash(keys[i]);
+        }
+    }
+
+    /**
+     * Inserts the mappings of the bin ranges [lo, hi); mappings of range r
+     * are order[start[r] .. start[r + 1]).  Counts the nodes added.
+     */
+    @SuppressWarnings("serial")
+    static final class PutRangeTask<K,V> extends RecursiveAction {
+        final HashMap<K,V> map;
+        final Node<K,V>[] tab;
+        final Object[] keys, vals;
+        final int[] hashes, order, start;
+        final int lo, hi;
+        int added;
+
+        PutRangeTask(HashMap<K,V> map, Node<K,V>[] tab, Object[] keys,
+                     Object[] vals, int[] hashes, int[] order, int[] start,
+                     int lo, int hi) {
+            this.map = map; this.tab = tab; this.keys = keys; this.vals = vals;
+            this.hashes = hashes; this.order = order; this.start = start;
+            this.lo = lo; this.hi = hi;
+        }
+
+        protected void compute() {
+            int m;
+            if ((m = (lo + hi) >>> 1) > lo) {
+                PutRangeTask<K,V> l = new PutRangeTask<>(map, tab, keys, vals,
+                    hashes, order, start, lo, m);
+                PutRangeTask<K,V> r = new PutRangeTask<>(map, tab, keys, vals,
+                    hashes, order, start, m, hi);
+                // unlike invokeAll, waits for both halves even if one fails,
+                // so that added counts every node linked into the table
+                r.fork();
+                l.quietlyInvoke();
+                r.quietlyJoin();
+                added = l.added + r.added;
+                Throwable ex;
+                if ((ex = l.getException()) != null ||
+                    (ex = r.getException()) != null) {
+                    if (ex instanceof RuntimeException)
+                        throw (RuntimeException)ex;
+                    throw (Error)ex;
+                }
+                return;
+            }
+            int c = 0;
+            try {
+                for (int j = start[lo]; j < start[hi]; ++j) {
+                    int i = order[j];
+                    if (map.putValInBin(tab, hashes[i], keys[i], vals[i]))
+                        ++c;
+                }
+            } finally {
+                added = c;
+            }
+        }
+    }
+
     /* ------------------------------------------------------------ */
     // Cloning and serialization
 
@@ -1973,6 +2423,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
          */
         final Node<K,V> untreeify(HashMap<K,V> map) {
             Node<K,V> hd = null, tl = null;//hd是头部，tl是尾部
+            if (HashMapStatistics.enabled())
+                HashMapStatistics.recordUntreeify();
             for (Node<K,V> q = this; q != null; q = q.next) {
                 Node<K,V> p = map.replacementNode(q, null);//根据q产生一个新的结点，next=null，hash key value和q相等
                 if (tl == null)
@@ -0,0 +1,282 @@
+package java.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bin distribution and event statistics for {@link HashMap}.
+ *
+ * <p>An instance is a snapshot of one map's table, returned by
+ * {@link HashMap#binStatistics}: the histogram of chain lengths, the number
+ * of empty and treeified bins, and the longest chain.  Taking a snapshot
+ * walks the table once and costs nothing while the map is in use.
+ *
+ * <p>The static methods report counters shared by all <tt>HashMap</tt>
+ * instances (and so by <tt>LinkedHashMap</tt> and <tt>HashSet</tt>):
+ * resizes and the time spent in them, conversions of bins to and from
+ * trees, and the number of nodes examined per lookup.  These counters are
+ * only maintained when the JVM is started with
+ * <tt>-Djava.util.HashMap.statistics=true</tt>.  Otherwise each
+ * instrumented operation of <tt>HashMap</tt> only reads one static field
+ * and the counters are never created.  <tt>HashMap</tt> is used while the
+ * VM boots, before system properties can be read, so the property is
+ * read on the first operation after boot, and operations before it are
+ * not counted.
+ *
+ * <p>A bad <tt>hashCode()</tt> shows up as a long tail in the histogram,
+ * as a high average probe length, or as treeification events: all of which
+ * mean lookups have degraded from constant time to O(log n) or O(n).
+ *
+ * @see HashMap
+ */
+public final class HashMapStatistics {
+
+    // 本类不能有静态初始化：HashMap在虚拟机启动过程中就会被使用，此时初始化会加载
+    // LongAdder等类并读取系统属性，导致虚拟机无法启动。计数器放在Counters中延迟加载
+
+    /**
+     * Whether the event counters are maintained: 0 until the property is
+     * read, then 1 if they are and -1 if not.
+     */
+    private static int enabled;
+
+    /**
+     * Returns true if the event counters are maintained.  Cheap enough
+     * for the hot paths of HashMap, and safe to call while the VM boots.
+     */
+    static boolean enabled() {
+        int e;
+        return ((e = enabled) != 0 ? e : readEnabled()) > 0;
+    }
+
+    private static int readEnabled() {
+        if (!sun.misc.VM.isBooted())
+            return -1; // not counted yet; read again after boot
+        boolean on = java.security.AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction("java.util.HashMap.statistics"));
+        return enabled = on ? 1 : -1;
+    }
+
+    /**
+     * The counters shared by all HashMaps, in a holder class so that
+     * they are only created once something is counted or read.
+     */
+    static final class Counters {
+        static final LongAdder resizes = new LongAdder();
+        static final LongAdder resizeNanos = new LongAdder();
+        static final LongAdder treeifications = new LongAdder();
+        static final LongAdder untreeifications = new LongAdder();
+        static final LongAdder gets = new LongAdder();
+        static final LongAdder probes = new LongAdder();
+        static final LongAdder treeGets = new LongAdder();
+    }
+
+    static void recordResize(long nanos) {
+        Counters.resizes.increment();
+        Counters.resizeNanos.add(nanos);
+    }
+
+    static void recordTreeify() {
+        Counters.treeifications.increment();
+    }
+
+    static void recordUntreeify() {
+        Counters.untreeifications.increment();
+    }
+
+    static void recordGet(int nodes) {
+        Counters.gets.increment();
+        Counters.probes.add(nodes);
+    }
+
+    static void recordTreeGet() {
+        Counters.gets.increment();
+        Counters.treeGets.increment();
+    }
+
+    /**
+     * Returns true if the event counters are maintained.
+     */
+    public static boolean isEnabled() {
+        return enabled();
+    }
+
+    /**
+     * Returns the number of times a populated table was doubled.
+     */
+    public static long resizeCount() {
+        return Counters.resizes.sum();
+    }
+
+    /**
+     * Returns the total time spent rehashing populated tables, in
+     * nanoseconds.
+     */
+    public static long resizeNanos() {
+        return Counters.resizeNanos.sum();
+    }
+
+    /**
+     * Returns the number of bins converted from lists to trees.
+     */
+    public static long treeifyCount() {
+        return Counters.treeifications.sum();
+    }
+
+    /**
+     * Returns the number of bins converted from trees back to lists.
+     */
+    public static long untreeifyCount() {
+        return Counters.untreeifications.sum();
+    }
+
+    /**
+     * Returns the number of lookups (get, containsKey and the like).
+     */
+    public static long getCount() {
+        return Counters.gets.sum();
+    }
+
+    /**
+     * Returns the number of lookups that searched a tree bin.
+     */
+    public static long treeGetCount() {
+        return Counters.treeGets.sum();
+    }
+
+    /**
+     * Returns the average number of nodes compared per lookup in list
+     * bins, or 0 if there was none.  A lookup of an empty bin counts as
+     * zero nodes.
+     */
+    public static double averageProbeLength() {
+        long n = Counters.gets.sum() - Counters.treeGets.sum();
+        return (n <= 0L) ? 0.0 : (double)Counters.probes.sum() / n;
+    }
+
+    /**
+     * Resets all event counters to zero.
+     */
+    public static void reset() {
+        Counters.resizes.reset();
+        Counters.resizeNanos.reset();
+        Counters.treeifications.reset();
+        Counters.untreeifications.reset();
+        Counters.gets.reset();
+        Counters.probes.reset();
+        Counters.treeGets.reset();
+    }
+
+    /* ---------------- Per-map snapshot -------------- */
+
+    private final int capacity;
+    private final int size;
+    private final int treeBins;
+    private final int treeNodes;
+    private final int maxChainLength;
+    private final int[] histogram;
+
+    /**
+     * @param histogram histogram[i] is the number of list bins holding i
+     * nodes, for i below its length
+     */
+    HashMapStatistics(int capacity, int size, int treeBins, int treeNodes,
+                      int maxChainLength, int[] histogram) {
+        this.capacity = capacity;
+        this.size = size;
+        this.treeBins = treeBins;
+        this.treeNodes = treeNodes;
+        this.maxChainLength = maxChainLength;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns the length of the table.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of mappings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bins holding no node.
+     */
+    public int emptyBins() {
+        return histogram.length > 0 ? histogram[0] : 0;
+    }
+
+    /**
+     * Returns the number of treeified bins.
+     */
+    public int treeBins() {
+        return treeBins;
+    }
+
+    /**
+     * Returns the number of mappings held in treeified bins.
+     */
+    public int treeNodes() {
+        return treeNodes;
+    }
+
+    /**
+     * Returns the length of the longest list bin.
+     */
+    public int maxChainLength() {
+        return maxChainLength;
+    }
+
+    /**
+     * Returns the number of list bins holding exactly the given number of
+     * nodes.
+     */
+    public int binsOfLength(int length) {
+        return (length >= 0 && length < histogram.length) ? histogram[length] : 0;
+    }
+
+    /**
+     * Returns the chain length histogram: element i is the number of list
+     * bins holding i nodes.  Tree bins are not included.
+     */
+    public int[] chainLengthHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Returns the average number of nodes compared by a successful lookup
+     * of a key chosen uniformly among those in list bins.
+     */
+    public double averageSuccessfulProbeLength() {
+        long nodes = 0L, cost = 0L;
+        for (int i = 1; i < histogram.length; ++i) {
+            nodes += (long)i * histogram[i];
+            cost += (long)histogram[i] * i * (i + 1) / 2;
+        }
+        return (nodes == 0L) ? 0.0 : (double)cost / nodes;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HashMapStatistics[capacity=").append(capacity)
+          .append(", size=").append(size)
+          .append(", treeBins=").append(treeBins)
+          .append(", treeNodes=").append(treeNodes)
+          .append(", maxChainLength=").append(maxChainLength)
+          .append(", chainLengths={");
+        boolean first = true;
+        for (int i = 0; i < histogram.length; ++i) {
+            if (histogram[i] != 0) {
+                if (!first)
+                    sb.append(", ");
+                sb.append(i).append('=').append(histogram[i]);
+                first = false;
+            }
+        }
+        return sb.append("}]").toString();
+    }
+}
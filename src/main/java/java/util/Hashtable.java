@@ -230,8 +230,12 @@ public class Hashtable<K,V>
      *
      * @return  the number of keys in this hashtable.
      */
-    public synchronized int size() {
-        return count;
+    public int size() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return count;
+        }
     }
 
     /**
@@ -240,8 +244,12 @@ public class Hashtable<K,V>
      * @return  <code>true</code> if this hashtable maps no keys to values;
      *          <code>false</code> otherwise.
      */
-    public synchronized boolean isEmpty() {
-        return count == 0;
+    public boolean isEmpty() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return count == 0;
+        }
     }
 
     /**
@@ -253,8 +261,12 @@ public class Hashtable<K,V>
      * @see     #keySet()
      * @see     Map
      */
-    public synchronized Enumeration<K> keys() {
-        return this.<K>getEnumeration(KEYS);
+    public Enumeration<K> keys() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return this.<K>getEnumeration(KEYS);
+        }
     }
 
     /**
@@ -268,8 +280,12 @@ public class Hashtable<K,V>
      * @see     #values()
      * @see     Map
      */
-    public synchronized Enumeration<V> elements() {
-        return this.<V>getEnumeration(VALUES);
+    public Enumeration<V> elements() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            return this.<V>getEnumeration(VALUES);
+        }
     }
 
     /**
@@ -288,20 +304,24 @@ public class Hashtable<K,V>
      *             <code>false</code> otherwise.
      * @exception  NullPointerException  if the value is <code>null</code>
      */
-    public synchronized boolean contains(Object value) {
-        if (value == null) {
-            throw new NullPointerException();
-        }
+    public boolean contains(Object value) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            if (value == null) {
+                throw new NullPointerException();
+            }
 
-        Entry<?,?> tab[] = table;
-        for (int i = tab.length ; i-- > 0 ;) {
-            for (Entry<?,?> e = tab[i] ; e != null ; e = e.next) {
-                if (e.value.equals(value)) {
-                    return true;
+            Entry<?,?> tab[] = table;
+            for (int i = tab.length ; i-- > 0 ;) {
+                for (Entry<?,?> e = tab[i] ; e != null ; e = e.next) {
+                    if (e.value.equals(value)) {
+                        return true;
+                    }
                 }
             }
+            return false;
         }
-        return false;
     }
 
     /**
@@ -330,16 +350,20 @@ public class Hashtable<K,V>
      * @throws  NullPointerException  if the key is <code>null</code>
      * @see     #contains(Object)
      */
-    public synchronized boolean containsKey(Object key) {
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        for (Entry<?,?> e = tab[index] ; e != null ; e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key)) {
-                return true;
+    public boolean containsKey(Object key) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Entry<?,?> e = tab[index] ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    return true;
+                }
             }
+            return false;
         }
-        return false;
     }
 
     /**
@@ -358,16 +382,20 @@ public class Hashtable<K,V>
      * @see     #put(Object, Object)
      */
     @SuppressWarnings("unchecked")
-    public synchronized V get(Object key) {
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        for (Entry<?,?> e = tab[index] ; e != null ; e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key)) {
-                return (V)e.value;
+    public V get(Object key) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Entry<?,?> e = tab[index] ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    return (V)e.value;
+                }
             }
+            return null;
         }
-        return null;
     }
 
     /**
@@ -453,28 +481,32 @@ public class Hashtable<K,V>
      * @see     Object#equals(Object)
      * @see     #get(Object)
      */
-    public synchronized V put(K key, V value) {
-        // Make sure the value is not null
-        if (value == null) {//value为null直接报错
-            throw new NullPointerException();
-        }
+    public V put(K key, V value) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            // Make sure the value is not null
+            if (value == null) {//value为null直接报错
+                throw new NullPointerException();
+            }
 
-        // Makes sure the key is not already in the hashtable.
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();//若key为null这里会报错
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> entry = (Entry<K,V>)tab[index];
-        for(; entry != null ; entry = entry.next) {
-            if ((entry.hash == hash) && entry.key.equals(key)) {
-                V old = entry.value;
-                entry.value = value;
-                return old;
+            // Makes sure the key is not already in the hashtable.
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();//若key为null这里会报错
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> entry = (Entry<K,V>)tab[index];
+            for(; entry != null ; entry = entry.next) {
+                if ((entry.hash == hash) && entry.key.equals(key)) {
+                    V old = entry.value;
+                    entry.value = value;
+                    return old;
+                }
             }
-        }
 
-        addEntry(hash, key, value, index);
-        return null;
+            addEntry(hash, key, value, index);
+            return null;
+        }
     }
 
     /**
@@ -486,27 +518,31 @@ public class Hashtable<K,V>
      *          or <code>null</code> if the key did not have a mapping
      * @throws  NullPointerException  if the key is <code>null</code>
      */
-    public synchronized V remove(Object key) {
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for(Entry<K,V> prev = null ; e != null ; prev = e, e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key)) {
-                modCount++;
-                if (prev != null) {
-                    prev.next = e.next;
-                } else {
-                    tab[index] = e.next;
+    public V remove(Object key) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for(Entry<K,V> prev = null ; e != null ; prev = e, e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    modCount++;
+                    if (prev != null) {
+                        prev.next = e.next;
+                    } else {
+                        tab[index] = e.next;
+                    }
+                    count--;
+                    V oldValue = e.value;
+                    e.value = null;
+                    return oldValue;
                 }
-                count--;
-                V oldValue = e.value;
-                e.value = null;
-                return oldValue;
             }
+            return null;
         }
-        return null;
     }
 
     /**
@@ -518,20 +554,28 @@ public class Hashtable<K,V>
      * @throws NullPointerException if the specified map is null
      * @since 1.2
      */
-    public synchronized void putAll(Map<? extends K, ? extends V> t) {
-        for (Map.Entry<? extends K, ? extends V> e : t.entrySet())
-            put(e.getKey(), e.getValue());
+    public void putAll(Map<? extends K, ? extends V> t) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            for (Map.Entry<? extends K, ? extends V> e : t.entrySet())
+                put(e.getKey(), e.getValue());
+        }
     }
 
     /**
      * Clears this hashtable so that it contains no keys.
      */
-    public synchronized void clear() {
-        Entry<?,?> tab[] = table;
-        modCount++;
-        for (int index = tab.length; --index >= 0; )
-            tab[index] = null;
-        count = 0;
+    public void clear() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Entry<?,?> tab[] = table;
+            modCount++;
+            for (int index = tab.length; --index >= 0; )
+                tab[index] = null;
+            count = 0;
+        }
     }
 
     /**
@@ -541,22 +585,26 @@ public class Hashtable<K,V>
      *
      * @return  a clone of the hashtable
      */
-    public synchronized Object clone() {
-        try {
-            Hashtable<?,?> t = (Hashtable<?,?>)super.clone();
-            t.table = new Entry<?,?>[table.length];
-            for (int i = table.length ; i-- > 0 ; ) {
-                t.table[i] = (table[i] != null)
-                    ? (Entry<?,?>) table[i].clone() : null;
+    public Object clone() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            try {
+                Hashtable<?,?> t = (Hashtable<?,?>)super.clone();
+                t.table = new Entry<?,?>[table.length];
+                for (int i = table.length ; i-- > 0 ; ) {
+                    t.table[i] = (table[i] != null)
+                        ? (Entry<?,?>) table[i].clone() : null;
+                }
+                t.keySet = null;
+                t.entrySet = null;
+                t.values = null;
+                t.modCount = 0;
+                return t;
+            } catch (CloneNotSupportedException e) {
+                // this shouldn't happen, since we are Cloneable
+                throw new InternalError(e);
             }
-            t.keySet = null;
-            t.entrySet = null;
-            t.values = null;
-            t.modCount = 0;
-            return t;
-        } catch (CloneNotSupportedException e) {
-            // this shouldn't happen, since we are Cloneable
-            throw new InternalError(e);
         }
     }
 
@@ -570,26 +618,30 @@ public class Hashtable<K,V>
      *
      * @return  a string representation of this hashtable
      */
-    public synchronized String toString() {
-        int max = size() - 1;
-        if (max == -1)
-            return "{}";
-
-        StringBuilder sb = new StringBuilder();
-        Iterator<Map.Entry<K,V>> it = entrySet().iterator();
-
-        sb.append('{');
-        for (int i = 0; ; i++) {
-            Map.Entry<K,V> e = it.next();
-            K key = e.getKey();
-            V value = e.getValue();
-            sb.append(key   == this ? "(this Map)" : key.toString());
-            sb.append('=');
-            sb.append(value == this ? "(this Map)" : value.toString());
-
-            if (i == max)
-                return sb.append('}').toString();
-            sb.append(", ");
+    public String toString() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            int max = size() - 1;
+            if (max == -1)
+                return "{}";
+
+            StringBuilder sb = new StringBuilder();
+            Iterator<Map.Entry<K,V>> it = entrySet().iterator();
+
+            sb.append('{');
+            for (int i = 0; ; i++) {
+                Map.Entry<K,V> e = it.next();
+                K key = e.getKey();
+                V value = e.getValue();
+                sb.append(key   == this ? "(this Map)" : key.toString());
+                sb.append('=');
+                sb.append(value == this ? "(this Map)" : value.toString());
+
+                if (i == max)
+                    return sb.append('}').toString();
+                sb.append(", ");
+            }
         }
     }
 
@@ -790,37 +842,41 @@ public class Hashtable<K,V>
      * @see Map#equals(Object)
      * @since 1.2
      */
-    public synchronized boolean equals(Object o) {
-        if (o == this)
-            return true;
+    public boolean equals(Object o) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            if (o == this)
+                return true;
 
-        if (!(o instanceof Map))
-            return false;
-        Map<?,?> t = (Map<?,?>) o;
-        if (t.size() != size())
-            return false;
+            if (!(o instanceof Map))
+                return false;
+            Map<?,?> t = (Map<?,?>) o;
+            if (t.size() != size())
+                return false;
 
-        try {
-            Iterator<Map.Entry<K,V>> i = entrySet().iterator();
-            while (i.hasNext()) {
-                Map.Entry<K,V> e = i.next();
-                K key = e.getKey();
-                V value = e.getValue();
-                if (value == null) {
-                    if (!(t.get(key)==null && t.containsKey(key)))
-                        return false;
-                } else {
-                    if (!value.equals(t.get(key)))
-                        return false;
+            try {
+                Iterator<Map.Entry<K,V>> i = entrySet().iterator();
+                while (i.hasNext()) {
+                    Map.Entry<K,V> e = i.next();
+                    K key = e.getKey();
+                    V value = e.getValue();
+                    if (value == null) {
+                        if (!(t.get(key)==null && t.containsKey(key)))
+                            return false;
+                    } else {
+                        if (!value.equals(t.get(key)))
+                            return false;
+                    }
                 }
+            } catch (ClassCastException unused)   {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
             }
-        } catch (ClassCastException unused)   {
-            return false;
-        } catch (NullPointerException unused) {
-            return false;
-        }
 
-        return true;
+            return true;
+        }
     }
 
     /**
@@ -830,56 +886,68 @@ public class Hashtable<K,V>
      * @see Map#hashCode()
      * @since 1.2
      */
-    public synchronized int hashCode() {
-        /*
-         * This code detects the recursion caused by computing the hash code
-         * of a self-referential hash table and prevents the stack overflow
-         * that would otherwise result.  This allows certain 1.1-era
-         * applets with self-referential hash tables to work.  This code
-         * abuses the loadFactor field to do double-duty as a hashCode
-         * in progress flag, so as not to worsen the space performance.
-         * A negative load factor indicates that hash code computation is
-         * in progress.
-         */
-        int h = 0;
-        if (count == 0 || loadFactor < 0)
-            return h;  // Returns zero
-
-        loadFactor = -loadFactor;  // Mark hashCode computation in progress
-        Entry<?,?>[] tab = table;
-        for (Entry<?,?> entry : tab) {
-            while (entry != null) {
-                h += entry.hashCode();
-                entry = entry.next;
+    public int hashCode() {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            /*
+             * This code detects the recursion caused by computing the hash code
+             * of a self-referential hash table and prevents the stack overflow
+             * that would otherwise result.  This allows certain 1.1-era
+             * applets with self-referential hash tables to work.  This code
+             * abuses the loadFactor field to do double-duty as a hashCode
+             * in progress flag, so as not to worsen the space performance.
+             * A negative load factor indicates that hash code computation is
+             * in progress.
+             */
+            int h = 0;
+            if (count == 0 || loadFactor < 0)
+                return h;  // Returns zero
+
+            loadFactor = -loadFactor;  // Mark hashCode computation in progress
+            Entry<?,?>[] tab = table;
+            for (Entry<?,?> entry : tab) {
+                while (entry != null) {
+                    h += entry.hashCode();
+                    entry = entry.next;
+                }
             }
-        }
 
-        loadFactor = -loadFactor;  // Mark hashCode computation complete
+            loadFactor = -loadFactor;  // Mark hashCode computation complete
 
-        return h;
+            return h;
+        }
     }
 
     @Override
-    public synchronized V getOrDefault(Object key, V defaultValue) {
-        V result = get(key);
-        return (null == result) ? defaultValue : result;
+    public V getOrDefault(Object key, V defaultValue) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            V result = get(key);
+            return (null == result) ? defaultValue : result;
+        }
     }
 
     @SuppressWarnings("unchecked")
     @Override
-    public synchronized void forEach(BiConsumer<? super K, ? super V> action) {
-        Objects.requireNonNull(action);     // explicit check required in case
-                                            // table is empty.
-        final int expectedModCount = modCount;
-
-        Entry<?, ?>[] tab = table;
-        for (Entry<?, ?> entry : tab) {
-            while (entry != null) {
-                action.accept((K)entry.key, (V)entry.value);
-                entry = entry.next;
-
-                if (expectedModCount != modCount) {
-                    throw new ConcurrentModificationException();
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(action);     // explicit check required in case
+                                                // table is empty.
+            final int expectedModCount = modCount;
+
+            Entry<?, ?>[] tab = table;
+            for (Entry<?, ?> entry : tab) {
+                while (entry != null) {
+                    action.accept((K)entry.key, (V)entry.value);
+                    entry = entry.next;
+
+                    if (expectedModCount != modCount) {
+                        throw new ConcurrentModificationException();
+                    }
                 }
             }
         }
@@ -887,234 +955,270 @@ public class Hashtable<K,V>
 
     @SuppressWarnings("unchecked")
     @Override
-    public synchronized void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
-        Objects.requireNonNull(function);     // explicit check required in case
-                                              // table is empty.
-        final int expectedModCount = modCount;
-
-        Entry<K, V>[] tab = (Entry<K, V>[])table;
-        for (Entry<K, V> entry : tab) {
-            while (entry != null) {
-                entry.value = Objects.requireNonNull(
-                    function.apply(entry.key, entry.value));
-                entry = entry.next;
-
-                if (expectedModCount != modCount) {
-                    throw new ConcurrentModificationException();
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(function);     // explicit check required in case
+                                                  // table is empty.
+            final int expectedModCount = modCount;
+
+            Entry<K, V>[] tab = (Entry<K, V>[])table;
+            for (Entry<K, V> entry : tab) {
+                while (entry != null) {
+                    entry.value = Objects.requireNonNull(
+                        function.apply(entry.key, entry.value));
+                    entry = entry.next;
+
+                    if (expectedModCount != modCount) {
+                        throw new ConcurrentModificationException();
+                    }
                 }
             }
         }
     }
 
     @Override
-    public synchronized V putIfAbsent(K key, V value) {
-        Objects.requireNonNull(value);
+    public V putIfAbsent(K key, V value) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(value);
 
-        // Makes sure the key is not already in the hashtable.
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> entry = (Entry<K,V>)tab[index];
-        for (; entry != null; entry = entry.next) {
-            if ((entry.hash == hash) && entry.key.equals(key)) {
-                V old = entry.value;
-                if (old == null) {
-                    entry.value = value;
+            // Makes sure the key is not already in the hashtable.
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> entry = (Entry<K,V>)tab[index];
+            for (; entry != null; entry = entry.next) {
+                if ((entry.hash == hash) && entry.key.equals(key)) {
+                    V old = entry.value;
+                    if (old == null) {
+                        entry.value = value;
+                    }
+                    return old;
                 }
-                return old;
             }
-        }
 
-        addEntry(hash, key, value, index);
-        return null;
+            addEntry(hash, key, value, index);
+            return null;
+        }
     }
 
     @Override
-    public synchronized boolean remove(Object key, Object value) {
-        Objects.requireNonNull(value);
+    public boolean remove(Object key, Object value) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(value);
 
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key) && e.value.equals(value)) {
-                modCount++;
-                if (prev != null) {
-                    prev.next = e.next;
-                } else {
-                    tab[index] = e.next;
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key) && e.value.equals(value)) {
+                    modCount++;
+                    if (prev != null) {
+                        prev.next = e.next;
+                    } else {
+                        tab[index] = e.next;
+                    }
+                    count--;
+                    e.value = null;
+                    return true;
                 }
-                count--;
-                e.value = null;
-                return true;
             }
+            return false;
         }
-        return false;
     }
 
     @Override
-    public synchronized boolean replace(K key, V oldValue, V newValue) {
-        Objects.requireNonNull(oldValue);
-        Objects.requireNonNull(newValue);
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (; e != null; e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key)) {
-                if (e.value.equals(oldValue)) {
-                    e.value = newValue;
-                    return true;
-                } else {
-                    return false;
+    public boolean replace(K key, V oldValue, V newValue) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(oldValue);
+            Objects.requireNonNull(newValue);
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (; e != null; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    if (e.value.equals(oldValue)) {
+                        e.value = newValue;
+                        return true;
+                    } else {
+                        return false;
+                    }
                 }
             }
+            return false;
         }
-        return false;
     }
 
     @Override
-    public synchronized V replace(K key, V value) {
-        Objects.requireNonNull(value);
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (; e != null; e = e.next) {
-            if ((e.hash == hash) && e.key.equals(key)) {
-                V oldValue = e.value;
-                e.value = value;
-                return oldValue;
+    public V replace(K key, V value) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(value);
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (; e != null; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    V oldValue = e.value;
+                    e.value = value;
+                    return oldValue;
+                }
             }
+            return null;
         }
-        return null;
     }
 
     @Override
-    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-        Objects.requireNonNull(mappingFunction);
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(mappingFunction);
 
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (; e != null; e = e.next) {
-            if (e.hash == hash && e.key.equals(key)) {
-                // Hashtable not accept null value
-                return e.value;
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (; e != null; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    // Hashtable not accept null value
+                    return e.value;
+                }
             }
-        }
 
-        V newValue = mappingFunction.apply(key);
-        if (newValue != null) {
-            addEntry(hash, key, newValue, index);
-        }
+            V newValue = mappingFunction.apply(key);
+            if (newValue != null) {
+                addEntry(hash, key, newValue, index);
+            }
 
-        return newValue;
+            return newValue;
+        }
     }
 
     @Override
-    public synchronized V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        Objects.requireNonNull(remappingFunction);
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(remappingFunction);
 
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
-            if (e.hash == hash && e.key.equals(key)) {
-                V newValue = remappingFunction.apply(key, e.value);
-                if (newValue == null) {
-                    modCount++;
-                    if (prev != null) {
-                        prev.next = e.next;
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    V newValue = remappingFunction.apply(key, e.value);
+                    if (newValue == null) {
+                        modCount++;
+                        if (prev != null) {
+                            prev.next = e.next;
+                        } else {
+                            tab[index] = e.next;
+                        }
+                        count--;
                     } else {
-                        tab[index] = e.next;
+                        e.value = newValue;
                     }
-                    count--;
-                } else {
-                    e.value = newValue;
+                    return newValue;
                 }
-                return newValue;
             }
+            return null;
         }
-        return null;
     }
 
     @Override
-    public synchronized V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        Objects.requireNonNull(remappingFunction);
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(remappingFunction);
 
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
-            if (e.hash == hash && Objects.equals(e.key, key)) {
-                V newValue = remappingFunction.apply(key, e.value);
-                if (newValue == null) {
-                    modCount++;
-                    if (prev != null) {
-                        prev.next = e.next;
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
+                if (e.hash == hash && Objects.equals(e.key, key)) {
+                    V newValue = remappingFunction.apply(key, e.value);
+                    if (newValue == null) {
+                        modCount++;
+                        if (prev != null) {
+                            prev.next = e.next;
+                        } else {
+                            tab[index] = e.next;
+                        }
+                        count--;
                     } else {
-                        tab[index] = e.next;
+                        e.value = newValue;
                     }
-                    count--;
-                } else {
-                    e.value = newValue;
+                    return newValue;
                 }
-                return newValue;
             }
-        }
 
-        V newValue = remappingFunction.apply(key, null);
-        if (newValue != null) {
-            addEntry(hash, key, newValue, index);
-        }
+            V newValue = remappingFunction.apply(key, null);
+            if (newValue != null) {
+                addEntry(hash, key, newValue, index);
+            }
 
-        return newValue;
+            return newValue;
+        }
     }
 
     @Override
-    public synchronized V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        Objects.requireNonNull(remappingFunction);
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        long stamp = ContentionProfiler.beforeLock();
+        synchronized (this) {
+            ContentionProfiler.afterLock(this, stamp);
+            Objects.requireNonNull(remappingFunction);
 
-        Entry<?,?> tab[] = table;
-        int hash = key.hashCode();
-        int index = (hash & 0x7FFFFFFF) % tab.length;
-        @SuppressWarnings("unchecked")
-        Entry<K,V> e = (Entry<K,V>)tab[index];
-        for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
-            if (e.hash == hash && e.key.equals(key)) {
-                V newValue = remappingFunction.apply(e.value, value);
-                if (newValue == null) {
-                    modCount++;
-                    if (prev != null) {
-                        prev.next = e.next;
+            Entry<?,?> tab[] = table;
+            int hash = key.hashCode();
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            @SuppressWarnings("unchecked")
+            Entry<K,V> e = (Entry<K,V>)tab[index];
+            for (Entry<K,V> prev = null; e != null; prev = e, e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    V newValue = remappingFunction.apply(e.value, value);
+                    if (newValue == null) {
+                        modCount++;
+                        if (prev != null) {
+                            prev.next = e.next;
+                        } else {
+                            tab[index] = e.next;
+                        }
+                        count--;
                     } else {
-                        tab[index] = e.next;
+                        e.value = newValue;
                     }
-                    count--;
-                } else {
-                    e.value = newValue;
+                    return newValue;
                 }
-                return newValue;
             }
-        }
 
-        if (value != null) {
-            addEntry(hash, key, value, index);
-        }
+            if (value != null) {
+                addEntry(hash, key, value, index);
+            }
 
-        return value;
+            return value;
+        }
     }
 
     /**
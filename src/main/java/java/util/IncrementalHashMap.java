@@ -0,0 +1,641 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.HashMap.Node;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Hash table based implementation of the <tt>Map</tt> interface that grows
+ * its table incrementally.  {@link HashMap#resize} rehashes every bin in one
+ * call, so the <tt>put</tt> that crosses the threshold pays for the whole
+ * table.  This class instead keeps the old and the new table side by side
+ * after a resize, and every later structural modification (an insertion or
+ * a removal) migrates a bounded number of bins from the old table to the
+ * new one, in the same high-to-low order and with the same lo/hi split as
+ * {@link java.util.concurrent.ConcurrentHashMap}'s <tt>transfer</tt>.  The
+ * cost of a resize is thereby spread over the insertions that follow it.
+ *
+ * <p>While a migration is in progress, a key whose bin in the old table has
+ * not been migrated yet is found in the old table, and any other key in the
+ * new one; lookups therefore still examine exactly one bin.  The per-step
+ * stride is chosen so that the migration always completes before the next
+ * resize is due; should it not (for instance after many removals and
+ * re-insertions of existing keys), the next resize finishes it first.
+ * Lookups do not migrate, so that <tt>get</tt> never changes the structure
+ * of the map under an iterator.
+ *
+ * <p>Bins are plain <tt>HashMap.Node</tt> lists and are never treeified,
+ * so keys with heavily colliding hash codes degrade lookups to linear
+ * time, as they did in <tt>HashMap</tt> before Java 8.  This map permits
+ * <tt>null</tt> values and the <tt>null</tt> key.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by all of this class's "collection view methods"
+ * are <i>fail-fast</i> in the same sense as those of <tt>HashMap</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see HashMap
+ */
+public class IncrementalHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 4619274950331839262L;
+
+    /**
+     * Minimum number of old bins migrated per structural modification.
+     */
+    static final int MIN_TRANSFER_STRIDE = 4;
+
+    /**
+     * The current table, into which new bins are moved during a migration.
+     */
+    transient Node<K,V>[] table;
+
+    /**
+     * The table being migrated, or null when no migration is in progress.
+     */
+    transient Node<K,V>[] oldTable;
+
+    /**
+     * Bins [0, transferIndex) of oldTable have not been migrated yet.
+     */
+    transient int transferIndex;
+
+    /**
+     * Number of old bins migrated per structural modification during the
+     * current migration.
+     */
+    transient int transferStride;
+
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    transient int size;
+
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * Before the table is allocated, holds the initial capacity, or zero
+     * signifying HashMap.DEFAULT_INITIAL_CAPACITY.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public IncrementalHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > HashMap.MAXIMUM_CAPACITY)
+            initialCapacity = HashMap.MAXIMUM_CAPACITY;
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IncrementalHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public IncrementalHashMap() {
+        this.loadFactor = HashMap.DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public IncrementalHashMap(Map<? extends K, ? extends V> m) {
+        this.loadFactor = HashMap.DEFAULT_LOAD_FACTOR;
+        float ft = ((float)m.size() / loadFactor) + 1.0F;
+        this.threshold = HashMap.tableSizeFor((ft < (float)HashMap.MAXIMUM_CAPACITY) ?
+                                              (int)ft : HashMap.MAXIMUM_CAPACITY);
+        putAll(m);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true while a resize is being carried out incrementally.
+     */
+    public boolean isResizing() {
+        return oldTable != null;
+    }
+
+    /**
+     * Returns the table holding the bin of the given hash: oldTable if that
+     * bin has not been migrated yet, else table.
+     */
+    final Node<K,V>[] tableFor(int hash) {
+        Node<K,V>[] ot = oldTable;
+        if (ot != null && ((ot.length - 1) & hash) < transferIndex)
+            return ot;
+        return table;
+    }
+
+    final Node<K,V> getNode(int hash, Object key) {
+        Node<K,V>[] tab; Node<K,V> e; int n; K k;
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0) {
+            for (e = tab[(n - 1) & hash]; e != null; e = e.next) {
+                if (e.hash == hash &&
+                    ((k = e.key) == key || (key != null && key.equals(k))))
+                    return e;
+            }
+        }
+        return null;
+    }
+
+    public V get(Object key) {
+        Node<K,V> e;
+        return (e = getNode(HashMap.hash(key), key)) == null ? null : e.value;
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        Node<K,V> e;
+        return (e = getNode(HashMap.hash(key), key)) == null ? defaultValue : e.value;
+    }
+
+    public boolean containsKey(Object key) {
+        return getNode(HashMap.hash(key), key) != null;
+    }
+
+    public boolean containsValue(Object value) {
+        return containsValue(oldTable, value) || containsValue(table, value);
+    }
+
+    private static boolean containsValue(Node<?,?>[] tab, Object value) {
+        if (tab != null) {
+            for (Node<?,?> e : tab) {
+                for (; e != null; e = e.next) {
+                    Object v;
+                    if ((v = e.value) == value ||
+                        (value != null && value.equals(v)))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public V put(K key, V value) {
+        return putVal(HashMap.hash(key), key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return putVal(HashMap.hash(key), key, value, true);
+    }
+
+    final V putVal(int hash, K key, V value, boolean onlyIfAbsent) {
+        Node<K,V> e;
+        if ((e = getNode(hash, key)) != null) {
+            V oldValue = e.value;
+            if (!onlyIfAbsent || oldValue == null)
+                e.value = value;
+            return oldValue;
+        }
+        if (table == null || size >= threshold)
+            resize();
+        else if (oldTable != null)
+            transfer(transferStride);//每次新增结点时迁移一部分旧表中的箱子
+        Node<K,V>[] tab = tableFor(hash);
+        int i = (tab.length - 1) & hash;
+        tab[i] = new Node<>(hash, key, value, tab[i]);//插入到链表头部
+        ++modCount;
+        ++size;
+        return null;
+    }
+
+    /**
+     * Starts a resize: allocates the doubled table and leaves every old bin
+     * to be migrated by later structural modifications.  A migration that
+     * is still in progress is completed first.
+     */
+    final void resize() {
+        if (oldTable != null)
+            transfer(Integer.MAX_VALUE);
+        Node<K,V>[] oldTab = table;
+        int oldCap = (oldTab == null) ? 0 : oldTab.length;
+        int oldThr = threshold;
+        int newCap, newThr = 0;
+        if (oldCap > 0) {
+            if (oldCap >= HashMap.MAXIMUM_CAPACITY) {
+                threshold = Integer.MAX_VALUE;
+                return;
+            }
+            else if ((newCap = oldCap << 1) < HashMap.MAXIMUM_CAPACITY &&
+                     oldCap >= HashMap.DEFAULT_INITIAL_CAPACITY)
+                newThr = oldThr << 1;
+        }
+        else if (oldThr > 0)
+            newCap = oldThr;
+        else {
+            newCap = HashMap.DEFAULT_INITIAL_CAPACITY;
+            newThr = (int)(HashMap.DEFAULT_LOAD_FACTOR *
+                           HashMap.DEFAULT_INITIAL_CAPACITY);
+        }
+        if (newThr == 0) {
+            float ft = (float)newCap * loadFactor;
+            newThr = (newCap < HashMap.MAXIMUM_CAPACITY && ft < (float)HashMap.MAXIMUM_CAPACITY ?
+                      (int)ft : Integer.MAX_VALUE);
+        }
+        threshold = newThr;
+        @SuppressWarnings({"rawtypes","unchecked"})
+            Node<K,V>[] newTab = (Node<K,V>[])new Node[newCap];
+        table = newTab;
+        if (oldTab != null && size > 0) {
+            oldTable = oldTab;
+            transferIndex = oldCap;
+            // 保证在下一次扩容之前能迁移完所有的箱子
+            int room = Math.max(1, newThr - size);
+            transferStride = Math.max(MIN_TRANSFER_STRIDE, (oldCap / room + 1) << 1);
+        }
+    }
+
+    /**
+     * Migrates up to bins old bins, from the highest unmigrated index down,
+     * splitting each into a lo list kept at index j and a hi list moved to
+     * index j + oldCap, as in HashMap.resize().
+     */
+    final void transfer(int bins) {
+        Node<K,V>[] oldTab = oldTable, newTab = table;
+        int oldCap = oldTab.length;
+        int j = transferIndex;
+        for (; bins > 0 && j > 0; --bins) {
+            Node<K,V> e = oldTab[--j];
+            if (e == null)
+                continue;
+            oldTab[j] = null;
+            Node<K,V> loHead = null, loTail = null;
+            Node<K,V> hiHead = null, hiTail = null;
+            Node<K,V> next;
+            do {
+                next = e.next;
+                if ((e.hash & oldCap) == 0) {
+                    if (loTail == null)
+                        loHead = e;
+                    else
+                        loTail.next = e;
+                    loTail = e;
+                }
+                else {
+                    if (hiTail == null)
+                        hiHead = e;
+                    else
+                        hiTail.next = e;
+                    hiTail = e;
+                }
+            } while ((e = next) != null);
+            if (loTail != null) {
+                loTail.next = null;
+                newTab[j] = loHead;
+            }
+            if (hiTail != null) {
+                hiTail.next = null;
+                newTab[j + oldCap] = hiHead;
+            }
+        }
+        transferIndex = j;
+        if (j == 0)
+            oldTable = null;//迁移完成
+    }
+
+    public V remove(Object key) {
+        Node<K,V> e;
+        return (e = removeNode(HashMap.hash(key), key, null, false, true)) == null ?
+            null : e.value;
+    }
+
+    /**
+     * Implements Map.remove and related methods.
+     *
+     * @param transfer whether to migrate bins after removing; false when
+     *        called from an iterator, whose position must stay valid
+     */
+    final Node<K,V> removeNode(int hash, Object key, Object value,
+                               boolean matchValue, boolean transfer) {
+        Node<K,V>[] tab; int n;
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0) {
+            int index = (n - 1) & hash;
+            Node<K,V> p = null, e; K k; V v;
+            for (e = tab[index]; e != null; p = e, e = e.next) {
+                if (e.hash == hash &&
+                    ((k = e.key) == key || (key != null && key.equals(k))))
+                    break;
+            }
+            if (e != null && (!matchValue || (v = e.value) == value ||
+                              (value != null && value.equals(v)))) {
+                if (p == null)
+                    tab[index] = e.next;
+                else
+                    p.next = e.next;
+                ++modCount;
+                --size;
+                if (transfer && oldTable != null)
+                    transfer(transferStride);
+                return e;
+            }
+        }
+        return null;
+    }
+
+    public boolean remove(Object key, Object value) {
+        return removeNode(HashMap.hash(key), key, value, true, true) != null;
+    }
+
+    public void clear() {
+        modCount++;
+        if (table != null && size > 0) {
+            size = 0;
+            oldTable = null;
+            transferIndex = 0;
+            Arrays.fill(table, null);
+        }
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int mc = modCount;
+            for (Node<K,V>[] tab : tables()) {
+                for (int i = 0; i < tab.length && modCount == mc; ++i) {
+                    for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                        action.accept(e.key, e.value);
+                }
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns the tables to traverse: oldTable (whose migrated bins are
+     * empty), then table.
+     */
+    @SuppressWarnings({"rawtypes","unchecked"})
+    final Node<K,V>[][] tables() {
+        Node<K,V>[] ot = oldTable, t = table;
+        if (t == null)
+            return (Node<K,V>[][])new Node[0][];
+        return (ot == null) ? (Node<K,V>[][])new Node[][] { t } :
+            (Node<K,V>[][])new Node[][] { ot, t };
+    }
+
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        IncrementalHashMap<K,V> result;
+        try {
+            result = (IncrementalHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.table = null;
+        result.oldTable = null;
+        result.transferIndex = 0;
+        result.entrySet = null;
+        result.modCount = 0;
+        result.size = 0;
+        result.threshold = HashMap.tableSizeFor(
+            (int)Math.min((float)size / loadFactor + 1.0f,
+                          (float)HashMap.MAXIMUM_CAPACITY));
+        result.putAll(this);
+        return result;
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class HashIterator {
+        final Node<K,V>[][] tabs;
+        Node<K,V> next;        // next entry to return
+        Node<K,V> current;     // current entry
+        int expectedModCount;  // for fast-fail
+        int t;                 // current table
+        int index;             // current slot
+
+        HashIterator() {
+            expectedModCount = modCount;
+            tabs = tables();
+            if (size > 0)
+                advance();
+        }
+
+        private void advance() {
+            Node<K,V>[] tab;
+            while (t < tabs.length) {
+                tab = tabs[t];
+                while (index < tab.length) {
+                    if ((next = tab[index++]) != null)
+                        return;
+                }
+                ++t;
+                index = 0;
+            }
+        }
+
+        public final boolean hasNext() {
+            return next != null;
+        }
+
+        final Node<K,V> nextNode() {
+            Node<K,V> e = next;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (e == null)
+                throw new NoSuchElementException();
+            if ((next = (current = e).next) == null)
+                advance();
+            return e;
+        }
+
+        public final void remove() {
+            Node<K,V> p = current;
+            if (p == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = null;
+            removeNode(p.hash, p.key, null, false, false);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements Iterator<K> {
+        public final K next() { return nextNode().key; }
+    }
+
+    final class ValueIterator extends HashIterator
+        implements Iterator<V> {
+        public final V next() { return nextNode().value; }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return nextNode(); }
+    }
+
+    /* ------------------------------------------------------------ */
+    // views
+
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { IncrementalHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            return removeNode(HashMap.hash(key), key, null, false, true) != null;
+        }
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            IncrementalHashMap.this.forEach((k, v) -> action.accept(k));
+        }
+    }
+
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { IncrementalHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            IncrementalHashMap.this.forEach((k, v) -> action.accept(v));
+        }
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { IncrementalHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            Node<K,V> candidate = getNode(HashMap.hash(key), key);
+            return candidate != null && candidate.equals(e);
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                Object key = e.getKey();
+                Object value = e.getValue();
+                return removeNode(HashMap.hash(key), key, value, true, true) != null;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Save the state of the map to a stream.
+     *
+     * @serialData The <i>size</i> (an int, the number of key-value
+     *             mappings), followed by the key (Object) and value
+     *             (Object) for each key-value mapping, in no particular
+     *             order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Node<K,V>[] tab : tables()) {
+            for (Node<K,V> e : tab) {
+                for (; e != null; e = e.next) {
+                    s.writeObject(e.key);
+                    s.writeObject(e.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        float fc = (float)mappings / loadFactor + 1.0f;
+        threshold = HashMap.tableSizeFor((fc < (float)HashMap.MAXIMUM_CAPACITY) ?
+                                         (int)fc : HashMap.MAXIMUM_CAPACITY);
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            putVal(HashMap.hash(key), key, value, false);
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package java.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Hash set of primitive <tt>int</tt> values.  Unlike a
+ * <tt>HashSet&lt;Integer&gt;</tt>, this class neither boxes its elements
+ * nor allocates a node per element: the elements are stored directly in an
+ * <tt>int[]</tt> table using open addressing with linear probing, and
+ * removals use backward-shift deletion as in {@link OpenHashMap}, so no
+ * tombstones accumulate.  The value 0 marks an empty slot, so the element
+ * 0 itself is recorded by a separate flag.
+ *
+ * <p>The table length is a power of two and the table doubles when the
+ * number of elements exceeds capacity * load factor.  The load factor must
+ * be less than 1 since probing needs empty slots.  Elements are scrambled
+ * by a multiplicative hash before probing, so dense runs of ids, the usual
+ * content of such sets, do not form long clusters.
+ *
+ * <p>{@link #addAll(IntHashSet)}, {@link #retainAll(IntHashSet)} and
+ * {@link #removeAll(IntHashSet)} compute union, intersection and difference
+ * in place, probing the smaller operand where possible.  For sets of dense
+ * non-negative ids, {@link CompressedBitSet} is usually smaller and faster.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by {@link #iterator} are fail-fast in the same
+ * sense as those of {@link HashSet}.
+ *
+ * @see LongHashSet
+ * @see CompressedBitSet
+ */
+public class IntHashSet implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -6201435236810398543L;
+
+    /**
+     * Multiplier scrambling elements before probing, as in FrozenHashMap.
+     */
+    static final int SCRAMBLE = 0x9E3779B9;
+
+    /**
+     * The slots; 0 is an empty slot.  Allocated on first insertion.
+     */
+    transient int[] table;
+
+    /**
+     * Whether the set contains 0, which cannot be stored in the table.
+     */
+    transient boolean containsZero;
+
+    /**
+     * The number of elements, including 0.
+     */
+    transient int size;
+
+    /**
+     * The number of times this set has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The number of table elements at which to resize.  Before the table
+     * is allocated, holds the initial table length.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor of the table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty set that can hold the given number of elements
+     * without resizing, with the given load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, in (0, 1)
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in (0, 1)
+     */
+    public IntHashSet(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = OpenHashMap.capacityFor(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Constructs an empty set with the given initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntHashSet(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public IntHashSet() {
+        this(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    static int hash(int e) {
+        int h = e * SCRAMBLE;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this set contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding e, which must not be 0, or -1 if none.
+     */
+    final int findSlot(int e) {
+        int[] tab = table;
+        if (tab == null)
+            return -1;
+        int mask = tab.length - 1;
+        for (int i = hash(e) & mask; ; i = (i + 1) & mask) {
+            int x = tab[i];
+            if (x == e)
+                return i;
+            if (x == 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this set contains the given element.
+     */
+    public boolean contains(int e) {
+        return (e == 0) ? containsZero : findSlot(e) >= 0;
+    }
+
+    /**
+     * Adds the given element to this set if it is not already present.
+     *
+     * @return <tt>true</tt> if this set did not already contain the element
+     */
+    public boolean add(int e) {
+        if (e == 0) {
+            if (containsZero)
+                return false;
+            containsZero = true;
+        }
+        else {
+            if (table == null || size - (containsZero ? 1 : 0) >= threshold)
+                resize();
+            int[] tab = table;
+            int mask = tab.length - 1;
+            int i = hash(e) & mask;
+            for (int x; (x = tab[i]) != 0; i = (i + 1) & mask) {
+                if (x == e)
+                    return false;
+            }
+            tab[i] = e;
+        }
+        ++size;
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Doubles the table, or allocates it with the initial length held in
+     * threshold.
+     */
+    final void resize() {
+        int[] oldTab = table;
+        int newCap;
+        if (oldTab == null)
+            newCap = threshold;
+        else {
+            if (oldTab.length >= HashMap.MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Capacity exhausted.");
+            newCap = oldTab.length << 1;
+        }
+        int[] tab = new int[newCap];
+        int mask = newCap - 1;
+        if (oldTab != null) {
+            for (int x : oldTab) {
+                if (x != 0) {
+                    int i = hash(x) & mask;
+                    while (tab[i] != 0)
+                        i = (i + 1) & mask;
+                    tab[i] = x;
+                }
+            }
+        }
+        threshold = Math.min((int)(newCap * loadFactor), newCap - 1);
+        table = tab;
+    }
+
+    /**
+     * Removes the given element from this set if it is present.
+     *
+     * @return <tt>true</tt> if this set contained the element
+     */
+    public boolean remove(int e) {
+        if (e == 0) {
+            if (!containsZero)
+                return false;
+            containsZero = false;
+            --size;
+            ++modCount;
+            return true;
+        }
+        int i = findSlot(e);
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Empties slot i by backward-shift deletion, as in OpenHashMap.removeAt.
+     */
+    final void removeAt(int i) {
+        int[] tab = table;
+        int mask = tab.length - 1;
+        int x;
+        for (int j = (i + 1) & mask; (x = tab[j]) != 0; j = (j + 1) & mask) {
+            if (((j - (hash(x) & mask)) & mask) >= ((j - i) & mask)) {
+                tab[i] = x;
+                i = j;
+            }
+        }
+        tab[i] = 0;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            if (table != null)
+                Arrays.fill(table, 0);
+            containsZero = false;
+            size = 0;
+        }
+    }
+
+    /* ---------------- Bulk operations -------------- */
+
+    /**
+     * Adds every element of the given set to this set (union).
+     *
+     * @return <tt>true</tt> if this set changed
+     */
+    public boolean addAll(IntHashSet s) {
+        int n = size;
+        if (s.size == 0)
+            return false;
+        if (table == null || size + s.size > threshold) {
+            int cap = OpenHashMap.capacityFor(size + s.size, loadFactor);
+            if (table == null)
+                threshold = Math.max(threshold, cap);
+            else {
+                while (table.length < cap && table.length < HashMap.MAXIMUM_CAPACITY)
+                    resize();
+            }
+        }
+        if (s.containsZero)
+            add(0);
+        int[] t = s.table;
+        if (t != null) {
+            for (int x : t) {
+                if (x != 0)
+                    add(x);
+            }
+        }
+        return size != n;
+    }
+
+    /**
+     * Retains only the elements of this set that are contained in the given
+     * set (intersection).
+     *
+     * @return <tt>true</tt> if this set changed
+     */
+    public boolean retainAll(IntHashSet s) {
+        int n = size;
+        if (s.size == 0)
+            clear();
+        else if (s.size < size >>> 2) {
+            // 对方小得多时，探测对方的元素重建本集合，而不是逐个检查本集合
+            int[] kept = new int[s.size];
+            int k = 0;
+            if (s.containsZero && containsZero)
+                kept[k++] = 0;
+            int[] t = s.table;
+            if (t != null) {
+                for (int x : t) {
+                    if (x != 0 && findSlot(x) >= 0)
+                        kept[k++] = x;
+                }
+            }
+            clear();
+            for (int i = 0; i < k; ++i)
+                add(kept[i]);
+        }
+        else {
+            for (SetIterator it = new SetIterator(); it.hasNext(); ) {
+                if (!s.contains(it.nextInt()))
+                    it.remove();
+            }
+        }
+        return size != n;
+    }
+
+    /**
+     * Removes from this set every element contained in the given set
+     * (difference).
+     *
+     * @return <tt>true</tt> if this set changed
+     */
+    public boolean removeAll(IntHashSet s) {
+        int n = size;
+        if (s.size <= size) {
+            if (s.containsZero)
+                remove(0);
+            int[] t = s.table;
+            if (t != null && size > 0) {
+                for (int x : t) {
+                    if (x != 0)
+                        remove(x);
+                }
+            }
+        }
+        else {
+            for (SetIterator it = new SetIterator(); it.hasNext(); ) {
+                if (s.contains(it.nextInt()))
+                    it.remove();
+            }
+        }
+        return size != n;
+    }
+
+    /**
+     * Performs the given action for each element of this set.
+     *
+     * @throws ConcurrentModificationException if the set is structurally
+     *         modified by the action
+     */
+    public void forEach(IntConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (containsZero)
+            action.accept(0);
+        int[] tab = table;
+        if (tab != null) {
+            for (int i = 0; i < tab.length && modCount == mc; ++i) {
+                int x = tab[i];
+                if (x != 0)
+                    action.accept(x);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a new array holding the elements of this set, in no
+     * particular order.
+     */
+    public int[] toArray() {
+        int[] a = new int[size];
+        int k = 0;
+        if (containsZero)
+            a[k++] = 0;
+        int[] tab = table;
+        if (tab != null) {
+            for (int x : tab) {
+                if (x != 0)
+                    a[k++] = x;
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Returns an iterator over the elements of this set, in no particular
+     * order.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new SetIterator();
+    }
+
+    /**
+     * Returns 0 first if present, then walks the table downwards from an
+     * empty slot, as OpenHashMap.OpenIterator does, so that <tt>remove</tt>
+     * neither skips nor repeats elements.
+     */
+    final class SetIterator implements PrimitiveIterator.OfInt {
+        int next = -1;         // slot of next element, or -2 for zero
+        int current = -1;      // slot of last returned element, or -2
+        int index;             // last slot examined
+        int remaining;         // slots left to examine
+        int expectedModCount;  // for fast-fail
+
+        SetIterator() {
+            expectedModCount = modCount;
+            int[] tab = table;
+            if (tab != null && size > (containsZero ? 1 : 0)) {
+                int s = 0;
+                while (tab[s] != 0)
+                    ++s;
+                index = s;
+                remaining = tab.length - 1;
+            }
+            next = containsZero ? -2 : advance();
+        }
+
+        private int advance() {
+            int[] tab = table;
+            while (remaining > 0) {
+                index = (index - 1) & (tab.length - 1);
+                --remaining;
+                if (tab[index] != 0)
+                    return index;
+            }
+            return -1;
+        }
+
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        public int nextInt() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i == -1)
+                throw new NoSuchElementException();
+            current = i;
+            next = advance();
+            return (i == -2) ? 0 : table[i];
+        }
+
+        public void remove() {
+            int i = current;
+            if (i == -1)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            if (i == -2)
+                IntHashSet.this.remove(0);
+            else
+                removeAt(i);
+            expectedModCount = modCount;
+        }
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Compares the given object with this set for equality: returns
+     * <tt>true</tt> if it is an <tt>IntHashSet</tt> with the same elements.
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntHashSet))
+            return false;
+        IntHashSet s = (IntHashSet)o;
+        if (s.size != size || s.containsZero != containsZero)
+            return false;
+        int[] tab = table;
+        if (tab != null) {
+            for (int x : tab) {
+                if (x != 0 && s.findSlot(x) < 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the sum of the elements, which equals the hash code of a
+     * <tt>Set&lt;Integer&gt;</tt> holding the same values.
+     */
+    public int hashCode() {
+        int h = 0;
+        int[] tab = table;
+        if (tab != null) {
+            for (int x : tab)
+                h += x;
+        }
+        return h;
+    }
+
+    /**
+     * Returns a copy of this set.
+     */
+    @Override
+    public IntHashSet clone() {
+        IntHashSet result;
+        try {
+            result = (IntHashSet)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        if (table != null)
+            result.table = table.clone();
+        result.modCount = 0;
+        return result;
+    }
+
+    public String toString() {
+        if (size == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (PrimitiveIterator.OfInt it = iterator(); ; ) {
+            sb.append(it.nextInt());
+            if (!it.hasNext())
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Saves the state of this set to a stream: the load factor, the number
+     * of elements, then each element.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (containsZero)
+            s.writeInt(0);
+        int[] tab = table;
+        if (tab != null) {
+            for (int x : tab) {
+                if (x != 0)
+                    s.writeInt(x);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this set from a stream (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     loadFactor);
+        int elements = s.readInt();
+        if (elements < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " +
+                                                     elements);
+        threshold = OpenHashMap.capacityFor(elements, loadFactor);
+        for (int i = 0; i < elements; ++i)
+            add(s.readInt());
+    }
+}
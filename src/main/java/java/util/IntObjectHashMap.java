@@ -0,0 +1,578 @@
+package java.util;
+
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * Hash table keyed by primitive <tt>int</tt> values.  This class offers the
+ * familiar <tt>get/put/remove/compute</tt> operations of {@link HashMap}
+ * without boxing keys into <tt>Integer</tt> and without allocating a
+ * <tt>HashMap.Node</tt> per mapping.
+ *
+ * <p>Mappings are kept in dense parallel arrays (<tt>keys</tt>,
+ * <tt>vals</tt>, <tt>next</tt>); each bin of the power-of-two
+ * <tt>table</tt> holds the index (plus one) of the first mapping in its
+ * chain, and chains are linked through <tt>next</tt>.  Hash spreading and
+ * capacity rounding are those of {@link HashMap#hash} and
+ * {@link HashMap#tableSizeFor}, so an <tt>IntObjectHashMap</tt> distributes
+ * keys exactly as a <tt>HashMap&lt;Integer,V&gt;</tt> would.
+ *
+ * <p>This map permits <tt>null</tt> values.  It is not synchronized, and its
+ * {@link #forEach} method is fail-fast in the same sense as the iterators of
+ * <tt>HashMap</tt>.
+ *
+ * @param <V> the type of mapped values
+ * @see LongObjectHashMap
+ */
+public class IntObjectHashMap<V> implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 2187352649310255312L;
+
+    /**
+     * Represents an operation on a key and its current value, used by the
+     * compute family of methods.
+     */
+    @FunctionalInterface
+    public interface KeyValueFunction<V> {
+        V apply(int key, V value);
+    }
+
+    /**
+     * Represents an operation accepting a key and its value.
+     */
+    @FunctionalInterface
+    public interface KeyValueConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * Bin heads: index + 1 of the first mapping of the chain, 0 when empty.
+     */
+    transient int[] table;
+
+    /**
+     * Keys of the mappings, packed in [0, size).
+     */
+    transient int[] keys;
+
+    /**
+     * Values of the mappings, parallel to keys.
+     */
+    transient Object[] vals;
+
+    /**
+     * Index + 1 of the next mapping in the same bin, 0 at the end of a chain.
+     */
+    transient int[] next;
+
+    /**
+     * The number of mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * Before the table is allocated, holds the initial capacity, or zero
+     * signifying HashMap.DEFAULT_INITIAL_CAPACITY.
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public IntObjectHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > HashMap.MAXIMUM_CAPACITY)
+            initialCapacity = HashMap.MAXIMUM_CAPACITY;
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntObjectHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public IntObjectHashMap() {
+        this.loadFactor = HashMap.DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Same spreading as HashMap.hash(Integer.valueOf(key)), without the box.
+     */
+    static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no mappings.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the index of the mapping for key, or -1 if none.
+     */
+    final int indexOf(int key) {
+        int[] tab; int n;
+        if ((tab = table) != null && (n = tab.length) > 0) {
+            int[] ks = keys, nx = next;
+            for (int e = tab[(n - 1) & hash(key)]; e != 0; e = nx[e - 1]) {
+                if (ks[e - 1] == key)
+                    return e - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : (V)vals[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : (V)vals[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the key.
+     */
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     */
+    public boolean containsValue(Object value) {
+        Object[] vs = vals;
+        for (int i = 0; i < size; ++i) {
+            if (Objects.equals(value, vs[i]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    public V put(int key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}) associates it with the given value.
+     */
+    public V putIfAbsent(int key, V value) {
+        return putVal(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V putVal(int key, V value, boolean onlyIfAbsent) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            V oldValue = (V)vals[i];
+            if (!onlyIfAbsent || oldValue == null)
+                vals[i] = value;
+            return oldValue;
+        }
+        addEntry(key, value);
+        return null;
+    }
+
+    /**
+     * Appends a new mapping, resizing first if the arrays are full.
+     */
+    final void addEntry(int key, Object value) {
+        if (table == null || size >= threshold)
+            resize();
+        int i = size++;
+        int b = (table.length - 1) & hash(key);
+        keys[i] = key;
+        vals[i] = value;
+        next[i] = table[b];//新结点插入到链表头部
+        table[b] = i + 1;
+        ++modCount;
+    }
+
+    /**
+     * Initializes or doubles table size, following HashMap.resize().  The
+     * entry arrays are sized to the new threshold.  Since mappings are
+     * stored densely, chains are simply rebuilt from the key array instead
+     * of being split into lo/hi lists.
+     */
+    final void resize() {
+        int oldCap = (table == null) ? 0 : table.length;
+        int oldThr = threshold;
+        int newCap, newThr = 0;
+        if (oldCap > 0) {
+            if (oldCap >= HashMap.MAXIMUM_CAPACITY) {
+                if (oldThr >= Integer.MAX_VALUE - 8)
+                    throw new IllegalStateException("Map is full");
+                newCap = oldCap;
+                newThr = Integer.MAX_VALUE - 8;//容量已达上限，只扩展存放结点的数组
+            }
+            else if ((newCap = oldCap << 1) < HashMap.MAXIMUM_CAPACITY &&
+                     oldCap >= HashMap.DEFAULT_INITIAL_CAPACITY)
+                newThr = oldThr << 1;
+        }
+        else if (oldThr > 0)
+            newCap = oldThr;
+        else {
+            newCap = HashMap.DEFAULT_INITIAL_CAPACITY;
+            newThr = (int)(HashMap.DEFAULT_LOAD_FACTOR *
+                           HashMap.DEFAULT_INITIAL_CAPACITY);
+        }
+        if (newThr == 0) {
+            float ft = (float)newCap * loadFactor;
+            newThr = (newCap < HashMap.MAXIMUM_CAPACITY &&
+                      ft < (float)HashMap.MAXIMUM_CAPACITY ?
+                      (int)ft : Integer.MAX_VALUE - 8);
+        }
+        int n = size;
+        if (newThr <= n)
+            newThr = n + 1;//小容量时阈值可能不增长，保证至少能再放入一个结点
+        threshold = newThr;
+        int[] tab = new int[newCap];
+        keys = (keys == null) ? new int[newThr] : Arrays.copyOf(keys, newThr);
+        vals = (vals == null) ? new Object[newThr] : Arrays.copyOf(vals, newThr);
+        next = new int[newThr];
+        int[] ks = keys, nx = next;
+        for (int i = 0; i < n; ++i) {
+            int b = (newCap - 1) & hash(ks[i]);
+            nx[i] = tab[b];
+            tab[b] = i + 1;
+        }
+        table = tab;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Unlinks the mapping at index i, then moves the last mapping into the
+     * hole so that the arrays stay dense.
+     */
+    final void removeAt(int i) {
+        unlink(i);
+        int last = --size;
+        if (i != last) {//把最后一个结点移到被删除的位置上
+            int key = keys[last];
+            unlink(last);
+            int b = (table.length - 1) & hash(key);
+            keys[i] = key;
+            vals[i] = vals[last];
+            next[i] = table[b];
+            table[b] = i + 1;
+        }
+        vals[last] = null; // to let GC do its work
+        ++modCount;
+    }
+
+    /**
+     * Removes index i from the chain of its bin.
+     */
+    private void unlink(int i) {
+        int b = (table.length - 1) & hash(keys[i]);
+        int e = table[b];
+        if (e == i + 1)
+            table[b] = next[i];
+        else {
+            int p;
+            do {
+                p = e;
+            } while ((e = next[p - 1]) != i + 1);
+            next[p - 1] = next[i];
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        if (table != null && size > 0) {
+            ++modCount;
+            Arrays.fill(table, 0);
+            Arrays.fill(vals, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}), attempts to compute its value using the given
+     * mapping function and enters it into this map unless {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        int i = indexOf(key);
+        V oldValue;
+        if (i >= 0 && (oldValue = (V)vals[i]) != null)
+            return oldValue;
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v == null)
+            return null;
+        else if (i >= 0)
+            vals[i] = v;
+        else
+            addEntry(key, v);
+        return v;
+    }
+
+    /**
+     * If the value for the specified key is present and non-null, attempts
+     * to compute a new mapping given the key and its current mapped value.
+     * A {@code null} result removes the mapping.
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(int key,
+                              KeyValueFunction<V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int i = indexOf(key);
+        V oldValue;
+        if (i >= 0 && (oldValue = (V)vals[i]) != null) {
+            int mc = modCount;
+            V v = remappingFunction.apply(key, oldValue);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+            if (v == null)
+                removeAt(i);
+            else
+                vals[i] = v;
+            return v;
+        }
+        return null;
+    }
+
+    /**
+     * Attempts to compute a mapping for the specified key and its current
+     * mapped value (or {@code null} if there is no current mapping).  A
+     * {@code null} result removes the mapping.
+     */
+    @SuppressWarnings("unchecked")
+    public V compute(int key, KeyValueFunction<V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int i = indexOf(key);
+        V oldValue = (i >= 0) ? (V)vals[i] : null;
+        int mc = modCount;
+        V v = remappingFunction.apply(key, oldValue);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (i >= 0) {
+            if (v != null)
+                vals[i] = v;
+            else
+                removeAt(i);
+        }
+        else if (v != null)
+            addEntry(key, v);
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value or is
+     * associated with null, associates it with the given non-null value.
+     * Otherwise, replaces the associated value with the results of the given
+     * remapping function, or removes if the result is {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V merge(int key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        int i = indexOf(key);
+        if (i < 0) {
+            addEntry(key, value);
+            return value;
+        }
+        V oldValue = (V)vals[i], v;
+        if (oldValue == null)
+            v = value;
+        else {
+            int mc = modCount;
+            v = remappingFunction.apply(oldValue, value);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+        }
+        if (v == null)
+            removeAt(i);
+        else
+            vals[i] = v;
+        return v;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified by the action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(KeyValueConsumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        int[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < size && modCount == mc; ++i)
+            action.accept(ks[i], (V)vs[i]);
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a new array holding the keys of this map, in no particular
+     * order.
+     */
+    public int[] keys() {
+        return (size == 0) ? new int[0] : Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Returns a shallow copy of this map: the values themselves are not
+     * cloned.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public IntObjectHashMap<V> clone() {
+        IntObjectHashMap<V> result;
+        try {
+            result = (IntObjectHashMap<V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        if (table != null) {
+            result.table = table.clone();
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+            result.next = next.clone();
+        }
+        result.modCount = 0;
+        return result;
+    }
+
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (int i = 0; i < size; ++i) {
+            if (i > 0)
+                sb.append(',').append(' ');
+            Object v = vals[i];
+            sb.append(keys[i]).append('=').append(v == this ? "(this Map)" : v);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Saves the state of this map to a stream: the load factor, the number
+     * of mappings, then each key followed by its value.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int i = 0; i < size; ++i) {
+            s.writeInt(keys[i]);
+            s.writeObject(vals[i]);
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " +
+                                                     mappings);
+        float fc = (float)mappings / loadFactor + 1.0f;
+        threshold = HashMap.tableSizeFor((fc < (float)HashMap.MAXIMUM_CAPACITY) ?
+                                         (int)fc : HashMap.MAXIMUM_CAPACITY);
+        for (int i = 0; i < mappings; ++i)
+            addEntry(s.readInt(), s.readObject());
+    }
+}
@@ -0,0 +1,488 @@
+package java.util;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Cache bounded by the total weight of its entries, with optional
+ * expiration, built on an access-ordered {@link LinkedHashMap}.
+ * <tt>removeEldestEntry</tt> can only bound a <tt>LinkedHashMap</tt> by its
+ * number of entries, which is of little use when values range from bytes
+ * to megabytes.  Here each entry is given a weight by a <em>weigher</em>
+ * function when it is written, and least recently used entries are evicted
+ * while the sum of the weights exceeds the maximum weight.  Without a
+ * weigher every entry weighs 1, so the maximum weight is a maximum size.
+ *
+ * <p>Entries may also expire a fixed time after they were last written
+ * (<em>expire-after-write</em>), after they were last read or written
+ * (<em>expire-after-access</em>), or both.  Each entry only records the
+ * times of its last write and access; there is no timer per entry.  An
+ * expired entry is never returned, and is reclaimed lazily:
+ * <ul>
+ * <li>when <tt>get</tt> or <tt>put</tt> finds it;
+ * <li>after every <tt>get</tt>, <tt>put</tt> and <tt>remove</tt>, from the
+ * least recently used end of the list, up to the first entry that has not
+ * expired.  This is exact for expire-after-access, since the list is in
+ * access order, and catches most entries expiring after write;
+ * <li>by {@link #cleanUp}, which scans all entries and may be run
+ * periodically with {@link #scheduleCleanUp}.
+ * </ul>
+ * Expired entries not yet reclaimed still count in {@link #size} and
+ * {@link #weightedSize}.
+ *
+ * <p>All methods synchronize on the cache, as in {@link Hashtable}, so that
+ * the cleanup task may run in another thread.  Iterating over the views
+ * must be synchronized on the cache by the caller.  This cache does not
+ * permit <tt>null</tt> keys or values.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap#removeEldestEntry
+ */
+public class LinkedHashCache<K,V> extends AbstractMap<K,V> {
+
+    /**
+     * The entries by key, least recently used first.
+     */
+    final Store<K,V> store;
+
+    /**
+     * Weigher of the entries, or null if every entry weighs 1.
+     */
+    final ToIntBiFunction<? super K, ? super V> weigher;
+
+    /**
+     * The maximum total weight.
+     */
+    final long maximumWeight;
+
+    /**
+     * Expiration delays in nanoseconds, 0 if entries do not expire.
+     */
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+
+    /**
+     * The sum of the weights of the entries.
+     */
+    long totalWeight;
+
+    /**
+     * Creates a cache whose entries never expire.
+     *
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher computes the weight of an entry, or <tt>null</tt> to
+     *        give every entry a weight of 1
+     * @throws IllegalArgumentException if the maximum weight is negative
+     */
+    public LinkedHashCache(long maximumWeight,
+                           ToIntBiFunction<? super K, ? super V> weigher) {
+        this(maximumWeight, weigher, 0L, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a cache whose entries expire after the given delays.
+     *
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher computes the weight of an entry, or <tt>null</tt> to
+     *        give every entry a weight of 1
+     * @param expireAfterWrite time after the last write at which an entry
+     *        expires, or 0 if entries do not expire after write
+     * @param expireAfterAccess time after the last read or write at which
+     *        an entry expires, or 0 if entries do not expire after access
+     * @param unit the unit of both delays
+     * @throws IllegalArgumentException if the maximum weight or a delay
+     *         is negative
+     */
+    public LinkedHashCache(long maximumWeight,
+                           ToIntBiFunction<? super K, ? super V> weigher,
+                           long expireAfterWrite, long expireAfterAccess,
+                           TimeUnit unit) {
+        if (maximumWeight < 0)
+            throw new IllegalArgumentException("Illegal maximum weight: " +
+                                               maximumWeight);
+        if (expireAfterWrite < 0 || expireAfterAccess < 0)
+            throw new IllegalArgumentException("Illegal expiration delay");
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.store = new Store<K,V>();
+    }
+
+    /**
+     * Access-ordered map of the entries, with a lookup that does not count
+     * as an access.
+     */
+    static final class Store<K,V> extends LinkedHashMap<K,CacheEntry<K,V>> {
+        private static final long serialVersionUID = 6482071358640512537L;
+
+        Store() {
+            super(16, 0.75f, true);
+        }
+
+        CacheEntry<K,V> peek(Object key) {
+            Node<K,CacheEntry<K,V>> e = getNode(hash(key), key);
+            return (e == null) ? null : e.value;
+        }
+    }
+
+    /**
+     * The value of a key with its weight and the times of its last write
+     * and access.
+     */
+    static final class CacheEntry<K,V> {
+        final K key;
+        V value;
+        int weight;
+        long writeTime;
+        long accessTime;
+
+        CacheEntry(K key) {
+            this.key = key;
+        }
+    }
+
+    private boolean expires() {
+        return (expireAfterWriteNanos | expireAfterAccessNanos) != 0L;
+    }
+
+    private boolean isExpired(CacheEntry<K,V> e, long now) {
+        return (expireAfterWriteNanos != 0L && now - e.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos != 0L && now - e.accessTime >= expireAfterAccessNanos);
+    }
+
+    private long now() {
+        return expires() ? System.nanoTime() : 0L;
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null)
+            return 1;
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("Negative weight: " + w);
+        return w;
+    }
+
+    /**
+     * Returns the maximum total weight of this cache.
+     */
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the sum of the weights of the entries.
+     */
+    public synchronized long weightedSize() {
+        return totalWeight;
+    }
+
+    public synchronized int size() {
+        return store.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    /**
+     * Returns the value to which the key is mapped, or <tt>null</tt> if
+     * there is none or it has expired, and records the access.
+     */
+    public synchronized V get(Object key) {
+        CacheEntry<K,V> e = store.get(key);
+        if (e == null)
+            return null;
+        V v = e.value;
+        if (expires()) {
+            long now = System.nanoTime();
+            if (isExpired(e, now)) {
+                removeEntry(e);
+                v = null;
+            }
+            else
+                e.accessTime = now;
+            expireEntries(now);
+        }
+        return v;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this cache holds an unexpired value for the
+     * key.  This does not count as an access.
+     */
+    public synchronized boolean containsKey(Object key) {
+        CacheEntry<K,V> e = store.peek(key);
+        return e != null && !isExpired(e, now());
+    }
+
+    public synchronized boolean containsValue(Object value) {
+        long now = now();
+        for (CacheEntry<K,V> e : store.values()) {
+            if (e.value.equals(value) && !isExpired(e, now))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the key to the value, then evicts least recently used entries
+     * while the total weight exceeds the maximum.  A value whose weight
+     * alone exceeds the maximum is not stored: any previous mapping for
+     * the key is removed, and no other entry is evicted.
+     *
+     * @return the previous unexpired value, or <tt>null</tt>
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public synchronized V put(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int w = weigh(key, value);
+        long now = now();
+        CacheEntry<K,V> e;
+        V old = null;
+        if (w > maximumWeight) {//单个值就超过上限，只丢弃这个键值对而不淘汰其它的
+            if ((e = store.remove(key)) != null) {
+                totalWeight -= e.weight;
+                if (!isExpired(e, now))
+                    old = e.value;
+            }
+            expireEntries(now);
+            return old;
+        }
+        e = store.get(key);
+        if (e == null) {
+            store.put(key, e = new CacheEntry<K,V>(key));
+            e.weight = 0;
+        }
+        else if (!isExpired(e, now))
+            old = e.value;
+        totalWeight += w - e.weight;
+        e.value = value;
+        e.weight = w;
+        e.writeTime = e.accessTime = now;
+        expireEntries(now);
+        Iterator<CacheEntry<K,V>> it = store.values().iterator();
+        while (totalWeight > maximumWeight && it.hasNext()) {//按最近最少使用的顺序淘汰，直到总权重不超过上限
+            totalWeight -= it.next().weight;
+            it.remove();
+        }
+        return old;
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @return the previous unexpired value, or <tt>null</tt>
+     */
+    public synchronized V remove(Object key) {
+        CacheEntry<K,V> e = store.remove(key);
+        if (e == null)
+            return null;
+        totalWeight -= e.weight;
+        long now = now();
+        expireEntries(now);
+        return isExpired(e, now) ? null : e.value;
+    }
+
+    public synchronized void clear() {
+        store.clear();
+        totalWeight = 0L;
+    }
+
+    private void removeEntry(CacheEntry<K,V> e) {
+        store.remove(e.key);
+        totalWeight -= e.weight;
+    }
+
+    /**
+     * Removes expired entries from the least recently used end of the
+     * list, stopping at the first unexpired one.
+     */
+    private void expireEntries(long now) {
+        if (!expires())
+            return;
+        Iterator<CacheEntry<K,V>> it = store.values().iterator();
+        while (it.hasNext()) {
+            CacheEntry<K,V> e = it.next();
+            if (!isExpired(e, now))
+                break;
+            totalWeight -= e.weight;
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes every expired entry.  This scans all entries.
+     */
+    public synchronized void cleanUp() {
+        if (!expires())
+            return;
+        long now = System.nanoTime();
+        for (Iterator<CacheEntry<K,V>> it = store.values().iterator(); it.hasNext(); ) {
+            CacheEntry<K,V> e = it.next();
+            if (isExpired(e, now)) {
+                totalWeight -= e.weight;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Schedules {@link #cleanUp} to run repeatedly with the given delay
+     * between runs.  Cancel the returned future to stop it.
+     *
+     * @param executor the executor running the task
+     * @param delay the delay between the end of a run and the next
+     * @param unit the unit of the delay
+     * @return the future of the task
+     */
+    public ScheduledFuture<?> scheduleCleanUp(ScheduledExecutorService executor,
+                                              long delay, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(this::cleanUp, delay, delay, unit);
+    }
+
+    /* ---------------- Views -------------- */
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a view of the unexpired mappings, least recently used first.
+     * Iterating does not count as an access.  Setting the value of an entry
+     * writes through to the cache; the total weight is not checked again
+     * until the next <tt>put</tt>.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        synchronized (this) {
+            if (entrySet == null)
+                entrySet = Collections.synchronizedSet(new EntrySet(), this);
+            return entrySet;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() {
+            return store.size();
+        }
+        public void clear() {
+            LinkedHashCache.this.clear();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            CacheEntry<K,V> c = store.peek(e.getKey());
+            return c != null && c.value.equals(e.getValue()) && !isExpired(c, now());
+        }
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            LinkedHashCache.this.remove(((Map.Entry<?,?>)o).getKey());
+            return true;
+        }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * Iterator over the linked entries of the store, as LinkedHashIterator,
+     * skipping expired entries.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final long now = now();
+        LinkedHashMap.Entry<K,CacheEntry<K,V>> next;
+        LinkedHashMap.Entry<K,CacheEntry<K,V>> current;
+        int expectedModCount;
+
+        EntryIterator() {
+            next = skipExpired(store.head);
+            expectedModCount = store.modCount;
+        }
+
+        private LinkedHashMap.Entry<K,CacheEntry<K,V>> skipExpired(
+            LinkedHashMap.Entry<K,CacheEntry<K,V>> e) {
+            while (e != null && isExpired(e.value, now))
+                e = e.after;//跳过已过期的键值对
+            return e;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            LinkedHashMap.Entry<K,CacheEntry<K,V>> e = next;
+            if (store.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (e == null)
+                throw new NoSuchElementException();
+            current = e;
+            next = skipExpired(e.after);
+            return new WriteThroughEntry(e.value);
+        }
+
+        public void remove() {
+            LinkedHashMap.Entry<K,CacheEntry<K,V>> p = current;
+            if (p == null)
+                throw new IllegalStateException();
+            if (store.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = null;
+            store.removeNode(p.hash, p.key, null, false, false);
+            totalWeight -= p.value.weight;
+            expectedModCount = store.modCount;
+        }
+    }
+
+    /**
+     * Entry whose setValue writes the new value and its weight into the
+     * cache entry, without changing the access order.  Once the entry has
+     * been evicted or removed, setValue only changes this entry.
+     */
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = -2151232480591652376L;
+
+        final transient CacheEntry<K,V> entry;
+
+        WriteThroughEntry(CacheEntry<K,V> entry) {
+            super(entry.key, entry.value);
+            this.entry = entry;
+        }
+
+        public V setValue(V value) {
+            if (value == null)
+                throw new NullPointerException();
+            synchronized (LinkedHashCache.this) {
+                int w = weigh(entry.key, value);
+                V v = super.setValue(value);
+                if (store.peek(entry.key) != entry)
+                    return v;//已被淘汰或删除，不再计入总权重
+                totalWeight += w - entry.weight;
+                entry.value = value;
+                entry.weight = w;
+                entry.writeTime = now();
+                return v;
+            }
+        }
+    }
+
+    public synchronized boolean equals(Object o) {
+        return super.equals(o);
+    }
+
+    public synchronized int hashCode() {
+        return super.hashCode();
+    }
+
+    public synchronized String toString() {
+        return super.toString();
+    }
+}
@@ -75,6 +75,20 @@ import java.io.IOException;
  * backing map.还可以生成access-order顺序的版本，按照最近访问顺序来存储，适合LRU，put get compute merge都算作一次访问,
  * replace只有在换掉一个键值对的时候才算一次访问，putAll产生的访问顺序取决于原本map的迭代器实现
  *
+ * <p>In an access-ordered map every access relinks the entry to the tail
+ * of the list, writing up to six pointers, which under heavy reads costs
+ * far more than the lookup itself.  The {@link
+ * #LinkedHashMap(int,float,boolean,boolean) constructor} with
+ * <tt>approximate</tt> set creates a map in <i>approximate access-order</i>
+ * instead, which implements the CLOCK (second chance) policy: an access
+ * only sets a reference bit in the entry, and the list is not changed.
+ * Before {@link #removeEldestEntry} is invoked, entries at the head of the
+ * list whose bit is set are moved to the tail with their bit cleared, like
+ * the hand of a clock, until the head is an entry not accessed since it was
+ * last passed.  The eldest entry is then one that has not been accessed
+ * recently, if not the least recently accessed one, and accesses do not
+ * modify the map structurally.近似的access-order，访问只设置引用位，插入时才把被访问过的结点移到链表尾部
+ *
  * <p>The {@link #removeEldestEntry(Map.Entry)} method may be overridden to
  * impose a policy for removing stale mappings automatically when new mappings
  * are added to the map.removeEldestEntry可以重写来实现新键值对插入时自动删除最旧的键值对
@@ -116,7 +130,8 @@ import java.io.IOException;
  * the value associated with a key that is already contained in the map is not
  * a structural modification.  <strong>In access-ordered linked hash maps,
  * merely querying the map with <tt>get</tt> is a structural modification.
- * </strong>)对于LinkedHashMap来说，修改结构的操作除了增加和删除键值对外，还有对于access-order时进行了access导致迭代器顺序改变，主要是get操作
+ * </strong>  In maps in approximate access-order it is not; only inserting a
+ * new mapping may reorder the entries.)对于LinkedHashMap来说，修改结构的操作除了增加和删除键值对外，还有对于access-order时进行了access导致迭代器顺序改变，主要是get操作
  * 对于插入顺序的来说，仅仅修改一个已有key值的value值不是一个修改结构的操作
  *
  * <p>The iterators returned by the <tt>iterator</tt> method of the collections
@@ -195,6 +210,7 @@ public class LinkedHashMap<K,V>
      */
     static class Entry<K,V> extends HashMap.Node<K,V> {
         Entry<K,V> before, after;//增加了先后指针来形成双向链表
+        boolean referenced;//近似access-order下的引用位，对象对齐后不增加结点大小
         Entry(int hash, K key, V value, Node<K,V> next) {
             super(hash, key, value, next);
         }
@@ -220,6 +236,14 @@ public class LinkedHashMap<K,V>
      */
     final boolean accessOrder;
 
+    /**
+     * <tt>true</tt> if accesses only set the reference bit of the entry
+     * instead of moving it, for approximate access-order.
+     *
+     * @serial
+     */
+    final boolean approximate;
+
     // internal utilities
 
     //将p连接到链表尾部
@@ -239,6 +263,7 @@ public class LinkedHashMap<K,V>
                                LinkedHashMap.Entry<K,V> dst) {
         LinkedHashMap.Entry<K,V> b = dst.before = src.before;
         LinkedHashMap.Entry<K,V> a = dst.after = src.after;
+        dst.referenced = src.referenced;
         if (b == null)
             head = dst;
         else
@@ -306,16 +331,52 @@ public class LinkedHashMap<K,V>
 	// 可能移除最旧的结点
     void afterNodeInsertion(boolean evict) { 
         LinkedHashMap.Entry<K,V> first;
+        if (evict && approximate)
+            advanceClock();
         if (evict && (first = head) != null && removeEldestEntry(first)) {//removeEldestEntry需要重写才从发挥作用，否则一定返回false
             K key = first.key;//移除链表头部的结点
             removeNode(hash(key), key, null, false, true);
         }
     }
 
+    /**
+     * Moves the entries at the head whose reference bit is set to the
+     * tail, clearing the bit, until the head is unreferenced.  The hand
+     * stops at the tail, which is the entry just inserted: if every entry
+     * before it was referenced, all bits are cleared and the order is
+     * kept, so that the original head is the eldest, as in CLOCK after a
+     * full sweep.  Each bit cleared was set by an access, so this takes
+     * constant amortized time.
+     */
+    private void advanceClock() {
+        LinkedHashMap.Entry<K,V> p = head, t = tail;
+        if (p == null || p == t || !p.referenced)
+            return;
+        do {
+            p.referenced = false;//给予第二次机会
+            p = p.after;
+        } while (p != t && p.referenced);
+        if (p != t) {//head到p之前的一段整体移到链表尾部
+            LinkedHashMap.Entry<K,V> first = head, last = p.before;
+            p.before = null;
+            last.after = null;
+            first.before = t;
+            t.after = first;
+            head = p;
+            tail = last;
+            ++modCount;
+        }//否则刚插入的结点之前都被访问过，清除引用位后顺序不变，淘汰原来的头部
+    }
+
 	// 在访问过后将结点e移动到链表尾部
     void afterNodeAccess(Node<K,V> e) { 
         LinkedHashMap.Entry<K,V> last;
-        if (accessOrder && (last = tail) != e) {//Map是access-order同时e不是链表的尾部
+        if (approximate) {
+            LinkedHashMap.Entry<K,V> p = (LinkedHashMap.Entry<K,V>)e;
+            if (!p.referenced)//已经设置过就不再写，避免无谓的缓存行写入
+                p.referenced = true;
+        }
+        else if (accessOrder && (last = tail) != e) {//Map是access-order同时e不是链表的尾部
             LinkedHashMap.Entry<K,V> p =
                 (LinkedHashMap.Entry<K,V>)e, b = p.before, a = p.after;
             p.after = null;
@@ -357,6 +418,7 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap(int initialCapacity, float loadFactor) {
         super(initialCapacity, loadFactor);
         accessOrder = false;//默认是根据插入顺序
+        approximate = false;
     }
 
     /**
@@ -369,6 +431,7 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap(int initialCapacity) {
         super(initialCapacity);
         accessOrder = false;
+        approximate = false;
     }
 
     /**
@@ -378,6 +441,7 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap() {
         super();
         accessOrder = false;
+        approximate = false;
     }
 
     /**
@@ -392,6 +456,7 @@ public class LinkedHashMap<K,V>
     public LinkedHashMap(Map<? extends K, ? extends V> m) {
         super();
         accessOrder = false;
+        approximate = false;
         putMapEntries(m, false);
     }
 
@@ -411,6 +476,35 @@ public class LinkedHashMap<K,V>
                          boolean accessOrder) {
         super(initialCapacity, loadFactor);
         this.accessOrder = accessOrder;
+        this.approximate = false;
+    }
+
+    /**
+     * Constructs an empty <tt>LinkedHashMap</tt> instance with the
+     * specified initial capacity, load factor and ordering mode, which may
+     * be approximate access-order.  In approximate access-order, an access
+     * only marks the entry as referenced, and referenced entries are moved
+     * from the head to the tail of the list, in the manner of the CLOCK
+     * policy, when a new mapping is inserted.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @param  accessOrder     the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @param  approximate     <tt>true</tt> for approximate access-order
+     * @throws IllegalArgumentException if the initial capacity is negative,
+     *         the load factor is nonpositive, or <tt>approximate</tt> is
+     *         <tt>true</tt> and <tt>accessOrder</tt> is <tt>false</tt>
+     */
+    public LinkedHashMap(int initialCapacity,
+                         float loadFactor,
+                         boolean accessOrder,
+                         boolean approximate) {
+        super(initialCapacity, loadFactor);
+        if (approximate && !accessOrder)
+            throw new IllegalArgumentException("Approximate insertion-order");
+        this.accessOrder = accessOrder;
+        this.approximate = approximate;
     }
 
 
@@ -508,7 +602,10 @@ public class LinkedHashMap<K,V>
      *
      * @param    eldest The least recently inserted entry in the map, or if
      *           this is an access-ordered map, the least recently accessed
-     *           entry.  This is the entry that will be removed it this
+     *           entry.  In approximate access-order, this is an entry not
+     *           accessed since the clock last passed it, or the one the
+     *           clock started from if all but the newest entry were
+     *           accessed.  This is the entry that will be removed it this
      *           method returns <tt>true</tt>.  If the map was empty prior
      *           to the <tt>put</tt> or <tt>putAll</tt> invocation resulting
      *           in this invocation, this will be the entry that was just
@@ -0,0 +1,1113 @@
+package java.util;
+
+/**
+ * A sorted map from primitive {@code long} keys to values, laid out as a
+ * B+-tree in the manner of {@link BTreeMap}.  A {@code TreeMap<Long,V>}
+ * boxes the key of every lookup and compares keys through
+ * {@code Long.compareTo}, one node at a time; this map keeps up to
+ * {@value #NODE_CAPACITY} keys per node in a {@code long[]}, which each
+ * lookup binary-searches directly, so that no method of this class boxes
+ * a key.
+ * 键为long基本类型的有序Map，结点中的键保存在long数组中，查找时不需要装箱，也不需要通过compareTo比较
+ *
+ * <p>The operations mirror those of {@link NavigableMap}, with primitive
+ * keys:
+ * <ul>
+ * <li>{@link #floorKey}, {@link #ceilingKey}, {@link #lowerKey} and
+ * {@link #higherKey} take the key to return when there is no such key,
+ * since every {@code long} may be a key of the map.
+ * <li>{@link #floorValue} and {@link #ceilingValue} return the value of
+ * the floor or ceiling key, or {@code null} if there is none, for
+ * "as of" lookups in time-indexed data.
+ * <li>A range is traversed with a {@link Cursor}, which is moved with
+ * {@link Cursor#next} and reads the key and value of the current mapping,
+ * rather than with an iterator of entries.
+ * </ul>
+ * This map does not implement {@code Map<Long,V>}, but its {@code equals}
+ * and {@code hashCode} methods follow the same contract among
+ * {@code LongTreeMap} instances, and its {@code hashCode} equals that of
+ * a {@code Map<Long,V>} with the same mappings.
+ *
+ * <p>This implementation provides guaranteed log(n) time cost for the
+ * {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations, and the navigation methods.  Null values are permitted.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally.  Cursors are <em>fail-fast</em>: if the map is structurally
+ * modified after a cursor is created, its {@code next} method throws a
+ * {@link ConcurrentModificationException}.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see BTreeMap
+ * @see TreeMap
+ */
+public class LongTreeMap<V> implements Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 6629751983304716529L;
+
+    /**
+     * The maximum number of keys in a leaf and of children of an inner
+     * node, as in BTreeMap.
+     */
+    static final int NODE_CAPACITY = 64;
+
+    /**
+     * The number of keys or children below which a node is merged with,
+     * or takes one from, a sibling after a removal.
+     */
+    static final int MIN_FILL = NODE_CAPACITY / 2;
+
+    /**
+     * The root node, null if the map is empty.
+     */
+    private transient Node root;
+
+    /**
+     * The number of levels of inner nodes above the leaves.
+     */
+    private transient int height;
+
+    /**
+     * The first and last leaves.
+     */
+    private transient Leaf<V> first, last;
+
+    /**
+     * The number of entries in the tree
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public LongTreeMap() {
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * in linear time.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public LongTreeMap(LongTreeMap<? extends V> m) {
+        try {
+            buildFromSorted(m.size, m.first, null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A node of the tree, as in BTreeMap.  In a leaf, keys[0..n) are the
+     * keys of its mappings.  In an inner node, n is the number of children
+     * and keys[0..n-1) are the separators: every key of children[i] is
+     * less than keys[i], and every key of children[i+1] is greater than or
+     * equal to it.
+     */
+    abstract static class Node {
+        final long[] keys;
+        int n;
+
+        Node(int keyCapacity) {
+            keys = new long[keyCapacity];
+        }
+    }
+
+    static final class Inner extends Node {
+        final Node[] children = new Node[NODE_CAPACITY];
+
+        Inner() {
+            super(NODE_CAPACITY - 1);
+        }
+    }
+
+    static final class Leaf<V> extends Node {
+        final Object[] vals = new Object[NODE_CAPACITY];
+        Leaf<V> prev, next;
+
+        Leaf() {
+            super(NODE_CAPACITY);
+        }
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Returns the index of the child of an inner node that may contain
+     * key, the number of separators less than or equal to it.
+     */
+    static int childIndex(Inner x, long key) {
+        int i = Arrays.binarySearch(x.keys, 0, x.n - 1, key);
+        return (i >= 0) ? i + 1 : -(i + 1);
+    }
+
+    /**
+     * Returns the leaf that contains key if it is present, or null if the
+     * map is empty.
+     */
+    @SuppressWarnings("unchecked")
+    final Leaf<V> leafFor(long key) {
+        Node x = root;
+        if (x == null)
+            return null;
+        for (int h = height; h > 0; --h) {
+            Inner p = (Inner)x;
+            x = p.children[childIndex(p, key)];
+        }
+        return (Leaf<V>)x;
+    }
+
+    /* ---------------- Query operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     */
+    public boolean containsKey(long key) {
+        Leaf<V> l = leafFor(key);
+        return l != null && Arrays.binarySearch(l.keys, 0, l.n, key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the map
+     * size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf<V> l = first; l != null; l = l.next)
+            for (int i = 0; i < l.n; ++i)
+                if (valEquals(value, l.vals[i]))
+                    return true;
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  A return
+     * value of {@code null} does not <em>necessarily</em> indicate that
+     * the map contains no mapping for the key; the {@link #containsKey}
+     * operation may be used to distinguish these two cases.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Leaf<V> l = leafFor(key);
+        int i;
+        if (l == null || (i = Arrays.binarySearch(l.keys, 0, l.n, key)) < 0)
+            return null;
+        return (V)l.vals[i];
+    }
+
+    /**
+     * Returns the first (lowest) key currently in this map.
+     *
+     * @return the first (lowest) key currently in this map
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long firstKey() {
+        if (first == null)
+            throw new NoSuchElementException();
+        return first.keys[0];
+    }
+
+    /**
+     * Returns the last (highest) key currently in this map.
+     *
+     * @return the last (highest) key currently in this map
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long lastKey() {
+        if (last == null)
+            throw new NoSuchElementException();
+        return last.keys[last.n - 1];
+    }
+
+    /**
+     * Returns the greatest key strictly less than the given key, or
+     * {@code defaultKey} if there is no such key.
+     *
+     * @param key the key
+     * @param defaultKey the key to return if there is no lower key
+     * @return the greatest key less than {@code key}, or
+     *         {@code defaultKey} if there is no such key
+     */
+    public long lowerKey(long key, long defaultKey) {
+        return floorKey(key, false, defaultKey);
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or
+     * {@code defaultKey} if there is no such key.
+     *
+     * @param key the key
+     * @param defaultKey the key to return if there is no floor key
+     * @return the greatest key less than or equal to {@code key}, or
+     *         {@code defaultKey} if there is no such key
+     */
+    public long floorKey(long key, long defaultKey) {
+        return floorKey(key, true, defaultKey);
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or
+     * {@code defaultKey} if there is no such key.
+     *
+     * @param key the key
+     * @param defaultKey the key to return if there is no ceiling key
+     * @return the least key greater than or equal to {@code key}, or
+     *         {@code defaultKey} if there is no such key
+     */
+    public long ceilingKey(long key, long defaultKey) {
+        return ceilingKey(key, true, defaultKey);
+    }
+
+    /**
+     * Returns the least key strictly greater than the given key, or
+     * {@code defaultKey} if there is no such key.
+     *
+     * @param key the key
+     * @param defaultKey the key to return if there is no higher key
+     * @return the least key greater than {@code key}, or
+     *         {@code defaultKey} if there is no such key
+     */
+    public long higherKey(long key, long defaultKey) {
+        return ceilingKey(key, false, defaultKey);
+    }
+
+    /**
+     * Returns the value of the greatest key less than or equal to the
+     * given key, or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the value of the floor key, or {@code null} if there is no
+     *         such key
+     */
+    @SuppressWarnings("unchecked")
+    public V floorValue(long key) {
+        Leaf<V> l = leafFor(key);
+        if (l == null)
+            return null;
+        int i = floorIndex(l, key, true);
+        if (i < 0) {
+            if ((l = l.prev) == null)
+                return null;
+            i = l.n - 1;
+        }
+        return (V)l.vals[i];
+    }
+
+    /**
+     * Returns the value of the least key greater than or equal to the
+     * given key, or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the value of the ceiling key, or {@code null} if there is no
+     *         such key
+     */
+    @SuppressWarnings("unchecked")
+    public V ceilingValue(long key) {
+        Leaf<V> l = leafFor(key);
+        if (l == null)
+            return null;
+        int i = ceilingIndex(l, key, true);
+        if (i == l.n) {
+            if ((l = l.next) == null)
+                return null;
+            i = 0;
+        }
+        return (V)l.vals[i];
+    }
+
+    private long floorKey(long key, boolean inclusive, long defaultKey) {
+        Leaf<V> l = leafFor(key);
+        if (l == null)
+            return defaultKey;
+        int i = floorIndex(l, key, inclusive);
+        if (i < 0) {//本叶子中的键都更大，前驱是上一个叶子的最后一个键
+            if ((l = l.prev) == null)
+                return defaultKey;
+            i = l.n - 1;
+        }
+        return l.keys[i];
+    }
+
+    private long ceilingKey(long key, boolean inclusive, long defaultKey) {
+        Leaf<V> l = leafFor(key);
+        if (l == null)
+            return defaultKey;
+        int i = ceilingIndex(l, key, inclusive);
+        if (i == l.n) {//本叶子中的键都更小，后继是下一个叶子的第一个键
+            if ((l = l.next) == null)
+                return defaultKey;
+            i = 0;
+        }
+        return l.keys[i];
+    }
+
+    /**
+     * Returns the index in l of the greatest key less than, or equal to if
+     * inclusive, the given key, which is -1 if all keys of l are greater.
+     */
+    static int floorIndex(Leaf<?> l, long key, boolean inclusive) {
+        int i = Arrays.binarySearch(l.keys, 0, l.n, key);
+        return (i >= 0) ? (inclusive ? i : i - 1) : -(i + 1) - 1;
+    }
+
+    /**
+     * Returns the index in l of the least key greater than, or equal to if
+     * inclusive, the given key, which is l.n if all keys of l are less.
+     */
+    static int ceilingIndex(Leaf<?> l, long key, boolean inclusive) {
+        int i = Arrays.binarySearch(l.keys, 0, l.n, key);
+        return (i >= 0) ? (inclusive ? i : i + 1) : -(i + 1);
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.  As in BTreeMap, a full leaf is split in half,
+     * except that appending past the last key leaves the last leaf full.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (root == null) {
+            Leaf<V> l = new Leaf<>();
+            l.keys[0] = key;
+            l.vals[0] = value;
+            l.n = 1;
+            root = first = last = l;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        Inner[] path = new Inner[height];
+        int[] pathIndex = new int[height];
+        Node x = root;
+        for (int h = 0; h < height; ++h) {//记录从根到叶子的路径，分裂时向上插入
+            Inner p = (Inner)x;
+            int ci = childIndex(p, key);
+            path[h] = p;
+            pathIndex[h] = ci;
+            x = p.children[ci];
+        }
+        Leaf<V> l = (Leaf<V>)x;
+        int i = Arrays.binarySearch(l.keys, 0, l.n, key);
+        if (i >= 0) {
+            V oldValue = (V)l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        size++;
+        modCount++;
+        if (l.n < NODE_CAPACITY) {
+            insertAt(l, i, key, value);
+            return null;
+        }
+        boolean append = (i == NODE_CAPACITY && l.next == null);//在最右的叶子末尾追加
+        Leaf<V> r = new Leaf<>();
+        int keep = append ? NODE_CAPACITY : MIN_FILL;
+        int moved = NODE_CAPACITY - keep;
+        System.arraycopy(l.keys, keep, r.keys, 0, moved);
+        System.arraycopy(l.vals, keep, r.vals, 0, moved);
+        Arrays.fill(l.vals, keep, NODE_CAPACITY, null);
+        l.n = keep;
+        r.n = moved;
+        if (i <= keep && !append)
+            insertAt(l, i, key, value);
+        else
+            insertAt(r, i - keep, key, value);
+        if ((r.next = l.next) == null)
+            last = r;
+        else
+            r.next.prev = r;
+        r.prev = l;
+        l.next = r;
+        insertChild(path, pathIndex, r.keys[0], r, append);
+        return null;
+    }
+
+    private static <V> void insertAt(Leaf<V> l, int i, long key, V value) {
+        int n = l.n;
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.n = n + 1;
+    }
+
+    /**
+     * Inserts child right with separator sep after the child at
+     * pathIndex[h] of path[h], for h from the bottom of the path up,
+     * splitting full inner nodes and growing a new root if needed.
+     */
+    private void insertChild(Inner[] path, int[] pathIndex, long sep,
+                             Node right, boolean append) {
+        for (int h = path.length - 1; h >= 0; --h) {
+            Inner p = path[h];
+            int ci = pathIndex[h] + 1;
+            append &= (ci == p.n);
+            if (p.n < NODE_CAPACITY) {
+                insertChildAt(p, ci, sep, right);
+                return;
+            }
+            // 内部结点已满，先在临时数组中插入，再分成两个结点，中间的分隔键提升到上一层
+            Node[] cs = new Node[NODE_CAPACITY + 1];
+            long[] ks = new long[NODE_CAPACITY];
+            System.arraycopy(p.children, 0, cs, 0, ci);
+            System.arraycopy(p.keys, 0, ks, 0, ci - 1);
+            cs[ci] = right;
+            ks[ci - 1] = sep;
+            System.arraycopy(p.children, ci, cs, ci + 1, NODE_CAPACITY - ci);
+            System.arraycopy(p.keys, ci - 1, ks, ci, NODE_CAPACITY - ci);
+            int keep = append ? NODE_CAPACITY : (NODE_CAPACITY + 1) / 2;
+            Inner q = new Inner();
+            System.arraycopy(cs, 0, p.children, 0, keep);
+            System.arraycopy(ks, 0, p.keys, 0, keep - 1);
+            Arrays.fill(p.children, keep, NODE_CAPACITY, null);
+            p.n = keep;
+            System.arraycopy(cs, keep, q.children, 0, NODE_CAPACITY + 1 - keep);
+            System.arraycopy(ks, keep, q.keys, 0, NODE_CAPACITY - keep);
+            q.n = NODE_CAPACITY + 1 - keep;
+            sep = ks[keep - 1];
+            right = q;
+        }
+        Inner newRoot = new Inner();//根结点分裂，树高加一
+        newRoot.children[0] = root;
+        newRoot.children[1] = right;
+        newRoot.keys[0] = sep;
+        newRoot.n = 2;
+        root = newRoot;
+        height++;
+    }
+
+    /**
+     * Inserts child at index ci >= 1 of p, with separator sep before it.
+     */
+    private static void insertChildAt(Inner p, int ci, long sep, Node child) {
+        int n = p.n;
+        System.arraycopy(p.children, ci, p.children, ci + 1, n - ci);
+        System.arraycopy(p.keys, ci - 1, p.keys, ci, n - ci);
+        p.children[ci] = child;
+        p.keys[ci - 1] = sep;
+        p.n = n + 1;
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (root == null)
+            return null;
+        Inner[] path = new Inner[height];
+        int[] pathIndex = new int[height];
+        Node x = root;
+        for (int h = 0; h < height; ++h) {
+            Inner p = (Inner)x;
+            int ci = childIndex(p, key);
+            path[h] = p;
+            pathIndex[h] = ci;
+            x = p.children[ci];
+        }
+        Leaf<V> l = (Leaf<V>)x;
+        int i = Arrays.binarySearch(l.keys, 0, l.n, key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)l.vals[i];
+        int n = l.n - 1;
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - i);
+        l.vals[n] = null;
+        l.n = n;
+        size--;
+        modCount++;
+        if (height == 0) {
+            if (n == 0)
+                root = first = last = null;
+        }
+        else if (n < MIN_FILL)
+            rebalance(path, pathIndex, height - 1);
+        return oldValue;
+    }
+
+    /**
+     * Restores the minimum fill of the child at pathIndex[h] of path[h],
+     * which has one entry too few, by taking one from a sibling or merging
+     * with it, and continues up the path if the parent is left with too
+     * few children.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebalance(Inner[] path, int[] pathIndex, int h) {
+        for (; h >= 0; --h) {
+            Inner p = path[h];
+            int ci = pathIndex[h];
+            Node x = p.children[ci];
+            // 优先与左兄弟调整，最左的子结点与右兄弟调整
+            int li = (ci > 0) ? ci - 1 : ci;
+            Node left = p.children[li], right = p.children[li + 1];
+            Node sibling = (left == x) ? right : left;
+            if (sibling.n > MIN_FILL) {
+                if (x instanceof Leaf)
+                    borrowLeaf(p, li, (Leaf<V>)left, (Leaf<V>)right, left == x);
+                else
+                    borrowInner(p, li, (Inner)left, (Inner)right, left == x);
+                return;
+            }
+            if (x instanceof Leaf)
+                mergeLeaves((Leaf<V>)left, (Leaf<V>)right);
+            else
+                mergeInner((Inner)left, p.keys[li], (Inner)right);
+            removeChildAt(p, li + 1);
+            if (h == 0) {
+                if (p.n == 1) {//根结点只剩一个子结点，树高减一
+                    root = p.children[0];
+                    height--;
+                }
+                return;
+            }
+            if (p.n >= MIN_FILL)
+                return;
+        }
+    }
+
+    /**
+     * Moves one entry between adjacent leaves, to the one that lacks it.
+     */
+    private static <V> void borrowLeaf(Inner p, int li, Leaf<V> left,
+                                       Leaf<V> right, boolean toLeft) {
+        if (toLeft) {//右兄弟的第一个键值对移到左边末尾
+            left.keys[left.n] = right.keys[0];
+            left.vals[left.n] = right.vals[0];
+            left.n++;
+            int n = --right.n;
+            System.arraycopy(right.keys, 1, right.keys, 0, n);
+            System.arraycopy(right.vals, 1, right.vals, 0, n);
+            right.vals[n] = null;
+        }
+        else {//左兄弟的最后一个键值对移到右边开头
+            int n = --left.n;
+            System.arraycopy(right.keys, 0, right.keys, 1, right.n);
+            System.arraycopy(right.vals, 0, right.vals, 1, right.n);
+            right.keys[0] = left.keys[n];
+            right.vals[0] = left.vals[n];
+            right.n++;
+            left.vals[n] = null;
+        }
+        p.keys[li] = right.keys[0];
+    }
+
+    /**
+     * Moves one child between adjacent inner nodes, rotating it through
+     * the separator in the parent.
+     */
+    private static void borrowInner(Inner p, int li, Inner left, Inner right,
+                                    boolean toLeft) {
+        if (toLeft) {
+            left.children[left.n] = right.children[0];
+            left.keys[left.n - 1] = p.keys[li];
+            left.n++;
+            p.keys[li] = right.keys[0];
+            int n = --right.n;
+            System.arraycopy(right.children, 1, right.children, 0, n);
+            System.arraycopy(right.keys, 1, right.keys, 0, n - 1);
+            right.children[n] = null;
+        }
+        else {
+            int n = --left.n;
+            System.arraycopy(right.children, 0, right.children, 1, right.n);
+            System.arraycopy(right.keys, 0, right.keys, 1, right.n - 1);
+            right.children[0] = left.children[n];
+            right.keys[0] = p.keys[li];
+            right.n++;
+            p.keys[li] = left.keys[n - 1];
+            left.children[n] = null;
+        }
+    }
+
+    /**
+     * Appends the entries of right to left and unlinks right.
+     */
+    private void mergeLeaves(Leaf<V> left, Leaf<V> right) {
+        System.arraycopy(right.keys, 0, left.keys, left.n, right.n);
+        System.arraycopy(right.vals, 0, left.vals, left.n, right.n);
+        left.n += right.n;
+        if ((left.next = right.next) == null)
+            last = left;
+        else
+            left.next.prev = left;
+    }
+
+    /**
+     * Appends the separator and the children of right to left.
+     */
+    private static void mergeInner(Inner left, long sep, Inner right) {
+        left.keys[left.n - 1] = sep;
+        System.arraycopy(right.children, 0, left.children, left.n, right.n);
+        System.arraycopy(right.keys, 0, left.keys, left.n, right.n - 1);
+        left.n += right.n;
+    }
+
+    /**
+     * Removes child ci >= 1 of p and the separator before it.
+     */
+    private static void removeChildAt(Inner p, int ci) {
+        int n = --p.n;
+        System.arraycopy(p.children, ci + 1, p.children, ci, n - ci);
+        System.arraycopy(p.keys, ci, p.keys, ci - 1, n - ci);
+        p.children[n] = null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = first = last = null;
+    }
+
+    /* ---------------- Cursors -------------- */
+
+    /**
+     * Returns a cursor over all the mappings of this map, in ascending key
+     * order.
+     *
+     * @return a cursor before the first mapping of this map
+     */
+    public Cursor<V> cursor() {
+        return new Cursor<>(this, first, -1, false, true, 0L, false);
+    }
+
+    /**
+     * Returns a cursor over the mappings of this map whose keys range from
+     * {@code fromKey} to {@code toKey}, in ascending key order.
+     *
+     * @param fromKey low endpoint of the keys
+     * @param fromInclusive {@code true} if the low endpoint is included
+     * @param toKey high endpoint of the keys
+     * @param toInclusive {@code true} if the high endpoint is included
+     * @return a cursor before the first mapping of the range
+     */
+    public Cursor<V> cursor(long fromKey, boolean fromInclusive,
+                            long toKey, boolean toInclusive) {
+        Leaf<V> l = leafFor(fromKey);
+        int i = -1;
+        if (l != null) {
+            i = ceilingIndex(l, fromKey, fromInclusive) - 1;//游标位于第一个键之前
+            if (i == l.n - 1) {
+                l = l.next;
+                i = -1;
+            }
+        }
+        return new Cursor<>(this, l, i, false, false, toKey, toInclusive);
+    }
+
+    /**
+     * Returns a cursor over all the mappings of this map, in descending
+     * key order.
+     *
+     * @return a cursor before the last mapping of this map
+     */
+    public Cursor<V> descendingCursor() {
+        Leaf<V> l = last;
+        return new Cursor<>(this, l, (l == null) ? 0 : l.n, true, true, 0L, false);
+    }
+
+    /**
+     * Returns a cursor over the mappings of this map whose keys range from
+     * {@code fromKey} down to {@code toKey}, in descending key order.
+     *
+     * @param fromKey high endpoint of the keys
+     * @param fromInclusive {@code true} if the high endpoint is included
+     * @param toKey low endpoint of the keys
+     * @param toInclusive {@code true} if the low endpoint is included
+     * @return a cursor before the first mapping of the range
+     */
+    public Cursor<V> descendingCursor(long fromKey, boolean fromInclusive,
+                                      long toKey, boolean toInclusive) {
+        Leaf<V> l = leafFor(fromKey);
+        int i = 0;
+        if (l != null) {
+            i = floorIndex(l, fromKey, fromInclusive) + 1;
+            if (i == 0) {
+                l = l.prev;
+                i = (l == null) ? 0 : l.n;
+            }
+        }
+        return new Cursor<>(this, l, i, true, false, toKey, toInclusive);
+    }
+
+    /**
+     * A position among the mappings of a {@code LongTreeMap}, moved over
+     * a range of keys in ascending or descending order.  A cursor starts
+     * before the first mapping of its range:
+     * <pre> {@code
+     * for (LongTreeMap.Cursor<V> c = map.cursor(from, true, to, false); c.next(); )
+     *     process(c.key(), c.value());}</pre>
+     *
+     * @param <V> the type of mapped values
+     */
+    public static final class Cursor<V> {
+        private final LongTreeMap<V> map;
+        private Leaf<V> leaf;
+        private int index;
+        private final boolean descending;
+        private final boolean toEnd;
+        private final long fence;
+        private final boolean fenceInclusive;
+        private boolean valid;
+        private int expectedModCount;
+
+        Cursor(LongTreeMap<V> map, Leaf<V> leaf, int index, boolean descending,
+               boolean toEnd, long fence, boolean fenceInclusive) {
+            this.map = map;
+            this.leaf = leaf;
+            this.index = index;
+            this.descending = descending;
+            this.toEnd = toEnd;
+            this.fence = fence;
+            this.fenceInclusive = fenceInclusive;
+            this.expectedModCount = map.modCount;
+        }
+
+        /**
+         * Moves to the next mapping of the range.
+         *
+         * @return {@code true} if the cursor is now at a mapping, or
+         *         {@code false} if the range is exhausted
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was created
+         */
+        public boolean next() {
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Leaf<V> l = leaf;
+            if (l == null)
+                return valid = false;
+            int i = index;
+            if (descending) {
+                if (--i < 0) {
+                    if ((l = l.prev) == null)
+                        return valid = false;
+                    i = l.n - 1;
+                }
+            } else if (++i == l.n) {
+                if ((l = l.next) == null)
+                    return valid = false;
+                i = 0;
+            }
+            leaf = l;
+            index = i;
+            if (!toEnd) {
+                long k = l.keys[i];
+                if (descending ? (k < fence || (k == fence && !fenceInclusive))
+                               : (k > fence || (k == fence && !fenceInclusive))) {
+                    leaf = null;
+                    return valid = false;
+                }
+            }
+            return valid = true;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @throws IllegalStateException if the cursor is not at a mapping
+         */
+        public long key() {
+            if (!valid)
+                throw new IllegalStateException();
+            return leaf.keys[index];
+        }
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @throws IllegalStateException if the cursor is not at a mapping
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            if (!valid)
+                throw new IllegalStateException();
+            return (V)leaf.vals[index];
+        }
+
+        /**
+         * Replaces the value of the current mapping, which is not a
+         * structural modification.
+         *
+         * @return the previous value
+         * @throws IllegalStateException if the cursor is not at a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was created
+         */
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            if (!valid)
+                throw new IllegalStateException();
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            V oldValue = (V)leaf.vals[index];
+            leaf.vals[index] = value;
+            return oldValue;
+        }
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also a {@code LongTreeMap} and
+     * the two maps have the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongTreeMap))
+            return false;
+        LongTreeMap<?> m = (LongTreeMap<?>) o;
+        if (m.size != size)
+            return false;
+        Leaf<?> a = first, b = m.first;
+        int i = 0, j = 0;
+        for (int k = 0; k < size; ++k, ++i, ++j) {//两边的叶子划分可能不同，分别移动
+            if (i == a.n) {
+                a = a.next;
+                i = 0;
+            }
+            if (j == b.n) {
+                b = b.next;
+                j = 0;
+            }
+            if (a.keys[i] != b.keys[j] || !valEquals(a.vals[i], b.vals[j]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, the sum of
+     * {@code Long.hashCode(key) ^ Objects.hashCode(value)} over its
+     * mappings, which is also the hash code of a {@code Map<Long,V>} with
+     * the same mappings.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        for (Leaf<V> l = first; l != null; l = l.next)
+            for (int i = 0; i < l.n; ++i)
+                h += Long.hashCode(l.keys[i]) ^ Objects.hashCode(l.vals[i]);
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the format of
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (Leaf<V> l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                Object value = l.vals[i];
+                sb.append(l.keys[i]).append('=')
+                  .append(value == this ? "(this Map)" : value);
+                if (i + 1 < l.n || l.next != null)
+                    sb.append(',').append(' ');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code LongTreeMap} instance. (The
+     * values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        LongTreeMap<?> clone;
+        try {
+            clone = (LongTreeMap<?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        clone.modCount = 0;
+        try {
+            clone.buildFromSorted(size, first, null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+        return clone;
+    }
+
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Save the state of the {@code LongTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the LongTreeMap (the number of
+     *             key-value mappings) is emitted (int), followed by the
+     *             key (long) and value (Object) for each key-value mapping
+     *             represented by the LongTreeMap. The key-value mappings
+     *             are emitted in key-order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Leaf<V> l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                s.writeLong(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code LongTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+        buildFromSorted(size, null, s);
+    }
+
+    /**
+     * Builds the tree from sorted data in linear time, as
+     * BTreeMap.buildFromSorted does, spreading the n mappings evenly over
+     * ceil(n/NODE_CAPACITY) leaves and each level of inner nodes the same
+     * way over the level below.  The mappings are read either from the
+     * leaves of another map starting at src, or from the stream.
+     */
+    private void buildFromSorted(int size, Leaf<?> src,
+                                 java.io.ObjectInputStream str)
+        throws java.io.IOException, ClassNotFoundException {
+        this.size = size;
+        root = first = last = null;
+        height = 0;
+        if (size == 0)
+            return;
+        int count = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        Node[] level = new Node[count];
+        long[] lowKeys = new long[count];//每个结点子树中的最小键，用作上一层的分隔键
+        Leaf<V> prev = null;
+        int si = 0;
+        for (int j = 0, done = 0; j < count; ++j) {
+            Leaf<V> l = new Leaf<>();
+            int n = (int)((long)size * (j + 1) / count) - done;
+            for (int i = 0; i < n; ++i) {
+                if (src != null) {
+                    if (si == src.n) {
+                        src = src.next;
+                        si = 0;
+                    }
+                    l.keys[i] = src.keys[si];
+                    l.vals[i] = src.vals[si++];
+                } else {
+                    l.keys[i] = str.readLong();
+                    l.vals[i] = str.readObject();
+                }
+            }
+            l.n = n;
+            done += n;
+            if ((l.prev = prev) == null)
+                first = l;
+            else
+                prev.next = l;
+            prev = l;
+            level[j] = l;
+            lowKeys[j] = l.keys[0];
+        }
+        last = prev;
+        while (count > 1) {//逐层向上构建内部结点
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            Node[] upper = new Node[parents];
+            long[] upperKeys = new long[parents];
+            for (int j = 0, done = 0; j < parents; ++j) {
+                Inner p = new Inner();
+                int n = (int)((long)count * (j + 1) / parents) - done;
+                System.arraycopy(level, done, p.children, 0, n);
+                System.arraycopy(lowKeys, done + 1, p.keys, 0, n - 1);
+                p.n = n;
+                upper[j] = p;
+                upperKeys[j] = lowKeys[done];
+                done += n;
+            }
+            level = upper;
+            lowKeys = upperKeys;
+            count = parents;
+            height++;
+        }
+        root = level[0];
+    }
+}
@@ -0,0 +1,498 @@
+package java.util;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash table from byte sequences to byte sequences whose contents live
+ * outside the Java heap.  The slot table and every mapping are allocated
+ * with <tt>sun.misc.Unsafe.allocateMemory</tt>, so the garbage collector
+ * neither scans nor copies them, and the pause time of a collection does
+ * not grow with the number or size of mappings.  The only heap objects are
+ * the map itself and the arrays returned by the accessors.
+ *
+ * <p>The slot table is two off-heap arrays of capacity elements: the
+ * spread hash of each key (an <tt>int</tt>) and the address of its record
+ * (a <tt>long</tt>, 0 for an empty slot).  Collisions are resolved by
+ * linear probing and removals use backward-shift deletion, as in
+ * {@link OpenHashMap}.  Each record is laid out as
+ * <pre>
+ *   int hash | int keyLength | int valueLength | key bytes | value bytes
+ * </pre>
+ * The table doubles, like that of {@link HashMap}, when the number of
+ * mappings exceeds capacity * load factor; records are not moved.
+ *
+ * <p>Memory held by the map is <b>not</b> reclaimed by the garbage
+ * collector: {@link #close} must be called when the map is no longer
+ * needed, after which every other method throws
+ * {@link IllegalStateException}.  Neither keys nor values may be
+ * <tt>null</tt>.  Keys and values are always copied in and out, so later
+ * changes to the arrays passed or returned do not affect the map.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * A map used by several threads must be synchronized externally, and must
+ * not be closed while another thread may still use it.
+ *
+ * @see HashMap
+ * @see OpenHashMap
+ */
+public class OffHeapHashMap implements Closeable {
+
+    /**
+     * Record header: hash, key length and value length.
+     */
+    static final int HEADER = 12;
+
+    /**
+     * Address of the int hash array of the slot table.
+     */
+    private long hashes;
+
+    /**
+     * Address of the long record address array of the slot table.
+     */
+    private long addrs;
+
+    /**
+     * Number of slots, a power of two; 0 once closed.
+     */
+    private int capacity;
+
+    /**
+     * The number of mappings.
+     */
+    private int size;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     */
+    private int threshold;
+
+    /**
+     * Bytes allocated for records, excluding the slot table.
+     */
+    private long recordBytes;
+
+    /**
+     * The load factor for the slot table.
+     */
+    private final float loadFactor;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, in (0, 1)
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in (0, 1)
+     */
+    public OffHeapHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocateTable(OpenHashMap.capacityFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public OffHeapHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public OffHeapHashMap() {
+        this(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Allocates and clears a slot table of cap slots.
+     */
+    private void allocateTable(int cap) {
+        long h = U.allocateMemory((long)cap << 2);
+        long a;
+        try {
+            a = U.allocateMemory((long)cap << 3);
+        } catch (OutOfMemoryError e) {
+            U.freeMemory(h);
+            throw e;
+        }
+        U.setMemory(a, (long)cap << 3, (byte)0);//地址为0表示空槽
+        hashes = h;
+        addrs = a;
+        capacity = cap;
+        float ft = (float)cap * loadFactor;
+        threshold = Math.min((int)ft, cap - 1);
+    }
+
+    /**
+     * Computes the hash of a key as Arrays.hashCode(byte[]) does, spread
+     * as in HashMap.hash().
+     */
+    static int hash(byte[] key) {
+        int h = 1;
+        for (byte b : key)
+            h = 31 * h + b;
+        return h ^ (h >>> 16);
+    }
+
+    private void ensureOpen() {
+        if (capacity == 0)
+            throw new IllegalStateException("Map is closed");
+    }
+
+    private int hashAt(int i)  { return U.getInt(hashes + ((long)i << 2)); }
+    private long addrAt(int i) { return U.getLong(addrs + ((long)i << 3)); }
+
+    private void setSlot(int i, int h, long a) {
+        U.putInt(hashes + ((long)i << 2), h);
+        U.putLong(addrs + ((long)i << 3), a);
+    }
+
+    /**
+     * Returns true if the record at address a has the given key.
+     */
+    private static boolean keyEquals(long a, byte[] key) {
+        int len = key.length;
+        if (U.getInt(a + 4) != len)
+            return false;
+        long p = a + HEADER;
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {//每次比较8个字节
+            if (U.getLong(p + i) != U.getLong(key, BYTE_BASE + i))
+                return false;
+        }
+        for (; i < len; ++i) {
+            if (U.getByte(p + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the slot of the key, or -1 if none.
+     */
+    private int findSlot(byte[] key, int h) {
+        int mask = capacity - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            long a = addrAt(i);
+            if (a == 0L)
+                return -1;
+            if (hashAt(i) == h && keyEquals(a, key))
+                return i;
+        }
+    }
+
+    /**
+     * Copies the value of the record at address a into a new array.
+     */
+    private static byte[] valueOf(long a) {
+        int klen = U.getInt(a + 4), vlen = U.getInt(a + 8);
+        byte[] v = new byte[vlen];
+        U.copyMemory(null, a + HEADER + klen, v, BYTE_BASE, vlen);
+        return v;
+    }
+
+    private static long recordSize(int klen, int vlen) {
+        return (long)HEADER + klen + vlen;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no mappings.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of off-heap bytes held by this map: the slot table
+     * plus all records.
+     */
+    public long offHeapBytes() {
+        return (long)capacity * 12L + recordBytes;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the key.
+     *
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public boolean containsKey(byte[] key) {
+        ensureOpen();
+        return findSlot(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Returns a copy of the value to which the key is mapped, or
+     * <tt>null</tt> if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public byte[] get(byte[] key) {
+        ensureOpen();
+        int i = findSlot(key, hash(key));
+        return (i < 0) ? null : valueOf(addrAt(i));
+    }
+
+    /**
+     * Returns a copy of the value to which the remaining bytes of the key
+     * buffer are mapped, or <tt>null</tt>.  The buffer's position is not
+     * changed.
+     *
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public byte[] get(ByteBuffer key) {
+        return get(bytesOf(key));
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @return a copy of the previous value, or <tt>null</tt> if there was
+     *         no mapping for the key
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public byte[] put(byte[] key, byte[] value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * Associates the remaining bytes of the value buffer with the remaining
+     * bytes of the key buffer.  The positions of the buffers are not
+     * changed.
+     *
+     * @return a copy of the previous value, or <tt>null</tt>
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public byte[] put(ByteBuffer key, ByteBuffer value) {
+        return putVal(bytesOf(key), bytesOf(value), false);
+    }
+
+    /**
+     * Associates the value with the key unless the key is already mapped.
+     *
+     * @return a copy of the current value, or <tt>null</tt> if the value
+     *         was added
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public byte[] putIfAbsent(byte[] key, byte[] value) {
+        return putVal(key, value, true);
+    }
+
+    private static byte[] bytesOf(ByteBuffer b) {
+        byte[] a = new byte[b.remaining()];
+        b.duplicate().get(a);
+        return a;
+    }
+
+    private byte[] putVal(byte[] key, byte[] value, boolean onlyIfAbsent) {
+        if (value == null)
+            throw new NullPointerException();
+        ensureOpen();
+        int h = hash(key);
+        int i = findSlot(key, h);
+        byte[] oldValue = null;
+        long old = 0L;
+        if (i >= 0) {
+            old = addrAt(i);
+            oldValue = valueOf(old);
+            if (onlyIfAbsent)
+                return oldValue;
+            if (U.getInt(old + 8) == value.length) {//长度相同时直接覆盖原有的值
+                U.copyMemory(value, BYTE_BASE, null,
+                             old + HEADER + key.length, value.length);
+                return oldValue;
+            }
+        }
+        else if (size >= threshold) {
+            resize();
+        }
+        long a = U.allocateMemory(recordSize(key.length, value.length));
+        U.putInt(a, h);
+        U.putInt(a + 4, key.length);
+        U.putInt(a + 8, value.length);
+        U.copyMemory(key, BYTE_BASE, null, a + HEADER, key.length);
+        U.copyMemory(value, BYTE_BASE, null, a + HEADER + key.length, value.length);
+        recordBytes += recordSize(key.length, value.length);
+        if (i >= 0) {
+            setSlot(i, h, a);
+            freeRecord(old);
+        }
+        else {
+            int mask = capacity - 1;
+            i = h & mask;
+            while (addrAt(i) != 0L)
+                i = (i + 1) & mask;
+            setSlot(i, h, a);
+            ++size;
+        }
+        return oldValue;
+    }
+
+    private void freeRecord(long a) {
+        recordBytes -= recordSize(U.getInt(a + 4), U.getInt(a + 8));
+        U.freeMemory(a);
+    }
+
+    /**
+     * Doubles the slot table.  Records keep their addresses; only the slot
+     * entries are reinserted, using the hashes stored in the table.
+     */
+    private void resize() {
+        int oldCap = capacity;
+        if (oldCap >= HashMap.MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Capacity exhausted.");
+        long oldHashes = hashes, oldAddrs = addrs;
+        allocateTable(oldCap << 1);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldCap; ++j) {
+            long a = U.getLong(oldAddrs + ((long)j << 3));
+            if (a != 0L) {
+                int h = U.getInt(oldHashes + ((long)j << 2));
+                int i = h & mask;
+                while (addrAt(i) != 0L)
+                    i = (i + 1) & mask;
+                setSlot(i, h, a);
+            }
+        }
+        U.freeMemory(oldHashes);
+        U.freeMemory(oldAddrs);
+    }
+
+    /**
+     * Removes the mapping for the key if present.
+     *
+     * @return a copy of the previous value, or <tt>null</tt> if there was
+     *         no mapping for the key
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public byte[] remove(byte[] key) {
+        ensureOpen();
+        int i = findSlot(key, hash(key));
+        if (i < 0)
+            return null;
+        long a = addrAt(i);
+        byte[] oldValue = valueOf(a);
+        removeAt(i);
+        freeRecord(a);
+        return oldValue;
+    }
+
+    /**
+     * Clears slot i by backward-shift deletion, as in OpenHashMap.removeAt.
+     */
+    private void removeAt(int i) {
+        int mask = capacity - 1;
+        long a;
+        for (int j = (i + 1) & mask; (a = addrAt(j)) != 0L; j = (j + 1) & mask) {
+            int h = hashAt(j);
+            if (((j - (h & mask)) & mask) >= ((j - i) & mask)) {
+                setSlot(i, h, a);
+                i = j;
+            }
+        }
+        setSlot(i, 0, 0L);
+        --size;
+    }
+
+    /**
+     * Frees every record and empties the map.  The slot table is kept.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    public void clear() {
+        ensureOpen();
+        freeRecords();
+        U.setMemory(addrs, (long)capacity << 3, (byte)0);
+        size = 0;
+    }
+
+    private void freeRecords() {
+        for (int i = 0; i < capacity; ++i) {
+            long a = addrAt(i);
+            if (a != 0L)
+                U.freeMemory(a);
+        }
+        recordBytes = 0L;
+    }
+
+    /**
+     * Performs the given action on a copy of each key and value.
+     *
+     * @throws IllegalStateException if the map has been closed
+     * @throws ConcurrentModificationException if the action adds or removes
+     *         mappings
+     */
+    public void forEach(BiConsumer<? super byte[], ? super byte[]> action) {
+        if (action == null)
+            throw new NullPointerException();
+        ensureOpen();
+        int s = size;
+        long t = addrs;
+        for (int i = 0; i < capacity; ++i) {
+            long a = addrAt(i);
+            if (a != 0L) {
+                int klen = U.getInt(a + 4);
+                byte[] k = new byte[klen];
+                U.copyMemory(null, a + HEADER, k, BYTE_BASE, klen);
+                action.accept(k, valueOf(a));
+                if (size != s || addrs != t)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Frees all off-heap memory held by this map.  Calling this method more
+     * than once has no effect.
+     */
+    public void close() {
+        if (capacity != 0) {
+            freeRecords();
+            U.freeMemory(hashes);
+            U.freeMemory(addrs);
+            hashes = addrs = 0L;
+            capacity = size = threshold = 0;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long BYTE_BASE;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            BYTE_BASE = U.arrayBaseOffset(byte[].class);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
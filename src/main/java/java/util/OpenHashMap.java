@@ -0,0 +1,715 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing implementation of the <tt>Map</tt> interface.  Unlike
+ * {@link HashMap}, which chains <tt>Node</tt> objects off a bucket array,
+ * this class keeps keys and values in two parallel arrays and resolves
+ * collisions by linear probing, so a lookup touches one or two adjacent
+ * cache lines instead of following <tt>next</tt> pointers, and no per-entry
+ * object is allocated.
+ *
+ * <p>Every slot has a one-byte <i>control</i> word in a separate
+ * <tt>ctrl</tt> array: either {@code EMPTY}, or a 7-bit tag taken from the
+ * high bits of the key's hash.  Probes scan the control bytes and only call
+ * {@code equals} on slots whose tag matches, which filters out nearly all
+ * false candidates without touching the key array.  Removal uses
+ * backward-shift deletion, so the table never contains tombstones and probe
+ * sequences stay as short as they were at insertion time.
+ *
+ * <p>Keys are hashed with {@link HashMap#hash} and the capacity is always a
+ * power of two computed by {@link HashMap#tableSizeFor}, so this class can
+ * replace <tt>HashMap</tt> without changing how keys are spread.  It permits
+ * <tt>null</tt> values and the <tt>null</tt> key.  Because the table must
+ * always contain at least one empty slot, the load factor has to be less
+ * than 1.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by all of this class's "collection view methods"
+ * are <i>fail-fast</i> in the same sense as those of <tt>HashMap</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see HashMap
+ */
+public class OpenHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -3391256470928714613L;
+
+    /**
+     * Control byte of a slot that holds no mapping.  Tags of occupied slots
+     * are always in [0, 127].
+     */
+    static final byte EMPTY = (byte)0x80;
+
+    /**
+     * Value representing null keys inside the key array.
+     */
+    static final Object NULL_KEY = new Object();
+
+    /**
+     * The smallest table length, so that small maps still have room for an
+     * empty slot after resizing.
+     */
+    static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * Control bytes, one per slot, EMPTY or the tag of the resident key.
+     */
+    transient byte[] ctrl;
+
+    /**
+     * Keys, with null stored as NULL_KEY.
+     */
+    transient Object[] keys;
+
+    /**
+     * Values, parallel to keys.
+     */
+    transient Object[] vals;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * Before the table is allocated holds the initial table length.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, in (0, 1)
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in (0, 1)
+     */
+    public OpenHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = capacityFor(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public OpenHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public OpenHashMap() {
+        this(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public OpenHashMap(Map<? extends K, ? extends V> m) {
+        this(m.size(), HashMap.DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    /**
+     * Returns the table length needed to hold mappings entries without
+     * resizing.
+     */
+    static int capacityFor(int mappings, float loadFactor) {
+        float fc = (float)mappings / loadFactor + 1.0f;
+        int cap = HashMap.tableSizeFor((fc < (float)HashMap.MAXIMUM_CAPACITY) ?
+                                       (int)fc : HashMap.MAXIMUM_CAPACITY);
+        return Math.max(cap, MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Tag of a hash: its top 7 bits, the low bits being used for the index.
+     */
+    static byte tag(int hash) {
+        return (byte)(hash >>> 25);
+    }
+
+    static Object maskNull(Object key) {
+        return (key == null ? NULL_KEY : key);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K> K unmaskNull(Object key) {
+        return (key == NULL_KEY ? null : (K)key);
+    }
+
+    static int hashOf(Object k) {
+        return HashMap.hash(k == NULL_KEY ? null : k);
+    }
+
+    /**
+     * Returns the slot of the mapping for key, or -1 if none.
+     */
+    final int findSlot(Object key) {
+        byte[] c = ctrl;
+        if (c == null || size == 0)
+            return -1;
+        Object k = maskNull(key);
+        int h = HashMap.hash(key);
+        byte t = tag(h);
+        Object[] ks = keys;
+        int mask = c.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            byte b = c[i];
+            if (b == EMPTY)
+                return -1;//遇到空槽说明不存在该key
+            Object x;
+            if (b == t && ((x = ks[i]) == k || k.equals(x)))
+                return i;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = findSlot(key);
+        return (i < 0) ? null : (V)vals[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i = findSlot(key);
+        return (i < 0) ? defaultValue : (V)vals[i];
+    }
+
+    public boolean containsKey(Object key) {
+        return findSlot(key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        byte[] c = ctrl;
+        if (c != null && size > 0) {
+            Object[] vs = vals;
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] != EMPTY && Objects.equals(value, vs[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V putVal(Object key, V value, boolean onlyIfAbsent) {
+        if (ctrl == null)
+            resize();
+        Object k = maskNull(key);
+        int h = HashMap.hash(key);
+        byte t = tag(h);
+        byte[] c = ctrl;
+        Object[] ks = keys;
+        int mask = c.length - 1;
+        int i = h & mask;
+        for (byte b; (b = c[i]) != EMPTY; i = (i + 1) & mask) {
+            Object x;
+            if (b == t && ((x = ks[i]) == k || k.equals(x))) {
+                V oldValue = (V)vals[i];
+                if (!onlyIfAbsent || oldValue == null)
+                    vals[i] = value;
+                return oldValue;
+            }
+        }
+        if (size >= threshold) {//只在确实插入时扩容，覆盖已有的键不会改变表的大小
+            resize();
+            c = ctrl;
+            ks = keys;
+            mask = c.length - 1;
+            for (i = h & mask; c[i] != EMPTY; i = (i + 1) & mask)
+                ;
+        }
+        c[i] = t;//放入探测到的第一个空槽
+        ks[i] = k;
+        vals[i] = value;
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    /**
+     * Initializes or doubles the table.  Mappings are reinserted in slot
+     * order, which keeps every probe sequence as short as possible.
+     */
+    final void resize() {
+        byte[] oldCtrl = ctrl;
+        Object[] oldKeys = keys, oldVals = vals;
+        int newCap;
+        if (oldCtrl == null)
+            newCap = threshold;
+        else {
+            if (oldCtrl.length >= HashMap.MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Capacity exhausted.");
+            newCap = oldCtrl.length << 1;
+        }
+        byte[] c = new byte[newCap];
+        Arrays.fill(c, EMPTY);
+        Object[] ks = new Object[newCap], vs = new Object[newCap];
+        int mask = newCap - 1;
+        if (oldCtrl != null) {
+            for (int j = 0; j < oldCtrl.length; ++j) {
+                byte b;
+                if ((b = oldCtrl[j]) != EMPTY) {
+                    Object k = oldKeys[j];
+                    int i = hashOf(k) & mask;
+                    while (c[i] != EMPTY)
+                        i = (i + 1) & mask;
+                    c[i] = b;
+                    ks[i] = k;
+                    vs[i] = oldVals[j];
+                }
+            }
+        }
+        float ft = (float)newCap * loadFactor;
+        threshold = Math.min((int)ft, newCap - 1);
+        ctrl = c;
+        keys = ks;
+        vals = vs;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i = findSlot(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping in slot i by backward-shift deletion: each later
+     * mapping of the same cluster that may legally occupy the hole is moved
+     * into it, until an empty slot ends the cluster.  Mappings only ever
+     * move towards their home slot, and never across an empty slot.
+     */
+    final void removeAt(int i) {
+        byte[] c = ctrl;
+        Object[] ks = keys, vs = vals;
+        int mask = c.length - 1;
+        for (int j = (i + 1) & mask; c[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hashOf(ks[j]) & mask;
+            // j处的结点可以前移到i，当且仅当它的起始位置home不在(i, j]的环形区间内
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                c[i] = c[j];
+                ks[i] = ks[j];
+                vs[i] = vs[j];
+                i = j;
+            }
+        }
+        c[i] = EMPTY;
+        ks[i] = null;
+        vs[i] = null;
+        --size;
+        ++modCount;
+    }
+
+    public void clear() {
+        if (ctrl != null && size > 0) {
+            ++modCount;
+            size = 0;
+            Arrays.fill(ctrl, EMPTY);
+            Arrays.fill(keys, null);
+            Arrays.fill(vals, null);
+        }
+    }
+
+    public void putAll(Map<? extends K, ? extends V> m) {
+        int s = m.size();
+        if (s == 0)
+            return;
+        if (ctrl == null)
+            threshold = Math.max(threshold, capacityFor(s, loadFactor));
+        else {
+            while (size + s > threshold &&
+                   ctrl.length < HashMap.MAXIMUM_CAPACITY)
+                resize();
+        }
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            putVal(e.getKey(), e.getValue(), false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        byte[] c = ctrl;
+        if (c != null && size > 0) {
+            int mc = modCount;
+            for (int i = 0; i < c.length && modCount == mc; ++i) {
+                if (c[i] != EMPTY)
+                    action.accept((K)unmaskNull(keys[i]), (V)vals[i]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        byte[] c = ctrl;
+        if (c != null && size > 0) {
+            int mc = modCount;
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] != EMPTY)
+                    vals[i] = function.apply((K)unmaskNull(keys[i]), (V)vals[i]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        OpenHashMap<K,V> result;
+        try {
+            result = (OpenHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        if (ctrl != null) {
+            result.ctrl = ctrl.clone();
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    /**
+     * Walks the slots downwards, starting just below an empty slot.  A
+     * backward-shift deletion only moves mappings from slots already
+     * visited into the removed slot, and cannot cross the empty starting
+     * slot, so <tt>Iterator.remove</tt> neither skips nor repeats mappings.
+     */
+    abstract class OpenIterator {
+        int next = -1;         // slot of next mapping to return
+        int current = -1;      // slot of last returned mapping
+        int index;             // last slot examined
+        int remaining;         // slots left to examine
+        int expectedModCount;  // for fast-fail
+
+        OpenIterator() {
+            expectedModCount = modCount;
+            byte[] c = ctrl;
+            if (c != null && size > 0) {
+                int s = 0;
+                while (c[s] != EMPTY)
+                    ++s;//找到一个空槽作为起点，负载因子小于1保证一定存在
+                index = s;
+                remaining = c.length - 1;
+                next = advance();
+            }
+        }
+
+        private int advance() {
+            byte[] c = ctrl;
+            int mask = c.length - 1;
+            while (remaining > 0) {
+                index = (index - 1) & mask;
+                --remaining;
+                if (c[index] != EMPTY)
+                    return index;
+            }
+            return -1;
+        }
+
+        public final boolean hasNext() {
+            return next >= 0;
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i < 0)
+                throw new NoSuchElementException();
+            current = i;
+            next = advance();
+            return i;
+        }
+
+        public final void remove() {
+            int i = current;
+            if (i < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            removeAt(i);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends OpenIterator implements Iterator<K> {
+        public final K next() { return unmaskNull(keys[nextSlot()]); }
+    }
+
+    final class ValueIterator extends OpenIterator implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V)vals[nextSlot()]; }
+    }
+
+    final class EntryIterator extends OpenIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return new Entry(nextSlot()); }
+    }
+
+    /**
+     * Entry view of a slot.  setValue writes through to the map as long as
+     * the slot still holds the key; once the mapping has been moved or
+     * removed it only changes this entry, like a node removed from a
+     * <tt>HashMap</tt>.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final K key;
+        V value;
+        final int slot;
+
+        @SuppressWarnings("unchecked")
+        Entry(int slot) {
+            this.slot = slot;
+            this.key = unmaskNull(keys[slot]);
+            this.value = (V)vals[slot];
+        }
+
+        public K getKey()   { return key; }
+        public V getValue() { return value; }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            if (ctrl != null && slot < ctrl.length && ctrl[slot] != EMPTY &&
+                keys[slot] == maskNull(key))
+                vals[slot] = value;//否则键值对已被移动或删除，不再写回
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Objects.equals(key, e.getKey()) &&
+                Objects.equals(value, e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // views
+
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { OpenHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int i = findSlot(key);
+            if (i < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            OpenHashMap.this.forEach((k, v) -> action.accept(k));
+        }
+    }
+
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { OpenHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            OpenHashMap.this.forEach((k, v) -> action.accept(v));
+        }
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { OpenHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            int i = findSlot(e.getKey());
+            return i >= 0 && Objects.equals(vals[i], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                int i = findSlot(e.getKey());
+                if (i >= 0 && Objects.equals(vals[i], e.getValue())) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Save the state of the map to a stream.
+     *
+     * @serialData The <i>size</i> (an int, the number of key-value
+     *             mappings), followed by the key (Object) and value
+     *             (Object) for each key-value mapping, in no particular
+     *             order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        byte[] c = ctrl;
+        if (c != null && size > 0) {
+            for (int i = 0; i < c.length; ++i) {
+                if (c[i] != EMPTY) {
+                    s.writeObject(unmaskNull(keys[i]));
+                    s.writeObject(vals[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        threshold = capacityFor(mappings, loadFactor);
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            putVal(key, value, false);
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing implementation of the <tt>Set</tt> interface.  Unlike
+ * {@link HashSet}, which stores each element as a key of a
+ * <tt>HashMap</tt> with a shared dummy value, this class keeps the elements
+ * themselves in one array and resolves collisions by linear probing, so no
+ * <tt>Node</tt> object or value reference is allocated per element.
+ * Removal uses backward-shift deletion, so the table never contains
+ * tombstones.
+ *
+ * <p>Elements are hashed with {@link HashMap#hash} and the capacity is
+ * always a power of two, as in <tt>HashSet</tt>.  This class permits the
+ * <tt>null</tt> element.  Because the table must always contain at least
+ * one empty slot, the load factor has to be less than 1.
+ *
+ * <p>Elements with equal hash codes all fall into one probe run, and
+ * unlike <tt>HashMap</tt> this class does not convert crowded runs into
+ * trees: adding <i>n</i> such elements takes time quadratic in <i>n</i>.
+ * Use <tt>HashSet</tt> for elements whose hash codes may be chosen by an
+ * adversary, such as strings read from a request.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by this class's <tt>iterator</tt> method are
+ * <i>fail-fast</i> in the same sense as those of <tt>HashSet</tt>.
+ *
+ * @param <E> the type of elements maintained by this set
+ *
+ * @see HashSet
+ * @see OpenHashMap
+ */
+public class OpenHashSet<E> extends AbstractSet<E>
+    implements Set<E>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 4829350916024731187L;
+
+    /**
+     * Value representing the null element inside the table.
+     */
+    static final Object NULL_ELEMENT = new Object();
+
+    /**
+     * The slots, null when empty, allocated on first insertion.  Length is
+     * always a power of two.
+     */
+    transient Object[] table;
+
+    /**
+     * The number of elements in the table.
+     */
+    transient int size;
+
+    /**
+     * The number of times this set has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * Before the table is allocated holds the initial table length.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty set with the specified initial capacity and load
+     * factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, in (0, 1)
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in (0, 1)
+     */
+    public OpenHashSet(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = OpenHashMap.capacityFor(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Constructs an empty set with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public OpenHashSet(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public OpenHashSet() {
+        this(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new set containing the elements in the specified
+     * collection.
+     *
+     * @param c the collection whose elements are to be placed into this set
+     * @throws NullPointerException if the specified collection is null
+     */
+    public OpenHashSet(Collection<? extends E> c) {
+        this(c.size(), HashMap.DEFAULT_LOAD_FACTOR);
+        for (E e : c)
+            addElement(e);
+    }
+
+    static int hashOf(Object x) {
+        return HashMap.hash(x == NULL_ELEMENT ? null : x);
+    }
+
+    /**
+     * Returns the slot holding o, or -1 if none.
+     */
+    final int findSlot(Object o) {
+        Object[] tab = table;
+        if (tab == null || size == 0)
+            return -1;
+        Object k = (o == null) ? NULL_ELEMENT : o;
+        int mask = tab.length - 1;
+        for (int i = HashMap.hash(o) & mask; ; i = (i + 1) & mask) {
+            Object x = tab[i];
+            if (x == null)
+                return -1;//遇到空槽说明元素不存在
+            if (x == k || k.equals(x))
+                return i;
+        }
+    }
+
+    /**
+     * Adds e unless present.  Used by add, the copy constructor and
+     * readObject, so that subclasses overriding add do not change them.
+     */
+    final boolean addElement(Object e) {
+        if (table == null)
+            resize();
+        Object k = (e == null) ? NULL_ELEMENT : e;
+        Object[] tab = table;
+        int mask = tab.length - 1;
+        int h = HashMap.hash(e), i = h & mask;
+        for (Object x; (x = tab[i]) != null; i = (i + 1) & mask) {
+            if (x == k || k.equals(x))
+                return false;//已经存在相等的元素
+        }
+        if (size >= threshold) {//只在确实插入时扩容
+            resize();
+            tab = table;
+            mask = tab.length - 1;
+            for (i = h & mask; tab[i] != null; i = (i + 1) & mask)
+                ;
+        }
+        tab[i] = k;//放入探测到的第一个空槽
+        ++size;
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Initializes or doubles the table.
+     */
+    final void resize() {
+        Object[] oldTab = table;
+        int newCap;
+        if (oldTab == null)
+            newCap = threshold;
+        else {
+            if (oldTab.length >= HashMap.MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Capacity exhausted.");
+            newCap = oldTab.length << 1;
+        }
+        Object[] tab = new Object[newCap];
+        int mask = newCap - 1;
+        if (oldTab != null) {
+            for (Object x : oldTab) {
+                if (x != null) {
+                    int i = hashOf(x) & mask;
+                    while (tab[i] != null)
+                        i = (i + 1) & mask;
+                    tab[i] = x;
+                }
+            }
+        }
+        float ft = (float)newCap * loadFactor;
+        threshold = Math.min((int)ft, newCap - 1);
+        table = tab;
+    }
+
+    /**
+     * Empties slot i by backward-shift deletion: later elements of the same
+     * cluster that may occupy the hole move into it, so that no tombstone
+     * is needed.
+     */
+    final void removeAt(int i) {
+        Object[] tab = table;
+        int mask = tab.length - 1;
+        Object x;
+        for (int j = (i + 1) & mask; (x = tab[j]) != null; j = (j + 1) & mask) {
+            int home = hashOf(x) & mask;
+            // j处的元素可以前移到i，当且仅当它的起始位置home不在(i, j]的环形区间内
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                tab[i] = x;
+                i = j;
+            }
+        }
+        tab[i] = null;
+        --size;
+        ++modCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Object o) {
+        return findSlot(o) >= 0;
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return <tt>true</tt> if this set did not already contain the specified
+     * element
+     */
+    public boolean add(E e) {
+        return addElement(e);
+    }
+
+    public boolean remove(Object o) {
+        int i = findSlot(o);
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    public void clear() {
+        if (table != null && size > 0) {
+            ++modCount;
+            size = 0;
+            Arrays.fill(table, null);
+        }
+    }
+
+    public Iterator<E> iterator() {
+        return new TableIterator();
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        Object[] tab = table;
+        if (tab != null && size > 0) {
+            int mc = modCount;
+            for (int i = 0; i < tab.length && modCount == mc; ++i) {
+                Object x;
+                if ((x = tab[i]) != null)
+                    action.accept(unmask(x));
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> E unmask(Object x) {
+        return (x == NULL_ELEMENT) ? null : (E)x;
+    }
+
+    /**
+     * Walks the slots downwards, starting just below an empty slot.  A
+     * backward-shift deletion only moves elements from slots already
+     * visited into the removed slot, and cannot cross the empty starting
+     * slot, so <tt>Iterator.remove</tt> neither skips nor repeats elements.
+     */
+    final class TableIterator implements Iterator<E> {
+        int next = -1;         // slot of next element to return
+        int current = -1;      // slot of last returned element
+        int index;             // last slot examined
+        int remaining;         // slots left to examine
+        int expectedModCount;  // for fast-fail
+
+        TableIterator() {
+            expectedModCount = modCount;
+            Object[] tab = table;
+            if (tab != null && size > 0) {
+                int s = 0;
+                while (tab[s] != null)
+                    ++s;//找到一个空槽作为起点，负载因子小于1保证一定存在
+                index = s;
+                remaining = tab.length - 1;
+                next = advance();
+            }
+        }
+
+        private int advance() {
+            Object[] tab = table;
+            int mask = tab.length - 1;
+            while (remaining > 0) {
+                index = (index - 1) & mask;
+                --remaining;
+                if (tab[index] != null)
+                    return index;
+            }
+            return -1;
+        }
+
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        public E next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i < 0)
+                throw new NoSuchElementException();
+            current = i;
+            next = advance();
+            return unmask(table[i]);
+        }
+
+        public void remove() {
+            int i = current;
+            if (i < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            removeAt(i);
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * set.  It splits by ranges of slots, as the spliterators of
+     * <tt>HashSet</tt> split by ranges of bins.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     */
+    public Spliterator<E> spliterator() {
+        return new TableSpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    static final class TableSpliterator<E> implements Spliterator<E> {
+        final OpenHashSet<E> set;
+        int index;                  // 当前下标
+        int fence;                  // 最后一个位置的下标，第一次使用前为-1
+        int est;                    // 大小估计
+        int expectedModCount;       // 修改次数统计
+
+        TableSpliterator(OpenHashSet<E> set, int origin, int fence, int est,
+                         int expectedModCount) {
+            this.set = set;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // 初始化fence和size
+            int hi;
+            if ((hi = fence) < 0) {
+                OpenHashSet<E> s = set;
+                est = s.size;
+                expectedModCount = s.modCount;
+                Object[] tab = s.table;
+                hi = fence = (tab == null) ? 0 : tab.length;
+            }
+            return hi;
+        }
+
+        public TableSpliterator<E> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new TableSpliterator<>(set, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            int i, hi, mc;
+            if (action == null)
+                throw new NullPointerException();
+            OpenHashSet<E> s = set;
+            Object[] tab = s.table;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = s.modCount;
+                hi = fence = (tab == null) ? 0 : tab.length;
+            }
+            else
+                mc = expectedModCount;
+            if (tab != null && tab.length >= hi &&
+                (i = index) >= 0 && i < (index = hi)) {
+                for (; i < hi; ++i) {
+                    Object x;
+                    if ((x = tab[i]) != null)
+                        action.accept(unmask(x));
+                }
+                if (s.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            int hi;
+            if (action == null)
+                throw new NullPointerException();
+            Object[] tab = set.table;
+            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+                while (index < hi) {
+                    Object x;
+                    if ((x = tab[index++]) != null) {
+                        action.accept(unmask(x));
+                        if (set.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == set.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this set: the elements themselves are not
+     * cloned.
+     *
+     * @return a shallow copy of this set
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        try {
+            OpenHashSet<E> result = (OpenHashSet<E>) super.clone();
+            if (table != null)
+                result.table = table.clone();
+            result.modCount = 0;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Save the state of the set to a stream.
+     *
+     * @serialData The <i>size</i> (an int, the number of elements),
+     *             followed by each element (Object), in no particular
+     *             order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        Object[] tab = table;
+        if (tab != null && size > 0) {
+            for (Object x : tab) {
+                if (x != null)
+                    s.writeObject(unmask(x));
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the set from a stream.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int elements = s.readInt();
+        if (elements < 0)
+            throw new InvalidObjectException("Illegal size: " + elements);
+        threshold = OpenHashMap.capacityFor(elements, loadFactor);
+        for (int i = 0; i < elements; i++)
+            addElement(s.readObject());//直接放入表中，不调用可能被子类重写的add
+    }
+}
@@ -0,0 +1,965 @@
+package java.util;
+
+/**
+ * A sorted map whose versions are persistent: every version of the tree
+ * is immutable, and {@code put} and {@code remove} build the next version
+ * by copying only the nodes on the path from the root to the changed node,
+ * sharing all other nodes with the previous version.  {@link #snapshot}
+ * therefore takes constant time: it returns a read-only map of the
+ * current version, which later writes to this map do not affect.
+ * 持久化的有序Map，修改时只复制从根到被修改结点路径上的结点，其他结点与旧版本共享，因此快照是O(1)的
+ *
+ * <p>The tree is an AVL tree of immutable nodes with {@code final} fields,
+ * so a snapshot may be read by any number of threads without locking,
+ * even while this map keeps changing, and even if the snapshot reference
+ * is handed to the other threads without synchronization.  The current
+ * version of this map is held in a {@code volatile} field, so reading
+ * this map itself from other threads is also safe: each read operation
+ * sees some recent version as a whole.  Writes must be made by one thread
+ * at a time, or be synchronized externally.
+ *
+ * <p>Iterators over this map and its views traverse the version that was
+ * current when they were created.  They never throw
+ * {@link ConcurrentModificationException}, and their {@code remove} method
+ * removes the key from this map without affecting the iteration.  The
+ * {@code size} of this map and of the views returned by {@code subMap},
+ * {@code headMap} and {@code tailMap} takes log(n) time at most, since
+ * each node records the number of nodes of its subtree.
+ *
+ * <p>Each {@code put} or {@code remove} allocates about log(n) nodes, so
+ * this map is best suited to data read far more often than written, or
+ * read through snapshots while being written, as an order book is.  The
+ * {@code Map.Entry} pairs returned by this map are the immutable nodes
+ * themselves, and do not support {@code Entry.setValue}.
+ *
+ * <p>As with {@link TreeMap}, the ordering must be consistent with
+ * {@code equals} for the map to obey the {@code Map} contract, and null
+ * keys are only permitted by a comparator that accepts them.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ */
+public class PersistentTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements SortedMap<K,V>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 2814309827465021317L;
+
+    /**
+     * The comparator used to maintain order in this map, or null if it
+     * uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * The root of the current version, null if the map is empty.
+     */
+    private transient volatile Node<K,V> root;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its keys.
+     */
+    public PersistentTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public PersistentTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * ordered according to the <em>natural ordering</em> of its keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public PersistentTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the same
+     * ordering as the specified sorted map.  This method runs in linear
+     * time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public PersistentTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        root = buildFromSorted(m.size(), m.entrySet().iterator());
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * An immutable node of the tree, which is also the entry it holds.
+     */
+    static final class Node<K,V> implements Map.Entry<K,V> {
+        final K key;
+        final V value;
+        final Node<K,V> left, right;
+        final int height;//AVL树的高度，叶子为1
+        final int size;//子树中的结点数
+
+        Node(K key, V value, Node<K,V> left, Node<K,V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return valEquals(key,e.getKey()) && valEquals(value,e.getValue());
+        }
+
+        public int hashCode() {
+            int keyHash = (key==null ? 0 : key.hashCode());
+            int valueHash = (value==null ? 0 : value.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    static int heightOf(Node<?,?> t) {
+        return (t == null) ? 0 : t.height;
+    }
+
+    static int sizeOf(Node<?,?> t) {
+        return (t == null) ? 0 : t.size;
+    }
+
+    /**
+     * Returns a node with the given key, value and subtrees, whose heights
+     * may differ by at most 2, rotating once or twice to restore the AVL
+     * balance.  Only new nodes are created; the subtrees are not modified.
+     * 左右子树高度差为2时通过单旋转或双旋转恢复平衡，旋转时新建结点而不修改原有结点
+     */
+    static <K,V> Node<K,V> balance(K key, V value, Node<K,V> l, Node<K,V> r) {
+        int hl = heightOf(l), hr = heightOf(r);
+        if (hl > hr + 1) {
+            if (heightOf(l.left) >= heightOf(l.right))//右旋
+                return new Node<>(l.key, l.value, l.left,
+                                  new Node<>(key, value, l.right, r));
+            Node<K,V> lr = l.right;//先左旋再右旋
+            return new Node<>(lr.key, lr.value,
+                              new Node<>(l.key, l.value, l.left, lr.left),
+                              new Node<>(key, value, lr.right, r));
+        }
+        if (hr > hl + 1) {
+            if (heightOf(r.right) >= heightOf(r.left))//左旋
+                return new Node<>(r.key, r.value,
+                                  new Node<>(key, value, l, r.left), r.right);
+            Node<K,V> rl = r.left;//先右旋再左旋
+            return new Node<>(rl.key, rl.value,
+                              new Node<>(key, value, l, rl.left),
+                              new Node<>(r.key, r.value, rl.right, r.right));
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    /* ---------------- Versions -------------- */
+
+    /**
+     * Returns the root of the version read by an operation.  Each read
+     * operation calls this once, and so sees a single version.
+     */
+    Node<K,V> root() {
+        return root;
+    }
+
+    /**
+     * Makes the given tree the current version.
+     */
+    void setRoot(Node<K,V> t) {
+        root = t;
+    }
+
+    /**
+     * Returns a read-only map of the current version of this map, in
+     * constant time.  The snapshot is not affected by later changes to
+     * this map, and may be read from any thread without synchronization.
+     * Its modification methods throw {@code UnsupportedOperationException}.
+     *
+     * @return an immutable snapshot of this map
+     */
+    public PersistentTreeMap<K,V> snapshot() {
+        return new Snapshot<>(comparator, root());
+    }
+
+    /**
+     * A read-only version, holding its root in a final field so that it is
+     * safely published to any thread.
+     */
+    static final class Snapshot<K,V> extends PersistentTreeMap<K,V> {
+        private static final long serialVersionUID = -7304861923416278820L;
+
+        private final transient Node<K,V> frozen;
+
+        Snapshot(Comparator<? super K> comparator, Node<K,V> root) {
+            super(comparator);
+            this.frozen = root;
+        }
+
+        Node<K,V> root() {
+            return frozen;
+        }
+
+        void setRoot(Node<K,V> t) {
+            throw new UnsupportedOperationException();
+        }
+
+        public PersistentTreeMap<K,V> snapshot() {
+            return this;
+        }
+
+        /**
+         * readObject rebuilt the tree into the field of the superclass;
+         * move it to the final field.
+         */
+        private Object readResolve() {
+            return new Snapshot<>(comparator(), super.root());
+        }
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    final Node<K,V> getNode(Node<K,V> t, Object key) {
+        if (comparator == null && key == null)
+            throw new NullPointerException();
+        while (t != null) {
+            int cmp = compare(key, t.key);
+            if (cmp < 0)
+                t = t.left;
+            else if (cmp > 0)
+                t = t.right;
+            else
+                return t;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the node of the least key greater than, or equal to if
+     * inclusive, the given key.
+     */
+    final Node<K,V> ceilingNode(Node<K,V> t, Object key, boolean inclusive) {
+        Node<K,V> best = null;
+        while (t != null) {
+            int cmp = compare(key, t.key);
+            if (cmp < 0 || (cmp == 0 && inclusive)) {
+                best = t;
+                if (cmp == 0)
+                    break;
+                t = t.left;
+            }
+            else
+                t = t.right;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the node of the greatest key less than, or equal to if
+     * inclusive, the given key.
+     */
+    final Node<K,V> floorNode(Node<K,V> t, Object key, boolean inclusive) {
+        Node<K,V> best = null;
+        while (t != null) {
+            int cmp = compare(key, t.key);
+            if (cmp > 0 || (cmp == 0 && inclusive)) {
+                best = t;
+                if (cmp == 0)
+                    break;
+                t = t.right;
+            }
+            else
+                t = t.left;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of keys less than the given key.
+     */
+    final int countBelow(Node<K,V> t, Object key) {
+        int n = 0;
+        while (t != null) {
+            if (compare(key, t.key) <= 0)
+                t = t.left;
+            else {
+                n += sizeOf(t.left) + 1;
+                t = t.right;
+            }
+        }
+        return n;
+    }
+
+    static <K,V> Node<K,V> firstNode(Node<K,V> t) {
+        if (t != null)
+            while (t.left != null)
+                t = t.left;
+        return t;
+    }
+
+    static <K,V> Node<K,V> lastNode(Node<K,V> t) {
+        if (t != null)
+            while (t.right != null)
+                t = t.right;
+        return t;
+    }
+
+    /* ---------------- Query operations -------------- */
+
+    public int size() {
+        return sizeOf(root());
+    }
+
+    public boolean isEmpty() {
+        return root() == null;
+    }
+
+    /**
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        return getNode(root(), key) != null;
+    }
+
+    /**
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public V get(Object key) {
+        Node<K,V> p = getNode(root(), key);
+        return (p == null ? null : p.value);
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstNode(root()));
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastNode(root()));
+    }
+
+    /**
+     * Returns the entry with the least key, or {@code null} if the map is
+     * empty.
+     */
+    public Map.Entry<K,V> firstEntry() {
+        return firstNode(root());
+    }
+
+    /**
+     * Returns the entry with the greatest key, or {@code null} if the map
+     * is empty.
+     */
+    public Map.Entry<K,V> lastEntry() {
+        return lastNode(root());
+    }
+
+    /**
+     * Returns the entry with the greatest key strictly less than the given
+     * key, or {@code null} if there is no such key.
+     *
+     * @see NavigableMap#lowerEntry
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return floorNode(root(), key, false);
+    }
+
+    /**
+     * Returns the entry with the greatest key less than or equal to the
+     * given key, or {@code null} if there is no such key.
+     *
+     * @see NavigableMap#floorEntry
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return floorNode(root(), key, true);
+    }
+
+    /**
+     * Returns the entry with the least key greater than or equal to the
+     * given key, or {@code null} if there is no such key.
+     *
+     * @see NavigableMap#ceilingEntry
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return ceilingNode(root(), key, true);
+    }
+
+    /**
+     * Returns the entry with the least key strictly greater than the given
+     * key, or {@code null} if there is no such key.
+     *
+     * @see NavigableMap#higherEntry
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return ceilingNode(root(), key, false);
+    }
+
+    public K lowerKey(K key) {
+        return keyOrNull(floorNode(root(), key, false));
+    }
+
+    public K floorKey(K key) {
+        return keyOrNull(floorNode(root(), key, true));
+    }
+
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingNode(root(), key, true));
+    }
+
+    public K higherKey(K key) {
+        return keyOrNull(ceilingNode(root(), key, false));
+    }
+
+    /* ---------------- Modification -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map,
+     * copying the path from the root to the key.  If the key is already
+     * mapped to the same value, nothing is copied.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws UnsupportedOperationException if this map is a snapshot
+     */
+    public V put(K key, V value) {
+        Node<K,V> t = root();
+        if (t == null)
+            compare(key, key); // type (and possibly null) check
+        Node<K,V> p = getNode(t, key);
+        if (p != null && p.value == value) {
+            setRoot(t);
+            return value;
+        }
+        setRoot(insert(t, key, value));
+        return (p == null) ? null : p.value;
+    }
+
+    /**
+     * Returns a copy of t with the key mapped to the value.
+     */
+    private Node<K,V> insert(Node<K,V> t, K key, V value) {
+        if (t == null)
+            return new Node<>(key, value, null, null);
+        int cmp = compare(key, t.key);
+        if (cmp < 0)
+            return balance(t.key, t.value, insert(t.left, key, value), t.right);
+        else if (cmp > 0)
+            return balance(t.key, t.value, t.left, insert(t.right, key, value));
+        else
+            return new Node<>(t.key, value, t.left, t.right);
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present, copying
+     * the path from the root to the key.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws UnsupportedOperationException if this map is a snapshot
+     */
+    public V remove(Object key) {
+        Node<K,V> t = root();
+        Node<K,V> p = getNode(t, key);
+        if (p == null) {
+            setRoot(t);
+            return null;
+        }
+        setRoot(delete(t, key));
+        return p.value;
+    }
+
+    /**
+     * Returns a copy of t without the key, which must be present.
+     */
+    private Node<K,V> delete(Node<K,V> t, Object key) {
+        int cmp = compare(key, t.key);
+        if (cmp < 0)
+            return balance(t.key, t.value, delete(t.left, key), t.right);
+        else if (cmp > 0)
+            return balance(t.key, t.value, t.left, delete(t.right, key));
+        if (t.left == null)
+            return t.right;
+        if (t.right == null)
+            return t.left;
+        Node<K,V> s = firstNode(t.right);//用后继结点代替被删除的结点
+        return balance(s.key, s.value, t.left, deleteFirst(t.right));
+    }
+
+    private static <K,V> Node<K,V> deleteFirst(Node<K,V> t) {
+        if (t.left == null)
+            return t.right;
+        return balance(t.key, t.value, deleteFirst(t.left), t.right);
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     *
+     * @throws UnsupportedOperationException if this map is a snapshot
+     */
+    public void clear() {
+        setRoot(null);
+    }
+
+    /**
+     * Returns a shallow copy of this map in constant time: the copy shares
+     * the nodes of the current version, and the two maps change
+     * independently afterwards.  The copy of a snapshot is a snapshot.
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        PersistentTreeMap<?,?> clone;
+        try {
+            clone = (PersistentTreeMap<?,?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        clone.entrySet = null;
+        return clone;
+    }
+
+    /* ---------------- Views -------------- */
+
+    private transient EntrySetView entrySet;
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map, in
+     * ascending key order.  Its iterators traverse the version current
+     * when they are created.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView es = entrySet;
+        return (es != null) ? es :
+            (entrySet = new EntrySetView(true, null, true, null));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return new SubMap(false, fromKey, false, toKey);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> headMap(K toKey) {
+        return new SubMap(true, null, false, toKey);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return new SubMap(false, fromKey, true, null);
+    }
+
+    /**
+     * Mappings of this map with keys from lo, inclusive, unless fromStart,
+     * to hi, exclusive, unless toEnd.
+     */
+    final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+        final boolean fromStart, toEnd;
+        final K lo, hi;
+
+        EntrySetView(boolean fromStart, K lo, boolean toEnd, K hi) {
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.toEnd = toEnd;
+            this.hi = hi;
+        }
+
+        final boolean inRange(Object key) {
+            return (fromStart || compare(key, lo) >= 0)
+                && (toEnd || compare(key, hi) < 0);
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator(root(), fromStart, lo, toEnd, hi);
+        }
+
+        /**
+         * Returns the number of keys in range, from the subtree sizes.
+         */
+        public int size() {
+            Node<K,V> t = root();
+            int upTo = toEnd ? sizeOf(t) : countBelow(t, hi);
+            int below = fromStart ? 0 : countBelow(t, lo);
+            return Math.max(upTo - below, 0);
+        }
+
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            if (!inRange(key))
+                return false;
+            Node<K,V> p = getNode(root(), key);
+            return p != null && valEquals(p.value, entry.getValue());
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            if (!inRange(key))
+                return false;
+            Node<K,V> p = getNode(root(), key);
+            if (p != null && valEquals(p.value, entry.getValue())) {
+                PersistentTreeMap.this.remove(key);
+                return true;
+            }
+            return false;
+        }
+
+        public void clear() {
+            if (fromStart && toEnd)
+                PersistentTreeMap.this.clear();
+            else
+                super.clear();
+        }
+    }
+
+    /**
+     * In-order iterator over one version, keeping the path to the next
+     * node on a stack.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final Node<?,?>[] stack;
+        int depth;
+        final boolean toEnd;
+        final K hi;
+        Node<K,V> next;
+        Node<K,V> lastReturned;
+
+        EntryIterator(Node<K,V> t, boolean fromStart, K lo, boolean toEnd, K hi) {
+            this.stack = new Node<?,?>[heightOf(t)];
+            this.toEnd = toEnd;
+            this.hi = hi;
+            while (t != null) {//从根开始，将不小于lo的祖先结点压栈，栈顶就是第一个结点
+                if (fromStart || compare(t.key, lo) >= 0) {
+                    stack[depth++] = t;
+                    t = t.left;
+                }
+                else
+                    t = t.right;
+            }
+            next = peek();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<K,V> peek() {
+            if (depth == 0)
+                return null;
+            Node<K,V> p = (Node<K,V>)stack[depth - 1];
+            return (toEnd || compare(p.key, hi) < 0) ? p : null;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            Node<K,V> p = next;
+            if (p == null)
+                throw new NoSuchElementException();
+            --depth;
+            for (Node<K,V> t = p.right; t != null; t = t.left)
+                stack[depth++] = t;
+            next = peek();
+            return lastReturned = p;
+        }
+
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            PersistentTreeMap.this.remove(lastReturned.key);
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * A view of the keys from lo, inclusive, to hi, exclusive.
+     */
+    final class SubMap extends AbstractMap<K,V> implements SortedMap<K,V> {
+        final EntrySetView entries;
+
+        SubMap(boolean fromStart, K lo, boolean toEnd, K hi) {
+            if (!fromStart && !toEnd) {
+                if (compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    compare(lo, lo);
+                if (!toEnd)
+                    compare(hi, hi);
+            }
+            entries = new EntrySetView(fromStart, lo, toEnd, hi);
+        }
+
+        /**
+         * Returns whether the key is within the closed bounds of this view.
+         */
+        private boolean inClosedRange(Object key) {
+            return (entries.fromStart || compare(key, entries.lo) >= 0)
+                && (entries.toEnd || compare(entries.hi, key) >= 0);
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            return entries;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        public Comparator<? super K> comparator() {
+            return comparator;
+        }
+
+        public boolean containsKey(Object key) {
+            return entries.inRange(key) && PersistentTreeMap.this.containsKey(key);
+        }
+
+        public V get(Object key) {
+            return !entries.inRange(key) ? null : PersistentTreeMap.this.get(key);
+        }
+
+        public V put(K key, V value) {
+            if (!entries.inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return PersistentTreeMap.this.put(key, value);
+        }
+
+        public V remove(Object key) {
+            return !entries.inRange(key) ? null : PersistentTreeMap.this.remove(key);
+        }
+
+        public K firstKey() {
+            Node<K,V> t = root();
+            Node<K,V> p = entries.fromStart ? firstNode(t) : ceilingNode(t, entries.lo, true);
+            if (p == null || !entries.inRange(p.key))
+                throw new NoSuchElementException();
+            return p.key;
+        }
+
+        public K lastKey() {
+            Node<K,V> t = root();
+            Node<K,V> p = entries.toEnd ? lastNode(t) : floorNode(t, entries.hi, false);
+            if (p == null || !entries.inRange(p.key))
+                throw new NoSuchElementException();
+            return p.key;
+        }
+
+        public SortedMap<K,V> subMap(K fromKey, K toKey) {
+            if (!inClosedRange(fromKey))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inClosedRange(toKey))
+                throw new IllegalArgumentException("toKey out of range");
+            return new SubMap(false, fromKey, false, toKey);
+        }
+
+        public SortedMap<K,V> headMap(K toKey) {
+            if (!inClosedRange(toKey))
+                throw new IllegalArgumentException("toKey out of range");
+            return new SubMap(entries.fromStart, entries.lo, false, toKey);
+        }
+
+        public SortedMap<K,V> tailMap(K fromKey) {
+            if (!inClosedRange(fromKey))
+                throw new IllegalArgumentException("fromKey out of range");
+            return new SubMap(false, fromKey, entries.toEnd, entries.hi);
+        }
+    }
+
+    // Little utilities
+
+    /**
+     * Test two values for equality.  Differs from o1.equals(o2) only in
+     * that it copes with {@code null} o1 properly.
+     */
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Return key for entry, or null if null
+     */
+    static <K,V> K keyOrNull(Node<K,V> e) {
+        return (e == null) ? null : e.key;
+    }
+
+    /**
+     * Returns the key corresponding to the specified node.
+     * @throws NoSuchElementException if the node is null
+     */
+    static <K> K key(Node<K,?> e) {
+        if (e==null)
+            throw new NoSuchElementException();
+        return e.key;
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Save the state of the map to a stream.
+     *
+     * @serialData The <em>size</em> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping, in key
+     *             order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        Node<K,V> t = root();
+        s.writeInt(sizeOf(t));
+        for (Iterator<Map.Entry<K,V>> i = new EntryIterator(t, true, null, true, null); i.hasNext(); ) {
+            Map.Entry<K,V> e = i.next();
+            s.writeObject(e.getKey());
+            s.writeObject(e.getValue());
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream.
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+        Object[] a = new Object[2 * size];
+        for (int i = 0; i < a.length; i++)
+            a[i] = s.readObject();
+        root = buildFromSorted(size, new Iterator<Map.Entry<K,V>>() {
+            int i;
+            public boolean hasNext() {
+                return i < a.length;
+            }
+            @SuppressWarnings("unchecked")
+            public Map.Entry<K,V> next() {
+                Map.Entry<K,V> e = new AbstractMap.SimpleImmutableEntry<>((K)a[i], (V)a[i + 1]);
+                i += 2;
+                return e;
+            }
+        });
+    }
+
+    /**
+     * Builds a balanced tree of n entries taken in order from the
+     * iterator: the middle entry at the root, with the entries before and
+     * after it in the left and right subtrees, whose sizes, and hence
+     * heights, differ by at most one.
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> Node<K,V> buildFromSorted(int n, Iterator<?> it) {
+        if (n == 0)
+            return null;
+        Node<K,V> left = buildFromSorted(n / 2, it);
+        Map.Entry<K,V> e = (Map.Entry<K,V>)it.next();
+        Node<K,V> right = buildFromSorted(n - n / 2 - 1, it);
+        return new Node<>(e.getKey(), e.getValue(), left, right);
+    }
+}
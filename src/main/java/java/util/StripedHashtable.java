@@ -0,0 +1,1352 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link Hashtable} whose reads do not lock and whose writes lock only a
+ * range of buckets, so that it can be passed wherever a
+ * <code>Hashtable</code> is expected without serializing every
+ * <code>get</code>, <code>put</code> and <code>contains</code> on the
+ * monitor of the table.
+ * 读操作不加锁，写操作只锁住桶所在的段，可以直接替换Hashtable
+ *
+ * <p>Like <code>Hashtable</code>, this class does not allow
+ * <code>null</code> keys or values, offers the {@link #keys} and
+ * {@link #elements} enumerations, and grows with the same policy: when an
+ * insertion brings the number of entries over the capacity times the load
+ * factor, {@link #rehash} is called and the capacity becomes twice the old
+ * one plus one.
+ *
+ * <p>The buckets are divided into a fixed number of stripes, each a
+ * contiguous range of buckets guarded by its own lock, the number of
+ * stripes being given by the <i>concurrency level</i>.  An update locks
+ * only the stripe of its key's bucket, so updates of keys in different
+ * stripes proceed in parallel.  {@link #rehash} and the operations that
+ * must see the whole table at once, such as {@link #clear} and
+ * serialization, lock every stripe.
+ *
+ * <p>{@link #get} and {@link #containsKey} never lock.  The bucket chains
+ * are published with volatile writes and are only modified by linking a
+ * new entry at their head or unlinking one, and a rehash copies the
+ * entries into the new table rather than relinking them, so a reader
+ * always sees a well-formed chain of the table it started with.  The
+ * operations that read the whole table, {@link #size}, {@link #isEmpty},
+ * {@link #contains} and {@link #hashCode}, are optimistic: they sum the
+ * versions of the stripes, which every update increments, before and
+ * after the traversal, and only when an update is seen twice in a row do
+ * they retry with all stripes locked.
+ *
+ * <p>Unlike <code>Hashtable</code>:
+ * <ul>
+ * <li>The methods are not synchronized on the table, so a client that
+ * synchronizes on it to make a sequence of calls atomic is no longer
+ * protected against other threads.  The atomic {@link #putIfAbsent},
+ * {@link #replace}, {@link #compute} and {@link #merge} methods should be
+ * used instead.
+ * <li>The enumerations, views and iterators are weakly consistent, in the
+ * manner of {@link java.util.concurrent.ConcurrentHashMap}, rather than
+ * fail-fast: they never throw {@link ConcurrentModificationException},
+ * return each mapping present when they were created at most once, and
+ * may or may not reflect later modifications.
+ * <li>The functions given to the compute and merge methods are called
+ * with the stripe of the key locked, and must not modify this map.
+ * </ul>
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see Hashtable
+ * @see java.util.concurrent.ConcurrentHashMap
+ */
+public class StripedHashtable<K,V> extends Hashtable<K,V> {
+    private static final long serialVersionUID = 6095283417325098418L;
+
+    /**
+     * The default number of stripes.
+     */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The maximum number of stripes.
+     */
+    static final int MAX_STRIPES = 1 << 16;
+
+    /**
+     * The maximum size of array to allocate, as in Hashtable.
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Number of unlocked attempts of the whole-table reads before they
+     * lock every stripe.
+     */
+    static final int RETRIES_BEFORE_LOCK = 2;
+
+    /**
+     * The hash table data.  Replaced, with all stripes locked, by rehash.
+     */
+    private transient volatile Node<K,V>[] table;
+
+    /**
+     * The locks of the ranges of buckets.  Stripe i guards the buckets
+     * from i * table.length / stripes.length inclusive to
+     * (i + 1) * table.length / stripes.length exclusive.
+     */
+    private transient Stripe[] stripes;
+
+    /**
+     * The table is rehashed when its size exceeds this threshold.  Only
+     * written with all stripes locked.
+     */
+    private transient int threshold;
+
+    /**
+     * The load factor for the hashtable.
+     *
+     * @serial
+     */
+    private final float loadFactor;
+
+    /**
+     * The number of stripes.
+     *
+     * @serial
+     */
+    private final int concurrencyLevel;
+
+    /**
+     * Constructs a new, empty hashtable with the specified initial
+     * capacity, load factor and number of stripes.
+     *
+     * @param initialCapacity the initial capacity of the hashtable
+     * @param loadFactor the load factor of the hashtable
+     * @param concurrencyLevel the estimated number of concurrently updating
+     *        threads, used as the number of stripes
+     * @throws IllegalArgumentException if the initial capacity is less
+     *         than zero, or if the load factor or the concurrency level is
+     *         nonpositive
+     */
+    public StripedHashtable(int initialCapacity, float loadFactor, int concurrencyLevel) {
+        super(1, loadFactor);//父类的桶数组不再使用，这里借用它对loadFactor的检查
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException("Illegal Concurrency Level: "+
+                                               concurrencyLevel);
+
+        if (initialCapacity==0)
+            initialCapacity = 1;
+        this.loadFactor = loadFactor;
+        this.concurrencyLevel = Math.min(concurrencyLevel, MAX_STRIPES);
+        init(initialCapacity);
+    }
+
+    /**
+     * Constructs a new, empty hashtable with the specified initial
+     * capacity and load factor, and the default concurrency level (16).
+     *
+     * @param initialCapacity the initial capacity of the hashtable
+     * @param loadFactor the load factor of the hashtable
+     * @throws IllegalArgumentException if the initial capacity is less
+     *         than zero, or if the load factor is nonpositive
+     */
+    public StripedHashtable(int initialCapacity, float loadFactor) {
+        this(initialCapacity, loadFactor, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new, empty hashtable with the specified initial capacity,
+     * the default load factor (0.75) and concurrency level (16).
+     *
+     * @param initialCapacity the initial capacity of the hashtable
+     * @throws IllegalArgumentException if the initial capacity is less
+     *         than zero
+     */
+    public StripedHashtable(int initialCapacity) {
+        this(initialCapacity, 0.75f);
+    }
+
+    /**
+     * Constructs a new, empty hashtable with a default initial capacity (11),
+     * load factor (0.75) and concurrency level (16).
+     */
+    public StripedHashtable() {
+        this(11, 0.75f);
+    }
+
+    /**
+     * Constructs a new hashtable with the same mappings as the given
+     * Map.  The hashtable is created with an initial capacity sufficient to
+     * hold the mappings in the given Map, the default load factor (0.75)
+     * and concurrency level (16).
+     *
+     * @param t the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null, or holds
+     *         a null key or value
+     */
+    public StripedHashtable(Map<? extends K, ? extends V> t) {
+        this(Math.max(2*t.size(), 11), 0.75f);
+        putAll(t);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void init(int capacity) {
+        table = (Node<K,V>[])new Node<?,?>[capacity];
+        threshold = (int)Math.min(capacity * loadFactor, MAX_ARRAY_SIZE + 1);
+        stripes = new Stripe[concurrencyLevel];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Hashtable bucket collision list entry.  The key and hash never
+     * change and the links are only modified by unlinking a successor, so
+     * that readers can traverse the chains without locking.
+     */
+    static final class Node<K,V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K,V> next;
+
+        Node(int hash, K key, V value, Node<K,V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The lock of a range of buckets, with the number of entries in the
+     * range and a version incremented after every update of the range.
+     */
+    static final class Stripe extends ReentrantLock {
+        private static final long serialVersionUID = -4127354819276313429L;
+
+        /** The number of entries in the buckets of the stripe */
+        volatile int count;
+
+        /** Incremented after every update, for the optimistic reads */
+        volatile int version;
+    }
+
+    /* ---------------- Stripes -------------- */
+
+    /**
+     * Returns the index of the stripe guarding the given bucket of a table
+     * of length n.
+     */
+    private int stripeIndex(int index, int n) {
+        return (int)((long)index * stripes.length / n);
+    }
+
+    /**
+     * Locks and returns the stripe of the bucket of the given hash in the
+     * current table.  The table cannot be rehashed until the stripe is
+     * unlocked.
+     */
+    private Stripe lockStripe(int hash) {
+        for (;;) {
+            Node<K,V>[] tab = table;
+            Stripe s = stripes[stripeIndex((hash & 0x7FFFFFFF) % tab.length, tab.length)];
+            s.lock();
+            if (tab == table)
+                return s;
+            s.unlock();//加锁前表被rehash了，桶所属的段可能已经改变
+        }
+    }
+
+    private void lockAll() {
+        for (Stripe s : stripes)
+            s.lock();
+    }
+
+    private void unlockAll() {
+        for (Stripe s : stripes)
+            s.unlock();
+    }
+
+    private int sumCount() {
+        int n = 0;
+        for (Stripe s : stripes)
+            n += s.count;
+        return n;
+    }
+
+    private long sumVersion() {
+        long v = 0L;
+        for (Stripe s : stripes)
+            v += s.version;
+        return v;
+    }
+
+    /* ---------------- Table accesses -------------- */
+
+    @SuppressWarnings("unchecked")
+    static final <K,V> Node<K,V> tabAt(Node<K,V>[] tab, int i) {
+        return (Node<K,V>)U.getObjectVolatile(tab, ((long)i << ASHIFT) + ABASE);
+    }
+
+    static final <K,V> void setTabAt(Node<K,V>[] tab, int i, Node<K,V> v) {
+        U.putObjectVolatile(tab, ((long)i << ASHIFT) + ABASE, v);
+    }
+
+    /**
+     * Links a new entry at the head of its bucket.  Called with the
+     * stripe s of the bucket locked.
+     */
+    private void addEntry(Stripe s, Node<K,V>[] tab, int hash, K key, V value, int index) {
+        setTabAt(tab, index, new Node<>(hash, key, value, tabAt(tab, index)));
+        s.count++;
+        s.version++;
+    }
+
+    /**
+     * Unlinks e, whose predecessor is prev, or null if e heads the bucket.
+     * Called with the stripe s of the bucket locked.
+     */
+    private void unlink(Stripe s, Node<K,V>[] tab, int index, Node<K,V> prev, Node<K,V> e) {
+        if (prev == null)
+            setTabAt(tab, index, e.next);
+        else
+            prev.next = e.next;
+        s.count--;
+        s.version++;
+    }
+
+    /**
+     * Rehashes the table if an insertion brought its size over the
+     * threshold.  Called with no stripe locked, since rehash locks all.
+     */
+    private void growIfNeeded() {
+        if (sumCount() > threshold) {//Hashtable在插入前判断count >= threshold，等价于插入后count > threshold
+            lockAll();
+            try {
+                if (sumCount() > threshold)//其他线程可能已经扩容
+                    rehash();
+            } finally {
+                unlockAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the entry for the key, without locking.
+     */
+    private Node<K,V> getNode(Object key) {
+        int hash = key.hashCode();
+        Node<K,V>[] tab = table;
+        for (Node<K,V> e = tabAt(tab, (hash & 0x7FFFFFFF) % tab.length); e != null; e = e.next) {
+            if ((e.hash == hash) && e.key.equals(key))
+                return e;
+        }
+        return null;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of keys in this hashtable.
+     *
+     * @return the number of keys in this hashtable
+     */
+    public int size() {
+        for (int retries = 0; retries < RETRIES_BEFORE_LOCK; retries++) {
+            long v = sumVersion();
+            int n = sumCount();
+            if (v == sumVersion())//两次版本和相同，说明读取期间没有更新
+                return n;
+        }
+        lockAll();
+        try {
+            return sumCount();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Tests if this hashtable maps no keys to values.
+     *
+     * @return <code>true</code> if this hashtable maps no keys to values;
+     *         <code>false</code> otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a weakly consistent enumeration of the keys in this
+     * hashtable.
+     *
+     * @return an enumeration of the keys in this hashtable
+     * @see #elements()
+     * @see #keySet()
+     */
+    public Enumeration<K> keys() {
+        return new Enumerator<>(KEYS, false);
+    }
+
+    /**
+     * Returns a weakly consistent enumeration of the values in this
+     * hashtable.
+     *
+     * @return an enumeration of the values in this hashtable
+     * @see #keys()
+     * @see #values()
+     */
+    public Enumeration<V> elements() {
+        return new Enumerator<>(VALUES, false);
+    }
+
+    /**
+     * Tests if some key maps into the specified value in this hashtable.
+     * This operation is more expensive than the {@link #containsKey
+     * containsKey} method.
+     *
+     * @param value a value to search for
+     * @return <code>true</code> if and only if some key maps to the
+     *         <code>value</code> argument in this hashtable as
+     *         determined by the <tt>equals</tt> method;
+     *         <code>false</code> otherwise
+     * @throws NullPointerException if the value is <code>null</code>
+     */
+    public boolean contains(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+
+        for (int retries = 0; retries < RETRIES_BEFORE_LOCK; retries++) {
+            long v = sumVersion();
+            if (findValue(value))
+                return true;
+            if (v == sumVersion())//没找到时要确认遍历期间没有更新
+                return false;
+        }
+        lockAll();
+        try {
+            return findValue(value);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private boolean findValue(Object value) {
+        Node<K,V>[] tab = table;
+        for (int i = tab.length ; i-- > 0 ;) {
+            for (Node<K,V> e = tabAt(tab, i) ; e != null ; e = e.next) {
+                if (e.value.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if this hashtable maps one or more keys to this value.
+     *
+     * @param value value whose presence in this hashtable is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     * @throws NullPointerException if the value is <code>null</code>
+     */
+    public boolean containsValue(Object value) {
+        return contains(value);
+    }
+
+    /**
+     * Tests if the specified object is a key in this hashtable, without
+     * locking.
+     *
+     * @param key possible key
+     * @return <code>true</code> if and only if the specified object
+     *         is a key in this hashtable, as determined by the
+     *         <tt>equals</tt> method; <code>false</code> otherwise
+     * @throws NullPointerException if the key is <code>null</code>
+     */
+    public boolean containsKey(Object key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key,
+     * without locking.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> e = getNode(key);
+        return (e == null) ? null : e.value;
+    }
+
+    /**
+     * Increases the capacity of and internally reorganizes this
+     * hashtable, with the same policy as {@link Hashtable#rehash}: the new
+     * capacity is twice the old one plus one.  This method is called
+     * automatically when the number of keys in the hashtable exceeds this
+     * hashtable's capacity and load factor.  It locks every stripe, and
+     * copies the entries so that the readers of the old table are not
+     * disturbed.
+     */
+    @SuppressWarnings("unchecked")
+    protected void rehash() {
+        lockAll();
+        try {
+            Node<K,V>[] oldMap = table;
+            int oldCapacity = oldMap.length;
+
+            // overflow-conscious code
+            int newCapacity = (oldCapacity << 1) + 1;
+            if (newCapacity - MAX_ARRAY_SIZE > 0) {
+                if (oldCapacity == MAX_ARRAY_SIZE)
+                    // Keep running with MAX_ARRAY_SIZE buckets
+                    return;
+                newCapacity = MAX_ARRAY_SIZE;
+            }
+            Node<K,V>[] newMap = (Node<K,V>[])new Node<?,?>[newCapacity];
+            int[] counts = new int[stripes.length];//桶的范围随表长改变，每段的计数要重新统计
+
+            for (int i = oldCapacity ; i-- > 0 ;) {
+                for (Node<K,V> e = oldMap[i] ; e != null ; e = e.next) {
+                    int index = (e.hash & 0x7FFFFFFF) % newCapacity;
+                    newMap[index] = new Node<>(e.hash, e.key, e.value, newMap[index]);//复制而不是移动结点，正在读旧表的线程不受影响
+                    counts[stripeIndex(index, newCapacity)]++;
+                }
+            }
+
+            threshold = (int)Math.min(newCapacity * loadFactor, MAX_ARRAY_SIZE + 1);
+            table = newMap;
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i].count = counts[i];
+                stripes[i].version++;
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Maps the specified <code>key</code> to the specified
+     * <code>value</code> in this hashtable. Neither the key nor the
+     * value can be <code>null</code>.
+     *
+     * @param key the hashtable key
+     * @param value the value
+     * @return the previous value of the specified key in this hashtable,
+     *         or <code>null</code> if it did not have one
+     * @throws NullPointerException if the key or value is <code>null</code>
+     */
+    public V put(K key, V value) {
+        // Make sure the value is not null
+        if (value == null) {
+            throw new NullPointerException();
+        }
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index) ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    V old = e.value;
+                    e.value = value;
+                    s.version++;
+                    return old;
+                }
+            }
+            addEntry(s, tab, hash, key, value, index);
+        } finally {
+            s.unlock();
+        }
+        growIfNeeded();
+        return null;
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this
+     * hashtable. This method does nothing if the key is not in the hashtable.
+     *
+     * @param key the key that needs to be removed
+     * @return the value to which the key had been mapped in this hashtable,
+     *         or <code>null</code> if the key did not have a mapping
+     * @throws NullPointerException if the key is <code>null</code>
+     */
+    public V remove(Object key) {
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index), prev = null ; e != null ; prev = e, e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    unlink(s, tab, index, prev, e);
+                    return e.value;
+                }
+            }
+            return null;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this hashtable.
+     * These mappings will replace any mappings that this hashtable had for any
+     * of the keys currently in the specified map.
+     *
+     * @param t mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> t) {
+        for (Map.Entry<? extends K, ? extends V> e : t.entrySet())
+            put(e.getKey(), e.getValue());
+    }
+
+    /**
+     * Clears this hashtable so that it contains no keys.
+     */
+    public void clear() {
+        lockAll();
+        try {
+            Node<K,V>[] tab = table;
+            for (int index = tab.length; --index >= 0; )
+                setTabAt(tab, index, null);
+            for (Stripe s : stripes) {
+                s.count = 0;
+                s.version++;
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Creates a shallow copy of this hashtable. All the structure of the
+     * hashtable itself is copied, but the keys and values are not cloned.
+     * This is a relatively expensive operation.
+     *
+     * @return a clone of the hashtable
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        StripedHashtable<K,V> t = (StripedHashtable<K,V>)super.clone();
+        t.stripes = new Stripe[stripes.length];
+        for (int i = 0; i < stripes.length; i++)
+            t.stripes[i] = new Stripe();
+        lockAll();
+        try {
+            Node<K,V>[] tab = table;
+            Node<K,V>[] copy = (Node<K,V>[])new Node<?,?>[tab.length];
+            for (int i = tab.length ; i-- > 0 ; ) {
+                for (Node<K,V> e = tab[i] ; e != null ; e = e.next)
+                    copy[i] = new Node<>(e.hash, e.key, e.value, copy[i]);
+            }
+            for (int i = 0; i < stripes.length; i++)
+                t.stripes[i].count = stripes[i].count;//表长相同，各段的桶范围也相同
+            t.threshold = threshold;
+            t.table = copy;
+        } finally {
+            unlockAll();
+        }
+        t.keySet = null;
+        t.entrySet = null;
+        t.values = null;
+        return t;
+    }
+
+    /**
+     * Returns a string representation of this <tt>StripedHashtable</tt>
+     * object in the same form as {@link Hashtable#toString}.
+     *
+     * @return a string representation of this hashtable
+     */
+    public String toString() {
+        Iterator<Map.Entry<K,V>> it = entrySet().iterator();
+        if (! it.hasNext())
+            return "{}";
+
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (;;) {
+            Map.Entry<K,V> e = it.next();
+            K key = e.getKey();
+            V value = e.getValue();
+            sb.append(key   == this ? "(this Map)" : key.toString());
+            sb.append('=');
+            sb.append(value == this ? "(this Map)" : value.toString());
+            if (! it.hasNext())
+                return sb.append('}').toString();
+            sb.append(", ");
+        }
+    }
+
+    // Views
+
+    private transient volatile Set<K> keySet;
+    private transient volatile Set<Map.Entry<K,V>> entrySet;
+    private transient volatile Collection<V> values;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  Its iterator is weakly
+     * consistent.  The set supports element removal, which removes the
+     * corresponding mapping from the map, via the
+     * <tt>Iterator.remove</tt>, <tt>Set.remove</tt>, <tt>removeAll</tt>,
+     * <tt>retainAll</tt>, and <tt>clear</tt> operations.  It does not
+     * support the <tt>add</tt> or <tt>addAll</tt> operations.
+     */
+    public Set<K> keySet() {
+        if (keySet == null)
+            keySet = new KeySet();
+        return keySet;
+    }
+
+    private class KeySet extends AbstractSet<K> {
+        public Iterator<K> iterator() {
+            return new Enumerator<>(KEYS, true);
+        }
+        public int size() {
+            return StripedHashtable.this.size();
+        }
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+        public boolean remove(Object o) {
+            return StripedHashtable.this.remove(o) != null;
+        }
+        public void clear() {
+            StripedHashtable.this.clear();
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  Its iterator is weakly
+     * consistent, and <tt>setValue</tt> on the entries it returns writes
+     * through to the map.  The set supports element removal, which
+     * removes the corresponding mapping from the map, via the
+     * <tt>Iterator.remove</tt>, <tt>Set.remove</tt>, <tt>removeAll</tt>,
+     * <tt>retainAll</tt> and <tt>clear</tt> operations.  It does not
+     * support the <tt>add</tt> or <tt>addAll</tt> operations.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        if (entrySet==null)
+            entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Enumerator<>(ENTRIES, true);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>)o;
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            V v;
+            return key != null && value != null &&
+                (v = get(key)) != null && v.equals(value);
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>)o;
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            return key != null && value != null &&
+                StripedHashtable.this.remove(key, value);
+        }
+
+        public int size() {
+            return StripedHashtable.this.size();
+        }
+
+        public void clear() {
+            StripedHashtable.this.clear();
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  Its iterator is weakly
+     * consistent.  The collection supports element removal, which removes
+     * the corresponding mapping from the map, via the
+     * <tt>Iterator.remove</tt>, <tt>Collection.remove</tt>,
+     * <tt>removeAll</tt>, <tt>retainAll</tt> and <tt>clear</tt>
+     * operations.  It does not support the <tt>add</tt> or <tt>addAll</tt>
+     * operations.
+     */
+    public Collection<V> values() {
+        if (values==null)
+            values = new ValueCollection();
+        return values;
+    }
+
+    private class ValueCollection extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new Enumerator<>(VALUES, true);
+        }
+        public int size() {
+            return StripedHashtable.this.size();
+        }
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+        public void clear() {
+            StripedHashtable.this.clear();
+        }
+    }
+
+    // Comparison and hashing
+
+    /**
+     * Compares the specified Object with this Map for equality,
+     * as per the definition in the Map interface.
+     *
+     * @param o object to be compared for equality with this hashtable
+     * @return true if the specified Object is equal to this Map
+     * @see Map#equals(Object)
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+
+        if (!(o instanceof Map))
+            return false;
+        Map<?,?> t = (Map<?,?>) o;
+        if (t.size() != size())
+            return false;
+
+        try {
+            Node<K,V>[] tab = table;
+            for (int i = tab.length ; i-- > 0 ;) {
+                for (Node<K,V> e = tabAt(tab, i) ; e != null ; e = e.next) {
+                    if (!e.value.equals(t.get(e.key)))
+                        return false;
+                }
+            }
+        } catch (ClassCastException unused)   {
+            return false;
+        } catch (NullPointerException unused) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this Map as per the definition in the
+     * Map interface.
+     *
+     * @see Map#hashCode()
+     */
+    public int hashCode() {
+        for (int retries = 0; retries < RETRIES_BEFORE_LOCK; retries++) {
+            long v = sumVersion();
+            int h = sumHashCodes();
+            if (v == sumVersion())
+                return h;
+        }
+        lockAll();
+        try {
+            return sumHashCodes();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private int sumHashCodes() {
+        int h = 0;
+        Node<K,V>[] tab = table;
+        for (int i = tab.length ; i-- > 0 ;) {
+            for (Node<K,V> e = tabAt(tab, i) ; e != null ; e = e.next)
+                h += e.hash ^ e.value.hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V result = get(key);
+        return (null == result) ? defaultValue : result;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        Node<K,V>[] tab = table;
+        for (int i = tab.length ; i-- > 0 ;) {
+            for (Node<K,V> e = tabAt(tab, i) ; e != null ; e = e.next)
+                action.accept(e.key, e.value);
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        Node<K,V>[] tab = table;
+        for (int i = tab.length ; i-- > 0 ;) {
+            for (Node<K,V> e = tabAt(tab, i) ; e != null ; e = e.next) {
+                K key = e.key;
+                V oldValue = e.value;
+                for (;;) {//不持有锁调用函数，值被其他线程改变时重新计算
+                    V newValue = Objects.requireNonNull(function.apply(key, oldValue));
+                    if (replace(key, oldValue, newValue) ||
+                        (oldValue = get(key)) == null)
+                        break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index) ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key))
+                    return e.value;
+            }
+            addEntry(s, tab, hash, key, value, index);
+        } finally {
+            s.unlock();
+        }
+        growIfNeeded();
+        return null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        Objects.requireNonNull(value);
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index), prev = null ; e != null ; prev = e, e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key) && e.value.equals(value)) {
+                    unlink(s, tab, index, prev, e);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            for (Node<K,V> e = tabAt(tab, (hash & 0x7FFFFFFF) % tab.length) ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    if (e.value.equals(oldValue)) {
+                        e.value = newValue;
+                        s.version++;
+                        return true;
+                    } else {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            for (Node<K,V> e = tabAt(tab, (hash & 0x7FFFFFFF) % tab.length) ; e != null ; e = e.next) {
+                if ((e.hash == hash) && e.key.equals(key)) {
+                    V oldValue = e.value;
+                    e.value = value;
+                    s.version++;
+                    return oldValue;
+                }
+            }
+            return null;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Node<K,V> p = getNode(key);
+        if (p != null)
+            return p.value;//已有映射时不加锁
+
+        int hash = key.hashCode();
+        V newValue;
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index) ; e != null ; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    // Hashtable not accept null value
+                    return e.value;
+                }
+            }
+
+            newValue = mappingFunction.apply(key);
+            if (newValue == null)
+                return null;
+            addEntry(s, tab, hash, key, newValue, index);
+        } finally {
+            s.unlock();
+        }
+        growIfNeeded();
+        return newValue;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index), prev = null ; e != null ; prev = e, e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    V newValue = remappingFunction.apply(key, e.value);
+                    if (newValue == null) {
+                        unlink(s, tab, index, prev, e);
+                    } else {
+                        e.value = newValue;
+                        s.version++;
+                    }
+                    return newValue;
+                }
+            }
+            return null;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+
+        int hash = key.hashCode();
+        V newValue;
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index), prev = null ; e != null ; prev = e, e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    newValue = remappingFunction.apply(key, e.value);
+                    if (newValue == null) {
+                        unlink(s, tab, index, prev, e);
+                    } else {
+                        e.value = newValue;
+                        s.version++;
+                    }
+                    return newValue;
+                }
+            }
+
+            newValue = remappingFunction.apply(key, null);
+            if (newValue == null)
+                return null;
+            addEntry(s, tab, hash, key, newValue, index);
+        } finally {
+            s.unlock();
+        }
+        growIfNeeded();
+        return newValue;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+
+        int hash = key.hashCode();
+        Stripe s = lockStripe(hash);
+        try {
+            Node<K,V>[] tab = table;
+            int index = (hash & 0x7FFFFFFF) % tab.length;
+            for (Node<K,V> e = tabAt(tab, index), prev = null ; e != null ; prev = e, e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    V newValue = remappingFunction.apply(e.value, value);
+                    if (newValue == null) {
+                        unlink(s, tab, index, prev, e);
+                    } else {
+                        e.value = newValue;
+                        s.version++;
+                    }
+                    return newValue;
+                }
+            }
+
+            if (value == null)
+                return null;
+            addEntry(s, tab, hash, key, value, index);
+        } finally {
+            s.unlock();
+        }
+        growIfNeeded();
+        return value;
+    }
+
+    /**
+     * Save the state of the StripedHashtable to a stream (i.e., serialize
+     * it).  Every stripe is locked while the entries are copied.
+     *
+     * @serialData The <i>capacity</i> of the hashtable (the length of the
+     *             bucket array) is emitted (int), followed by the
+     *             <i>size</i> of the hashtable (the number of key-value
+     *             mappings), followed by the key (Object) and value (Object)
+     *             for each key-value mapping, as for <tt>Hashtable</tt>.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws IOException {
+        Node<K,V> entryStack = null;
+        int length, count = 0;
+
+        lockAll();
+        try {
+            Node<K,V>[] tab = table;
+            length = tab.length;
+            // Stack copies of the entries in the table
+            for (int index = 0; index < tab.length; index++) {
+                for (Node<K,V> e = tab[index]; e != null; e = e.next) {
+                    entryStack = new Node<>(0, e.key, e.value, entryStack);
+                    count++;
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+
+        // Write out the load factor and concurrency level
+        s.defaultWriteObject();
+
+        // Write out the length and count of elements
+        s.writeInt(length);
+        s.writeInt(count);
+
+        // Write out the key/value objects from the stacked entries
+        for (; entryStack != null; entryStack = entryStack.next) {
+            s.writeObject(entryStack.key);
+            s.writeObject(entryStack.value);
+        }
+    }
+
+    /**
+     * Reconstitute the StripedHashtable from a stream (i.e., deserialize
+     * it), sizing the table as Hashtable does.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+         throws IOException, ClassNotFoundException
+    {
+        // Read in the load factor and concurrency level
+        s.defaultReadObject();
+
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new StreamCorruptedException("Illegal Load: " + loadFactor);
+        if (concurrencyLevel <= 0 || concurrencyLevel > MAX_STRIPES)
+            throw new InvalidObjectException("Illegal Concurrency Level: " +
+                                             concurrencyLevel);
+
+        // Read the original length of the array and number of elements
+        int origlength = s.readInt();
+        int elements = s.readInt();
+
+        // Validate # of elements
+        if (elements < 0)
+            throw new StreamCorruptedException("Illegal # of Elements: " + elements);
+
+        // Same sizing as Hashtable.readObject
+        origlength = Math.max(origlength, (int)(elements / loadFactor) + 1);
+        int length = (int)((elements + elements / 20) / loadFactor) + 3;
+        if (length > elements && (length & 1) == 0)
+            length--;
+        length = Math.min(length, origlength);
+        init(length);
+
+        // Read the number of elements and then all the key/value objects
+        for (; elements > 0; elements--) {
+            @SuppressWarnings("unchecked")
+                K key = (K)s.readObject();
+            @SuppressWarnings("unchecked")
+                V value = (V)s.readObject();
+            reconstitutionPut(key, value);
+        }
+    }
+
+    /**
+     * The put method used by readObject, which neither locks nor rehashes
+     * since the table is not shared yet and is large enough.
+     */
+    private void reconstitutionPut(K key, V value)
+        throws StreamCorruptedException
+    {
+        if (value == null) {
+            throw new StreamCorruptedException();
+        }
+        Node<K,V>[] tab = table;
+        int hash = key.hashCode();
+        int index = (hash & 0x7FFFFFFF) % tab.length;
+        for (Node<K,V> e = tab[index] ; e != null ; e = e.next) {
+            if ((e.hash == hash) && e.key.equals(key)) {
+                throw new StreamCorruptedException();
+            }
+        }
+        tab[index] = new Node<>(hash, key, value, tab[index]);
+        stripes[stripeIndex(index, tab.length)].count++;
+    }
+
+    // Types of Enumerations/Iterations
+    private static final int KEYS = 0;
+    private static final int VALUES = 1;
+    private static final int ENTRIES = 2;
+
+    /**
+     * A weakly consistent enumerator over the table at the time of its
+     * creation.  Like the Hashtable enumerator, it implements both the
+     * Enumeration and Iterator interfaces, with the Iterator remove method
+     * disabled for the enumerations.
+     */
+    private class Enumerator<T> implements Enumeration<T>, Iterator<T> {
+        final Node<K,V>[] tab = table;
+        int index = tab.length;
+        Node<K,V> entry;
+        Node<K,V> lastReturned;
+        final int type;
+
+        /**
+         * Indicates whether this Enumerator is serving as an Iterator
+         * or an Enumeration.  (true -> Iterator).
+         */
+        final boolean iterator;
+
+        Enumerator(int type, boolean iterator) {
+            this.type = type;
+            this.iterator = iterator;
+        }
+
+        public boolean hasMoreElements() {
+            Node<K,V> e = entry;
+            int i = index;
+            /* Use locals for faster loop iteration */
+            while (e == null && i > 0) {
+                e = tabAt(tab, --i);
+            }
+            entry = e;
+            index = i;
+            return e != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T nextElement() {
+            if (!hasMoreElements())
+                throw new NoSuchElementException("Hashtable Enumerator");
+            Node<K,V> e = lastReturned = entry;
+            entry = e.next;
+            return type == KEYS ? (T)e.key :
+                (type == VALUES ? (T)e.value : (T)new WriteThroughEntry(e.key, e.value));
+        }
+
+        // Iterator methods
+        public boolean hasNext() {
+            return hasMoreElements();
+        }
+
+        public T next() {
+            return nextElement();
+        }
+
+        public void remove() {
+            if (!iterator)
+                throw new UnsupportedOperationException();
+            if (lastReturned == null)
+                throw new IllegalStateException("Hashtable Enumerator");
+            StripedHashtable.this.remove(lastReturned.key);
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * The entries returned by the entry set iterator, whose setValue
+     * writes through to the map.
+     */
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = 4170395532791549337L;
+
+        WriteThroughEntry(K k, V v) {
+            super(k, v);
+        }
+
+        public V setValue(V value) {
+            if (value == null)
+                throw new NullPointerException();
+            V v = super.setValue(value);
+            StripedHashtable.this.put(getKey(), value);
+            return v;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            ABASE = U.arrayBaseOffset(Node[].class);
+            int scale = U.arrayIndexScale(Node[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package java.util;
+
+/**
+ * Bounded cache using the W-TinyLFU policy, for workloads where an
+ * access-ordered {@link LinkedHashMap} evicting through
+ * <tt>removeEldestEntry</tt> performs poorly.  Pure LRU admits every new
+ * key and evicts whatever was used least recently, so a single scan over
+ * many keys that are never read again flushes the whole working set.
+ *
+ * <p>This cache keeps an approximate access frequency of every key it has
+ * seen recently, including keys no longer cached, in a count-min sketch of
+ * 4-bit counters.  The counters are halved every <tt>10 * maximumSize</tt>
+ * increments, so that the history ages and the cache adapts when the
+ * popular keys change.  Entries live in three access-ordered
+ * <tt>LinkedHashMap</tt>s:
+ * <ul>
+ * <li>the <em>window</em>, about 1% of the capacity, where every new entry
+ * is admitted, as in LRU, so that bursts of new keys still hit;
+ * <li>the <em>probation</em> and <em>protected</em> segments of the main
+ * region, a segmented LRU: an entry leaving the window enters probation,
+ * and moves to protected (80% of the main region) when it is read again.
+ * Entries overflowing protected go back to probation.
+ * </ul>
+ * When the window overflows, its eldest entry becomes a candidate for the
+ * main region.  If the main region is full, the candidate is admitted only
+ * if the sketch estimates it was used more often than the eldest entry of
+ * probation, which is then evicted; otherwise the candidate itself is
+ * evicted.  Scans therefore pass through the window without displacing the
+ * frequently used entries of the main region.
+ *
+ * <p>{@link #hitCount}, {@link #missCount} and {@link #evictionCount} count
+ * the lookups done by {@link #get} and the entries evicted, so that the hit
+ * rate can be compared with that of an LRU cache such as
+ * {@link java.util.concurrent.ConcurrentLruCache}, which has the same
+ * counters.
+ *
+ * <p>This cache does not permit <tt>null</tt> keys or values.  Only
+ * <tt>get</tt> and <tt>put</tt> count as accesses; iterating over the
+ * views does not.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Like an access-ordered <tt>LinkedHashMap</tt>, it is structurally
+ * modified by <tt>get</tt>.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap#removeEldestEntry
+ */
+public class TinyLfuCache<K,V> extends AbstractMap<K,V> {
+
+    /**
+     * Percentage of the capacity given to the window.
+     */
+    static final int WINDOW_PERCENT = 1;
+
+    /**
+     * Percentage of the main region given to the protected segment.
+     */
+    static final int PROTECTED_PERCENT = 80;
+
+    final LinkedHashMap<K,V> window;
+    final LinkedHashMap<K,V> probation;
+    final LinkedHashMap<K,V> protectedSegment;
+
+    final int maximumSize;
+    final int windowCapacity;
+    final int mainCapacity;
+    final int protectedCapacity;
+
+    final FrequencySketch sketch;
+
+    long hitCount;
+    long missCount;
+    long evictionCount;
+
+    /**
+     * Creates a cache holding at most the given number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public TinyLfuCache(int maximumSize) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Illegal maximum size: " +
+                                               maximumSize);
+        this.maximumSize = maximumSize;
+        this.windowCapacity = Math.max(1, (int)((long)maximumSize * WINDOW_PERCENT / 100));
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.protectedCapacity = (int)((long)mainCapacity * PROTECTED_PERCENT / 100);
+        this.window = new LinkedHashMap<>(16, 0.75f, true);
+        this.probation = new LinkedHashMap<>(16, 0.75f, true);
+        this.protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the maximum number of entries of this cache.
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of lookups by {@link #get} that found a value.
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups by {@link #get} that found no value.
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of entries evicted, including candidates that
+     * were refused admission to the main region.
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    public int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Returns the value to which the key is mapped, or <tt>null</tt>, and
+     * records the access.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null)
+            return null;
+        sketch.increment(key);
+        V v;
+        if ((v = window.get(key)) != null ||
+            (v = protectedSegment.get(key)) != null) {
+            ++hitCount;
+            return v;
+        }
+        if ((v = probation.remove(key)) != null) {
+            promote((K)key, v);//再次访问时从probation晋升到protected
+            ++hitCount;
+            return v;
+        }
+        ++missCount;
+        return null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this cache contains the key.  This does not
+     * count as an access.
+     */
+    public boolean containsKey(Object key) {
+        return window.containsKey(key) || protectedSegment.containsKey(key) ||
+            probation.containsKey(key);
+    }
+
+    /**
+     * Maps the key to the value.  A new entry enters the window, possibly
+     * causing the eviction of another entry or of the candidate leaving
+     * the window.
+     *
+     * @return the previous value, or <tt>null</tt> if there was none
+     * @throws NullPointerException if the key or value is null
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        sketch.increment(key);
+        V old;
+        if ((old = window.replace(key, value)) != null ||
+            (old = protectedSegment.replace(key, value)) != null)
+            return old;
+        if ((old = probation.remove(key)) != null) {
+            promote(key, value);
+            return old;
+        }
+        window.put(key, value);
+        if (window.size() > windowCapacity)
+            evictFromWindow();
+        return null;
+    }
+
+    /**
+     * Moves an entry to the MRU end of protected, demoting the eldest
+     * entries of protected to probation if it overflows.
+     */
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        while (protectedSegment.size() > protectedCapacity) {
+            Map.Entry<K,V> e = eldest(protectedSegment);
+            protectedSegment.remove(e.getKey());
+            probation.put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Moves the eldest entries of the window to the main region while the
+     * window is over capacity, deciding admission with the sketch when the
+     * main region is full.
+     */
+    private void evictFromWindow() {
+        while (window.size() > windowCapacity) {
+            Map.Entry<K,V> candidate = eldest(window);
+            K key = candidate.getKey();
+            window.remove(key);
+            if (probation.size() + protectedSegment.size() < mainCapacity) {
+                probation.put(key, candidate.getValue());
+                continue;
+            }
+            LinkedHashMap<K,V> victims = probation.isEmpty() ? protectedSegment : probation;
+            if (!victims.isEmpty()) {
+                Map.Entry<K,V> victim = eldest(victims);
+                // 候选者的估计频率高于被淘汰者时才允许进入主区域
+                if (sketch.frequency(key) > sketch.frequency(victim.getKey())) {
+                    victims.remove(victim.getKey());
+                    probation.put(key, candidate.getValue());
+                }
+            }
+            ++evictionCount;
+        }
+    }
+
+    private static <K,V> Map.Entry<K,V> eldest(LinkedHashMap<K,V> m) {
+        return m.entrySet().iterator().next();
+    }
+
+    public V remove(Object key) {
+        V v;
+        if ((v = window.remove(key)) != null ||
+            (v = protectedSegment.remove(key)) != null ||
+            (v = probation.remove(key)) != null)
+            return v;
+        return null;
+    }
+
+    /**
+     * Removes all of the entries from this cache.  The frequency history
+     * and the counters are kept.
+     */
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    /* ---------------- Views -------------- */
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a view of the entries: those of the window, then those of
+     * probation and of protected, each from least to most recently used.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() { return TinyLfuCache.this.size(); }
+        public void clear() { TinyLfuCache.this.clear(); }
+        public boolean contains(Object o) {
+            return window.entrySet().contains(o) ||
+                probation.entrySet().contains(o) ||
+                protectedSegment.entrySet().contains(o);
+        }
+        public boolean remove(Object o) {
+            return window.entrySet().remove(o) ||
+                probation.entrySet().remove(o) ||
+                protectedSegment.entrySet().remove(o);
+        }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Iterator<Map.Entry<K,V>>() {
+                final List<Iterator<Map.Entry<K,V>>> its = Arrays.asList(
+                    window.entrySet().iterator(),
+                    probation.entrySet().iterator(),
+                    protectedSegment.entrySet().iterator());
+                int i;
+                Iterator<Map.Entry<K,V>> last;
+                public boolean hasNext() {
+                    while (i < its.size() && !its.get(i).hasNext())
+                        ++i;
+                    return i < its.size();
+                }
+                public Map.Entry<K,V> next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    return (last = its.get(i)).next();
+                }
+                public void remove() {
+                    if (last == null)
+                        throw new IllegalStateException();
+                    last.remove();
+                    last = null;
+                }
+            };
+        }
+    }
+
+    /* ---------------- Frequency sketch -------------- */
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often keys were
+     * accessed.  Each long of the table holds 16 counters; a key uses four
+     * counters, one per hash function, in four different longs but in the
+     * same quarter of each long, and its frequency is the smallest of the
+     * four.  After sampleSize increments every counter is halved, which
+     * ages the history and bounds the error.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        static final long RESET_MASK = 0x7777777777777777L;
+
+        final long[] table;
+        final int sampleSize;
+        int additions;
+
+        FrequencySketch(int maximumSize) {
+            int n = HashMap.tableSizeFor(Math.max(maximumSize, 4));
+            table = new long[n];
+            sampleSize = (maximumSize > Integer.MAX_VALUE / 10) ?
+                Integer.MAX_VALUE : 10 * maximumSize;
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        int indexOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return (int)hash & (table.length - 1);
+        }
+
+        /**
+         * Returns the estimated number of accesses to o, at most 15.
+         */
+        int frequency(Object o) {
+            int h = spread(o.hashCode());
+            int start = (h & 3) << 2;
+            int f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int c = (int)((table[indexOf(h, i)] >>> ((start + i) << 2)) & 0xFL);
+                f = Math.min(f, c);
+            }
+            return f;
+        }
+
+        /**
+         * Increments the counters of o, unless saturated, and ages the
+         * sketch when the sample is complete.
+         */
+        void increment(Object o) {
+            int h = spread(o.hashCode());
+            int start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int j = indexOf(h, i), offset = (start + i) << 2;
+                long mask = 0xFL << offset;
+                if ((table[j] & mask) != mask) {
+                    table[j] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+                reset();
+        }
+
+        /**
+         * Halves every counter.
+         */
+        void reset() {
+            for (int i = 0; i < table.length; ++i)
+                table[i] = (table[i] >>> 1) & RESET_MASK;//每个4位计数器右移一位
+            additions >>>= 1;
+        }
+    }
+}
@@ -26,6 +26,9 @@
 package java.util;
 
 import java.io.Serializable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -41,6 +44,13 @@ import java.util.function.Consumer;
  * operations.  Algorithms are adaptations of those in Cormen, Leiserson, and
  * Rivest's <em>Introduction to Algorithms</em>.
  *
+ * <p>Each node also records the number of entries of its subtree, which
+ * makes the map an order-statistic tree: {@link #rank} and {@link #select}
+ * convert between keys and their positions in log(n) time, and the
+ * {@code size} of the views returned by {@code subMap}, {@code headMap} and
+ * {@code tailMap} is computed in log(n) time rather than by iterating over
+ * the range.每个结点记录子树中的结点数，可以在log(n)时间内按位置查找，以及计算子Map的大小
+ *
  * <p>Note that the ordering maintained by a tree map, like any sorted map, and
  * whether or not an explicit comparator is provided, must be <em>consistent
  * with {@code equals}</em> if this sorted map is to correctly implement the
@@ -120,7 +130,7 @@ public class TreeMap<K,V>
      */
     private final Comparator<? super K> comparator;
 
-    private transient Entry<K,V> root;
+    transient Entry<K,V> root;
 
     /**
      * The number of entries in the tree
@@ -130,7 +140,7 @@ public class TreeMap<K,V>
     /**
      * The number of structural modifications to the tree.
      */
-    private transient int modCount = 0;
+    transient int modCount = 0;
 
     /**
      * Constructs a new, empty tree map, using the natural ordering of its
@@ -297,6 +307,79 @@ public class TreeMap<K,V>
         return key(getLastEntry());
     }
 
+    /**
+     * Returns the number of keys in this map strictly less than the given
+     * key, which is the index of the key in ascending order if it is
+     * present, or the index at which it would be inserted otherwise.  This
+     * method runs in log(n) time.
+     *
+     * @param key the key
+     * @return the number of keys less than {@code key}
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public int rank(Object key) {
+        return rankOf(key, false);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the key at the given
+     * index in ascending key order, so that {@code select(0)} is the first
+     * entry and {@code select(size() / 2)} a median.  This method runs in
+     * log(n) time.
+     *
+     * @param index the index of the entry, from 0 to {@code size() - 1}
+     * @return the entry at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Map.Entry<K,V> select(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        return exportEntry(getEntryAt(index));
+    }
+
+    /**
+     * Returns the number of keys less than key, or less than or equal to
+     * it if inclusive.
+     */
+    final int rankOf(Object key, boolean inclusive) {
+        int rank = 0;
+        Entry<K,V> p = root;
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0 || (cmp == 0 && !inclusive))
+                p = p.left;
+            else {//p和它的左子树都在key之前
+                rank += countOf(p.left) + 1;
+                p = p.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the entry at the given index in ascending key order, or null
+     * if the index is out of range.
+     */
+    final Entry<K,V> getEntryAt(int index) {
+        Entry<K,V> p = root;
+        while (p != null) {
+            int l = countOf(p.left);
+            if (index < l)
+                p = p.left;
+            else if (index == l)
+                return p;
+            else {
+                index -= l + 1;
+                p = p.right;
+            }
+        }
+        return null;
+    }
+
     /**
      * Copies all of the mappings from the specified map to this map.
      * These mappings replace any mappings that this map had for any
@@ -327,6 +410,278 @@ public class TreeMap<K,V>
         super.putAll(map);
     }
 
+    /**
+     * Copies all of the mappings from the specified map to this map,
+     * splitting the work over the given pool when the two maps together
+     * hold at least <tt>parallelismThreshold</tt> mappings.  Instead of
+     * inserting the mappings one at a time, the mappings of <tt>map</tt>
+     * are sorted with {@link Arrays#parallelSort(Object[], Comparator)}
+     * (unless <tt>map</tt> is a sorted map with the same ordering), merged
+     * in linear time with those already in this map, and the whole tree is
+     * rebuilt with the shape and colors of {@code buildFromSorted}, its
+     * subtrees being built as ForkJoin tasks.  The map is not
+     * synchronized: the caller must ensure no other thread modifies it, or
+     * <tt>map</tt>, while this method runs.
+     *
+     * <p>As with {@link #put}, when several mappings have equal keys the
+     * key already in this map, or else the first one met in <tt>map</tt>,
+     * is kept, with the value of the last one met in <tt>map</tt>.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param map mappings to be stored in this map
+     * @param pool the pool running the tasks
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map or pool is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(long parallelismThreshold,
+                       Map<? extends K, ? extends V> map, ForkJoinPool pool) {
+        if (pool == null)
+            throw new NullPointerException();
+        int b = batchFor(parallelismThreshold, (long)size + map.size(), pool);
+        if (b == 0) {
+            putAll(map);
+            return;
+        }
+        Object[] a = map.entrySet().toArray();
+        int n = a.length;
+        if (n == 0)
+            return;
+        Comparator<?> c;
+        if (!(map instanceof SortedMap) ||
+            ((c = ((SortedMap<?,?>)map).comparator()) != comparator &&
+             (c == null || !c.equals(comparator)))) {
+            Comparator<Object> byKey = (x, y) ->
+                compare(((Map.Entry<?,?>)x).getKey(), ((Map.Entry<?,?>)y).getKey());
+            // 在pool的工作线程中调用，排序的子任务也会提交到pool
+            pool.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(a, byKey)));
+            n = collapseEqualKeys(a);
+        }
+        Object[] nodes = a;
+        boolean copy = true;
+        if (size != 0) {
+            nodes = mergeWithEntries(a, n);
+            n = nodes.length;
+            copy = false;
+        }
+        ++modCount;
+        this.size = n;
+        root = pool.invoke(new BuildTask<K,V>(this, nodes, copy, 0, 0, n - 1,
+                                              computeRedLevel(n), b));
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, in
+     * parallel in the common pool when the two maps together hold at least
+     * <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(long parallelismThreshold, Map<? extends K, ? extends V> map) {
+        putAll(parallelismThreshold, map, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes initial batch value for the parallel putAll, as in
+     * HashMap.batchFor: approximately the number of tasks to split the
+     * build into, or 0 to run sequentially.
+     */
+    static int batchFor(long parallelismThreshold, long n, ForkJoinPool pool) {
+        if (parallelismThreshold == Long.MAX_VALUE || n <= 1L ||
+            n < parallelismThreshold)
+            return 0;
+        int sp = pool.getParallelism() << 2; // slack of 4
+        return (parallelismThreshold <= 0L || (n /= parallelismThreshold) >= sp) ?
+            sp : (int)n;
+    }
+
+    /**
+     * Collapses runs of equal keys in the sorted array of mappings, keeping
+     * the first key with the last value as successive puts would, and
+     * returns the number of distinct keys, now at the front of the array.
+     * The sort is stable, so the runs are in the iteration order of the
+     * source map.
+     */
+    private int collapseEqualKeys(Object[] a) {
+        Map.Entry<?,?> prev = (Map.Entry<?,?>)a[0];
+        compare(prev.getKey(), prev.getKey()); // type (and possibly null) check
+        int j = 0;
+        for (int i = 1; i < a.length; ++i) {
+            Map.Entry<?,?> e = (Map.Entry<?,?>)a[i];
+            if (compare(prev.getKey(), e.getKey()) != 0)
+                a[++j] = prev = e;
+            else//键相等时保留第一个键和最后一个值
+                a[j] = prev = new AbstractMap.SimpleImmutableEntry<>(prev.getKey(), e.getValue());
+        }
+        return j + 1;
+    }
+
+    /**
+     * Merges the entries of this map with the first n sorted, distinct
+     * mappings of a, returning the entries of the merged map in order.
+     * Entries of this map are reused, taking the new value if a holds
+     * their key; the other mappings get new entries.
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] mergeWithEntries(Object[] a, int n) {
+        Object[] r = new Object[size + n];
+        int i = 0, k = 0;
+        Entry<K,V> e = getFirstEntry();
+        while (e != null || i < n) {
+            Map.Entry<K,V> m = (i < n) ? (Map.Entry<K,V>)a[i] : null;
+            int cmp = (e == null) ? 1 : (m == null) ? -1 : compare(e.key, m.getKey());
+            if (cmp <= 0) {
+                if (cmp == 0) {
+                    e.value = m.getValue();
+                    ++i;
+                }
+                r[k++] = e;
+                e = successor(e);
+            } else {
+                r[k++] = newEntry(m.getKey(), m.getValue(), null);
+                ++i;
+            }
+        }
+        return (k == r.length) ? r : Arrays.copyOf(r, k);
+    }
+
+    /**
+     * Builds the subtree of the entries [lo, hi] of a sorted array, with
+     * the same shape, colors and counts as buildFromSorted, forking the
+     * left subtrees while the batch allows it.  If copy is set, the
+     * elements are mappings to copy into new entries; otherwise they are
+     * entries to relink.
+     */
+    @SuppressWarnings("serial")
+    static final class BuildTask<K,V> extends RecursiveTask<Entry<K,V>> {
+        final TreeMap<K,V> map;
+        final Object[] a;
+        final boolean copy;
+        final int level, lo, hi, redLevel, batch;
+
+        BuildTask(TreeMap<K,V> map, Object[] a, boolean copy, int level,
+                  int lo, int hi, int redLevel, int batch) {
+            this.map = map; this.a = a; this.copy = copy; this.level = level;
+            this.lo = lo; this.hi = hi; this.redLevel = redLevel;
+            this.batch = batch;
+        }
+
+        protected Entry<K,V> compute() {
+            Entry<K,V> r = build(level, lo, hi, batch);
+            if (level == 0 && r != null)
+                r.parent = null;
+            return r;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry<K,V> build(int level, int lo, int hi, int batch) {
+            if (hi < lo)
+                return null;
+            int mid = (lo + hi) >>> 1;
+            Entry<K,V> left, right;
+            if (batch > 0 && lo < mid) {//左子树交给新任务，右子树在当前线程构建
+                BuildTask<K,V> t = new BuildTask<>(map, a, copy, level + 1, lo,
+                                                   mid - 1, redLevel, batch >>> 1);
+                t.fork();
+                right = build(level + 1, mid + 1, hi, batch >>> 1);
+                left = t.join();
+            } else {
+                left = build(level + 1, lo, mid - 1, 0);
+                right = build(level + 1, mid + 1, hi, 0);
+            }
+            Entry<K,V> middle;
+            if (copy) {
+                Map.Entry<K,V> m = (Map.Entry<K,V>)a[mid];
+                middle = map.newEntry(m.getKey(), m.getValue(), null);
+            } else
+                middle = (Entry<K,V>)a[mid];
+            middle.count = hi - lo + 1;
+            middle.color = (level == redLevel) ? RED : BLACK;
+            middle.left = left;
+            middle.right = right;
+            if (left != null)
+                left.parent = middle;
+            if (right != null)
+                right.parent = middle;
+            map.afterSubtreeChange(middle);
+            return middle;
+        }
+    }
+
+    /*
+     * Set algebra.  The methods below walk this map and the argument in
+     * key order at the same time, and build the result with
+     * buildFromSorted, in O(n + m) time when the argument is a sorted map
+     * with the same ordering as this map.  Other maps are first sorted into
+     * an array, in O(m log m) time.
+     */
+
+    /**
+     * Returns a new map holding the mappings of this map and of the
+     * specified map, ordered by the comparator of this map.  Where both
+     * maps have a key, the result keeps the key of this map and the value
+     * of the specified map, as {@link #putAll} would.
+     *
+     * @param m the map to merge with this map
+     * @return the union of this map and {@code m}
+     * @throws ClassCastException if the keys of {@code m} cannot be compared
+     *         with the keys of this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key and this map does not permit null keys
+     */
+    public TreeMap<K,V> union(Map<? extends K, ? extends V> m) {
+        return merge(m, UNION);
+    }
+
+    /**
+     * Returns a new map holding the mappings of this map whose keys are
+     * also keys of the specified map.
+     *
+     * @param m the map whose keys are to be retained
+     * @return the mappings of this map with a key in {@code m}
+     * @throws ClassCastException if the keys of {@code m} cannot be compared
+     *         with the keys of this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key and this map does not permit null keys
+     */
+    public TreeMap<K,V> intersection(Map<?,?> m) {
+        return merge(m, INTERSECTION);
+    }
+
+    /**
+     * Returns a new map holding the mappings of this map whose keys are
+     * not keys of the specified map.
+     *
+     * @param m the map whose keys are to be left out
+     * @return the mappings of this map with no key in {@code m}
+     * @throws ClassCastException if the keys of {@code m} cannot be compared
+     *         with the keys of this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key and this map does not permit null keys
+     */
+    public TreeMap<K,V> difference(Map<?,?> m) {
+        return merge(m, DIFFERENCE);
+    }
+
+    private TreeMap<K,V> merge(Map<?,?> m, int op) {
+        TreeMap<K,V> r = new TreeMap<>(comparator);
+        boolean sorted = m instanceof SortedMap &&
+            sameOrdering(((SortedMap<?,?>)m).comparator());
+        r.buildFromMerge(entrySet().iterator(),
+                         r.sortedIterator(m.entrySet(), sorted, true), op, null);
+        return r;
+    }
+
     /**
      * Returns this map's entry for the given key, or {@code null} if the map
      * does not contain an entry for the key.
@@ -543,7 +898,7 @@ public class TreeMap<K,V>
         if (t == null) {//当前集合为空
             compare(key, key); //检查key是否可比较
 
-            root = new Entry<>(key, value, null);
+            root = newEntry(key, value, null);
             size = 1;
             modCount++;
             return null;
@@ -580,11 +935,15 @@ public class TreeMap<K,V>
                     return t.setValue(value);//寻找到了key值相等的点
             } while (t != null);
         }
-        Entry<K,V> e = new Entry<>(key, value, parent);//没有key相等的结点，新建一个，作为parent的子结点
+        Entry<K,V> e = newEntry(key, value, parent);//没有key相等的结点，新建一个，作为parent的子结点
         if (cmp < 0)
             parent.left = e;
         else
             parent.right = e;
+        for (Entry<K,V> a = parent; a != null; a = a.parent) {
+            a.count++;//路径上每个祖先的子树都多了一个结点
+            afterSubtreeChange(a);
+        }
         fixAfterInsertion(e);//以插入的结点为中心，修复维持红黑树性质
         size++;
         modCount++;
@@ -986,7 +1345,7 @@ public class TreeMap<K,V>
     public boolean replace(K key, V oldValue, V newValue) {
         Entry<K,V> p = getEntry(key);
         if (p!=null && Objects.equals(oldValue, p.value)) {
-            p.value = newValue;
+            p.setValue(newValue);
             return true;
         }
         return false;
@@ -996,9 +1355,7 @@ public class TreeMap<K,V>
     public V replace(K key, V value) {
         Entry<K,V> p = getEntry(key);
         if (p!=null) {
-            V oldValue = p.value;
-            p.value = value;
-            return oldValue;
+            return p.setValue(value);
         }
         return null;
     }
@@ -1632,21 +1989,16 @@ public class TreeMap<K,V>
         // View classes
 
         abstract class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
-            private transient int size = -1, sizeModCount;
-
+            /**
+             * Returns the number of entries in range, the difference of
+             * the ranks of the bounds, in log(n) time.
+             */
             public int size() {
                 if (fromStart && toEnd)
                     return m.size();
-                if (size == -1 || sizeModCount != m.modCount) {
-                    sizeModCount = m.modCount;
-                    size = 0;
-                    Iterator<?> i = iterator();
-                    while (i.hasNext()) {
-                        size++;
-                        i.next();
-                    }
-                }
-                return size;
+                int below = fromStart ? 0 : m.rankOf(lo, !loInclusive);//范围下界之前的结点数
+                int upTo = toEnd ? m.size() : m.rankOf(hi, hiInclusive);//范围上界及之前的结点数
+                return Math.max(upTo - below, 0);
             }
 
             public boolean isEmpty() {
@@ -2059,13 +2411,14 @@ public class TreeMap<K,V>
      * user (see Map.Entry).
      */
 
-    static final class Entry<K,V> implements Map.Entry<K,V> {
+    static class Entry<K,V> implements Map.Entry<K,V> {
         K key;
         V value;
         Entry<K,V> left;
         Entry<K,V> right;
         Entry<K,V> parent;
         boolean color = BLACK;
+        int count = 1;//以该结点为根的子树中的结点数
 
         /**
          * Make a new cell with given key, value, and parent, and with
@@ -2211,6 +2564,30 @@ public class TreeMap<K,V>
         return (p == null ? BLACK : p.color);
     }
 
+    private static <K,V> int countOf(Entry<K,V> p) {
+        return (p == null ? 0 : p.count);
+    }
+
+    // Callbacks to allow AugmentedTreeMap post-actions
+
+    /**
+     * Creates a new entry.  AugmentedTreeMap overrides this to create
+     * entries that hold an aggregate of their subtree.
+     */
+    Entry<K,V> newEntry(K key, V value, Entry<K,V> parent) {
+        return new Entry<>(key, value, parent);
+    }
+
+    /**
+     * Called after the children, or the value, of e changed, and after
+     * its count was updated, lower entries first: by put and deleteEntry
+     * for each ancestor of the entry added or unlinked, by the rotations
+     * for the two entries rotated, and by the builds for each new subtree.
+     * An entry whose count is 0 is a phantom about to be unlinked, and
+     * belongs to no subtree.
+     */
+    void afterSubtreeChange(Entry<K,V> e) { }
+
     private static <K,V> Entry<K,V> parentOf(Entry<K,V> p) {
         return (p == null ? null: p.parent);
     }
@@ -2244,6 +2621,10 @@ public class TreeMap<K,V>
                 p.parent.right = r;
             r.left = p;
             p.parent = r;
+            r.count = p.count;//旋转后r的子树就是原来p的子树
+            p.count = countOf(p.left) + countOf(p.right) + 1;
+            afterSubtreeChange(p);
+            afterSubtreeChange(r);
         }
     }
 
@@ -2261,6 +2642,10 @@ public class TreeMap<K,V>
             else p.parent.left = l;
             l.right = p;
             p.parent = l;
+            l.count = p.count;
+            p.count = countOf(p.left) + countOf(p.right) + 1;
+            afterSubtreeChange(p);
+            afterSubtreeChange(l);
         }
     }
 
@@ -2338,12 +2723,23 @@ public class TreeMap<K,V>
             // Null out links so they are OK to use by fixAfterDeletion.
             p.left = p.right = p.parent = null;
 
+            // p is unlinked; its ancestors lose one entry
+            for (Entry<K,V> a = replacement.parent; a != null; a = a.parent) {
+                a.count--;
+                afterSubtreeChange(a);
+            }
+
             // Fix replacement
             if (p.color == BLACK)
                 fixAfterDeletion(replacement);
         } else if (p.parent == null) { // return if we are the only node.
             root = null;
         } else { //  No children. Use self as phantom replacement and unlink.
+            p.count = 0;//作为幻影结点参与旋转时不应被计数
+            for (Entry<K,V> a = p.parent; a != null; a = a.parent) {
+                a.count--;
+                afterSubtreeChange(a);
+            }
             if (p.color == BLACK)
                 fixAfterDeletion(p);
 
@@ -2480,6 +2876,110 @@ public class TreeMap<K,V>
         }
     }
 
+    /*
+     * Operations of buildFromMerge.
+     */
+    static final int UNION        = 0;
+    static final int INTERSECTION = 1;
+    static final int DIFFERENCE   = 2;
+
+    /**
+     * Returns whether the given comparator orders keys as this map does.
+     */
+    final boolean sameOrdering(Comparator<?> c) {
+        return c == comparator || (c != null && c.equals(comparator));
+    }
+
+    /**
+     * Returns an iterator over the elements of c in the order of this map,
+     * with distinct keys.  The elements are keys, or entries if entries is
+     * set.  If sorted, c is already in that order; otherwise its elements
+     * are sorted into an array and equal keys are collapsed.
+     */
+    final Iterator<?> sortedIterator(Collection<?> c, boolean sorted, boolean entries) {
+        if (sorted)
+            return c.iterator();
+        Object[] a = c.toArray();
+        if (a.length == 0)
+            return Collections.emptyIterator();
+        int n;
+        if (entries) {
+            Arrays.sort(a, (x, y) ->
+                compare(((Map.Entry<?,?>)x).getKey(), ((Map.Entry<?,?>)y).getKey()));
+            n = collapseEqualKeys(a);
+        } else {
+            Arrays.sort(a, (x, y) -> compare(x, y));
+            compare(a[0], a[0]); // type (and possibly null) check
+            n = 1;
+            for (int i = 1; i < a.length; ++i)
+                if (compare(a[n - 1], a[i]) != 0)
+                    a[n++] = a[i];
+        }
+        return Arrays.asList(a).subList(0, n).iterator();
+    }
+
+    /**
+     * Builds this empty map from the union, intersection or difference of
+     * a and b, iterators over distinct keys in the order of this map.  The
+     * iterators return keys, each mapped to defaultVal, or entries if
+     * defaultVal is null.  Both are walked once, in step, and the result
+     * is built with buildFromSorted.  Where both have a key, the result
+     * keeps the element of a, except that the union of entries takes the
+     * value of b, as putAll would.
+     */
+    @SuppressWarnings("unchecked")
+    final void buildFromMerge(Iterator<?> a, Iterator<?> b, int op, V defaultVal) {
+        boolean entries = (defaultVal == null);
+        ArrayList<Object> r = new ArrayList<>();
+        Object x = null, y = null;
+        boolean hx, hy;
+        if (hx = a.hasNext())
+            x = a.next();
+        if (hy = b.hasNext())
+            y = b.next();
+        while (hx && hy) {
+            int cmp = entries ?
+                compare(((Map.Entry<?,?>)x).getKey(), ((Map.Entry<?,?>)y).getKey()) :
+                compare(x, y);
+            if (cmp <= 0) {
+                if (cmp == 0) {//两边都有的键，并集和交集保留a中的键
+                    if (op == UNION && entries)
+                        r.add(new AbstractMap.SimpleImmutableEntry<>(
+                            ((Map.Entry<K,V>)x).getKey(), ((Map.Entry<K,V>)y).getValue()));
+                    else if (op != DIFFERENCE)
+                        r.add(x);
+                    if (hy = b.hasNext())
+                        y = b.next();
+                }
+                else if (op != INTERSECTION)
+                    r.add(x);
+                if (hx = a.hasNext())
+                    x = a.next();
+            } else {
+                if (op == UNION)
+                    r.add(y);
+                if (hy = b.hasNext())
+                    y = b.next();
+            }
+        }
+        if (hx && op != INTERSECTION) {//剩余部分直接复制
+            r.add(x);
+            while (a.hasNext())
+                r.add(a.next());
+        }
+        if (hy && op == UNION) {
+            r.add(y);
+            while (b.hasNext())
+                r.add(b.next());
+        }
+        ++modCount;
+        try {
+            buildFromSorted(r.size(), r.iterator(), null, defaultVal);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+    }
+
 
     /**
      * Linear time tree building algorithm from sorted data.  Can accept keys
@@ -2584,7 +3084,8 @@ public class TreeMap<K,V>
             value = (defaultVal != null ? defaultVal : (V) str.readObject());//defaultVal不为null则value=defaultVal，否则value从流中读取
         }
 
-        Entry<K,V> middle =  new Entry<>(key, value, null);//根据key value构造一个新结点
+        Entry<K,V> middle =  newEntry(key, value, null);//根据key value构造一个新结点
+        middle.count = hi - lo + 1;
 
         // 将非满的最底层结点染红，递归过程中redLevel没变也就是说只有一个高度会出现红色
         if (level == redLevel)
@@ -2601,6 +3102,7 @@ public class TreeMap<K,V>
             middle.right = right;
             right.parent = middle;
         }
+        afterSubtreeChange(middle);
 
         return middle;
     }
@@ -312,6 +312,72 @@ public class TreeSet<E> extends AbstractSet<E>
         return super.addAll(c);
     }
 
+    /**
+     * Returns a new set holding the elements of this set and of the
+     * specified collection, ordered as this set is.  Both are walked once
+     * in order, and the result is built in linear time, so this takes
+     * O(n + m) time when {@code c} is a sorted set with the same ordering
+     * as this set, rather than the O(m log(n + m)) of {@link #addAll}.
+     * Other collections are first sorted, in O(m log m) time.  Where both
+     * hold equal elements, the element of this set is kept.
+     *
+     * @param c the collection to merge with this set
+     * @return the union of this set and {@code c}
+     * @throws ClassCastException if the elements of {@code c} cannot be
+     *         compared with the elements of this set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     */
+    public TreeSet<E> union(Collection<? extends E> c) {
+        return merge(c, TreeMap.UNION);
+    }
+
+    /**
+     * Returns a new set holding the elements of this set that are also in
+     * the specified collection.  Like {@link #union}, this takes O(n + m)
+     * time when {@code c} is a sorted set with the same ordering as this
+     * set.
+     *
+     * @param c the collection whose elements are to be retained
+     * @return the intersection of this set and {@code c}
+     * @throws ClassCastException if the elements of {@code c} cannot be
+     *         compared with the elements of this set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     */
+    public TreeSet<E> intersection(Collection<?> c) {
+        return merge(c, TreeMap.INTERSECTION);
+    }
+
+    /**
+     * Returns a new set holding the elements of this set that are not in
+     * the specified collection.  Like {@link #union}, this takes O(n + m)
+     * time when {@code c} is a sorted set with the same ordering as this
+     * set.
+     *
+     * @param c the collection whose elements are to be left out
+     * @return the elements of this set not in {@code c}
+     * @throws ClassCastException if the elements of {@code c} cannot be
+     *         compared with the elements of this set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     */
+    public TreeSet<E> difference(Collection<?> c) {
+        return merge(c, TreeMap.DIFFERENCE);
+    }
+
+    private TreeSet<E> merge(Collection<?> c, int op) {
+        TreeMap<E,Object> r = new TreeMap<>(m.comparator());
+        boolean sorted = c instanceof SortedSet &&
+            r.sameOrdering(((SortedSet<?>)c).comparator());
+        r.buildFromMerge(m.navigableKeySet().iterator(),
+                         r.sortedIterator(c, sorted, false), op, PRESENT);
+        return new TreeSet<>(r);
+    }
+
     /**
      * @throws ClassCastException {@inheritDoc}
      * @throws NullPointerException if {@code fromElement} or {@code toElement}
@@ -826,6 +826,21 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private transient volatile CounterCell[] counterCells;
 
+    /**
+     * The number of bins claimed at a time by the resizing threads, or 0
+     * to use the default, computed from the table size and the number of
+     * CPUs.
+     * 每个resize线程每次领取的箱数，为0时使用默认值
+     */
+    private transient volatile int transferStride;
+
+    /**
+     * Counters of the resizes, created by the thread initiating the first
+     * one.
+     * 扩容统计，在第一次扩容时创建
+     */
+    private transient volatile ResizeCounters resizeCounters;
+
     // views
     private transient KeySetView<K,V> keySet;
     private transient ValuesView<K,V> values;
@@ -2131,6 +2146,95 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return (n < 0L) ? 0L : n; // ignore transient negative values
     }
 
+    /**
+     * Returns a snapshot of the counters of the resizes of this map: how
+     * many resizes completed and how long they took, how many threads
+     * transferred bins and how many each moved, and how long writers
+     * spent helping a resize in progress.  The counters are updated by
+     * the resizing threads, so a snapshot taken during a resize may not
+     * include it yet.
+     *
+     * @return the resize statistics of this map
+     */
+    public ResizeStatistics resizeStatistics() {
+        ResizeCounters rc = resizeCounters;
+        return (rc == null) ? new ResizeStatistics() : rc.snapshot();
+    }
+
+    /**
+     * Sets the number of bins each thread claims at a time while
+     * transferring bins to a new table during a resize.  Threads keep
+     * claiming ranges of this many bins until none remain, so a small
+     * stride lets more writers that run into the resize help with it,
+     * finishing it sooner, at the price of each of them waiting on the
+     * resize; a large stride leaves most of the work to the thread
+     * that started the resize, letting other writers proceed with
+     * their own operations.  The default, used when the stride is 0,
+     * divides the table between the available processors, with a
+     * minimum of 16 bins.  The stride takes effect from the next
+     * resize.
+     * 设置resize时每个线程每次领取的箱数，用于在写操作的延迟和扩容速度之间取舍
+     *
+     * @param stride the number of bins claimed at a time, or 0 for
+     * the default
+     * @throws IllegalArgumentException if the stride is negative
+     */
+    public void setTransferStride(int stride) {
+        if (stride < 0)
+            throw new IllegalArgumentException();
+        transferStride = stride;
+    }
+
+    /**
+     * Returns the number of bins each thread claims at a time during a
+     * resize, or 0 if the default is used.
+     *
+     * @return the transfer stride, or 0 for the default
+     * @see #setTransferStride
+     */
+    public int getTransferStride() {
+        return transferStride;
+    }
+
+    /**
+     * Shrinks the table to the smallest capacity that holds the current
+     * number of mappings below the load factor, but not below the
+     * default capacity of 16.  The table never shrinks on its own, so a
+     * map that once held many more mappings than it does now keeps a
+     * table sized for its peak; this method lets that memory go.
+     *
+     * <p>The bins are moved to the smaller table the same way a resize
+     * moves them to a larger one: each bin is locked, its nodes are
+     * added to the bin of the new table they map to, and a forwarding
+     * node replaces it, so readers are never blocked and writers only
+     * wait for the bin they update.  Unlike a resize, the move is done
+     * by the calling thread alone.  Nothing is done if a resize is in
+     * progress, or if the table would not shrink; since the count is
+     * an estimate, concurrent insertions may have the table grow again
+     * soon after.
+     * 缩小表到能在负载因子以下容纳当前映射数量的最小容量，不小于默认容量16
+     */
+    public void trimToSize() {
+        Node<K,V>[] tab; int n, sc;
+        while ((tab = table) != null && (n = tab.length) > DEFAULT_CAPACITY &&
+               (sc = sizeCtl) >= 0) {
+            long s = sumCount();
+            int c = (s >= (long)(MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY :
+                tableSizeFor((s <= 0L) ? 1 : (int)s + ((int)s >>> 1) + 1);
+            if (c < DEFAULT_CAPACITY)
+                c = DEFAULT_CAPACITY;
+            if (c >= n)
+                break;
+            if (U.compareAndSwapInt(this, SIZECTL, sc, -1)) {//与初始化一样用-1占有sizeCtl，不会与任何扩容的结束位相同
+                if (table == tab)
+                    shrink(tab, c);
+                else
+                    sizeCtl = sc;
+                break;
+            }
+        }
+    }
+
     /**
      * Creates a new {@link Set} backed by a ConcurrentHashMap
      * from the given type to {@code Boolean.TRUE}.
@@ -2333,7 +2437,9 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     sc == rs + MAX_RESIZERS || transferIndex <= 0)
                     break;
                 if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1)) {//通过CAS将sizeCtl+1来竞争操作权
+                    long start = System.nanoTime();
                     transfer(tab, nextTab);
+                    resizeCounters.recordHelp(System.nanoTime() - start);//写线程因帮助扩容而额外花费的时间
                     break;
                 }
             }
@@ -2394,9 +2500,13 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      * 移动或者复制每个箱中的结点到新的表中
      */
     private final void transfer(Node<K,V>[] tab, Node<K,V>[] nextTab) {
+        long start = System.nanoTime();
         int n = tab.length, stride;
-        if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)//n/8/CPU个数<16
+        if ((stride = transferStride) > 0)
+            ; // configured by setTransferStride
+        else if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)//n/8/CPU个数<16
             stride = MIN_TRANSFER_STRIDE; // subdivide range细分范围
+        ResizeCounters rc;
         if (nextTab == null) {            // initiating初始化
             try {
                 @SuppressWarnings("unchecked")
@@ -2406,9 +2516,15 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                 sizeCtl = Integer.MAX_VALUE;
                 return;
             }
+            if ((rc = resizeCounters) == null)
+                resizeCounters = rc = new ResizeCounters();//在发布nextTable之前创建，帮助线程一定能看到
+            rc.resizeStart = start;
             nextTable = nextTab;
             transferIndex = n;
         }
+        else
+            rc = resizeCounters;
+        int moved = 0; // bins moved by this thread该线程转移的箱数
         int nextn = nextTab.length;
         ForwardingNode<K,V> fwd = new ForwardingNode<K,V>(nextTab);
         boolean advance = true;
@@ -2438,17 +2554,24 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     nextTable = null;
                     table = nextTab;
                     sizeCtl = (n << 1) - (n >>> 1);//n*0.75
+                    long now = System.nanoTime();
+                    rc.recordTransfer(moved, now - start);
+                    rc.recordResize(now - rc.resizeStart);
                     return;
                 }
                 if (U.compareAndSwapInt(this, SIZECTL, sc = sizeCtl, sc - 1)) {//增加一个活跃线程帮助resize
-                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT) {
+                        rc.recordTransfer(moved, System.nanoTime() - start);
                         return;
+                    }
                     finishing = advance = true;
                     i = n; // recheck before commit提交前重新检查
                 }
             }
-            else if ((f = tabAt(tab, i)) == null)//表中不存在这个结点
-                advance = casTabAt(tab, i, null, fwd);
+            else if ((f = tabAt(tab, i)) == null) {//表中不存在这个结点
+                if (advance = casTabAt(tab, i, null, fwd))
+                    ++moved;
+            }
             else if ((fh = f.hash) == MOVED)
                 advance = true; // already processed已经在移动
             else {//表中有这个结点并且没有在移动
@@ -2484,6 +2607,7 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                             setTabAt(nextTab, i + n, hn);
                             setTabAt(tab, i, fwd);
                             advance = true;
+                            ++moved;
                         }
                         else if (f instanceof TreeBin) {
                             TreeBin<K,V> t = (TreeBin<K,V>)f;
@@ -2519,6 +2643,95 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                             setTabAt(nextTab, i + n, hn);
                             setTabAt(tab, i, fwd);
                             advance = true;
+                            ++moved;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the bins of tab to a new table of the given smaller
+     * capacity, then publishes it.  Called only by trimToSize, with
+     * sizeCtl held at -1, so no other thread transfers bins meanwhile:
+     * helpTransfer, addCount and tryPresize find a sizeCtl that does
+     * not match the stamp of any resize and leave the table alone, and
+     * writers that find a forwarding node go on in the new table.
+     * 将tab中的箱转移到容量为c的更小的新表中，原表中的多个箱会合并到新表的同一个箱
+     */
+    private final void shrink(Node<K,V>[] tab, int c) {
+        long start = System.nanoTime();
+        int n = tab.length;
+        Node<K,V>[] nextTab;
+        try {
+            @SuppressWarnings("unchecked")
+            Node<K,V>[] nt = (Node<K,V>[])new Node<?,?>[c];
+            nextTab = nt;
+        } catch (Throwable ex) {      // try to cope with OOME
+            sizeCtl = n - (n >>> 2);
+            return;
+        }
+        ResizeCounters rc;
+        if ((rc = resizeCounters) == null)
+            resizeCounters = rc = new ResizeCounters();
+        nextTable = nextTab;
+        ForwardingNode<K,V> fwd = new ForwardingNode<K,V>(nextTab);
+        for (int i = n - 1; i >= 0; ) {
+            Node<K,V> f; int fh;
+            if ((f = tabAt(tab, i)) == null) {
+                if (casTabAt(tab, i, null, fwd))
+                    --i;
+            }
+            else if ((fh = f.hash) == MOVED)
+                --i; // only this thread forwards bins
+            else {
+                synchronized (f) {//持有原箱的锁直到放入转发结点，该箱的写操作会等待后到新表中重试
+                    if (tabAt(tab, i) == f) {
+                        Node<K,V> p = (fh >= 0) ? f :
+                            (f instanceof TreeBin) ? ((TreeBin<K,V>)f).first : null;
+                        if (p != null)
+                            mergeBin(nextTab, i & (c - 1), p);
+                        setTabAt(tab, i, fwd);
+                        --i;
+                    }
+                }
+            }
+        }
+        nextTable = null;
+        table = nextTab;
+        sizeCtl = c - (c >>> 2);//c*0.75
+        rc.recordShrink(System.nanoTime() - start);
+    }
+
+    /**
+     * Adds copies of the nodes of list p to bin i of tab, during a
+     * shrink.  Writers that reached tab through a forwarding node may
+     * be updating the same bin, so the bin is locked unless it is
+     * empty.  The copies are linked in front of the nodes already
+     * there, so that readers traversing the bin see either the old
+     * list or the whole new one.
+     * 将链表p中结点的拷贝加入到tab的第i个箱中，新表的写操作可能在同时修改这个箱
+     */
+    private static <K,V> void mergeBin(Node<K,V>[] tab, int i, Node<K,V> p) {
+        for (;;) {
+            Node<K,V> b = tabAt(tab, i);
+            if (b == null) {
+                if (casTabAt(tab, i, null, linkCopies(tab, p, null)))
+                    return;
+            }
+            else {
+                synchronized (b) {
+                    if (tabAt(tab, i) == b) {
+                        if (b.hash >= 0) {
+                            setTabAt(tab, i, linkCopies(tab, p, b));
+                            return;
+                        }
+                        else if (b instanceof TreeBin) {
+                            TreeBin<K,V> t = (TreeBin<K,V>)b;
+                            for (Node<K,V> e = p; e != null; e = e.next)
+                                t.putTreeVal(e.hash, e.key, e.val);
+                            return;
                         }
                     }
                 }
@@ -2526,6 +2739,236 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Returns copies of the nodes of list p linked in front of list b,
+     * as a TreeBin if the bin gets long enough to be treeified.
+     */
+    private static <K,V> Node<K,V> linkCopies(Node<K,V>[] tab, Node<K,V> p,
+                                             Node<K,V> b) {
+        int binCount = 0;
+        Node<K,V> hd = b;
+        for (Node<K,V> e = b; e != null; e = e.next)
+            ++binCount;
+        for (Node<K,V> e = p; e != null; e = e.next) {
+            hd = new Node<K,V>(e.hash, e.key, e.val, hd);
+            ++binCount;
+        }
+        if (binCount < TREEIFY_THRESHOLD || tab.length < MIN_TREEIFY_CAPACITY)
+            return hd;
+        TreeNode<K,V> thd = null, tl = null;
+        for (Node<K,V> e = hd; e != null; e = e.next) {
+            TreeNode<K,V> q =
+                new TreeNode<K,V>(e.hash, e.key, e.val, null, null);
+            if ((q.prev = tl) == null)
+                thd = q;
+            else
+                tl.next = q;
+            tl = q;
+        }
+        return new TreeBin<K,V>(thd);
+    }
+
+    /**
+     * Returns copies of the nodes that were in bin i of a table of
+     * length n, found in tab, the next table of a forwarding node at
+     * that bin, linked in front of list acc.  Used by traversals when
+     * the next table is smaller, so that its bin also holds nodes of
+     * other bins of the table being traversed.
+     * 遍历中遇到指向更小表的转发结点时，从新表中取出原来在第i个箱中的结点
+     */
+    static <K,V> Node<K,V> forwardedBin(Node<K,V>[] tab, int n, int i,
+                                       Node<K,V> acc) {
+        int len = tab.length;
+        for (int j = i & (len - 1); j < len; j += n) {//新表更小时只有一个箱，更大时为i, i+n, i+2n...
+            Node<K,V> e = tabAt(tab, j);
+            if (e instanceof ForwardingNode)
+                acc = forwardedBin(((ForwardingNode<K,V>)e).nextTable, n, i, acc);
+            else {
+                if (e instanceof TreeBin)
+                    e = ((TreeBin<K,V>)e).first;
+                else if (e != null && e.hash < 0)
+                    e = null;
+                for (; e != null; e = e.next) {
+                    if ((e.hash & (n - 1)) == i)
+                        acc = new Node<K,V>(e.hash, e.key, e.val, acc);
+                }
+            }
+        }
+        return acc;
+    }
+
+    /**
+     * The counters behind {@link #resizeStatistics}.  They are only
+     * updated once per transfer and per resize, so a lock is cheap
+     * enough.
+     */
+    static final class ResizeCounters {
+        long resizeStart;    // set by the initiating thread before publishing nextTable
+        long resizes;
+        long resizeNanos;
+        long transfers;
+        long binsMoved;
+        long maxBinsMoved;
+        long transferNanos;
+        long helpTransfers;
+        long helpNanos;
+        long shrinks;
+        long shrinkNanos;
+
+        synchronized void recordTransfer(int moved, long nanos) {
+            ++transfers;
+            binsMoved += moved;
+            if (moved > maxBinsMoved)
+                maxBinsMoved = moved;
+            transferNanos += nanos;
+        }
+
+        synchronized void recordResize(long nanos) {
+            ++resizes;
+            resizeNanos += nanos;
+        }
+
+        synchronized void recordHelp(long nanos) {
+            ++helpTransfers;
+            helpNanos += nanos;
+        }
+
+        synchronized void recordShrink(long nanos) {
+            ++shrinks;
+            shrinkNanos += nanos;
+        }
+
+        synchronized ResizeStatistics snapshot() {
+            return new ResizeStatistics(resizes, resizeNanos, transfers,
+                                        binsMoved, maxBinsMoved, transferNanos,
+                                        helpTransfers, helpNanos,
+                                        shrinks, shrinkNanos);
+        }
+    }
+
+    /**
+     * A snapshot of the resize counters of a ConcurrentHashMap,
+     * returned by {@link ConcurrentHashMap#resizeStatistics}.
+     *
+     * <p>Each resize is carried out by the thread that starts it and by
+     * the threads that help it: writers that find a bin already moved
+     * (see {@code helpTransfer}), and threads adding to the count while
+     * the table is over its threshold.  Each of these runs one transfer,
+     * claiming ranges of bins until none remain (see
+     * {@link ConcurrentHashMap#setTransferStride}).  The number of
+     * transfers per resize is therefore the number of threads that
+     * took part in it, and the bins moved per transfer show how evenly
+     * the work was split.  The time writers spent in
+     * {@code helpTransfer} is latency added to their put or remove.
+     */
+    public static final class ResizeStatistics {
+        private final long resizes;
+        private final long resizeNanos;
+        private final long transfers;
+        private final long binsMoved;
+        private final long maxBinsMoved;
+        private final long transferNanos;
+        private final long helpTransfers;
+        private final long helpNanos;
+        private final long shrinks;
+        private final long shrinkNanos;
+
+        ResizeStatistics() {
+            this(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+        }
+
+        ResizeStatistics(long resizes, long resizeNanos, long transfers,
+                         long binsMoved, long maxBinsMoved, long transferNanos,
+                         long helpTransfers, long helpNanos,
+                         long shrinks, long shrinkNanos) {
+            this.resizes = resizes;
+            this.resizeNanos = resizeNanos;
+            this.transfers = transfers;
+            this.binsMoved = binsMoved;
+            this.maxBinsMoved = maxBinsMoved;
+            this.transferNanos = transferNanos;
+            this.helpTransfers = helpTransfers;
+            this.helpNanos = helpNanos;
+            this.shrinks = shrinks;
+            this.shrinkNanos = shrinkNanos;
+        }
+
+        /** Returns the number of completed resizes. */
+        public long resizeCount() { return resizes; }
+
+        /**
+         * Returns the total time in nanoseconds of the completed resizes,
+         * from the allocation of the new table to its publication.
+         */
+        public long resizeNanos() { return resizeNanos; }
+
+        /**
+         * Returns the number of transfers: the number of threads that
+         * took part in each resize, summed over the resizes.
+         */
+        public long transferCount() { return transfers; }
+
+        /** Returns the average number of threads that took part in a resize. */
+        public double averageHelpers() {
+            return (resizes == 0L) ? 0.0 : (double)transfers / resizes;
+        }
+
+        /** Returns the total number of bins moved to a new table. */
+        public long binsMoved() { return binsMoved; }
+
+        /** Returns the average number of bins moved by one transfer. */
+        public double averageBinsPerTransfer() {
+            return (transfers == 0L) ? 0.0 : (double)binsMoved / transfers;
+        }
+
+        /** Returns the most bins moved by one transfer. */
+        public long maxBinsPerTransfer() { return maxBinsMoved; }
+
+        /**
+         * Returns the total time in nanoseconds that threads spent in
+         * transfers.  This exceeds {@link #resizeNanos} when several
+         * threads transferred at once.
+         */
+        public long transferNanos() { return transferNanos; }
+
+        /** Returns the number of times a writer helped a resize in progress. */
+        public long helpTransferCount() { return helpTransfers; }
+
+        /** Returns the total time in nanoseconds writers spent helping resizes. */
+        public long helpTransferNanos() { return helpNanos; }
+
+        /**
+         * Returns the number of times the table was shrunk by
+         * {@link ConcurrentHashMap#trimToSize}.  Shrinks are not counted
+         * as resizes.
+         */
+        public long shrinkCount() { return shrinks; }
+
+        /** Returns the total time in nanoseconds spent shrinking the table. */
+        public long shrinkNanos() { return shrinkNanos; }
+
+        /**
+         * Returns a string representation of these statistics.
+         *
+         * @return a string representation of these statistics
+         */
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("ResizeStatistics[resizes=").append(resizes)
+              .append(", resizeMillis=").append(resizeNanos / 1000000L)
+              .append(", transfers=").append(transfers)
+              .append(", binsMoved=").append(binsMoved)
+              .append(", maxBinsPerTransfer=").append(maxBinsMoved)
+              .append(", transferMillis=").append(transferNanos / 1000000L)
+              .append(", helpTransfers=").append(helpTransfers)
+              .append(", helpTransferMillis=").append(helpNanos / 1000000L)
+              .append(", shrinks=").append(shrinks)
+              .append(", shrinkMillis=").append(shrinkNanos / 1000000L)
+              .append(']');
+            return sb.toString();
+        }
+    }
+
     /* ---------------- Counter support -------------- */
 
     /**
@@ -3313,7 +3756,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      * Normally, iteration proceeds bin-by-bin traversing lists.
      * However, if the table has been resized, then all future steps
      * must traverse both the bin at the current index as well as at
-     * (index + baseSize); and so on for further resizings. To
+     * (index + baseSize); and so on for further resizings. If the
+     * table is being shrunk by trimToSize, the bin of the smaller
+     * table also holds nodes of other bins, so instead of moving to
+     * that table, copies of the nodes of the current bin are taken
+     * from it (see forwardedBin). To
      * paranoically cope with potential sharing by users of iterators
      * across threads, iteration terminates if a bounds checks fails
      * for a table read.
@@ -3351,10 +3798,15 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     return next = null;
                 if ((e = tabAt(t, i)) != null && e.hash < 0) {
                     if (e instanceof ForwardingNode) {
-                        tab = ((ForwardingNode<K,V>)e).nextTable;
-                        e = null;
-                        pushState(t, i, n);
-                        continue;
+                        Node<K,V>[] nt = ((ForwardingNode<K,V>)e).nextTable;
+                        if (nt.length < n) // shrinking: take this bin's nodes only
+                            e = forwardedBin(nt, n, i, null);
+                        else {
+                            tab = nt;
+                            e = null;
+                            pushState(t, i, n);
+                            continue;
+                        }
                     }
                     else if (e instanceof TreeBin)
                         e = ((TreeBin<K,V>)e).first;
@@ -4874,10 +5326,15 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     return next = null;
                 if ((e = tabAt(t, i)) != null && e.hash < 0) {
                     if (e instanceof ForwardingNode) {
-                        tab = ((ForwardingNode<K,V>)e).nextTable;
-                        e = null;
-                        pushState(t, i, n);
-                        continue;
+                        Node<K,V>[] nt = ((ForwardingNode<K,V>)e).nextTable;
+                        if (nt.length < n) // shrinking: take this bin's nodes only
+                            e = forwardedBin(nt, n, i, null);
+                        else {
+                            tab = nt;
+                            e = null;
+                            pushState(t, i, n);
+                            continue;
+                        }
                     }
                     else if (e instanceof TreeBin)
                         e = ((TreeBin<K,V>)e).first;
@@ -0,0 +1,579 @@
+package java.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache with least-recently-used eviction that can be shared by
+ * many threads.  It replaces the common idiom of wrapping an access-ordered
+ * {@link LinkedHashMap} that overrides <tt>removeEldestEntry</tt> in
+ * {@link java.util.Collections#synchronizedMap}, which serializes every
+ * <tt>get</tt> on one lock because an access relinks the entry to the tail
+ * of the list.
+ *
+ * <p>Keys are spread over a power-of-two number of segments by hash, in the
+ * manner of the segments of the JDK 7 <tt>ConcurrentHashMap</tt>.  Each
+ * segment is a lock guarding an access-ordered <tt>LinkedHashMap</tt> that
+ * holds that segment's share of the maximum size and evicts its own
+ * eldest entry.  Values are additionally kept in a {@link ConcurrentHashMap},
+ * so that:
+ * <ul>
+ * <li>{@link #get} never blocks.  It reads the <tt>ConcurrentHashMap</tt>
+ * and records the key in a small ring buffer of its segment.  Once in a
+ * while a reader that finds the segment lock free drains the buffer,
+ * replaying the accesses on the <tt>LinkedHashMap</tt>; writers always
+ * drain before updating.  When the buffer fills faster than it is drained,
+ * some accesses are dropped, which only makes the LRU order approximate.
+ * <li>Writes lock only the segment of their key.
+ * </ul>
+ * The eviction order is thus LRU within each segment and approximately LRU
+ * over the whole cache.
+ *
+ * <p>Like {@link LinkedHashMap#removeEldestEntry}, the
+ * {@link #removeEldestEntry} hook may be overridden to evict entries on
+ * other criteria than the maximum size.
+ *
+ * <p>{@link #hitCount}, {@link #missCount} and {@link #evictionCount}
+ * allow comparing the hit rate with that of other policies, such as
+ * {@link java.util.TinyLfuCache}.
+ *
+ * <p>Like <tt>ConcurrentHashMap</tt>, this class does not allow
+ * <tt>null</tt> keys or values, and its views and their iterators are
+ * weakly consistent.  Iterating over the views does not count as an
+ * access.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ * @see ConcurrentHashMap
+ */
+public class ConcurrentLruCache<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /**
+     * The default number of segments.
+     */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The maximum number of segments.
+     */
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * Minimum share of the maximum size per segment, below which fewer
+     * segments are used so that per-segment eviction stays close to LRU.
+     */
+    static final int MIN_SEGMENT_CAPACITY = 20;
+
+    /**
+     * Number of slots in the read buffer of a segment, a power of two.
+     */
+    static final int READ_BUFFER_SIZE = 32;
+
+    /**
+     * A reader tries to drain the read buffer once every this many reads
+     * of its segment, a power of two.
+     */
+    static final int DRAIN_INTERVAL = 16;
+
+    /**
+     * The current values, for lock-free reads.  Only written while holding
+     * the lock of the key's segment.
+     */
+    final ConcurrentHashMap<K,V> data;
+
+    /**
+     * The segments, indexed by the top bits of the scrambled hash.
+     */
+    final Segment<K,V>[] segments;
+
+    /**
+     * Shift and mask for indexing the segments.
+     */
+    final int segmentShift;
+    final int segmentMask;
+
+    /**
+     * The maximum number of entries.
+     */
+    final int maximumSize;
+
+    /**
+     * Statistics counters.
+     */
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding at most the given number of entries, with
+     * the default concurrency level (16).
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public ConcurrentLruCache(int maximumSize) {
+        this(maximumSize, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a cache holding at most the given number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param concurrencyLevel the estimated number of concurrently updating
+     *        threads, used as a hint for the number of segments
+     * @throws IllegalArgumentException if the maximum size or the
+     *         concurrency level is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(int maximumSize, int concurrencyLevel) {
+        if (maximumSize <= 0 || concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        int sshift = 0;
+        int ssize = 1;
+        while (ssize < concurrencyLevel && ssize < MAX_SEGMENTS &&
+               (ssize << 1) * MIN_SEGMENT_CAPACITY <= maximumSize) {
+            ++sshift;
+            ssize <<= 1;
+        }
+        this.segmentShift = 32 - sshift;
+        this.segmentMask = ssize - 1;
+        this.maximumSize = maximumSize;
+        this.data = new ConcurrentHashMap<K,V>(Math.min(maximumSize, 1 << 16));
+        Segment<K,V>[] ss = (Segment<K,V>[])new Segment<?,?>[ssize];
+        int share = maximumSize / ssize, extra = maximumSize % ssize;
+        for (int i = 0; i < ssize; ++i)//余数分给前extra个分段
+            ss[i] = new Segment<K,V>(this, share + (i < extra ? 1 : 0));
+        this.segments = ss;
+    }
+
+    /**
+     * Returns the segment for the given key.
+     */
+    final Segment<K,V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h = (h ^ (h >>> 16)) * 0x9E3779B9;//扰动后取高位，与ConcurrentHashMap的下标使用的低位无关
+        return segments[(h >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * Returns the maximum number of entries of this cache.
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of lookups by {@link #get} that found a value.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups by {@link #get} that found no value.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries evicted, for exceeding the maximum
+     * size or by {@link #removeEldestEntry}.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Invoked by <tt>put</tt> and <tt>putIfAbsent</tt> after inserting a new
+     * entry, with the least recently accessed entry of the segment that
+     * received it.  The entry is removed if this method returns
+     * <tt>true</tt>.  It is invoked only when the segment is within its
+     * share of the maximum size; otherwise the eldest entry is removed
+     * anyway.
+     *
+     * <p>This method is called while holding the segment lock, and so
+     * must be quick and must not modify this cache.  This implementation
+     * returns <tt>false</tt>.
+     *
+     * @param eldest the least recently accessed entry of the segment
+     * @return <tt>true</tt> if the eldest entry should be removed
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+        return false;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * <tt>null</tt>, and records the access.  This method does not block.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        V v = data.get(key);
+        if (v != null) {
+            hits.increment();
+            segmentFor(key).recordRead((K)key);
+        }
+        else
+            misses.increment();
+        return v;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this cache contains the key.  This does not
+     * count as an access.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    public boolean containsValue(Object value) {
+        return data.containsValue(value);
+    }
+
+    /**
+     * Maps the key to the value, evicting the eldest entry of the key's
+     * segment if needed.
+     *
+     * @return the previous value, or <tt>null</tt> if there was none
+     * @throws NullPointerException if the key or value is null
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Segment<K,V> s = segmentFor(key);
+        s.lock();
+        try {
+            s.drainReadBuffer();
+            V old = data.get(key);
+            if (old != null && onlyIfAbsent) {
+                s.order.get(key);//视为一次访问
+                return old;
+            }
+            data.put(key, value);
+            s.order.put(key, value);//插入新键值对时可能移除该分段中最旧的键值对
+            return old;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Removes the mapping for the key, if present.
+     *
+     * @throws NullPointerException if the key is null
+     */
+    public V remove(Object key) {
+        Segment<K,V> s = segmentFor(key);
+        s.lock();
+        try {
+            V old = data.remove(key);
+            if (old != null)
+                s.order.remove(key);
+            return old;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (value == null)
+            return false;
+        Segment<K,V> s = segmentFor(key);
+        s.lock();
+        try {
+            if (!data.remove(key, value))
+                return false;
+            s.order.remove(key);
+            return true;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments is null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        Segment<K,V> s = segmentFor(key);
+        s.lock();
+        try {
+            s.drainReadBuffer();
+            if (!data.replace(key, oldValue, newValue))
+                return false;
+            s.order.put(key, newValue);
+            return true;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     */
+    public V replace(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        Segment<K,V> s = segmentFor(key);
+        s.lock();
+        try {
+            s.drainReadBuffer();
+            V old = data.replace(key, value);
+            if (old != null)
+                s.order.put(key, value);
+            return old;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this cache, one segment at a time.
+     */
+    public void clear() {
+        for (Segment<K,V> s : segments) {
+            s.lock();
+            try {
+                for (K k : s.order.keySet())
+                    data.remove(k);
+                s.order.clear();
+                for (int i = 0; i < READ_BUFFER_SIZE; ++i)
+                    s.readBuffer.lazySet(i, null);
+                s.drained = s.reads.get();
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    /* ---------------- Segments -------------- */
+
+    /**
+     * A lock guarding the access order of the keys that hash to it.
+     */
+    static final class Segment<K,V> extends ReentrantLock {
+        private static final long serialVersionUID = 3627480012316734186L;
+
+        final transient ConcurrentLruCache<K,V> cache;
+
+        /**
+         * The access order of the keys of this segment, eldest first.
+         */
+        final transient AccessOrder<K,V> order;
+
+        /**
+         * The maximum number of entries of this segment.
+         */
+        final int capacity;
+
+        /**
+         * Keys read since the last drain, overwritten round-robin.
+         */
+        final transient AtomicReferenceArray<K> readBuffer =
+            new AtomicReferenceArray<K>(READ_BUFFER_SIZE);
+
+        /**
+         * Number of reads recorded, used to pick slots of the buffer.
+         */
+        final transient AtomicInteger reads = new AtomicInteger();
+
+        /**
+         * Number of reads already replayed.  Guarded by the lock.
+         */
+        int drained;
+
+        Segment(ConcurrentLruCache<K,V> cache, int capacity) {
+            this.cache = cache;
+            this.capacity = capacity;
+            this.order = new AccessOrder<K,V>(this);
+        }
+
+        /**
+         * Records an access to key, draining the buffer every DRAIN_INTERVAL
+         * reads if the lock is free.
+         */
+        void recordRead(K key) {
+            int n = reads.getAndIncrement();
+            readBuffer.lazySet(n & (READ_BUFFER_SIZE - 1), key);
+            if ((n & (DRAIN_INTERVAL - 1)) == DRAIN_INTERVAL - 1 && tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    unlock();
+                }
+            }
+        }
+
+        /**
+         * Replays the buffered accesses on the LinkedHashMap in the order
+         * they were recorded, moving each key still present to the tail.
+         * Must hold the lock.
+         */
+        void drainReadBuffer() {
+            AtomicReferenceArray<K> buf = readBuffer;
+            int n = reads.get(), i = drained;
+            if (n - i > READ_BUFFER_SIZE)
+                i = n - READ_BUFFER_SIZE;//更早的记录已被覆盖
+            for (; i != n; ++i) {
+                int slot = i & (READ_BUFFER_SIZE - 1);
+                K k = buf.get(slot);
+                if (k != null) {
+                    buf.lazySet(slot, null);
+                    order.get(k);//access-order的LinkedHashMap在get时将结点移到链表尾部
+                }
+            }
+            drained = n;
+        }
+
+        /**
+         * Called by the LinkedHashMap after an insertion: evicts the eldest
+         * entry when the segment is over capacity or the cache asks for it.
+         */
+        boolean evict(Map.Entry<K,V> eldest) {
+            if (order.size() > capacity || cache.removeEldestEntry(eldest)) {
+                cache.data.remove(eldest.getKey());
+                cache.evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Access-ordered LinkedHashMap whose eviction hook defers to the segment.
+     */
+    static final class AccessOrder<K,V> extends LinkedHashMap<K,V> {
+        private static final long serialVersionUID = -5817249061349072281L;
+
+        final transient Segment<K,V> segment;
+
+        AccessOrder(Segment<K,V> segment) {
+            super(16, 0.75f, true);
+            this.segment = segment;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+            return segment.evict(eldest);
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a weakly consistent view of the mappings.  Setting the value
+     * of an entry writes through to the cache.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() { return data.size(); }
+        public void clear() { ConcurrentLruCache.this.clear(); }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v = e.getValue(), r;
+            return k != null && v != null && (r = data.get(k)) != null &&
+                (r == v || r.equals(v));
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            return k != null && ConcurrentLruCache.this.remove(k, e.getValue());
+        }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            final Iterator<Map.Entry<K,V>> it = data.entrySet().iterator();
+            return new Iterator<Map.Entry<K,V>>() {
+                K lastKey;
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+                public Map.Entry<K,V> next() {
+                    Map.Entry<K,V> e = it.next();
+                    lastKey = e.getKey();
+                    return new WriteThroughEntry(lastKey, e.getValue());
+                }
+                public void remove() {
+                    if (lastKey == null)
+                        throw new IllegalStateException();
+                    ConcurrentLruCache.this.remove(lastKey);
+                    lastKey = null;
+                }
+            };
+        }
+    }
+
+    /**
+     * Entry whose setValue puts into the cache, as ConcurrentHashMap's
+     * MapEntry does.
+     */
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = 4861502328957463193L;
+
+        WriteThroughEntry(K k, V v) {
+            super(k, v);
+        }
+
+        public V setValue(V value) {
+            if (value == null)
+                throw new NullPointerException();
+            V v = super.setValue(value);
+            ConcurrentLruCache.this.put(getKey(), value);
+            return v;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package test;
+
+import java.util.AugmentedTreeMap;
+
+public class AugmentedTreeMapTest {
+	public static void main(String args[]){
+		AugmentedTreeMap<Long, Long, Long> sales = new AugmentedTreeMap<>((t, v) -> v, Long::sum);
+		for (long t = 1; t <= 10; t++)
+			sales.put(t, t * 100);
+		System.out.println(sales.aggregate(3L, true, 5L, true));//1200 每个结点保存子树的和，不需要遍历区间
+		sales.put(4L, 0L);
+		System.out.println(sales.aggregate(3L, true, 5L, true));//800
+
+		//键是区间起点，聚合值是子树中区间终点的最大值
+		AugmentedTreeMap<Long, long[], Long> windows = new AugmentedTreeMap<>((start, w) -> w[1], Math::max);
+		windows.put(10L, new long[]{10, 20});
+		windows.put(15L, new long[]{15, 18});
+		windows.put(30L, new long[]{30, 40});
+		StringBuilder sb = new StringBuilder();
+		long t = 17;
+		windows.forEachMatch(t, true, end -> end >= t, (start, w) -> sb.append(start).append(' '));
+		System.out.println(sb);//10 15 包含17的区间
+		System.out.println(windows.firstMatch(25L, true, end -> end >= 25));//null 没有包含25的区间
+	}
+}
@@ -0,0 +1,22 @@
+package test;
+
+import java.util.BTreeMap;
+import java.util.NavigableMap;
+
+public class BTreeMapTest {
+	public static void main(String args[]){
+		BTreeMap<Integer, String> map = new BTreeMap<>();
+		for (int i = 0; i < 1000; i += 10)
+			map.put(i, "v" + i);//一个叶子最多64个键，插入100个键后分裂成两层
+		System.out.println(map.ceilingKey(55));//60
+		System.out.println(map.floorKey(55));//50
+		System.out.println(map.higherKey(990));//null
+		NavigableMap<Integer, String> sub = map.subMap(95, true, 130, false);
+		System.out.println(sub);//{100=v100, 110=v110, 120=v120}
+		System.out.println(sub.descendingMap().firstKey());//120
+		sub.remove(110);
+		System.out.println(map.size());//99
+		System.out.println(map.headMap(30).keySet());//[0, 10, 20]
+		System.out.println(map.pollLastEntry());//990=v990
+	}
+}
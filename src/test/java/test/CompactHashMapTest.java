@@ -0,0 +1,27 @@
+package test;
+
+import java.util.CompactHashMap;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+
+public class CompactHashMapTest {
+	public static void main(String args[]){
+		Map<String, String> map = new CompactHashMap<>();
+		System.out.println(map.put(null, "123"));//null
+		System.out.println(map.put("456", null));//null
+		System.out.println(map.get(null));//123
+		System.out.println(map);//{null=123, 456=null} 未膨胀时按插入顺序遍历
+		Iterator<String> it = map.keySet().iterator();
+		it.next();
+		for (int i = 0; i < 8; i++)
+			map.put("k" + i, "v" + i);//超过8个键值对时转为HashMap存储
+		try {
+			it.next();
+		} catch (ConcurrentModificationException e) {
+			System.out.println("ConcurrentModificationException");//ConcurrentModificationException
+		}
+		System.out.println(map.size());//10
+		System.out.println(map.get("k7"));//v7
+	}
+}
@@ -0,0 +1,32 @@
+package test;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ConcurrentHashMapResizeTest {
+	public static void main(String args[]) throws InterruptedException{
+		final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+		System.out.println(map.getTransferStride());//0 使用默认值
+		map.setTransferStride(64);//每次只领取64个箱，更多写线程会参与扩容
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int base = t * 100000;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 100000; i++)
+					map.put(base + i, i);
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		ConcurrentHashMap.ResizeStatistics stats = map.resizeStatistics();
+		System.out.println(stats);
+		System.out.println(stats.resizeCount());//约16 从16扩容到1048576
+		System.out.println(stats.binsMoved());//约1048560 每次扩容转移旧表的全部箱，即16+32+...+524288
+		System.out.println(stats.averageHelpers() >= 1.0);//true
+		try {
+			map.setTransferStride(-1);
+		} catch (IllegalArgumentException e) {
+			System.out.println("IAE");//IAE
+		}
+	}
+}
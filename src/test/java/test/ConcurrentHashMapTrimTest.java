@@ -0,0 +1,35 @@
+package test;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ConcurrentHashMapTrimTest {
+	public static void main(String args[]) throws InterruptedException{
+		final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+		for (int i = 0; i < 200000; i++)
+			map.put(i, i);
+		for (int i = 100; i < 200000; i++)
+			map.remove(i);
+		Thread reader = new Thread(() -> {
+			for (int r = 0; r < 1000; r++) {
+				int count = 0;
+				for (Integer k : map.keySet())
+					count++;
+				if (count != 100 || !Integer.valueOf(50).equals(map.get(50)))
+					System.out.println("wrong");//缩表期间读操作不会漏掉或重复结点
+			}
+		});
+		reader.start();
+		map.trimToSize();//表从524288缩小到256
+		reader.join();
+		System.out.println(map.size());//100
+		System.out.println(map.get(99));//99
+		System.out.println(map.resizeStatistics().shrinkCount());//1
+		map.trimToSize();//已经是最小的容量，不做任何事
+		System.out.println(map.resizeStatistics().shrinkCount());//1
+		map.clear();
+		map.trimToSize();//缩小到默认容量16
+		System.out.println(map.resizeStatistics().shrinkCount());//2
+		map.put(1, 1);
+		System.out.println(map);//{1=1}
+	}
+}
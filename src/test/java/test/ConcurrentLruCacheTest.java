@@ -0,0 +1,35 @@
+package test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentLruCache;
+
+public class ConcurrentLruCacheTest {
+	public static void main(String args[]) throws InterruptedException{
+		Map<String, String> cache = new ConcurrentLruCache<>(3, 1);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.put("c", "3");
+		System.out.println(cache.get("a"));//1 访问a之后，最久未访问的是b
+		cache.put("d", "4");
+		System.out.println(cache.containsKey("b"));//false
+		System.out.println(cache.size());//3
+		final Map<Integer, Integer> shared = new ConcurrentLruCache<Integer, Integer>(1000) {
+			protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+				return eldest.getValue() < 0;//除了容量限制，还可以按自定义条件淘汰
+			}
+		};
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 100000; i++) {
+					if (shared.get(i % 2000) == null)//读操作不加锁
+						shared.put(i % 2000, i);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		System.out.println(shared.size() <= 1000);//true
+	}
+}
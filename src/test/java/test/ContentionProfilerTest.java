@@ -0,0 +1,44 @@
+package test;
+
+import java.util.ContentionProfiler;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ContentionProfilerTest {
+	public static void main(String args[]) throws InterruptedException{
+		final Map<String, String> map = ContentionProfiler.synchronizedMap(new HashMap<>());
+		ContentionProfiler.startSampling(1);//每次获取锁都采样，生产环境中应取100以上
+		Thread holder = new Thread(() -> {
+			synchronized (map) {//长时间持有监视器
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+				}
+			}
+		});
+		holder.start();
+		Thread.sleep(50);
+		contendedPut(map);
+		holder.join();
+		map.get("a");
+		ContentionProfiler.stopSampling();
+		getAfterSampling(map);
+		String report = ContentionProfiler.report(5);
+		System.out.print(report);//map被获取2次，put约等待150ms
+		//调用位置按方法名匹配，不依赖行号
+		boolean putSite = false;
+		for (String line : report.split("\n"))
+			putSite |= line.contains("ContentionProfilerTest.contendedPut(") &&
+				line.trim().endsWith("-> java.util.ContentionProfiler$SynchronizedMap.put");
+		System.out.println(putSite);//true 等待发生在contendedPut中的put
+		System.out.println(report.contains("ContentionProfilerTest.getAfterSampling("));//false
+	}
+
+	static void contendedPut(Map<String, String> map) {
+		map.put("a", "1");//要等holder释放监视器
+	}
+
+	static void getAfterSampling(Map<String, String> map) {
+		map.get("a");//停止采样后不再统计
+	}
+}
@@ -0,0 +1,26 @@
+package test;
+
+import java.util.FrozenHashMap;
+import java.util.HashMap;
+import java.util.Map;
+
+public class FrozenHashMapTest {
+	public static void main(String args[]){
+		Map<String, String> map = new HashMap<>();
+		map.put(null, "123");
+		map.put("456", null);
+		for (int i = 0; i < 100; i++)
+			map.put("k" + i, "v" + i);
+		Map<String, String> frozen = new FrozenHashMap<>(map);//HashMap中可以直接调用freeze()
+		System.out.println(frozen.get(null));//123
+		System.out.println(frozen.containsKey("456"));//true
+		System.out.println(frozen.get("k42"));//v42
+		System.out.println(frozen.get("k100"));//null
+		System.out.println(frozen.equals(map));//true
+		try {
+			frozen.put("k1", "v");
+		} catch (UnsupportedOperationException e) {
+			System.out.println("UnsupportedOperationException");//UnsupportedOperationException
+		}
+	}
+}
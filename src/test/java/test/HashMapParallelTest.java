@@ -0,0 +1,55 @@
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HashMapParallelTest {
+	public static void main(String args[]){
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Map<Integer, Integer> src = new HashMap<>();
+		for (int i = 0; i < 100000; i++)
+			src.put(i, i);
+		HashMap<Integer, Integer> map = new HashMap<>();
+		map.put(-1, -1);
+		map.putAll(1000, src, pool);//超过阈值，由多个任务按箱子区间并行插入
+		System.out.println(map.size());//100001
+		System.out.println(map.equals(src));//false
+		map.remove(-1);
+		System.out.println(map.equals(src));//true
+		map.replaceAll(1000, (k, v) -> v * 2, pool);
+		System.out.println(map.get(12345));//24690
+		AtomicLong sum = new AtomicLong();
+		map.forEach(1000, (k, v) -> sum.addAndGet(v), pool);
+		System.out.println(sum.get());//9999900000
+		//键的equals抛出异常时size仍与表中的结点一致
+		Map<Object, Integer> bad = new HashMap<>();
+		for (int i = 0; i < 10000; i++)
+			bad.put(new BadKey(i), i);
+		HashMap<Object, Integer> target = new HashMap<>();
+		for (int i = 0; i < 10000; i += 100)
+			target.put(new BadKey(i), -i);
+		try {
+			target.putAll(100, bad, pool);
+		} catch (IllegalStateException e) {
+			System.out.println("ISE");//ISE
+		}
+		int count = 0;
+		for (Object k : target.keySet())
+			count++;
+		System.out.println(count == target.size());//true
+		pool.shutdown();
+	}
+
+	static class BadKey {
+		final int v;
+		BadKey(int v) { this.v = v; }
+		public int hashCode() { return v; }
+		public boolean equals(Object o) {
+			if (v % 100 == 0)
+				throw new IllegalStateException();//与已有的键比较时抛出异常
+			return o instanceof BadKey && ((BadKey)o).v == v;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package test;
+
+import java.util.HashMap;
+import java.util.HashMapStatistics;
+
+//运行时需要加上-Djava.util.HashMap.statistics=true才会统计resize、树化和get的探测长度
+public class HashMapStatisticsTest {
+	public static void main(String args[]){
+		HashMap<Integer, Integer> map = new HashMap<>();
+		for (int i = 0; i < 1000; i++)
+			map.put(i * 64, i);//hash值低位相同，集中在少数箱子中
+		for (int i = 0; i < 1000; i++)
+			map.get(i * 64);
+		System.out.println(map.binStatistics());
+		System.out.println(HashMapStatistics.resizeCount());
+		System.out.println(HashMapStatistics.averageProbeLength());
+	}
+}
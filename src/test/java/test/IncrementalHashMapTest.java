@@ -0,0 +1,19 @@
+package test;
+
+import java.util.IncrementalHashMap;
+
+public class IncrementalHashMapTest {
+	public static void main(String args[]){
+		IncrementalHashMap<String, String> map = new IncrementalHashMap<>();
+		for (int i = 0; i < 12; i++)
+			map.put("k" + i, "v" + i);
+		System.out.println(map.isResizing());//false
+		map.put("k12", "v12");//超过threshold=12，开始渐进式扩容
+		System.out.println(map.isResizing());//true
+		System.out.println(map.get("k3"));//v3 旧表和新表都会被查找
+		for (int i = 13; i < 20; i++)
+			map.put("k" + i, "v" + i);
+		System.out.println(map.isResizing());//false 每次新增结点都会迁移一部分箱子
+		System.out.println(map.size());//20
+	}
+}
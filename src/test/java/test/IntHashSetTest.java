@@ -0,0 +1,42 @@
+package test;
+
+import java.util.CompressedBitSet;
+import java.util.IntHashSet;
+import java.util.LongHashSet;
+
+public class IntHashSetTest {
+	public static void main(String args[]){
+		IntHashSet set = new IntHashSet();
+		System.out.println(set.add(0));//true 0单独用一个标志位记录
+		System.out.println(set.add(0));//false
+		for (int i = 1; i <= 100; i++)
+			set.add(i);
+		IntHashSet other = new IntHashSet();
+		for (int i = 50; i < 200; i++)
+			other.add(i);
+		IntHashSet both = set.clone();
+		both.retainAll(other);
+		System.out.println(both.size());//51
+		set.addAll(other);
+		System.out.println(set.size());//200
+		System.out.println(set.contains(199));//true
+		LongHashSet lset = new LongHashSet(4);
+		System.out.println(lset.add(1L << 40));//true
+		System.out.println(lset.contains(1L << 40));//true
+		System.out.println(lset.contains(0L));//false
+
+		CompressedBitSet ids = new CompressedBitSet();
+		ids.set(0, 1000000);//连续的id按整个字批量设置
+		ids.set(5000000);
+		CompressedBitSet odd = new CompressedBitSet();
+		for (int i = 1; i < 10; i += 2)
+			odd.set(i);
+		odd.set(5000000);
+		System.out.println(ids.cardinality());//1000001
+		System.out.println(ids.get(999999));//true
+		System.out.println(ids.get(1000000));//false
+		System.out.println(ids.nextSetBit(1000000));//5000000
+		ids.and(odd);
+		System.out.println(ids);//{1, 3, 5, 7, 9, 5000000}
+	}
+}
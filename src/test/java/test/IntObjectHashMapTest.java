@@ -0,0 +1,26 @@
+package test;
+
+import java.util.IntObjectHashMap;
+import java.util.LongObjectHashMap;
+
+public class IntObjectHashMapTest {
+	public static void main(String args[]){
+		IntObjectHashMap<String> map = new IntObjectHashMap<>();
+		System.out.println(map.put(1, "a"));//null
+		System.out.println(map.put(1, "b"));//a
+		System.out.println(map.put(17, null));//null
+		System.out.println(map.containsKey(17));//true
+		System.out.println(map.computeIfAbsent(17, k -> "c"));//c
+		for (int i = 0; i < 100; i++)
+			map.put(i * 16, String.valueOf(i));
+		System.out.println(map.size());//102
+		System.out.println(map.remove(0));//0
+		System.out.println(map.get(1));//b
+		System.out.println(map.compute(1, (k, v) -> null));//null
+		System.out.println(map.size());//100
+		LongObjectHashMap<String> lmap = new LongObjectHashMap<>(4);
+		System.out.println(lmap.put(1L << 40, "x"));//null
+		System.out.println(lmap.merge(1L << 40, "y", String::concat));//xy
+		System.out.println(lmap.get(1L << 40));//xy
+	}
+}
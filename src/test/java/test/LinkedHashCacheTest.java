@@ -0,0 +1,36 @@
+package test;
+
+import java.util.LinkedHashCache;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class LinkedHashCacheTest {
+	public static void main(String args[]) throws InterruptedException{
+		LinkedHashCache<String, byte[]> cache = new LinkedHashCache<>(100, (k, v) -> v.length);//按值的字节数计算权重
+		cache.put("a", new byte[40]);
+		cache.put("b", new byte[40]);
+		cache.get("a");
+		cache.put("c", new byte[30]);//总权重110超过上限，淘汰最近最少使用的b
+		System.out.println(cache.keySet());//[a, c]
+		System.out.println(cache.weightedSize());//70
+		cache.put("d", new byte[200]);//单个值就超过上限，不放入缓存，也不淘汰其它键值对
+		System.out.println(cache.containsKey("d"));//false
+		System.out.println(cache.keySet());//[a, c]
+		System.out.println(cache.weightedSize());//70
+		Map.Entry<String, byte[]> a = cache.entrySet().iterator().next();
+		cache.remove("a");
+		a.setValue(new byte[10]);//已删除的键值对，setValue不影响总权重
+		System.out.println(cache.weightedSize());//30
+
+		//每次sleep可以超时400ms而不影响结果
+		LinkedHashCache<Integer, String> expiring = new LinkedHashCache<>(100, null, 0, 1000, TimeUnit.MILLISECONDS);
+		expiring.put(1, "one");
+		expiring.put(2, "two");
+		Thread.sleep(600);
+		expiring.get(1);//访问后重新计时
+		Thread.sleep(600);
+		System.out.println(expiring.get(1));//one
+		System.out.println(expiring.get(2));//null
+		System.out.println(expiring.size());//1 过期的键值对已在get时回收
+	}
+}
@@ -0,0 +1,27 @@
+package test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LinkedHashMapTest {
+	public static void main(String args[]){
+		Map<Integer, String> cache = new LinkedHashMap<Integer, String>(16, 0.75f, true, true) {//近似access-order，CLOCK淘汰
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+				return size() > 3;
+			}
+		};
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(3, "c");
+		cache.get(1);
+		System.out.println(cache.keySet());//[1, 2, 3] get只设置引用位，不改变顺序
+		cache.put(4, "d");//1被访问过，移到尾部获得第二次机会，淘汰2
+		System.out.println(cache.keySet());//[3, 4, 1]
+		cache.get(3);
+		cache.get(4);
+		cache.get(1);
+		cache.put(5, "e");//除新插入的5外都被访问过，时钟转满一圈清除引用位，淘汰原来的头部3而不是5
+		System.out.println(cache.keySet());//[4, 1, 5]
+	}
+}
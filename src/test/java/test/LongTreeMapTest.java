@@ -0,0 +1,20 @@
+package test;
+
+import java.util.LongTreeMap;
+
+public class LongTreeMapTest {
+	public static void main(String args[]){
+		LongTreeMap<String> prices = new LongTreeMap<>();
+		for (long t = 1000; t <= 2000; t += 100)
+			prices.put(t, "p" + t);//键是long，不会装箱成Long
+		System.out.println(prices.floorKey(1250, -1));//1200
+		System.out.println(prices.floorValue(1250));//p1200 1250时刻的价格
+		System.out.println(prices.higherKey(2000, -1));//-1 没有更大的键时返回给定的默认值
+		StringBuilder sb = new StringBuilder();
+		for (LongTreeMap.Cursor<String> c = prices.cursor(1300, true, 1600, false); c.next(); )
+			sb.append(c.key()).append(' ');
+		System.out.println(sb);//1300 1400 1500
+		System.out.println(prices.remove(1000));//p1000
+		System.out.println(prices.firstKey());//1100
+	}
+}
@@ -0,0 +1,19 @@
+package test;
+
+import java.util.Arrays;
+import java.util.OffHeapHashMap;
+
+public class OffHeapHashMapTest {
+	public static void main(String args[]){
+		//键值对都保存在堆外内存中，使用完必须调用close释放
+		try (OffHeapHashMap map = new OffHeapHashMap()) {
+			byte[] key = "session-1".getBytes();
+			System.out.println(map.put(key, new byte[] {1, 2, 3}));//null
+			System.out.println(Arrays.toString(map.get(key)));//[1, 2, 3]
+			System.out.println(Arrays.toString(map.put(key, new byte[] {4})));//[1, 2, 3]
+			System.out.println(map.containsKey("session-2".getBytes()));//false
+			System.out.println(Arrays.toString(map.remove(key)));//[4]
+			System.out.println(map.size());//0
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.OpenHashMap;
+
+public class OpenHashMapTest {
+	public static void main(String args[]){
+		Map<String, String> map = new OpenHashMap<>();
+		System.out.println(map.put(null, "123"));//null
+		System.out.println(map.put("456", null));//null
+		System.out.println(map.get(null));//123
+		System.out.println(map.containsKey("456"));//true
+		for (int i = 0; i < 100; i++)
+			map.put("k" + i, "v" + i);
+		System.out.println(map.size());//102
+		//迭代器删除时后移删除不会导致元素被跳过或重复遍历
+		int count = 0;
+		for (Iterator<String> it = map.keySet().iterator(); it.hasNext();) {
+			String k = it.next();
+			count++;
+			if (k != null && k.startsWith("k"))
+				it.remove();
+		}
+		System.out.println(count);//102
+		System.out.println(map.size());//2
+		System.out.println(map.get("k1"));//null
+		Iterator<Map.Entry<String, String>> entries = map.entrySet().iterator();
+		Map.Entry<String, String> e = entries.next();
+		entries.remove();
+		e.setValue("x");//已删除的键值对，setValue不会重新插入
+		System.out.println(map.size());//1
+	}
+}
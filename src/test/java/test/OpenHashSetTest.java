@@ -0,0 +1,39 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.OpenHashSet;
+import java.util.Set;
+
+public class OpenHashSetTest {
+	public static void main(String args[]) throws Exception{
+		Set<String> set = new OpenHashSet<>();
+		System.out.println(set.add("123"));//true
+		System.out.println(set.add("123"));//false
+		System.out.println(set.add(null));//true
+		System.out.println(set.remove(null));//true
+		System.out.println(set.remove(null));//false
+		for (int i = 0; i < 100; i++)
+			set.add("s" + i);
+		System.out.println(set.parallelStream().filter(s -> s.startsWith("s")).count());//100 按槽位区间分割
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(set);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			System.out.println(set.equals(in.readObject()));//true
+		}
+		Iterator<String> it = set.iterator();
+		int n = 0;
+		while (it.hasNext()) {//迭代时删除元素，后移的元素不会被跳过或重复访问
+			it.next();
+			it.remove();
+			n++;
+		}
+		System.out.println(n);//101
+		System.out.println(set.isEmpty());//true
+	}
+}
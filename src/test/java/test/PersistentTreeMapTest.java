@@ -0,0 +1,25 @@
+package test;
+
+import java.util.PersistentTreeMap;
+
+public class PersistentTreeMapTest {
+	public static void main(String args[]){
+		PersistentTreeMap<Integer, Integer> bids = new PersistentTreeMap<>();
+		bids.put(100, 5);
+		bids.put(101, 3);
+		bids.put(99, 8);
+		PersistentTreeMap<Integer, Integer> snapshot = bids.snapshot();//O(1)，与当前版本共享所有结点
+		bids.put(102, 1);
+		bids.remove(99);
+		System.out.println(bids);//{100=5, 101=3, 102=1}
+		System.out.println(snapshot);//{99=8, 100=5, 101=3}
+		System.out.println(snapshot.lastKey());//101
+		System.out.println(bids.floorKey(99));//null
+		System.out.println(bids.headMap(102).size());//2
+		try {
+			snapshot.put(98, 2);
+		} catch (UnsupportedOperationException e) {
+			System.out.println("snapshot is read-only");//snapshot is read-only
+		}
+	}
+}
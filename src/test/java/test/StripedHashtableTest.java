@@ -0,0 +1,41 @@
+package test;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.StripedHashtable;
+
+public class StripedHashtableTest {
+	public static void main(String args[]) throws InterruptedException{
+		Hashtable<String, String> table = new StripedHashtable<>();//可以传给需要Hashtable的代码
+		table.put("a", "1");
+		table.put("b", "2");
+		try {
+			table.put("c", null);
+		} catch (NullPointerException e) {
+			System.out.println("NPE");//NPE 与Hashtable一样不允许null
+		}
+		Enumeration<String> keys = table.keys();
+		int n = 0;
+		while (keys.hasMoreElements()) {
+			keys.nextElement();
+			table.remove("b");//枚举是弱一致的，遍历时修改不会抛出异常
+			n++;
+		}
+		System.out.println(n >= 1 && table.size() == 1);//true
+		final Hashtable<Integer, Integer> shared = new StripedHashtable<>(11, 0.75f, 8);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int base = t * 10000;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					shared.put(base + i, i);//不同段的写操作可以并行
+					shared.get(i);//读操作不加锁
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		System.out.println(shared.size());//40000
+	}
+}
@@ -0,0 +1,28 @@
+package test;
+
+import java.util.TinyLfuCache;
+
+public class TinyLfuCacheTest {
+	public static void main(String args[]){
+		TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100);
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 50; i++) {//经常访问的50个键
+				if (cache.get(i) == null)
+					cache.put(i, "hot" + i);
+			}
+		}
+		for (int i = 1000; i < 1200; i++) {//一次性扫描大量只访问一次的键
+			if (cache.get(i) == null)
+				cache.put(i, "scan" + i);
+		}
+		int hot = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.containsKey(i))
+				hot++;
+		}
+		System.out.println(hot);//50 扫描没有把常用的键挤出缓存，纯LRU下这里是0
+		System.out.println(cache.size());//100
+		System.out.println(cache.hitCount());//450
+		System.out.println(cache.missCount());//250
+	}
+}
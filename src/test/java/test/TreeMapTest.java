@@ -1,5 +1,6 @@
 package test;
 
+import java.util.HashMap;
 import java.util.TreeMap;
 
 public class TreeMapTest {
@@ -9,6 +10,20 @@ public class TreeMapTest {
 		//tmap.put(null, "123");报错
 		System.out.println(tmap.get("123"));//null
 		tmap.descendingKeySet();
+
+		TreeMap<Integer, Integer> scores = new TreeMap<>();
+		for (int i = 1; i <= 100; i++)
+			scores.put(i * 10, i);
+		System.out.println(scores.rank(255));//25 比255小的键有25个
+		System.out.println(scores.select(49).getKey());//500 中位数
+		System.out.println(scores.subMap(100, 300).size());//20 子Map的大小由排名相减得到，不需要遍历
+
+		HashMap<Integer, Integer> index = new HashMap<>();
+		for (int i = 0; i < 100000; i++)
+			index.put(i * 3, i);
+		scores.putAll(0, index);//并行排序后与原有结点归并，再并行构建整棵树
+		System.out.println(scores.size());//100067 有33个键两边都有
+		System.out.println(scores.get(300));//100 相同的键取index中的值
 	}
 	
 }
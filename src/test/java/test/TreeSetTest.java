@@ -1,10 +1,17 @@
 package test;
 
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 
 public class TreeSetTest {
 	public static void main(String args[]){
+		TreeSet<Integer> a = new TreeSet<>(Arrays.asList(1, 3, 5, 7, 9));
+		TreeSet<Integer> b = new TreeSet<>(Arrays.asList(3, 4, 5, 6));
+		System.out.println(a.union(b));//[1, 3, 4, 5, 6, 7, 9] 两个有序集合同时遍历一次，O(n+m)
+		System.out.println(a.intersection(b));//[3, 5]
+		System.out.println(a.difference(Arrays.asList(9, 1)));//[3, 5, 7] 无序的集合先排序
+
 		Set<String> set = new TreeSet<>();
 		System.out.println(set.add("123"));//true
 		System.out.println(set.add("123"));//false